@@ -19,8 +19,18 @@
 
 package org.apache.ranger.audit.destination;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
@@ -35,6 +45,7 @@ import javax.persistence.Persistence;
 import org.apache.ranger.audit.dao.DaoManager;
 import org.apache.ranger.audit.entity.AuthzAuditEventDbObj;
 import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
 import org.apache.ranger.audit.provider.MiscUtil;
 
 public class DBAuditDestination extends AuditDestination {
@@ -47,6 +58,13 @@ public class DBAuditDestination extends AuditDestination {
 	public static final String PROP_DB_USER = "user";
 	public static final String PROP_DB_PASSWORD = "password";
 	public static final String PROP_DB_PASSWORD_ALIAS = "password.alias";
+	public static final String PROP_DB_JDBC_BATCH_SIZE = "jdbc.batch.size";
+
+	// Columns of xa_access_audit, in the order of the parameters set in addToBatch()
+	private static final String INSERT_COLUMNS = "repo_type, repo_name, request_user, event_time, access_type, resource_path, resource_type, action, access_result, agent_id, policy_id, result_reason, acl_enforcer, session_id, client_type, client_ip, request_data, seq_num, event_count, event_dur_ms, tags";
+	private static final String INSERT_VALUES  = "?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?";
+	private static final String INSERT_SQL            = "INSERT INTO xa_access_audit (" + INSERT_COLUMNS + ") VALUES (" + INSERT_VALUES + ")";
+	private static final String INSERT_SQL_WITH_SEQID = "INSERT INTO xa_access_audit (id, " + INSERT_COLUMNS + ") VALUES (XA_ACCESS_AUDIT_SEQ.NEXTVAL, " + INSERT_VALUES + ")";
 
 	private EntityManagerFactory entityManagerFactory;
 	private DaoManager daoManager;
@@ -55,6 +73,8 @@ public class DBAuditDestination extends AuditDestination {
 	private String jdbcURL = null;
 	private String dbUser = null;
 	private String dbPasswordAlias = "auditDBCred";
+	private int jdbcBatchSize = 0;
+	private String insertSql = INSERT_SQL;
 
 	public DBAuditDestination() {
 		logger.info("DBAuditDestination() called");
@@ -64,6 +84,12 @@ public class DBAuditDestination extends AuditDestination {
 	public void init(Properties props, String propPrefix) {
 		logger.info("init() called");
 		super.init(props, propPrefix);
+
+		jdbcBatchSize = MiscUtil.getIntProperty(props, propPrefix + "."
+				+ PROP_DB_JDBC_BATCH_SIZE, jdbcBatchSize);
+		logger.info("JDBC batch size=" + jdbcBatchSize
+				+ (jdbcBatchSize > 0 ? "" : " (JDBC batch inserts disabled)"));
+
 		// Initial connect
 		connect();
 
@@ -83,7 +109,11 @@ public class DBAuditDestination extends AuditDestination {
 		boolean retValue = false;
 		logStatusIfRequired();
 		addTotalCount(events.size());
-		
+
+		if (jdbcBatchSize > 0 && isJdbcBatchSupported(events)) {
+			return logBatch(events);
+		}
+
 		if (beginTransaction()) {
 			boolean isFailed = false;
 			for (AuditEventBase event : events) {
@@ -111,6 +141,190 @@ public class DBAuditDestination extends AuditDestination {
 		return retValue;
 	}
 
+	/**
+	 * Inserts the events with JDBC batches, in a single transaction. If the
+	 * batch fails due to the data of some events, it is split in halves that
+	 * are retried in separate transactions, until the bad events are isolated;
+	 * these are logged and counted as failed, other events are stored. If the
+	 * database can't be reached, events not yet committed are deferred - which
+	 * could result in events committed by earlier halves to be sent again.
+	 */
+	private boolean logBatch(Collection<AuditEventBase> events) {
+		List<AuthzAuditEventDbObj> dbObjs = new ArrayList<AuthzAuditEventDbObj>(events.size());
+
+		for (AuditEventBase event : events) {
+			dbObjs.add(new AuthzAuditEventDbObj((AuthzAuditEvent) event));
+		}
+
+		boolean ret = false;
+
+		try {
+			int failedCount = insertWithBisection(dbObjs);
+
+			addSuccessCount(dbObjs.size() - failedCount);
+			addFailedCount(failedCount);
+
+			ret = true;
+		} catch (SQLException excp) {
+			logger.error("Error persisting data. Will be retried. eventCount=" + dbObjs.size(), excp);
+
+			addDeferredCount(dbObjs.size());
+		}
+
+		return ret;
+	}
+
+	/**
+	 * @return number of events that could not be inserted due to their data
+	 * @throws SQLException if the database can't be reached
+	 */
+	private int insertWithBisection(List<AuthzAuditEventDbObj> dbObjs) throws SQLException {
+		try {
+			insertBatch(dbObjs);
+
+			return 0;
+		} catch (SQLException excp) {
+			if (isConnectionError(excp)) {
+				throw excp;
+			}
+
+			if (dbObjs.size() == 1) {
+				logger.error("Error persisting data. Event will be dropped. repo=" + dbObjs.get(0).getRepositoryName()
+						+ ", user=" + dbObjs.get(0).getUser() + ", resource=" + dbObjs.get(0).getResourcePath(), excp);
+
+				return 1;
+			}
+
+			if (logger.isDebugEnabled()) {
+				logger.debug("insertWithBisection(): batch of " + dbObjs.size() + " events failed; retrying in halves", excp);
+			}
+
+			int mid = dbObjs.size() / 2;
+
+			return insertWithBisection(dbObjs.subList(0, mid)) + insertWithBisection(dbObjs.subList(mid, dbObjs.size()));
+		}
+	}
+
+	/**
+	 * Inserts the given events in one transaction, in batches of
+	 * jdbcBatchSize rows. The connection of the JPA transaction is used, so
+	 * that connections are managed by the same pool as the JPA path.
+	 */
+	protected void insertBatch(List<AuthzAuditEventDbObj> dbObjs) throws SQLException {
+		if (!beginTransaction()) {
+			throw new SQLNonTransientConnectionException("not connected to audit database. dbURL=" + jdbcURL);
+		}
+
+		boolean           isTrxComplete = false;
+		PreparedStatement stmt          = null;
+
+		try {
+			Connection conn = getEntityManager().unwrap(Connection.class);
+
+			stmt = conn.prepareStatement(insertSql);
+
+			int batchCount = 0;
+
+			for (AuthzAuditEventDbObj dbObj : dbObjs) {
+				addToBatch(stmt, dbObj);
+
+				if (++batchCount == jdbcBatchSize) {
+					stmt.executeBatch();
+
+					batchCount = 0;
+				}
+			}
+
+			if (batchCount > 0) {
+				stmt.executeBatch();
+			}
+
+			stmt.close();
+			stmt = null;
+
+			isTrxComplete = true;
+
+			if (!commitTransaction()) {
+				throw new SQLRecoverableException("commit failed. dbURL=" + jdbcURL);
+			}
+		} catch (RuntimeException excp) { // JPA exceptions, for example from unwrap()
+			throw new SQLRecoverableException("Error getting connection from the entity manager", excp);
+		} finally {
+			if (stmt != null) {
+				try {
+					stmt.close();
+				} catch (SQLException excp) {
+					logger.warn("DBAuditDestination.insertBatch(): failed to close statement", excp);
+				}
+			}
+
+			if (!isTrxComplete) {
+				rollbackTransaction();
+			}
+		}
+	}
+
+	private void addToBatch(PreparedStatement stmt, AuthzAuditEventDbObj dbObj) throws SQLException {
+		int idx = 1;
+
+		stmt.setInt(idx++, dbObj.getRepositoryType());
+		setString(stmt, idx++, dbObj.getRepositoryName());
+		setString(stmt, idx++, dbObj.getUser());
+		stmt.setTimestamp(idx++, dbObj.getTimeStamp() != null ? new Timestamp(dbObj.getTimeStamp().getTime()) : null);
+		setString(stmt, idx++, dbObj.getAccessType());
+		setString(stmt, idx++, dbObj.getResourcePath());
+		setString(stmt, idx++, dbObj.getResourceType());
+		setString(stmt, idx++, dbObj.getAction());
+		stmt.setInt(idx++, dbObj.getAccessResult());
+		setString(stmt, idx++, dbObj.getAgentId());
+		stmt.setLong(idx++, dbObj.getPolicyId());
+		setString(stmt, idx++, dbObj.getResultReason());
+		setString(stmt, idx++, dbObj.getAclEnforcer());
+		setString(stmt, idx++, dbObj.getSessionId());
+		setString(stmt, idx++, dbObj.getClientType());
+		setString(stmt, idx++, dbObj.getClientIP());
+		setString(stmt, idx++, dbObj.getRequestData());
+		stmt.setLong(idx++, dbObj.getSeqNum());
+		stmt.setLong(idx++, dbObj.getEventCount());
+		stmt.setLong(idx++, dbObj.getEventDurationMS());
+		setString(stmt, idx++, dbObj.getTags());
+
+		stmt.addBatch();
+	}
+
+	private static void setString(PreparedStatement stmt, int idx, String value) throws SQLException {
+		if (value == null) {
+			stmt.setNull(idx, Types.VARCHAR);
+		} else {
+			stmt.setString(idx, value);
+		}
+	}
+
+	private static boolean isJdbcBatchSupported(Collection<AuditEventBase> events) {
+		for (AuditEventBase event : events) {
+			if (!(event instanceof AuthzAuditEvent)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static boolean isConnectionError(SQLException excp) {
+		for (SQLException e = excp; e != null; e = e.getNextException()) {
+			String sqlState = e.getSQLState();
+
+			if (e instanceof SQLTransientConnectionException
+					|| e instanceof SQLNonTransientConnectionException
+					|| e instanceof SQLRecoverableException
+					|| (sqlState != null && sqlState.startsWith("08"))) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
 	@Override
 	public void stop() {
 		cleanUp();
@@ -127,6 +341,7 @@ public class DBAuditDestination extends AuditDestination {
 					+ PROP_DB_JDBC_DRIVER);
 			jdbcURL = MiscUtil.getStringProperty(props, propPrefix + "."
 					+ PROP_DB_JDBC_URL);
+			insertSql = jdbcURL != null && jdbcURL.startsWith("jdbc:oracle:") ? INSERT_SQL_WITH_SEQID : INSERT_SQL;
 			dbUser = MiscUtil.getStringProperty(props, propPrefix + "."
 					+ PROP_DB_USER);
 			String dbPasswordFromProp = MiscUtil.getStringProperty(props,
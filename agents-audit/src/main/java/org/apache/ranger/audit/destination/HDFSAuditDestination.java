@@ -34,11 +34,17 @@ import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
 import org.apache.ranger.audit.provider.MiscUtil;
+import org.apache.ranger.audit.utils.AuditORCWriter;
 import org.apache.ranger.audit.utils.RollingTimeUtil;
 
 /**
  * This class write the logs to local file
+ *
+ * With file.type=orc, audits are written as ORC files using AuditORCWriter. The ORC libraries - orc-core,
+ * hive-storage-api and aircompressor - are not packaged with the plugins and must be added to the plugin classpath
+ * to use this file type; when they are not found, JSON files are written.
  */
 public class HDFSAuditDestination extends AuditDestination {
 	private static final Log logger = LogFactory
@@ -49,6 +55,13 @@ public class HDFSAuditDestination extends AuditDestination {
 	public static final String PROP_HDFS_FILE_NAME_FORMAT = "filename.format";
 	public static final String PROP_HDFS_ROLLOVER = "file.rollover.sec";
 	public static final String PROP_HDFS_ROLLOVER_PERIOD = "file.rollover.period";
+	public static final String PROP_HDFS_FILE_TYPE = "file.type";
+	public static final String PROP_HDFS_ORC_COMPRESSION = "orc.compression";
+	public static final String PROP_HDFS_ORC_BATCH_SIZE = "orc.batch.size";
+	public static final String PROP_HDFS_ORC_FLUSH_INTERVAL = "orc.flush.interval.sec";
+
+	public static final String FILE_TYPE_JSON = "json";
+	public static final String FILE_TYPE_ORC = "orc";
 
 	String baseFolder = null;
 	String fileFormat = null;
@@ -64,6 +77,20 @@ public class HDFSAuditDestination extends AuditDestination {
 
 	private PrintWriter logWriter = null;
 
+	private boolean isORCFileType = false;
+
+	// ORC types are not referenced in fields, so that this class loads when ORC libraries are not in the classpath
+	private String orcCompression = "ZLIB";
+
+	private int orcBatchSize = AuditORCWriter.DEFAULT_BATCH_SIZE;
+
+	private long orcFlushIntervalMs = AuditORCWriter.DEFAULT_FLUSH_INTERVAL_MS;
+
+	private AuditORCWriter orcWriter = null;
+
+	// ids of events that were written to an ORC file before a failed write, and would be sent again on retry
+	private Set<String> orcEventIdsWrittenBeforeFailure = new HashSet<String>();
+
 	private String currentFileName;
 
 	private boolean isStopped = false;
@@ -99,8 +126,44 @@ public class HDFSAuditDestination extends AuditDestination {
 		fileRolloverSec = MiscUtil.getIntProperty(props, propPrefix + "."
 				+ PROP_HDFS_ROLLOVER, fileRolloverSec);
 
+		String fileType = MiscUtil.getStringProperty(props, propPrefix + "."
+				+ PROP_HDFS_FILE_TYPE);
+		if (FILE_TYPE_ORC.equalsIgnoreCase(fileType)) {
+			isORCFileType = true;
+		} else if (fileType != null && !fileType.isEmpty()
+				&& !FILE_TYPE_JSON.equalsIgnoreCase(fileType)) {
+			logger.warn("Unsupported " + propPrefix + "." + PROP_HDFS_FILE_TYPE
+					+ "=" + fileType + ". Will write JSON files. name=" + getName());
+		}
+
+		if (isORCFileType) {
+			String compression = MiscUtil.getStringProperty(props, propPrefix
+					+ "." + PROP_HDFS_ORC_COMPRESSION);
+			try {
+				orcCompression = AuditORCWriter.toCompressionName(StringUtils.isNotEmpty(compression) ? compression : orcCompression);
+			} catch (IllegalArgumentException excp) {
+				logger.warn("Unsupported " + propPrefix + "." + PROP_HDFS_ORC_COMPRESSION
+						+ "=" + compression + ". Will use " + orcCompression + ". name=" + getName());
+			} catch (LinkageError excp) {
+				logger.error("ORC libraries not found. Jars of orc-core, hive-storage-api and aircompressor must be added to the classpath to write ORC files."
+						+ " Will write JSON files. name=" + getName(), excp);
+				isORCFileType = false;
+			}
+		}
+
+		if (isORCFileType) {
+			orcBatchSize = MiscUtil.getIntProperty(props, propPrefix + "."
+					+ PROP_HDFS_ORC_BATCH_SIZE, orcBatchSize);
+			orcFlushIntervalMs = MiscUtil.getIntProperty(props, propPrefix + "."
+					+ PROP_HDFS_ORC_FLUSH_INTERVAL, (int) (orcFlushIntervalMs / 1000)) * 1000L;
+			logger.info("fileType=" + FILE_TYPE_ORC + ", orcCompression=" + orcCompression
+					+ ", orcBatchSize=" + orcBatchSize + ", orcFlushIntervalMs=" + orcFlushIntervalMs
+					+ ", destName=" + getName());
+		}
+
 		if (logFileNameFormat == null || logFileNameFormat.isEmpty()) {
-			logFileNameFormat = "%app-type%_ranger_audit_%hostname%" + ".log";
+			logFileNameFormat = "%app-type%_ranger_audit_%hostname%"
+					+ (isORCFileType ? ".orc" : ".log");
 		}
 
 		logFolder = logFolderProp + "/" + logSubFolder;
@@ -131,6 +194,21 @@ public class HDFSAuditDestination extends AuditDestination {
 
 	@Override
 	synchronized public boolean logJSON(final Collection<String> events) {
+		if (isORCFileType) {
+			List<AuditEventBase> eventList = new ArrayList<AuditEventBase>(events.size());
+			for (String event : events) {
+				try {
+					eventList.add(MiscUtil.fromJson(event, AuthzAuditEvent.class));
+				} catch (Throwable t) {
+					logger.error("Error converting from JSON. event=" + event);
+					addTotalCount(1);
+					addFailedCount(1);
+					logFailedEventJSON(event, t);
+				}
+			}
+			return logORC(eventList);
+		}
+
 		logStatusIfRequired();
 		addTotalCount(events.size());
 
@@ -185,12 +263,112 @@ public class HDFSAuditDestination extends AuditDestination {
 		return true;
 	}
 
+	synchronized private boolean logORC(final Collection<AuditEventBase> events) {
+		logStatusIfRequired();
+		addTotalCount(events.size());
+
+		if (!initDone) {
+			addDeferredCount(events.size());
+			return false;
+		}
+		if (isStopped) {
+			addDeferredCount(events.size());
+			logError("log() called after stop was requested. name=" + getName());
+			return false;
+		}
+
+		// events of a failed batch that made it to the previous file are skipped when the batch is retried
+		final List<AuthzAuditEvent> eventsToWrite = new ArrayList<AuthzAuditEvent>(events.size());
+		final List<AuthzAuditEvent> writtenEvents = new ArrayList<AuthzAuditEvent>(events.size());
+		final Set<String>           skippedIds    = new HashSet<String>();
+
+		for (AuditEventBase event : events) {
+			AuthzAuditEvent authzEvent = (AuthzAuditEvent) event;
+			String          eventId    = authzEvent.getEventId();
+
+			if (eventId != null && orcEventIdsWrittenBeforeFailure.contains(eventId)) {
+				skippedIds.add(eventId);
+			} else {
+				eventsToWrite.add(authzEvent);
+			}
+		}
+
+		if (!skippedIds.isEmpty()) {
+			logger.info("Skipping " + skippedIds.size() + " events already written to ORC file before a failure. name=" + getName());
+		}
+
+		try {
+			if (logger.isDebugEnabled()) {
+				logger.debug("UGI=" + MiscUtil.getUGILoginUser()
+						+ ". Will write to HDFS file=" + currentFileName);
+			}
+
+			MiscUtil.executePrivilegedAction(new PrivilegedExceptionAction<Void>() {
+				@Override
+				public Void run()  throws Exception {
+					AuditORCWriter out = getORCFileWriter();
+					for (AuthzAuditEvent event : eventsToWrite) {
+						out.write(event);
+						writtenEvents.add(event);
+					}
+					return null;
+				};
+			});
+		} catch (Throwable t) {
+			addDeferredCount(events.size());
+			logError("Error writing to ORC file.", t);
+
+			// The whole batch will be retried. Rows already handed to the writer are in the file if it closes without
+			// error; remember their ids to avoid writing them again. Events without id can't be tracked, and will be
+			// duplicated. If the close fails, the file is unreadable and all events of the batch are to be written again.
+			Set<String> writtenIds = new HashSet<String>(skippedIds);
+
+			if (closeWriter()) {
+				for (AuthzAuditEvent event : writtenEvents) {
+					if (event.getEventId() != null) {
+						writtenIds.add(event.getEventId());
+					}
+				}
+			}
+			orcEventIdsWrittenBeforeFailure = writtenIds;
+
+			return false;
+		}
+		orcEventIdsWrittenBeforeFailure.removeAll(skippedIds);
+		addSuccessCount(events.size());
+		return true;
+	}
+
 	@Override
 	public void flush() {
 		if ( logWriter != null) {
 			logWriter.flush();
 			logger.info("Flush HDFS audit logs completed.....");
 		 }
+		if (orcWriter != null) {
+			flushORCWriter();
+		}
+	}
+
+	synchronized private void flushORCWriter() {
+		final AuditORCWriter out = orcWriter;
+		if (out == null) {
+			return;
+		}
+		try {
+			// a footer is written at most once in orc.flush.interval.sec, as each one ends the current stripe
+			boolean isFlushed = MiscUtil.executePrivilegedAction(new PrivilegedExceptionAction<Boolean>() {
+				@Override
+				public Boolean run() throws Exception {
+					return out.flush();
+				};
+			});
+			if (isFlushed) {
+				logger.info("Flush HDFS ORC audit file completed. fileName=" + currentFileName);
+			}
+		} catch (Throwable t) {
+			logError("Error flushing ORC file. fileName=" + currentFileName, t);
+		}
 	}
 
 	/*
@@ -208,6 +386,20 @@ public class HDFSAuditDestination extends AuditDestination {
 			logError("log() called after stop was requested. name=" + getName());
 			return false;
 		}
+		if (isORCFileType) {
+			List<AuditEventBase> eventList = new ArrayList<AuditEventBase>(events.size());
+			for (AuditEventBase event : events) {
+				if (event instanceof AuthzAuditEvent) {
+					eventList.add(event);
+				} else {
+					logger.error("Unsupported event type for ORC file. event=" + event);
+					addTotalCount(1);
+					addFailedCount(1);
+					logFailedEvent(event);
+				}
+			}
+			return logORC(eventList);
+		}
 		List<String> jsonList = new ArrayList<String>();
 		for (AuditEventBase event : events) {
 			try {
@@ -237,16 +429,7 @@ public class HDFSAuditDestination extends AuditDestination {
 	@Override
 	synchronized public void stop() {
 		isStopped = true;
-		if (logWriter != null) {
-			try {
-				logWriter.flush();
-				logWriter.close();
-			} catch (Throwable t) {
-				logger.error("Error on closing log writter. Exception will be ignored. name="
-						+ getName() + ", fileName=" + currentFileName);
-			}
-			logWriter = null;
-		}
+		closeWriter();
 		logStatus();
 	}
 
@@ -257,46 +440,67 @@ public class HDFSAuditDestination extends AuditDestination {
 		// Either there are no open log file or the previous one has been rolled
 		// over
 		if (logWriter == null) {
-			Date currentTime = new Date();
-			// Create a new file
-			String fileName = MiscUtil.replaceTokens(logFileNameFormat,
-					currentTime.getTime());
-			String parentFolder = MiscUtil.replaceTokens(logFolder,
-					currentTime.getTime());
 			Configuration conf = createConfiguration();
-
-			String fullPath = parentFolder + Path.SEPARATOR + fileName;
-			String defaultPath = fullPath;
-			URI uri = URI.create(fullPath);
-			FileSystem fileSystem = FileSystem.get(uri, conf);
-
-			Path hdfPath = new Path(fullPath);
-			logger.info("Checking whether log file exists. hdfPath=" + fullPath + ", UGI=" + MiscUtil.getUGILoginUser());
-			int i = 0;
-			while (fileSystem.exists(hdfPath)) {
-				i++;
-				int lastDot = defaultPath.lastIndexOf('.');
-				String baseName = defaultPath.substring(0, lastDot);
-				String extension = defaultPath.substring(lastDot);
-				fullPath = baseName + "." + i + extension;
-				hdfPath = new Path(fullPath);
-				logger.info("Checking whether log file exists. hdfPath="
-						+ fullPath);
-			}
-			logger.info("Log file doesn't exists. Will create and use it. hdfPath="
-					+ fullPath);
-			// Create parent folders
-			createParents(hdfPath, fileSystem);
+			Path hdfPath = createLogFilePath(conf);
+			FileSystem fileSystem = hdfPath.getFileSystem(conf);
 
 			// Create the file to write
-			logger.info("Creating new log file. hdfPath=" + fullPath);
+			logger.info("Creating new log file. hdfPath=" + hdfPath);
 			FSDataOutputStream ostream = fileSystem.create(hdfPath);
 			logWriter = new PrintWriter(ostream);
-			currentFileName = fullPath;
+			currentFileName = hdfPath.toString();
 		}
 		return logWriter;
 	}
 
+	synchronized private AuditORCWriter getORCFileWriter() throws Exception {
+		closeFileIfNeeded();
+
+		if (orcWriter == null) {
+			Configuration conf = createConfiguration();
+			Path hdfPath = createLogFilePath(conf);
+
+			logger.info("Creating new ORC file. hdfPath=" + hdfPath);
+			orcWriter = new AuditORCWriter(hdfPath.getFileSystem(conf), hdfPath, conf, orcCompression, orcBatchSize, orcFlushIntervalMs);
+			currentFileName = hdfPath.toString();
+		}
+		return orcWriter;
+	}
+
+	// returns the path of a new file, whose parent folders exist
+	private Path createLogFilePath(Configuration conf) throws Exception {
+		Date currentTime = new Date();
+		String fileName = MiscUtil.replaceTokens(logFileNameFormat,
+				currentTime.getTime());
+		String parentFolder = MiscUtil.replaceTokens(logFolder,
+				currentTime.getTime());
+
+		String fullPath = parentFolder + Path.SEPARATOR + fileName;
+		String defaultPath = fullPath;
+		URI uri = URI.create(fullPath);
+		FileSystem fileSystem = FileSystem.get(uri, conf);
+
+		Path hdfPath = new Path(fullPath);
+		logger.info("Checking whether log file exists. hdfPath=" + fullPath + ", UGI=" + MiscUtil.getUGILoginUser());
+		int i = 0;
+		while (fileSystem.exists(hdfPath)) {
+			i++;
+			int lastDot = defaultPath.lastIndexOf('.');
+			String baseName = defaultPath.substring(0, lastDot);
+			String extension = defaultPath.substring(lastDot);
+			fullPath = baseName + "." + i + extension;
+			hdfPath = new Path(fullPath);
+			logger.info("Checking whether log file exists. hdfPath="
+					+ fullPath);
+		}
+		logger.info("Log file doesn't exists. Will create and use it. hdfPath="
+				+ fullPath);
+		// Create parent folders
+		createParents(hdfPath, fileSystem);
+
+		return hdfPath;
+	}
+
 	Configuration createConfiguration() {
 		Configuration conf = new Configuration();
 		for (Map.Entry<String, String> entry : configProps.entrySet()) {
@@ -324,14 +528,11 @@ public class HDFSAuditDestination extends AuditDestination {
 		}
 	}
 
-	private void closeFileIfNeeded() throws FileNotFoundException, IOException {
-		if (logWriter == null) {
-			return;
-		}
+	// returns false if the ORC writer failed to close
+	private boolean closeWriter() {
+		boolean ret = true;
 
-		if ( System.currentTimeMillis() > nextRollOverTime.getTime() ) {
-			logger.info("Closing file. Rolling over. name=" + getName()
-				+ ", fileName=" + currentFileName);
+		if (logWriter != null) {
 			try {
 				logWriter.flush();
 				logWriter.close();
@@ -339,9 +540,40 @@ public class HDFSAuditDestination extends AuditDestination {
 				logger.error("Error on closing log writter. Exception will be ignored. name="
 						+ getName() + ", fileName=" + currentFileName);
 			}
-
 			logWriter = null;
-			currentFileName = null;
+		}
+		if (orcWriter != null) {
+			final AuditORCWriter out = orcWriter;
+			try {
+				// ORC writes buffered stripes and the footer on close
+				MiscUtil.executePrivilegedAction(new PrivilegedExceptionAction<Void>() {
+					@Override
+					public Void run() throws Exception {
+						out.close();
+						return null;
+					};
+				});
+			} catch (Throwable t) {
+				logger.error("Error on closing ORC writer. Exception will be ignored. name="
+						+ getName() + ", fileName=" + currentFileName, t);
+				ret = false;
+			}
+			orcWriter = null;
+		}
+		currentFileName = null;
+
+		return ret;
+	}
+
+	private void closeFileIfNeeded() throws FileNotFoundException, IOException {
+		if (logWriter == null && orcWriter == null) {
+			return;
+		}
+
+		if ( System.currentTimeMillis() > nextRollOverTime.getTime() ) {
+			logger.info("Closing file. Rolling over. name=" + getName()
+				+ ", fileName=" + currentFileName);
+			closeWriter();
 
 			if (!rollOverByDuration) {
 				try {
@@ -41,6 +41,13 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 public class SolrAuditDestination extends AuditDestination {
@@ -51,12 +58,33 @@ public class SolrAuditDestination extends AuditDestination {
 	public static final String PROP_SOLR_ZK = "zookeepers";
 	public static final String PROP_SOLR_COLLECTION = "collection";
 	public static final String PROP_SOLR_FORCE_USE_INMEMORY_JAAS_CONFIG = "force.use.inmemory.jaas.config";
+	public static final String PROP_SOLR_COMMIT_WITHIN_MS = "commit.within.ms";
+	public static final String PROP_SOLR_PIPELINE_ENABLED = "pipeline.enabled";
+	public static final String PROP_SOLR_PIPELINE_MAX_OUTSTANDING_REQUESTS = "pipeline.max.outstanding.requests";
+	public static final String PROP_SOLR_PIPELINE_DRAIN_TIMEOUT_MS = "pipeline.drain.timeout.ms";
+
+	public static final int DEFAULT_PIPELINE_MAX_OUTSTANDING_REQUESTS = 4;
+	public static final int DEFAULT_PIPELINE_COMMIT_WITHIN_MS = 5000;
+	public static final int DEFAULT_PIPELINE_DRAIN_TIMEOUT_MS = 30000;
 
 	public static final String DEFAULT_COLLECTION_NAME = "ranger_audits";
 	public static final String PROP_JAVA_SECURITY_AUTH_LOGIN_CONFIG = "java.security.auth.login.config";
 
 	private volatile SolrClient solrClient = null;
 
+	// commitWithin, in milliseconds, sent with each update request; -1 leaves commits to the server autoCommit settings
+	private int commitWithinMs = -1;
+
+	// pipelined mode: batches are converted and sent by pipelineExecutor, with at most maxOutstandingRequests in flight
+	private boolean         pipelineEnabled        = false;
+	private int             maxOutstandingRequests = DEFAULT_PIPELINE_MAX_OUTSTANDING_REQUESTS;
+	private int             drainTimeoutMs         = DEFAULT_PIPELINE_DRAIN_TIMEOUT_MS;
+	private ExecutorService pipelineExecutor       = null;
+	private Semaphore       outstandingRequests    = null;
+
+	// batches whose update request failed for a reason other than a SolrException, to be resent by the next log()
+	private final ConcurrentLinkedQueue<Collection<AuditEventBase>> failedBatches = new ConcurrentLinkedQueue<Collection<AuditEventBase>>();
+
 	public SolrAuditDestination() {
 	}
 
@@ -65,15 +93,77 @@ public class SolrAuditDestination extends AuditDestination {
 		LOG.info("init() called");
 		super.init(props, propPrefix);
 		init();
+
+		pipelineEnabled = MiscUtil.getBooleanProperty(props, propPrefix + "." + PROP_SOLR_PIPELINE_ENABLED, false);
+		commitWithinMs  = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_SOLR_COMMIT_WITHIN_MS, pipelineEnabled ? DEFAULT_PIPELINE_COMMIT_WITHIN_MS : -1);
+
+		if (pipelineEnabled) {
+			maxOutstandingRequests = Math.max(1, MiscUtil.getIntProperty(props, propPrefix + "." + PROP_SOLR_PIPELINE_MAX_OUTSTANDING_REQUESTS, DEFAULT_PIPELINE_MAX_OUTSTANDING_REQUESTS));
+			drainTimeoutMs         = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_SOLR_PIPELINE_DRAIN_TIMEOUT_MS, DEFAULT_PIPELINE_DRAIN_TIMEOUT_MS);
+			outstandingRequests    = new Semaphore(maxOutstandingRequests);
+			pipelineExecutor       = Executors.newFixedThreadPool(maxOutstandingRequests, new PipelineThreadFactory(getName()));
+		}
+
+		LOG.info("Solr pipelineEnabled=" + pipelineEnabled + ", maxOutstandingRequests=" + maxOutstandingRequests + ", commitWithinMs=" + commitWithinMs);
+
 		connect();
 	}
 
+	@Override
+	public void flush() {
+		if (pipelineEnabled) {
+			waitForOutstandingRequests(drainTimeoutMs);
+		}
+	}
+
 	@Override
 	public void stop() {
 		super.stop();
+
+		if (pipelineEnabled) {
+			waitForOutstandingRequests(drainTimeoutMs);
+
+			pipelineExecutor.shutdown();
+
+			for (Collection<AuditEventBase> events = failedBatches.poll(); events != null; events = failedBatches.poll()) {
+				addFailedCount(events.size());
+				logFailedEvent(events, "destination stopped before the events could be sent to Solr");
+			}
+		}
+
 		logStatus();
 	}
 
+	// in pipelined mode, counts are updated by all pipeline threads
+	@Override
+	synchronized public long addTotalCount(int count) {
+		return super.addTotalCount(count);
+	}
+
+	@Override
+	synchronized public long addSuccessCount(int count) {
+		return super.addSuccessCount(count);
+	}
+
+	@Override
+	synchronized public long addFailedCount(int count) {
+		return super.addFailedCount(count);
+	}
+
+	@Override
+	synchronized public long addDeferredCount(int count) {
+		return super.addDeferredCount(count);
+	}
+
+	@Override
+	synchronized public void logStatus() {
+		super.logStatus();
+	}
+
+	protected SolrClient getSolrClient() {
+		return solrClient;
+	}
+
 	synchronized void connect() {
 		SolrClient me = solrClient;
 		if (me == null) {
@@ -116,8 +206,14 @@ public class SolrAuditDestination extends AuditDestination {
 							final CloudSolrClient solrCloudClient = MiscUtil.executePrivilegedAction(new PrivilegedExceptionAction<CloudSolrClient>() {
 								@Override
 								public CloudSolrClient run()  throws Exception {
-									CloudSolrClient solrCloudClient = new CloudSolrClient(
-											zkhosts);
+									CloudSolrClient solrCloudClient;
+									if (pipelineEnabled) {
+										// send updates directly to shard leaders, in parallel for documents of different shards
+										solrCloudClient = new CloudSolrClient(zkhosts, true);
+										solrCloudClient.setParallelUpdates(true);
+									} else {
+										solrCloudClient = new CloudSolrClient(zkhosts);
+									}
 									return solrCloudClient;
 								};
 							});
@@ -204,30 +300,22 @@ public class SolrAuditDestination extends AuditDestination {
 			logStatusIfRequired();
 			addTotalCount(events.size());
 
-			if (solrClient == null) {
+			if (getSolrClient() == null) {
 				connect();
-				if (solrClient == null) {
+				if (getSolrClient() == null) {
 					// Solr is still not initialized. So need return error
 					addDeferredCount(events.size());
 					return ret;
 				}
 			}
 
-			final Collection<SolrInputDocument> docs = new ArrayList<SolrInputDocument>();
-			for (AuditEventBase event : events) {
-				AuthzAuditEvent authzEvent = (AuthzAuditEvent) event;
-				// Convert AuditEventBase to Solr document
-				SolrInputDocument document = toSolrDoc(authzEvent);
-				docs.add(document);
+			if (pipelineEnabled) {
+				return submit(events);
 			}
+
+			final Collection<SolrInputDocument> docs = toSolrDocs(events);
 			try {
-				final UpdateResponse response = MiscUtil.executePrivilegedAction(new PrivilegedExceptionAction<UpdateResponse>() {
-					@Override
-					public UpdateResponse run()  throws Exception {
-						UpdateResponse response = solrClient.add(docs);
-						return response;
-					};
-				});
+				final UpdateResponse response = addDocs(docs);
 
 				if (response.getStatus() != 0) {
 					addFailedCount(events.size());
@@ -247,14 +335,146 @@ public class SolrAuditDestination extends AuditDestination {
 		return ret;
 	}
 
-	/*
-	 * (non-Javadoc)
-	 *
-	 * @see org.apache.ranger.audit.provider.AuditProvider#flush()
+	/**
+	 * Hands the batch to the pipeline and returns without waiting for Solr; blocks only while maxOutstandingRequests
+	 * requests are in flight. While batches that failed earlier can't be resent, new batches are deferred to the caller,
+	 * so that they are spooled or retried by the queue instead of piling up in memory.
 	 */
-	@Override
-	public void flush() {
+	private boolean submit(Collection<AuditEventBase> events) throws InterruptedException {
+		if (!failedBatches.isEmpty() && !resendFailedBatches()) {
+			addDeferredCount(events.size());
+
+			return false;
+		}
+
+		outstandingRequests.acquire();
+
+		try {
+			// the caller reuses its batch buffer once log() returns
+			pipelineExecutor.execute(new UpdateRequest(new ArrayList<AuditEventBase>(events)));
+		} catch (Throwable t) {
+			outstandingRequests.release();
+
+			addDeferredCount(events.size());
+			logError("Error submitting update request to Solr", t);
+
+			return false;
+		}
+
+		return true;
+	}
+
+	private synchronized boolean resendFailedBatches() {
+		for (Collection<AuditEventBase> events = failedBatches.peek(); events != null; events = failedBatches.peek()) {
+			try {
+				UpdateResponse response = addDocs(toSolrDocs(events));
 
+				if (response.getStatus() != 0) {
+					addFailedCount(events.size());
+					logFailedEvent(events, response.toString());
+				} else {
+					addSuccessCount(events.size());
+				}
+			} catch (SolrException ex) {
+				addFailedCount(events.size());
+				logFailedEvent(events, ex);
+			} catch (Throwable t) {
+				logError("Error resending message to Solr", t);
+
+				return false;
+			}
+
+			failedBatches.poll();
+		}
+
+		return true;
+	}
+
+	private void waitForOutstandingRequests(long timeoutMs) {
+		try {
+			if (outstandingRequests.tryAcquire(maxOutstandingRequests, timeoutMs, TimeUnit.MILLISECONDS)) {
+				outstandingRequests.release(maxOutstandingRequests);
+			} else {
+				LOG.warn("Timed out waiting for outstanding update requests to Solr. timeoutMs=" + timeoutMs);
+			}
+		} catch (InterruptedException excp) {
+			LOG.warn("Interrupted while waiting for outstanding update requests to Solr", excp);
+
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private Collection<SolrInputDocument> toSolrDocs(Collection<AuditEventBase> events) {
+		Collection<SolrInputDocument> ret = new ArrayList<SolrInputDocument>(events.size());
+
+		for (AuditEventBase event : events) {
+			AuthzAuditEvent authzEvent = (AuthzAuditEvent) event;
+			// Convert AuditEventBase to Solr document
+			SolrInputDocument document = toSolrDoc(authzEvent);
+			ret.add(document);
+		}
+
+		return ret;
+	}
+
+	private UpdateResponse addDocs(final Collection<SolrInputDocument> docs) throws Exception {
+		final SolrClient client = getSolrClient();
+
+		return MiscUtil.executePrivilegedAction(new PrivilegedExceptionAction<UpdateResponse>() {
+			@Override
+			public UpdateResponse run()  throws Exception {
+				UpdateResponse response = commitWithinMs > 0 ? client.add(docs, commitWithinMs) : client.add(docs);
+				return response;
+			};
+		});
+	}
+
+	private class UpdateRequest implements Runnable {
+		private final Collection<AuditEventBase> events;
+
+		UpdateRequest(Collection<AuditEventBase> events) {
+			this.events = events;
+		}
+
+		@Override
+		public void run() {
+			try {
+				UpdateResponse response = addDocs(toSolrDocs(events));
+
+				if (response.getStatus() != 0) {
+					addFailedCount(events.size());
+					logFailedEvent(events, response.toString());
+				} else {
+					addSuccessCount(events.size());
+				}
+			} catch (SolrException ex) {
+				addFailedCount(events.size());
+				logFailedEvent(events, ex);
+			} catch (Throwable t) {
+				failedBatches.add(events);
+				logError("Error sending message to Solr", t);
+			} finally {
+				outstandingRequests.release();
+			}
+		}
+	}
+
+	private static class PipelineThreadFactory implements ThreadFactory {
+		private final String        namePrefix;
+		private final AtomicInteger threadCount = new AtomicInteger();
+
+		PipelineThreadFactory(String destinationName) {
+			this.namePrefix = SolrAuditDestination.class.getSimpleName() + "." + destinationName + ".pipeline-";
+		}
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread ret = new Thread(r, namePrefix + threadCount.getAndIncrement());
+
+			ret.setDaemon(true);
+
+			return ret;
+		}
 	}
 
 	SolrInputDocument toSolrDoc(AuthzAuditEvent auditEvent) {
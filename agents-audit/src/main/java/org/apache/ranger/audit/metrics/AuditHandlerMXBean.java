@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.metrics;
+
+/**
+ * JMX view of an audit queue or destination. Counts and the max batch size are since the handler was created; rates,
+ * average batch size and latencies are of the last metrics interval. Latency is measured from event creation to the acknowledgement by
+ * the handler's consumer; for a queue in front of a destination, that is the acknowledgement by the destination.
+ */
+public interface AuditHandlerMXBean {
+	String getName();
+
+	String getType();
+
+	long getTotalCount();
+
+	long getSuccessCount();
+
+	long getFailedCount();
+
+	long getStashedCount();
+
+	long getDeferredCount();
+
+	long getEnqueuedCount();
+
+	long getDroppedCount();
+
+	long getQueueDepth();
+
+	long getSpoolBacklogBytes();
+
+	double getEnqueueRate();
+
+	double getDequeueRate();
+
+	double getFailureRate();
+
+	double getAverageBatchSize();
+
+	long getMaxBatchSize();
+
+	long getLatencyCount();
+
+	long getLatencyP50Ms();
+
+	long getLatencyP90Ms();
+
+	long getLatencyP99Ms();
+
+	long getLatencyMaxMs();
+}
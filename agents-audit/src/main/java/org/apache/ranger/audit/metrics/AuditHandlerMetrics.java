@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.ranger.audit.provider.BaseAuditHandler;
+
+/**
+ * Metrics of an audit handler: counts are read from the handler when requested; interval values are computed by
+ * update(), called by AuditMetricsRegistry at the end of every metrics interval.
+ */
+public class AuditHandlerMetrics implements AuditHandlerMXBean {
+	private final BaseAuditHandler handler;
+
+	private long                           lastUpdateTimeMs;
+	private long                           lastEnqueuedCount;
+	private long                           lastTotalCount;
+	private long                           lastFailedCount;
+	private long                           lastBatchCount;
+	private AuditLatencyHistogram.Snapshot lastLatencySnapshot;
+
+	private volatile double                         enqueueRate      = 0;
+	private volatile double                         dequeueRate      = 0;
+	private volatile double                         failureRate      = 0;
+	private volatile double                         averageBatchSize = 0;
+	private volatile AuditLatencyHistogram.Snapshot intervalLatency  = null;
+
+	public AuditHandlerMetrics(BaseAuditHandler handler, long nowMs) {
+		this.handler             = handler;
+		this.lastUpdateTimeMs    = nowMs;
+		this.lastEnqueuedCount   = handler.getEnqueuedCount();
+		this.lastTotalCount      = handler.getTotalCount();
+		this.lastFailedCount     = handler.getTotalFailedCount();
+		this.lastBatchCount      = handler.getTotalBatchCount();
+		this.lastLatencySnapshot = handler.getLatencyHistogram().getSnapshot();
+	}
+
+	public BaseAuditHandler getHandler() {
+		return handler;
+	}
+
+	/**
+	 * Ends the current interval: computes rates, average batch size and latencies since the previous call
+	 */
+	public synchronized void update(long nowMs) {
+		long                           elapsedMs       = nowMs - lastUpdateTimeMs;
+		long                           enqueuedCount   = handler.getEnqueuedCount();
+		long                           totalCount      = handler.getTotalCount();
+		long                           failedCount     = handler.getTotalFailedCount();
+		long                           batchCount      = handler.getTotalBatchCount();
+		AuditLatencyHistogram.Snapshot latencySnapshot = handler.getLatencyHistogram().getSnapshot();
+
+		if (elapsedMs > 0) {
+			enqueueRate = (enqueuedCount - lastEnqueuedCount) * 1000.0 / elapsedMs;
+			dequeueRate = (totalCount - lastTotalCount) * 1000.0 / elapsedMs;
+			failureRate = (failedCount - lastFailedCount) * 1000.0 / elapsedMs;
+		}
+
+		averageBatchSize = batchCount > lastBatchCount ? (double) (totalCount - lastTotalCount) / (batchCount - lastBatchCount) : 0;
+		intervalLatency  = latencySnapshot.minus(lastLatencySnapshot);
+
+		lastUpdateTimeMs    = nowMs;
+		lastEnqueuedCount   = enqueuedCount;
+		lastTotalCount      = totalCount;
+		lastFailedCount     = failedCount;
+		lastBatchCount      = batchCount;
+		lastLatencySnapshot = latencySnapshot;
+	}
+
+	public Map<String, Number> toMap() {
+		Map<String, Number> ret = new LinkedHashMap<String, Number>();
+
+		ret.put("totalCount", getTotalCount());
+		ret.put("successCount", getSuccessCount());
+		ret.put("failedCount", getFailedCount());
+		ret.put("stashedCount", getStashedCount());
+		ret.put("deferredCount", getDeferredCount());
+		ret.put("enqueuedCount", getEnqueuedCount());
+		ret.put("droppedCount", getDroppedCount());
+		ret.put("queueDepth", getQueueDepth());
+		ret.put("spoolBacklogBytes", getSpoolBacklogBytes());
+		ret.put("enqueueRate", getEnqueueRate());
+		ret.put("dequeueRate", getDequeueRate());
+		ret.put("failureRate", getFailureRate());
+		ret.put("averageBatchSize", getAverageBatchSize());
+		ret.put("maxBatchSize", getMaxBatchSize());
+		ret.put("latencyCount", getLatencyCount());
+		ret.put("latencyP50Ms", getLatencyP50Ms());
+		ret.put("latencyP90Ms", getLatencyP90Ms());
+		ret.put("latencyP99Ms", getLatencyP99Ms());
+		ret.put("latencyMaxMs", getLatencyMaxMs());
+
+		return ret;
+	}
+
+	@Override
+	public String getName() {
+		return handler.getName();
+	}
+
+	@Override
+	public String getType() {
+		return handler.getClass().getSimpleName();
+	}
+
+	@Override
+	public long getTotalCount() {
+		return handler.getTotalCount();
+	}
+
+	@Override
+	public long getSuccessCount() {
+		return handler.getTotalSuccessCount();
+	}
+
+	@Override
+	public long getFailedCount() {
+		return handler.getTotalFailedCount();
+	}
+
+	@Override
+	public long getStashedCount() {
+		return handler.getTotalStashedCount();
+	}
+
+	@Override
+	public long getDeferredCount() {
+		return handler.getTotalDeferredCount();
+	}
+
+	@Override
+	public long getEnqueuedCount() {
+		return handler.getEnqueuedCount();
+	}
+
+	@Override
+	public long getDroppedCount() {
+		return handler.getDroppedCount();
+	}
+
+	@Override
+	public long getQueueDepth() {
+		return handler.getQueueDepth();
+	}
+
+	@Override
+	public long getSpoolBacklogBytes() {
+		return handler.getSpoolBacklogBytes();
+	}
+
+	@Override
+	public double getEnqueueRate() {
+		return enqueueRate;
+	}
+
+	@Override
+	public double getDequeueRate() {
+		return dequeueRate;
+	}
+
+	@Override
+	public double getFailureRate() {
+		return failureRate;
+	}
+
+	@Override
+	public double getAverageBatchSize() {
+		return averageBatchSize;
+	}
+
+	@Override
+	public long getMaxBatchSize() {
+		return handler.getLargestBatchSize();
+	}
+
+	@Override
+	public long getLatencyCount() {
+		AuditLatencyHistogram.Snapshot latency = intervalLatency;
+
+		return latency != null ? latency.getCount() : 0;
+	}
+
+	@Override
+	public long getLatencyP50Ms() {
+		return getLatencyAtPercentile(50);
+	}
+
+	@Override
+	public long getLatencyP90Ms() {
+		return getLatencyAtPercentile(90);
+	}
+
+	@Override
+	public long getLatencyP99Ms() {
+		return getLatencyAtPercentile(99);
+	}
+
+	@Override
+	public long getLatencyMaxMs() {
+		return getLatencyAtPercentile(100);
+	}
+
+	private long getLatencyAtPercentile(double percentile) {
+		AuditLatencyHistogram.Snapshot latency = intervalLatency;
+
+		return latency != null ? latency.getValueAtPercentile(percentile) : 0;
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent histogram of latencies in milliseconds, with log-linear buckets as in HdrHistogram: values below 16 have
+ * a bucket each; above, each power of 2 is split in 8 buckets, so that a value is reported with at most 12.5% error.
+ * Values above 2^40 ms are counted in the last bucket. Recording a value is a single atomic increment.
+ */
+public class AuditLatencyHistogram {
+	private static final int  SUB_BUCKET_BITS   = 3;
+	private static final int  SUB_BUCKET_COUNT  = 1 << SUB_BUCKET_BITS;
+	private static final int  LINEAR_LIMIT      = 2 * SUB_BUCKET_COUNT;
+	private static final int  LINEAR_LIMIT_BITS = SUB_BUCKET_BITS + 1;
+	private static final int  MAX_VALUE_BITS    = 40;
+	private static final long MAX_VALUE         = (1L << (MAX_VALUE_BITS + 1)) - 1;
+	private static final int  BUCKET_COUNT      = LINEAR_LIMIT + (MAX_VALUE_BITS - LINEAR_LIMIT_BITS + 1) * SUB_BUCKET_COUNT;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+	public void record(long valueMs) {
+		counts.incrementAndGet(getBucketIndex(valueMs));
+	}
+
+	/**
+	 * @return counts recorded so far; subtract an earlier snapshot to get the counts of an interval
+	 */
+	public Snapshot getSnapshot() {
+		long[] ret = new long[BUCKET_COUNT];
+
+		for (int i = 0; i < ret.length; i++) {
+			ret[i] = counts.get(i);
+		}
+
+		return new Snapshot(ret);
+	}
+
+	static int getBucketIndex(long value) {
+		if (value < LINEAR_LIMIT) {
+			return value < 0 ? 0 : (int) value;
+		}
+
+		if (value > MAX_VALUE) {
+			value = MAX_VALUE;
+		}
+
+		int highestBit = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket  = (int) (value >>> (highestBit - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+
+		return LINEAR_LIMIT + (highestBit - LINEAR_LIMIT_BITS) * SUB_BUCKET_COUNT + subBucket;
+	}
+
+	// highest value counted in the given bucket
+	static long getBucketHighestValue(int index) {
+		if (index < LINEAR_LIMIT) {
+			return index;
+		}
+
+		int  highestBit = LINEAR_LIMIT_BITS + (index - LINEAR_LIMIT) / SUB_BUCKET_COUNT;
+		int  subBucket  = (index - LINEAR_LIMIT) % SUB_BUCKET_COUNT;
+		int  shift      = highestBit - SUB_BUCKET_BITS;
+		long lowest     = (long) (SUB_BUCKET_COUNT + subBucket) << shift;
+
+		return lowest + (1L << shift) - 1;
+	}
+
+	public static class Snapshot {
+		private final long[] counts;
+		private final long   totalCount;
+
+		Snapshot(long[] counts) {
+			long total = 0;
+
+			for (long count : counts) {
+				total += count;
+			}
+
+			this.counts     = counts;
+			this.totalCount = total;
+		}
+
+		public long getCount() {
+			return totalCount;
+		}
+
+		/**
+		 * @param percentile between 0 and 100
+		 * @return highest value of the bucket in which the given percentile falls; 0 if no value is recorded
+		 */
+		public long getValueAtPercentile(double percentile) {
+			if (totalCount == 0) {
+				return 0;
+			}
+
+			long countAtPercentile = Math.max(1, (long) Math.ceil(totalCount * Math.min(percentile, 100) / 100));
+			long count             = 0;
+
+			for (int i = 0; i < counts.length; i++) {
+				count += counts[i];
+
+				if (count >= countAtPercentile) {
+					return getBucketHighestValue(i);
+				}
+			}
+
+			return getBucketHighestValue(counts.length - 1);
+		}
+
+		public long getMax() {
+			return getValueAtPercentile(100);
+		}
+
+		/**
+		 * @return counts recorded since the given earlier snapshot
+		 */
+		public Snapshot minus(Snapshot earlier) {
+			long[] ret = new long[counts.length];
+
+			for (int i = 0; i < ret.length; i++) {
+				ret[i] = counts[i] - (earlier != null ? earlier.counts[i] : 0);
+			}
+
+			return new Snapshot(ret);
+		}
+	}
+}
@@ -0,0 +1,208 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.audit.provider.AuditHandler;
+import org.apache.ranger.audit.provider.BaseAuditHandler;
+import org.apache.ranger.audit.provider.MiscUtil;
+
+/**
+ * Tracks metrics of the audit handlers of a pipeline. Every handler is registered as an MBean named
+ * org.apache.ranger.audit:type=AuditHandler,name=&lt;handler name&gt;; at the end of every metrics interval, interval
+ * values of all handlers are updated and, if configured, passed to an AuditMetricsReporter.
+ */
+public class AuditMetricsRegistry {
+	private static final Log LOG = LogFactory.getLog(AuditMetricsRegistry.class);
+
+	public static final String PROP_PREFIX             = "xasecure.audit.metrics";
+	public static final String PROP_JMX_ENABLED        = PROP_PREFIX + ".jmx.enabled";
+	public static final String PROP_INTERVAL_MS        = PROP_PREFIX + ".interval.ms";
+	public static final String PROP_REPORTER_CLASSNAME = PROP_PREFIX + ".reporter.classname";
+
+	public static final String JMX_DOMAIN          = "org.apache.ranger.audit";
+	public static final long   DEFAULT_INTERVAL_MS = 10 * 1000L;
+
+	private final List<AuditHandlerMetrics> metrics      = new ArrayList<AuditHandlerMetrics>();
+	private final List<ObjectName>          mbeanNames   = new ArrayList<ObjectName>();
+	private boolean                         isJmxEnabled = true;
+	private long                            intervalMs   = DEFAULT_INTERVAL_MS;
+	private AuditMetricsReporter            reporter     = null;
+	private Timer                           timer        = null;
+
+	public void init(Properties props) {
+		isJmxEnabled = MiscUtil.getBooleanProperty(props, PROP_JMX_ENABLED, isJmxEnabled);
+		intervalMs   = MiscUtil.getLongProperty(props, PROP_INTERVAL_MS, intervalMs);
+
+		String reporterClassName = MiscUtil.getStringProperty(props, PROP_REPORTER_CLASSNAME);
+
+		if (reporterClassName != null && !reporterClassName.isEmpty()) {
+			try {
+				reporter = (AuditMetricsReporter) Class.forName(reporterClassName).newInstance();
+
+				reporter.init(props, PROP_PREFIX + ".reporter");
+			} catch (Exception excp) {
+				LOG.error("Can't instantiate audit metrics reporter. className=" + reporterClassName, excp);
+
+				reporter = null;
+			}
+		}
+
+		LOG.info("AuditMetricsRegistry: jmxEnabled=" + isJmxEnabled + ", intervalMs=" + intervalMs + ", reporter=" + reporterClassName);
+	}
+
+	/**
+	 * Registers the given handler and the handlers downstream of it: consumers of queues and destinations of
+	 * multi-destination providers
+	 */
+	public synchronized void registerPipeline(AuditHandler handler) {
+		if (handler instanceof BaseAuditHandler) {
+			BaseAuditHandler baseHandler = (BaseAuditHandler) handler;
+
+			register(baseHandler);
+
+			for (AuditHandler consumer : baseHandler.getConsumers()) {
+				registerPipeline(consumer);
+			}
+		}
+	}
+
+	public synchronized AuditHandlerMetrics register(BaseAuditHandler handler) {
+		for (AuditHandlerMetrics handlerMetrics : metrics) {
+			if (handlerMetrics.getHandler() == handler) {
+				return handlerMetrics;
+			}
+		}
+
+		AuditHandlerMetrics ret = new AuditHandlerMetrics(handler, System.currentTimeMillis());
+
+		metrics.add(ret);
+
+		if (isJmxEnabled) {
+			registerMBean(ret);
+		}
+
+		return ret;
+	}
+
+	public synchronized List<AuditHandlerMetrics> getMetrics() {
+		return new ArrayList<AuditHandlerMetrics>(metrics);
+	}
+
+	public synchronized void start() {
+		if (timer == null && intervalMs > 0) {
+			timer = new Timer("AuditMetricsRegistry", true);
+
+			timer.scheduleAtFixedRate(new TimerTask() {
+				@Override
+				public void run() {
+					update(System.currentTimeMillis());
+				}
+			}, intervalMs, intervalMs);
+		}
+	}
+
+	public synchronized void stop() {
+		if (timer != null) {
+			timer.cancel();
+
+			timer = null;
+		}
+
+		if (reporter != null) {
+			reporter.stop();
+		}
+
+		if (!mbeanNames.isEmpty()) {
+			MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+
+			for (ObjectName mbeanName : mbeanNames) {
+				try {
+					mbeanServer.unregisterMBean(mbeanName);
+				} catch (Exception excp) {
+					LOG.warn("Failed to unregister MBean " + mbeanName, excp);
+				}
+			}
+
+			mbeanNames.clear();
+		}
+	}
+
+	/**
+	 * Ends the current metrics interval of all handlers, and reports their metrics
+	 */
+	public void update(long nowMs) {
+		List<AuditHandlerMetrics>        currMetrics = getMetrics();
+		Map<String, Map<String, Number>> report      = new LinkedHashMap<String, Map<String, Number>>();
+
+		for (AuditHandlerMetrics handlerMetrics : currMetrics) {
+			try {
+				handlerMetrics.update(nowMs);
+
+				report.put(handlerMetrics.getName(), handlerMetrics.toMap());
+			} catch (Throwable excp) {
+				LOG.warn("Failed to update audit metrics. handler=" + handlerMetrics.getName(), excp);
+			}
+		}
+
+		AuditMetricsReporter currReporter = reporter;
+
+		if (currReporter != null) {
+			try {
+				currReporter.report(nowMs, report);
+			} catch (Throwable excp) {
+				LOG.warn("Audit metrics reporter failed", excp);
+			}
+		}
+	}
+
+	private void registerMBean(AuditHandlerMetrics handlerMetrics) {
+		MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+		String      name        = handlerMetrics.getName();
+
+		try {
+			ObjectName mbeanName = new ObjectName(JMX_DOMAIN + ":type=AuditHandler,name=" + ObjectName.quote(name));
+
+			// another pipeline in this JVM might have used the same name
+			for (int i = 2; mbeanServer.isRegistered(mbeanName); i++) {
+				mbeanName = new ObjectName(JMX_DOMAIN + ":type=AuditHandler,name=" + ObjectName.quote(name + "#" + i));
+			}
+
+			mbeanServer.registerMBean(handlerMetrics, mbeanName);
+
+			mbeanNames.add(mbeanName);
+		} catch (Exception excp) {
+			LOG.warn("Failed to register MBean for audit handler " + name, excp);
+		}
+	}
+}
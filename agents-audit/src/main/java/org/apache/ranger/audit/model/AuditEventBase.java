@@ -24,6 +24,8 @@ import java.util.Date;
 import org.apache.ranger.audit.dao.DaoManager;
 
 public abstract class AuditEventBase {
+	protected static final long FINGERPRINT_SEED  = 0xcbf29ce484222325L; // FNV-1a 64-bit offset basis
+	private static final long FINGERPRINT_PRIME = 0x100000001b3L;
 
 	protected AuditEventBase() {
 	}
@@ -34,4 +36,37 @@ public abstract class AuditEventBase {
 	public abstract Date getEventTime ();
 	public abstract void setEventCount(long eventCount);
 	public abstract void setEventDurationMS(long eventDurationMS);
+
+	/**
+	 * @return 64-bit hash of the fields that make up getEventKey(). Events
+	 *         with the same key have the same fingerprint; events with the
+	 *         same fingerprint must be compared with hasSameEventKey()
+	 */
+	public long getEventFingerprint() {
+		return addToFingerprint(FINGERPRINT_SEED, getEventKey());
+	}
+
+	public boolean hasSameEventKey(AuditEventBase other) {
+		return other != null && getEventKey().equals(other.getEventKey());
+	}
+
+	protected static long addToFingerprint(long fingerprint, String value) {
+		if (value != null) {
+			for (int i = 0; i < value.length(); i++) {
+				fingerprint = (fingerprint ^ value.charAt(i)) * FINGERPRINT_PRIME;
+			}
+		}
+
+		// the length separates adjacent values, -1 marks null
+		return addToFingerprint(fingerprint, value != null ? value.length() : -1L);
+	}
+
+	protected static long addToFingerprint(long fingerprint, long value) {
+		for (int i = 0; i < 8; i++) {
+			fingerprint = (fingerprint ^ (value & 0xff)) * FINGERPRINT_PRIME;
+			value >>>= 8;
+		}
+
+		return fingerprint;
+	}
 }
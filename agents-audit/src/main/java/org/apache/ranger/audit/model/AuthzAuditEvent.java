@@ -477,6 +477,40 @@ public class AuthzAuditEvent extends AuditEventBase {
 		return key;
 	}
 
+	@Override
+	public long getEventFingerprint() {
+		long ret = FINGERPRINT_SEED;
+
+		ret = addToFingerprint(ret, user);
+		ret = addToFingerprint(ret, accessType);
+		ret = addToFingerprint(ret, resourcePath);
+		ret = addToFingerprint(ret, resourceType);
+		ret = addToFingerprint(ret, action);
+		ret = addToFingerprint(ret, accessResult);
+		ret = addToFingerprint(ret, sessionId);
+		ret = addToFingerprint(ret, clientIP);
+
+		return ret;
+	}
+
+	@Override
+	public boolean hasSameEventKey(AuditEventBase other) {
+		if (!(other instanceof AuthzAuditEvent)) {
+			return super.hasSameEventKey(other);
+		}
+
+		AuthzAuditEvent that = (AuthzAuditEvent) other;
+
+		return accessResult == that.accessResult
+				&& StringUtils.equals(user, that.user)
+				&& StringUtils.equals(accessType, that.accessType)
+				&& StringUtils.equals(resourcePath, that.resourcePath)
+				&& StringUtils.equals(resourceType, that.resourceType)
+				&& StringUtils.equals(action, that.action)
+				&& StringUtils.equals(sessionId, that.sessionId)
+				&& StringUtils.equals(clientIP, that.clientIP);
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
@@ -24,6 +24,8 @@ import org.apache.ranger.audit.model.AuditEventBase;
 import org.apache.ranger.audit.queue.AuditFileCacheProviderSpool;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
 
 /*
@@ -54,6 +56,11 @@ public class AuditFileCacheProvider extends BaseAuditHandler {
         fileSpooler = new AuditFileCacheProviderSpool(consumer);
         fileSpooler.init(prop,propPrefix);
     }
+
+    @Override
+    public List<AuditHandler> getConsumers() {
+        return consumer != null ? Collections.singletonList(consumer) : Collections.<AuditHandler>emptyList();
+    }
     @Override
     public boolean log(AuditEventBase event) {
         boolean ret = false;
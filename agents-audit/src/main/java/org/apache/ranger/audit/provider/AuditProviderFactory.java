@@ -32,12 +32,14 @@ import org.apache.ranger.audit.destination.FileAuditDestination;
 import org.apache.ranger.audit.destination.HDFSAuditDestination;
 import org.apache.ranger.audit.destination.Log4JAuditDestination;
 import org.apache.ranger.audit.destination.SolrAuditDestination;
+import org.apache.ranger.audit.metrics.AuditMetricsRegistry;
 import org.apache.ranger.audit.provider.hdfs.HdfsAuditProvider;
 import org.apache.ranger.audit.provider.kafka.KafkaAuditProvider;
 import org.apache.ranger.audit.provider.solr.SolrAuditProvider;
 import org.apache.ranger.audit.queue.AuditAsyncQueue;
 import org.apache.ranger.audit.queue.AuditBatchQueue;
 import org.apache.ranger.audit.queue.AuditQueue;
+import org.apache.ranger.audit.queue.AuditRingBufferQueue;
 import org.apache.ranger.audit.queue.AuditSummaryQueue;
 
 /*
@@ -73,6 +75,7 @@ public class AuditProviderFactory {
 	private AuditHandler mProvider = null;
 	private String componentAppType = "";
 	private boolean mInitDone = false;
+	private AuditMetricsRegistry mMetricsRegistry = null;
 
 	private AuditProviderFactory() {
 		LOG.info("AuditProviderFactory: creating..");
@@ -188,7 +191,8 @@ public class AuditProviderFactory {
 						if (queueProvider instanceof AuditQueue) {
 							AuditQueue qProvider = (AuditQueue) queueProvider;
 							qProvider.init(props, queuePropPrefix);
-							providers.add(queueProvider);
+							providers.add(addSummaryQueueIfEnabled(props,
+									destPropPrefix, queueProvider));
 						} else {
 							LOG.fatal("Provider queue doesn't extend AuditQueue. Destination="
 									+ destName
@@ -202,7 +206,8 @@ public class AuditProviderFactory {
 				} else {
 					LOG.info("Audit destination " + destProvider.getName()
 							+ " added to provider list");
-					providers.add(destProvider);
+					providers.add(addSummaryQueueIfEnabled(props,
+							destPropPrefix, destProvider));
 				}
 			}
 		}
@@ -246,7 +251,19 @@ public class AuditProviderFactory {
 				LOG.info("AuditSummaryQueue is disabled");
 			}
 
-			if (!isAuditFileCacheProviderEnabled) {
+			boolean ringBufferEnabled = MiscUtil.getBooleanProperty(props,
+					propPrefix + "." + "ringbuffer" + "." + "enabled", false);
+
+			if (!isAuditFileCacheProviderEnabled && ringBufferEnabled) {
+				// Create the ring buffer queue, in place of AsyncQueue
+				AuditRingBufferQueue ringBufferQueue = new AuditRingBufferQueue(consumer);
+				propPrefix = BaseAuditHandler.PROP_DEFAULT_PREFIX + "." + "ringbuffer";
+				ringBufferQueue.init(props, propPrefix);
+				ringBufferQueue.setParentPath(componentAppType);
+				mProvider = ringBufferQueue;
+				LOG.info("Starting audit queue " + mProvider.getName());
+				mProvider.start();
+			} else if (!isAuditFileCacheProviderEnabled) {
 				// Create the AsysnQueue
 				AuditAsyncQueue asyncQueue = new AuditAsyncQueue(consumer);
 				propPrefix = BaseAuditHandler.PROP_DEFAULT_PREFIX + "." + "async";
@@ -401,9 +418,26 @@ public class AuditProviderFactory {
 			mProvider.start();
 		}
 
+		startMetrics(props);
+
 		installJvmSutdownHook(props);
 	}
 
+	private void startMetrics(Properties props) {
+		if (mMetricsRegistry != null) {
+			mMetricsRegistry.stop();
+		}
+
+		mMetricsRegistry = new AuditMetricsRegistry();
+		mMetricsRegistry.init(props);
+		mMetricsRegistry.registerPipeline(mProvider);
+		mMetricsRegistry.start();
+	}
+
+	public AuditMetricsRegistry getMetricsRegistry() {
+		return mMetricsRegistry;
+	}
+
 	private AuditHandler getProviderFromConfig(Properties props,
 			String propPrefix, String providerName, AuditHandler consumer) {
 		AuditHandler provider = null;
@@ -442,6 +476,8 @@ public class AuditProviderFactory {
 				provider = new AuditBatchQueue(consumer);
 			} else if (providerName.equals("async")) {
 				provider = new AuditAsyncQueue(consumer);
+			} else if (providerName.equals("ringbuffer")) {
+				provider = new AuditRingBufferQueue(consumer);
 			} else {
 				LOG.error("Provider name doesn't have any class associated with it. providerName="
 						+ providerName + ", propertyPrefix=" + propPrefix);
@@ -457,13 +493,34 @@ public class AuditProviderFactory {
 		return provider;
 	}
 
+	/**
+	 * Puts an AuditSummaryQueue in front of the given destination queue, if
+	 * enabled with property &lt;destPropPrefix&gt;.summary.enabled; the summary
+	 * queue is configured with properties &lt;destPropPrefix&gt;.summary.*
+	 */
+	private AuditHandler addSummaryQueueIfEnabled(Properties props,
+			String destPropPrefix, AuditHandler consumer) {
+		String summaryPropPrefix = destPropPrefix + "." + "summary";
+		boolean summaryEnabled = MiscUtil.getBooleanProperty(props,
+				summaryPropPrefix + "." + "enabled", false);
+
+		if (!summaryEnabled) {
+			return consumer;
+		}
+
+		LOG.info("AuditSummaryQueue is enabled for " + destPropPrefix);
+		AuditSummaryQueue summaryQueue = new AuditSummaryQueue(consumer);
+		summaryQueue.init(props, summaryPropPrefix);
+		return summaryQueue;
+	}
+
 	private AuditHandler getDefaultProvider() {
 		return new DummyAuditProvider();
 	}
 
 	private void installJvmSutdownHook(Properties props) {
 		int shutdownHookMaxWaitSeconds = MiscUtil.getIntProperty(props, AUDIT_SHUTDOWN_HOOK_MAX_WAIT_SEC, AUDIT_SHUTDOWN_HOOK_MAX_WAIT_SEC_DEFAULT);
-		JVMShutdownHook jvmShutdownHook = new JVMShutdownHook(mProvider, shutdownHookMaxWaitSeconds);
+		JVMShutdownHook jvmShutdownHook = new JVMShutdownHook(mProvider, mMetricsRegistry, shutdownHookMaxWaitSeconds);
 		ShutdownHookManager.get().addShutdownHook(jvmShutdownHook, RANGER_AUDIT_SHUTDOWN_HOOK_PRIORITY);
 	}
 
@@ -502,9 +559,11 @@ public class AuditProviderFactory {
 		final Semaphore startCleanup = new Semaphore(0);
 		final Semaphore doneCleanup = new Semaphore(0);
 		final Thread cleanupThread;
+		final AuditMetricsRegistry metricsRegistry;
 		final int maxWait;
 
-		public JVMShutdownHook(AuditHandler provider, int maxWait) {
+		public JVMShutdownHook(AuditHandler provider, AuditMetricsRegistry metricsRegistry, int maxWait) {
+			this.metricsRegistry = metricsRegistry;
 			this.maxWait = maxWait;
 			Runnable runnable = new RangerAsyncAuditCleanup(provider, startCleanup, doneCleanup);
 			cleanupThread = new Thread(runnable, "Ranger async Audit cleanup");
@@ -530,6 +589,10 @@ public class AuditProviderFactory {
 			}
 			LOG.info("JVMShutdownHook: Interrupting ranger async audit cleanup thread");
 			cleanupThread.interrupt();
+			if (metricsRegistry != null) {
+				LOG.info("JVMShutdownHook: Stopping audit metrics");
+				metricsRegistry.stop();
+			}
 			LOG.info("<== JVMShutdownHook.run()");
 		}
 	}
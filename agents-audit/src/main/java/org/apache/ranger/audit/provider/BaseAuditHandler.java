@@ -20,6 +20,7 @@ package org.apache.ranger.audit.provider;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.audit.metrics.AuditLatencyHistogram;
 import org.apache.ranger.audit.model.AuditEventBase;
 import org.apache.ranger.audit.model.AuthzAuditEvent;
 
@@ -62,6 +63,10 @@ public abstract class BaseAuditHandler implements AuditHandler {
 	long totalFailedCount = 0;
 	long totalStashedCount = 0;
 	long totalDeferredCount = 0;
+	long totalBatchCount = 0;
+	long largestBatchSize = 0;
+
+	final AuditLatencyHistogram latencyHistogram = new AuditLatencyHistogram();
 
 	long lastIntervalCount = 0;
 	long lastIntervalSuccessCount = 0;
@@ -196,6 +201,10 @@ public abstract class BaseAuditHandler implements AuditHandler {
 
 	public long addTotalCount(int count) {
 		totalCount += count;
+		totalBatchCount++;
+		if (count > largestBatchSize) {
+			largestBatchSize = count;
+		}
 		return totalCount;
 	}
 
@@ -247,6 +256,75 @@ public abstract class BaseAuditHandler implements AuditHandler {
 		return lastDeferredCount;
 	}
 
+	/**
+	 * @return number of calls to addTotalCount(), i.e. of batches sent or received by this handler
+	 */
+	public long getTotalBatchCount() {
+		return totalBatchCount;
+	}
+
+	public long getLargestBatchSize() {
+		return largestBatchSize;
+	}
+
+	/**
+	 * @return number of events accepted by this handler for later dispatch; 0 for handlers that don't queue events
+	 */
+	public long getEnqueuedCount() {
+		return 0;
+	}
+
+	/**
+	 * @return number of events discarded by this handler without being sent to its consumer, spooled or reported as
+	 *         failed
+	 */
+	public long getDroppedCount() {
+		return 0;
+	}
+
+	/**
+	 * @return number of events held in memory by this handler, waiting to be sent to its consumer
+	 */
+	public long getQueueDepth() {
+		return 0;
+	}
+
+	/**
+	 * @return size, in bytes, of the events spooled to local files and not yet sent to the consumer
+	 */
+	public long getSpoolBacklogBytes() {
+		return 0;
+	}
+
+	/**
+	 * @return handlers this handler sends events to
+	 */
+	public List<AuditHandler> getConsumers() {
+		return Collections.emptyList();
+	}
+
+	/**
+	 * @return latencies, from event creation, of events acknowledged by the consumer of this handler
+	 */
+	public AuditLatencyHistogram getLatencyHistogram() {
+		return latencyHistogram;
+	}
+
+	/**
+	 * Records the latency of the given events, acknowledged by the consumer of this handler
+	 */
+	public void recordLatency(Collection<AuditEventBase> events) {
+		long currTimeMS = System.currentTimeMillis();
+
+		for (AuditEventBase event : events) {
+			Date eventTime = event.getEventTime();
+
+			if (eventTime != null) {
+				latencyHistogram.record(currTimeMS - eventTime.getTime());
+			}
+		}
+	}
+
 	public void logStatusIfRequired() {
 		long currTime = System.currentTimeMillis();
 		if ((currTime - lastStatusLogTime) > statusLogIntervalMS) {
@@ -54,6 +54,8 @@ import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.hadoop.security.authentication.util.KerberosName;
 import org.apache.hadoop.security.authentication.util.KerberosUtil;
 import org.apache.log4j.helpers.LogLog;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.utils.AuthzAuditEventJson;
 import org.apache.ranger.authorization.hadoop.utils.RangerCredentialProvider;
 
 import com.google.gson.Gson;
@@ -301,6 +303,8 @@ public class MiscUtil {
 		if (log != null) {
 			if (log instanceof String) {
 				ret = (String) log;
+			} else if (AuthzAuditEventJson.isSupported(log)) {
+				ret = AuthzAuditEventJson.toJson((AuthzAuditEvent) log);
 			} else if (MiscUtil.sGsonBuilder != null) {
 				ret = MiscUtil.sGsonBuilder.toJson(log);
 			} else {
@@ -312,6 +316,15 @@ public class MiscUtil {
 	}
 
 	static public <T> T fromJson(String jsonStr, Class<T> clazz) {
+		if (clazz == AuthzAuditEvent.class && jsonStr != null) {
+			try {
+				return clazz.cast(AuthzAuditEventJson.fromJson(jsonStr));
+			} catch (IllegalArgumentException excp) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("fromJson(): falling back to Gson. json=" + jsonStr, excp);
+				}
+			}
+		}
 		return sGsonBuilder.fromJson(jsonStr, clazz);
 	}
 
@@ -107,6 +107,11 @@ public class MultiDestAuditProvider extends BaseAuditHandler {
 		}
 	}
 
+	@Override
+	public List<AuditHandler> getConsumers() {
+		return mProviders;
+	}
+
 	@Override
 	public boolean log(AuditEventBase event) {
 		for (AuditHandler provider : mProviders) {
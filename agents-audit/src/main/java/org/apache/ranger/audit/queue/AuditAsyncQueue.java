@@ -58,12 +58,19 @@ public class AuditAsyncQueue extends AuditQueue implements Runnable {
 	public boolean log(AuditEventBase event) {
 		// Add to the queue and return ASAP
 		if (queue.size() >= getMaxQueueSize()) {
+			droppedCount.incrementAndGet();
 			return false;
 		}
 		queue.add(event);
+		enqueuedCount.incrementAndGet();
 		return true;
 	}
 
+	@Override
+	public long getQueueDepth() {
+		return queue.size();
+	}
+
 	@Override
 	public boolean log(Collection<AuditEventBase> events) {
 		boolean ret = true;
@@ -149,7 +156,13 @@ public class AuditAsyncQueue extends AuditQueue implements Runnable {
 					Collection<AuditEventBase> eventList = new ArrayList<AuditEventBase>();
 					eventList.add(event);
 					queue.drainTo(eventList, MAX_DRAIN - 1);
-					consumer.log(eventList);
+					addTotalCount(eventList.size());
+					if (consumer.log(eventList)) {
+						addSuccessCount(eventList.size());
+						recordLatency(eventList);
+					} else {
+						addFailedCount(eventList.size());
+					}
 				}
 			} catch (InterruptedException e) {
 				logger.info("Caught exception in consumer thread. Shutdown might be in progress");
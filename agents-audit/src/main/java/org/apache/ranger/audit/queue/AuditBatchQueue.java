@@ -25,20 +25,41 @@ import java.util.Properties;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.log4j.MDC;
 import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
 import org.apache.ranger.audit.provider.AuditHandler;
+import org.apache.ranger.audit.provider.MiscUtil;
 
-public class AuditBatchQueue extends AuditQueue implements Runnable {
+
+/**
+ * Dispatches events to the consumer in batches, by batch size or by batch interval. Events are dispatched by one or
+ * more workers, each with its own queue and batch buffer; a slow dispatch by one worker doesn't hold events of the
+ * others. Events are assigned to workers by their user or resource, hence events of a user (or a resource) are
+ * dispatched in the order they were logged.
+ */
+public class AuditBatchQueue extends AuditQueue {
 	private static final Log logger = LogFactory.getLog(AuditBatchQueue.class);
 
-	private BlockingQueue<AuditEventBase> queue = null;
-	private Collection<AuditEventBase> localBatchBuffer = new ArrayList<AuditEventBase>();
+	public static final String PROP_WORKER_COUNT = "worker.count";
+	public static final String PROP_WORKER_QUEUE_SIZE = "worker.queue.size";
+	public static final String PROP_PARTITION_KEY = "partition.key";
+
+	public static final String PARTITION_KEY_USER = "user";
+	public static final String PARTITION_KEY_RESOURCE = "resource";
+
+	private int workerCount = 1;
+	private int workerQueueSize = 0; // 0: queue.size divided across workers
+	private boolean partitionByResource = false;
+
+	private volatile Worker[] workers = null;
+	private final AtomicInteger activeWorkerCount = new AtomicInteger();
 
-	Thread consumerThread = null;
 	static int threadCount = 0;
 	static final String DEFAULT_NAME = "batch";
 
@@ -56,8 +77,14 @@ public class AuditBatchQueue extends AuditQueue implements Runnable {
 	 */
 	@Override
 	public boolean log(AuditEventBase event) {
-		// Add to batchQueue. Block if full
-		queue.add(event);
+		Worker worker = workers[getWorkerIndex(event)];
+
+		// Add to the worker queue. Fails if full
+		if (!worker.queue.offer(event)) {
+			worker.queueFullCount.incrementAndGet();
+			worker.queue.add(event);
+		}
+		enqueuedCount.incrementAndGet();
 		return true;
 	}
 
@@ -82,6 +109,51 @@ public class AuditBatchQueue extends AuditQueue implements Runnable {
 
 		super.init(prop, propPrefix);
 
+		workerCount = Math.max(1, MiscUtil.getIntProperty(props, propPrefix
+				+ "." + PROP_WORKER_COUNT, workerCount));
+		workerQueueSize = MiscUtil.getIntProperty(props, propPrefix + "."
+				+ PROP_WORKER_QUEUE_SIZE, workerQueueSize);
+
+		String partitionKey = MiscUtil.getStringProperty(props, propPrefix
+				+ "." + PROP_PARTITION_KEY);
+		if (PARTITION_KEY_RESOURCE.equalsIgnoreCase(partitionKey)) {
+			partitionByResource = true;
+		} else if (partitionKey != null && !partitionKey.isEmpty()
+				&& !PARTITION_KEY_USER.equalsIgnoreCase(partitionKey)) {
+			logger.warn("Unsupported " + propPrefix + "." + PROP_PARTITION_KEY
+					+ "=" + partitionKey + ". Will partition by "
+					+ PARTITION_KEY_USER + ". name=" + getName());
+		}
+
+		if (workerCount > 1) {
+			logger.info("workerCount=" + workerCount + ", workerQueueSize="
+					+ getWorkerQueueSize() + ", partitionKey="
+					+ (partitionByResource ? PARTITION_KEY_RESOURCE : PARTITION_KEY_USER)
+					+ ", name=" + getName());
+		}
+	}
+
+	@Override
+	public long getQueueDepth() {
+		return getPendingCount();
+	}
+
+	public int getWorkerCount() {
+		return workerCount;
+	}
+
+	/**
+	 * @return max number of events queued for a worker
+	 */
+	public int getWorkerQueueSize() {
+		return workerQueueSize > 0 ? workerQueueSize : Math.max(1, getMaxQueueSize() / workerCount);
+	}
+
+	/**
+	 * @return workers of this queue, for their metrics; null if the queue is not started
+	 */
+	public Worker[] getWorkers() {
+		return workers;
 	}
 
 	/*
@@ -91,13 +163,16 @@ public class AuditBatchQueue extends AuditQueue implements Runnable {
 	 */
 	@Override
 	synchronized public void start() {
-		if (consumerThread != null) {
+		if (activeWorkerCount.get() > 0) {
 			logger.error("Provider is already started. name=" + getName());
 			return;
 		}
-		logger.info("Creating ArrayBlockingQueue with maxSize="
-				+ getMaxQueueSize());
-		queue = new ArrayBlockingQueue<AuditEventBase>(getMaxQueueSize());
+		logger.info("Creating " + workerCount + " ArrayBlockingQueue with maxSize="
+				+ getWorkerQueueSize());
+		Worker[] newWorkers = new Worker[workerCount];
+		for (int i = 0; i < newWorkers.length; i++) {
+			newWorkers[i] = new Worker(i, getWorkerQueueSize());
+		}
 
 		// Start the consumer first
 		consumer.start();
@@ -107,12 +182,12 @@ public class AuditBatchQueue extends AuditQueue implements Runnable {
 			fileSpooler.start();
 		}
 
-		// Finally the queue listener
-		consumerThread = new Thread(this, this.getClass().getName()
-				+ (threadCount++));
-		consumerThread.setDaemon(true);
-		consumerThread.start();
-
+		// Finally the queue listeners
+		activeWorkerCount.set(newWorkers.length);
+		workers = newWorkers;
+		for (Worker worker : workers) {
+			worker.start();
+		}
 	}
 
 	/*
@@ -126,17 +201,14 @@ public class AuditBatchQueue extends AuditQueue implements Runnable {
 		setDrain(true);
 		flush();
 		try {
-			if (consumerThread != null) {
-				logger.info("Interrupting consumerThread. name=" + getName()
-						+ ", consumer="
-						+ (consumer == null ? null : consumer.getName()));
+			logger.info("Interrupting consumerThreads. name=" + getName()
+					+ ", consumer="
+					+ (consumer == null ? null : consumer.getName()));
 
-				consumerThread.interrupt();
-			}
+			interruptWorkers();
 		} catch (Throwable t) {
 			// ignore any exception
 		}
-		consumerThread = null;
 	}
 
 	/*
@@ -159,23 +231,22 @@ public class AuditBatchQueue extends AuditQueue implements Runnable {
 		long startTime = System.currentTimeMillis();
 		int prevQueueSize = -1;
 		int staticLoopCount = 0;
-		while ((queue.size() > 0 || localBatchBuffer.size() > 0)) {
-			if (prevQueueSize == queue.size()) {
+		while (getPendingCount() > 0) {
+			int queueSize = getQueueSize();
+			if (prevQueueSize == queueSize) {
 				logger.error("Queue size is not changing. " + getName()
-						+ ".size=" + queue.size());
+						+ ".size=" + queueSize);
 				staticLoopCount++;
 				if (staticLoopCount > 5) {
 					logger.error("Aborting writing to consumer. Some logs will be discarded."
-							+ getName() + ".size=" + queue.size());
+							+ getName() + ".size=" + queueSize);
 					break;
 				}
 			} else {
 				staticLoopCount = 0;
-				prevQueueSize = queue.size();
-			}
-			if (consumerThread != null) {
-				consumerThread.interrupt();
+				prevQueueSize = queueSize;
 			}
+			interruptWorkers();
 			try {
 				Thread.sleep(sleepTime);
 				if (timeout > 0
@@ -202,147 +273,90 @@ public class AuditBatchQueue extends AuditQueue implements Runnable {
 		consumer.flush();
 	}
 
-	/*
-	 * (non-Javadoc)
-	 *
-	 * @see java.lang.Runnable#run()
-	 */
+	// counts are updated by all workers
 	@Override
-	public void run() {
-		try {
-			//This is done to clear the MDC context to avoid issue with Ranger Auditing for Knox
-			MDC.clear();
-			runLogAudit();
-		} catch (Throwable t) {
-			logger.fatal("Exited thread abnormaly. queue=" + getName(), t);
-		}
+	synchronized public long addTotalCount(int count) {
+		return super.addTotalCount(count);
 	}
 
-	public void runLogAudit() {
-		long lastDispatchTime = System.currentTimeMillis();
-		boolean isDestActive = true;
-		while (true) {
-			logStatusIfRequired();
+	@Override
+	synchronized public long addSuccessCount(int count) {
+		return super.addSuccessCount(count);
+	}
 
-			// Time to next dispatch
-			long nextDispatchDuration = lastDispatchTime
-					- System.currentTimeMillis() + getMaxBatchInterval();
+	@Override
+	synchronized public long addFailedCount(int count) {
+		return super.addFailedCount(count);
+	}
 
-			boolean isToSpool = false;
-			boolean fileSpoolDrain = false;
-			try {
-				if (fileSpoolerEnabled && fileSpooler.isPending()) {
-					int percentUsed = queue.size() * 100
-							/ getMaxQueueSize();
-					long lastAttemptDelta = fileSpooler
-							.getLastAttemptTimeDelta();
-
-					fileSpoolDrain = lastAttemptDelta > fileSpoolMaxWaitTime;
-					// If we should even read from queue?
-					if (!isDrain() && !fileSpoolDrain
-							&& percentUsed < fileSpoolDrainThresholdPercent) {
-						// Since some files are still under progress and it is
-						// not in drain mode, lets wait and retry
-						if (nextDispatchDuration > 0) {
-							Thread.sleep(nextDispatchDuration);
-							lastDispatchTime = System.currentTimeMillis();
-						}
-						continue;
-					}
-					isToSpool = true;
-				}
+	@Override
+	synchronized public long addStashedCount(int count) {
+		return super.addStashedCount(count);
+	}
 
-				AuditEventBase event = null;
+	@Override
+	synchronized public void logStatus() {
+		super.logStatus();
 
-				if (!isToSpool && !isDrain() && !fileSpoolDrain
-						&& nextDispatchDuration > 0) {
-					event = queue.poll(nextDispatchDuration,
-							TimeUnit.MILLISECONDS);
-				} else {
-					// For poll() is non blocking
-					event = queue.poll();
-				}
+		Worker[] currWorkers = workers;
+		if (currWorkers != null && currWorkers.length > 1) {
+			for (Worker worker : currWorkers) {
+				worker.logStatus();
+			}
+		}
+	}
 
-				if (event != null) {
-					localBatchBuffer.add(event);
-					if (getMaxBatchSize() >= localBatchBuffer.size()) {
-						queue.drainTo(localBatchBuffer, getMaxBatchSize()
-								- localBatchBuffer.size());
-					}
-				} else {
-					// poll returned due to timeout, so reseting clock
-					nextDispatchDuration = lastDispatchTime
-							- System.currentTimeMillis()
-							+ getMaxBatchInterval();
+	private int getWorkerIndex(AuditEventBase event) {
+		if (workers.length == 1) {
+			return 0;
+		}
 
-					lastDispatchTime = System.currentTimeMillis();
-				}
-			} catch (InterruptedException e) {
-				logger.info("Caught exception in consumer thread. Shutdown might be in progress");
-				setDrain(true);
-			} catch (Throwable t) {
-				logger.error("Caught error during processing request.", t);
+		String key;
+		if (event instanceof AuthzAuditEvent) {
+			AuthzAuditEvent authzEvent = (AuthzAuditEvent) event;
+			key = partitionByResource ? authzEvent.getResourcePath() : authzEvent.getUser();
+		} else {
+			key = event.getEventKey();
+		}
+		return key == null ? 0 : (key.hashCode() & Integer.MAX_VALUE) % workers.length;
+	}
+
+	private int getQueueSize() {
+		int ret = 0;
+		Worker[] currWorkers = workers;
+		if (currWorkers != null) {
+			for (Worker worker : currWorkers) {
+				ret += worker.queue.size();
 			}
+		}
+		return ret;
+	}
 
-			addTotalCount(localBatchBuffer.size());
-			if (localBatchBuffer.size() > 0 && isToSpool) {
-				// Let spool to the file directly
-				if (isDestActive) {
-					logger.info("Switching to file spool. Queue=" + getName()
-							+ ", dest=" + consumer.getName());
-				}
-				isDestActive = false;
-				// Just before stashing
-				lastDispatchTime = System.currentTimeMillis();
-				fileSpooler.stashLogs(localBatchBuffer);
-				addStashedCount(localBatchBuffer.size());
-				localBatchBuffer.clear();
-			} else if (localBatchBuffer.size() > 0
-					&& (isDrain()
-							|| localBatchBuffer.size() >= getMaxBatchSize() || nextDispatchDuration <= 0)) {
-				if (fileSpoolerEnabled && !isDestActive) {
-					logger.info("Switching to writing to destination. Queue="
-							+ getName() + ", dest=" + consumer.getName());
-				}
-				// Reset time just before sending the logs
-				lastDispatchTime = System.currentTimeMillis();
-				boolean ret = consumer.log(localBatchBuffer);
-				if (!ret) {
-					if (fileSpoolerEnabled) {
-						logger.info("Switching to file spool. Queue="
-								+ getName() + ", dest=" + consumer.getName());
-						// Transient error. Stash and move on
-						fileSpooler.stashLogs(localBatchBuffer);
-						isDestActive = false;
-						addStashedCount(localBatchBuffer.size());
-					} else {
-						// We need to drop this event
-						addFailedCount(localBatchBuffer.size());
-						logFailedEvent(localBatchBuffer);
-					}
-				} else {
-					isDestActive = true;
-					addSuccessCount(localBatchBuffer.size());
-				}
-				localBatchBuffer.clear();
+	private int getPendingCount() {
+		int ret = 0;
+		Worker[] currWorkers = workers;
+		if (currWorkers != null) {
+			for (Worker worker : currWorkers) {
+				ret += worker.queue.size() + worker.localBatchBuffer.size();
 			}
+		}
+		return ret;
+	}
 
-			if (isDrain()) {
-				if (!queue.isEmpty() || localBatchBuffer.size() > 0) {
-					logger.info("Queue is not empty. Will retry. queue.size)="
-							+ queue.size() + ", localBatchBuffer.size()="
-							+ localBatchBuffer.size());
-				} else {
-					break;
-				}
-				if (isDrainMaxTimeElapsed()) {
-					logger.warn("Exiting polling loop because max time allowed reached. name="
-							+ getName()
-							+ ", waited for "
-							+ (stopTime - System.currentTimeMillis()) + " ms");
-				}
+	private void interruptWorkers() {
+		Worker[] currWorkers = workers;
+		if (currWorkers != null) {
+			for (Worker worker : currWorkers) {
+				worker.interrupt();
 			}
 		}
+	}
+
+	// called by each worker on exit; the last one stops the consumer
+	private void onWorkerExit() {
+		if (activeWorkerCount.decrementAndGet() > 0) {
+			return;
+		}
 
 		logger.info("Exiting consumerThread. Queue=" + getName() + ", dest="
 				+ consumer.getName());
@@ -359,6 +373,265 @@ public class AuditBatchQueue extends AuditQueue implements Runnable {
 			logger.error("Error while calling stop on consumer.", t);
 		}
 		logStatus();
-		logger.info("Exiting consumerThread.run() method. name=" + getName());
+	}
+
+	/**
+	 * Dispatches events of one partition: polls its queue into its batch buffer, and sends the batch to the consumer,
+	 * or to the file spool when the consumer is not available.
+	 */
+	public class Worker implements Runnable {
+		private final int index;
+		private final BlockingQueue<AuditEventBase> queue;
+		private final Collection<AuditEventBase> localBatchBuffer = new ArrayList<AuditEventBase>();
+		private final AtomicLong queueFullCount = new AtomicLong();
+		private Thread thread = null;
+
+		private volatile long batchCount = 0;
+		private volatile long dispatchedCount = 0;
+		private volatile long dispatchTimeMS = 0;
+		private volatile long maxDispatchTimeMS = 0;
+
+		private long lastLoggedBatchCount = 0;
+		private long lastLoggedQueueFullCount = 0;
+
+		Worker(int index, int queueSize) {
+			this.index = index;
+			this.queue = new ArrayBlockingQueue<AuditEventBase>(queueSize);
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public int getQueueSize() {
+			return queue.size();
+		}
+
+		/**
+		 * @return percentage of the queue capacity in use
+		 */
+		public int getQueueUsedPercent() {
+			int capacity = queue.size() + queue.remainingCapacity();
+			return capacity > 0 ? (queue.size() * 100 / capacity) : 0;
+		}
+
+		/**
+		 * @return number of times an event couldn't be queued immediately because the queue was full
+		 */
+		public long getQueueFullCount() {
+			return queueFullCount.get();
+		}
+
+		public long getBatchCount() {
+			return batchCount;
+		}
+
+		public long getDispatchedCount() {
+			return dispatchedCount;
+		}
+
+		/**
+		 * @return total time spent in sending batches to the consumer, in milliseconds
+		 */
+		public long getDispatchTimeMS() {
+			return dispatchTimeMS;
+		}
+
+		public long getMaxDispatchTimeMS() {
+			return maxDispatchTimeMS;
+		}
+
+		void start() {
+			thread = new Thread(this, AuditBatchQueue.this.getClass().getName()
+					+ (threadCount++));
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		void interrupt() {
+			if (thread != null) {
+				thread.interrupt();
+			}
+		}
+
+		void logStatus() {
+			long currBatchCount = batchCount;
+			long currQueueFullCount = queueFullCount.get();
+
+			if (currBatchCount == lastLoggedBatchCount && currQueueFullCount == lastLoggedQueueFullCount) {
+				return;
+			}
+
+			lastLoggedBatchCount = currBatchCount;
+			lastLoggedQueueFullCount = currQueueFullCount;
+
+			logger.info("Audit Worker Status Log: name=" + getName()
+					+ ", worker=" + index
+					+ ", queueSize=" + queue.size()
+					+ ", queueUsedPercent=" + getQueueUsedPercent()
+					+ ", queueFullCount=" + currQueueFullCount
+					+ ", batchCount=" + currBatchCount
+					+ ", dispatchedCount=" + dispatchedCount
+					+ ", avgDispatchTimeMS=" + (currBatchCount > 0 ? (dispatchTimeMS / currBatchCount) : 0)
+					+ ", maxDispatchTimeMS=" + maxDispatchTimeMS);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.lang.Runnable#run()
+		 */
+		@Override
+		public void run() {
+			try {
+				//This is done to clear the MDC context to avoid issue with Ranger Auditing for Knox
+				MDC.clear();
+				runLogAudit();
+			} catch (Throwable t) {
+				logger.fatal("Exited thread abnormaly. queue=" + getName() + ", worker=" + index, t);
+			} finally {
+				onWorkerExit();
+			}
+		}
+
+		public void runLogAudit() {
+			long lastDispatchTime = System.currentTimeMillis();
+			boolean isDestActive = true;
+			while (true) {
+				logStatusIfRequired();
+
+				// Time to next dispatch
+				long nextDispatchDuration = lastDispatchTime
+						- System.currentTimeMillis() + getMaxBatchInterval();
+
+				boolean isToSpool = false;
+				boolean fileSpoolDrain = false;
+				try {
+					if (fileSpoolerEnabled && fileSpooler.isPending()) {
+						int percentUsed = getQueueUsedPercent();
+						long lastAttemptDelta = fileSpooler
+								.getLastAttemptTimeDelta();
+
+						fileSpoolDrain = lastAttemptDelta > fileSpoolMaxWaitTime;
+						// If we should even read from queue?
+						if (!isDrain() && !fileSpoolDrain
+								&& percentUsed < fileSpoolDrainThresholdPercent) {
+							// Since some files are still under progress and it is
+							// not in drain mode, lets wait and retry
+							if (nextDispatchDuration > 0) {
+								Thread.sleep(nextDispatchDuration);
+								lastDispatchTime = System.currentTimeMillis();
+							}
+							continue;
+						}
+						isToSpool = true;
+					}
+
+					AuditEventBase event = null;
+
+					if (!isToSpool && !isDrain() && !fileSpoolDrain
+							&& nextDispatchDuration > 0) {
+						event = queue.poll(nextDispatchDuration,
+								TimeUnit.MILLISECONDS);
+					} else {
+						// For poll() is non blocking
+						event = queue.poll();
+					}
+
+					if (event != null) {
+						localBatchBuffer.add(event);
+						if (getMaxBatchSize() >= localBatchBuffer.size()) {
+							queue.drainTo(localBatchBuffer, getMaxBatchSize()
+									- localBatchBuffer.size());
+						}
+					} else {
+						// poll returned due to timeout, so reseting clock
+						nextDispatchDuration = lastDispatchTime
+								- System.currentTimeMillis()
+								+ getMaxBatchInterval();
+
+						lastDispatchTime = System.currentTimeMillis();
+					}
+				} catch (InterruptedException e) {
+					logger.info("Caught exception in consumer thread. Shutdown might be in progress");
+					setDrain(true);
+				} catch (Throwable t) {
+					logger.error("Caught error during processing request.", t);
+				}
+
+				if (localBatchBuffer.size() > 0 && isToSpool) {
+					addTotalCount(localBatchBuffer.size());
+					// Let spool to the file directly
+					if (isDestActive) {
+						logger.info("Switching to file spool. Queue=" + getName()
+								+ ", dest=" + consumer.getName());
+					}
+					isDestActive = false;
+					// Just before stashing
+					lastDispatchTime = System.currentTimeMillis();
+					fileSpooler.stashLogs(localBatchBuffer);
+					addStashedCount(localBatchBuffer.size());
+					localBatchBuffer.clear();
+				} else if (localBatchBuffer.size() > 0
+						&& (isDrain()
+								|| localBatchBuffer.size() >= getMaxBatchSize() || nextDispatchDuration <= 0)) {
+					if (fileSpoolerEnabled && !isDestActive) {
+						logger.info("Switching to writing to destination. Queue="
+								+ getName() + ", dest=" + consumer.getName());
+					}
+					addTotalCount(localBatchBuffer.size());
+					// Reset time just before sending the logs
+					lastDispatchTime = System.currentTimeMillis();
+					boolean ret = consumer.log(localBatchBuffer);
+					updateDispatchStats(localBatchBuffer.size(), System.currentTimeMillis() - lastDispatchTime);
+					if (!ret) {
+						if (fileSpoolerEnabled) {
+							logger.info("Switching to file spool. Queue="
+									+ getName() + ", dest=" + consumer.getName());
+							// Transient error. Stash and move on
+							fileSpooler.stashLogs(localBatchBuffer);
+							isDestActive = false;
+							addStashedCount(localBatchBuffer.size());
+						} else {
+							// We need to drop this event
+							addFailedCount(localBatchBuffer.size());
+							logFailedEvent(localBatchBuffer);
+						}
+					} else {
+						isDestActive = true;
+						addSuccessCount(localBatchBuffer.size());
+						recordLatency(localBatchBuffer);
+					}
+					localBatchBuffer.clear();
+				}
+
+				if (isDrain()) {
+					if (!queue.isEmpty() || localBatchBuffer.size() > 0) {
+						logger.info("Queue is not empty. Will retry. queue.size)="
+								+ queue.size() + ", localBatchBuffer.size()="
+								+ localBatchBuffer.size());
+					} else {
+						break;
+					}
+					if (isDrainMaxTimeElapsed()) {
+						logger.warn("Exiting polling loop because max time allowed reached. name="
+								+ getName()
+								+ ", waited for "
+								+ (stopTime - System.currentTimeMillis()) + " ms");
+					}
+				}
+			}
+
+			logger.info("Exiting consumerThread.run() method. name=" + getName() + ", worker=" + index);
+		}
+
+		private void updateDispatchStats(int eventCount, long timeMS) {
+			batchCount++;
+			dispatchedCount += eventCount;
+			dispatchTimeMS += timeMS;
+			if (timeMS > maxDispatchTimeMS) {
+				maxDispatchTimeMS = timeMS;
+			}
+		}
 	}
 }
@@ -28,6 +28,7 @@ import org.apache.ranger.audit.model.AuditEventBase;
 import org.apache.ranger.audit.provider.AuditHandler;
 import org.apache.ranger.audit.model.AuthzAuditEvent;
 import org.apache.ranger.audit.provider.MiscUtil;
+import org.apache.ranger.audit.utils.AuthzAuditEventJson;
 
 import java.io.*;
 import java.util.*;
@@ -402,8 +403,12 @@ public class AuditFileCacheProviderSpool implements Runnable {
             isWriting = true;
             PrintWriter logOut = getLogFileStream();
             // Convert event to json
-            String jsonStr = MiscUtil.stringify(event);
-            logOut.println(jsonStr);
+            if (AuthzAuditEventJson.isSupported(event)) {
+                AuthzAuditEventJson.write((AuthzAuditEvent) event, logOut);
+                logOut.println();
+            } else {
+                logOut.println(MiscUtil.stringify(event));
+            }
             logOut.flush();
             isPending = true;
             isSpoolingSuccessful = true;
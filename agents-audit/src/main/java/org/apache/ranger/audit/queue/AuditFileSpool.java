@@ -26,8 +26,10 @@ import java.io.FileFilter;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.FileWriter;
+import java.io.FilterWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
@@ -37,13 +39,16 @@ import java.util.Properties;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.log4j.MDC;
 import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
 import org.apache.ranger.audit.provider.AuditHandler;
 import org.apache.ranger.audit.provider.MiscUtil;
+import org.apache.ranger.audit.utils.AuthzAuditEventJson;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -95,6 +100,10 @@ public class AuditFileSpool implements Runnable {
 
 	boolean isPending = false;
 	long lastAttemptTime = 0;
+
+	// size of the records not yet sent to the consumer; updated as records are spooled and sent, so that reading it
+	// needs neither the lock nor file system calls
+	protected final AtomicLong backlogBytes = new AtomicLong();
 	boolean initDone = false;
 
 	PrintWriter logWriter = null;
@@ -255,6 +264,10 @@ public class AuditFileSpool implements Runnable {
 			for (AuditIndexRecord auditIndexRecord : indexRecords) {
 				if (!auditIndexRecord.status.equals(SPOOL_FILE_STATUS.done)) {
 					isPending = true;
+
+					// lines already sent from a read_inprogress file are included, until the file is done
+					auditIndexRecord.backlogBytes = new File(auditIndexRecord.filePath).length();
+					backlogBytes.addAndGet(auditIndexRecord.backlogBytes);
 				}
 				if (auditIndexRecord.status
 						.equals(SPOOL_FILE_STATUS.write_inprogress)) {
@@ -400,6 +413,14 @@ public class AuditFileSpool implements Runnable {
 		return System.currentTimeMillis() - lastAttemptTime;
 	}
 
+	/**
+	 * @return approximate size, in bytes, of the records not yet sent to the consumer. Characters are counted as
+	 *         bytes; the count is corrected when a file is fully sent
+	 */
+	public long getBacklogBytes() {
+		return backlogBytes.get();
+	}
+
 	synchronized public void stashLogs(AuditEventBase event) {
 		if (isDrain) {
 			// Stop has been called, so this method shouldn't be called
@@ -411,8 +432,12 @@ public class AuditFileSpool implements Runnable {
 			isWriting = true;
 			PrintWriter logOut = getLogFileStream();
 			// Convert event to json
-			String jsonStr = MiscUtil.stringify(event);
-			logOut.println(jsonStr);
+			if (AuthzAuditEventJson.isSupported(event)) {
+				AuthzAuditEventJson.write((AuthzAuditEvent) event, logOut);
+				logOut.println();
+			} else {
+				logOut.println(MiscUtil.stringify(event));
+			}
 			isPending = true;
 		} catch (Exception ex) {
 			logger.error("Error writing to file. event=" + event, ex);
@@ -499,11 +524,12 @@ public class AuditFileSpool implements Runnable {
 			logger.info("Creating new file. queueName="
 					+ queueProvider.getName() + ", fileName=" + fileName);
 			// Open the file
-			logWriter = new PrintWriter(new BufferedWriter(new FileWriter(
-					outLogFile)));
-
 			AuditIndexRecord tmpIndexRecord = new AuditIndexRecord();
 
+			logWriter = new PrintWriter(new BacklogCountingWriter(
+					new BufferedWriter(new FileWriter(outLogFile)),
+					tmpIndexRecord));
+
 			tmpIndexRecord.id = MiscUtil.generateUniqueId();
 			tmpIndexRecord.filePath = outLogFile.getPath();
 			tmpIndexRecord.status = SPOOL_FILE_STATUS.write_inprogress;
@@ -520,8 +546,10 @@ public class AuditFileSpool implements Runnable {
 				logger.info("Opening existing file for append. queueName="
 						+ queueProvider.getName() + ", fileName="
 						+ currentWriterIndexRecord.filePath);
-				logWriter = new PrintWriter(new BufferedWriter(new FileWriter(
-						currentWriterIndexRecord.filePath, true)));
+				logWriter = new PrintWriter(new BacklogCountingWriter(
+						new BufferedWriter(new FileWriter(
+								currentWriterIndexRecord.filePath, true)),
+						currentWriterIndexRecord));
 			}
 		}
 		return logWriter;
@@ -724,6 +752,7 @@ public class AuditFileSpool implements Runnable {
 		Date lastFailedTime;
 		int failedAttemptCount = 0;
 		boolean lastAttempt = false;
+		transient long backlogBytes = 0; // not saved in the index file
 
 		@Override
 		public String toString() {
@@ -858,6 +887,10 @@ public class AuditFileSpool implements Runnable {
 					}
 				}
 				if (isRemoveIndex) {
+					// whatever is left of the file is no longer backlog
+					consumed(currentConsumerIndexRecord,
+							currentConsumerIndexRecord.backlogBytes);
+
 					// Remove this entry from index
 					removeIndexRecord(currentConsumerIndexRecord);
 					currentConsumerIndexRecord = null;
@@ -884,6 +917,12 @@ public class AuditFileSpool implements Runnable {
 						+ queueProvider.getName() + ", consumer="
 						+ consumerProvider.getName());
 			} else {
+				long byteCount = 0;
+				for (String line : lines) {
+					byteCount += line.length() + 1;
+				}
+				consumed(indexRecord, byteCount);
+
 				// Update index and save
 				indexRecord.linePosition = currLine;
 				indexRecord.status = SPOOL_FILE_STATUS.read_inprogress;
@@ -907,4 +946,43 @@ public class AuditFileSpool implements Runnable {
 		return ret;
 	}
 
+	private void consumed(AuditIndexRecord indexRecord, long byteCount) {
+		indexRecord.backlogBytes -= byteCount;
+		backlogBytes.addAndGet(-byteCount);
+	}
+
+	/**
+	 * Adds the characters written to a spool file to the backlog
+	 */
+	class BacklogCountingWriter extends FilterWriter {
+		final AuditIndexRecord indexRecord;
+
+		BacklogCountingWriter(Writer out, AuditIndexRecord indexRecord) {
+			super(out);
+			this.indexRecord = indexRecord;
+		}
+
+		@Override
+		public void write(int c) throws IOException {
+			super.write(c);
+			written(1);
+		}
+
+		@Override
+		public void write(char[] cbuf, int off, int len) throws IOException {
+			super.write(cbuf, off, len);
+			written(len);
+		}
+
+		@Override
+		public void write(String str, int off, int len) throws IOException {
+			super.write(str, off, len);
+			written(len);
+		}
+
+		private void written(int len) {
+			indexRecord.backlogBytes += len;
+			backlogBytes.addAndGet(len);
+		}
+	}
 }
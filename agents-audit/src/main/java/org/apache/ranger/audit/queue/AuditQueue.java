@@ -19,7 +19,10 @@
 
 package org.apache.ranger.audit.queue;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -52,10 +55,18 @@ public abstract class AuditQueue extends BaseAuditHandler {
 	public static final String PROP_FILE_SPOOL_ENABLE = "filespool.enable";
 	public static final String PROP_FILE_SPOOL_WAIT_FOR_FULL_DRAIN = "filespool.drain.full.wait.ms";
 	public static final String PROP_FILE_SPOOL_QUEUE_THRESHOLD = "filespool.drain.threshold.percent";
+	public static final String PROP_FILE_SPOOL_TYPE = "filespool.type";
+
+	public static final String FILE_SPOOL_TYPE_TEXT = "text";
+	public static final String FILE_SPOOL_TYPE_SEGMENT = "segment";
 
 	final protected AuditHandler consumer;
 	protected AuditFileSpool fileSpooler = null;
 
+	// events accepted by log(), and events discarded by the queue
+	protected final AtomicLong enqueuedCount = new AtomicLong(0);
+	protected final AtomicLong droppedCount = new AtomicLong(0);
+
 	private boolean isDrain = false;
 
 	protected boolean fileSpoolerEnabled = false;
@@ -111,7 +122,15 @@ public abstract class AuditQueue extends BaseAuditHandler {
 			fileSpoolDrainThresholdPercent = MiscUtil.getIntProperty(props,
 					propPrefix + "." + PROP_FILE_SPOOL_QUEUE_THRESHOLD,
 					fileSpoolDrainThresholdPercent);
-			fileSpooler = new AuditFileSpool(this, consumer);
+			String fileSpoolType = MiscUtil.getStringProperty(props,
+					propPrefix + "." + PROP_FILE_SPOOL_TYPE);
+			if (FILE_SPOOL_TYPE_SEGMENT.equalsIgnoreCase(fileSpoolType)) {
+				fileSpooler = new AuditSegmentSpool(this, consumer);
+			} else {
+				fileSpooler = new AuditFileSpool(this, consumer);
+			}
+			LOG.info("File spool type for " + getName() + " is "
+					+ (fileSpooler instanceof AuditSegmentSpool ? FILE_SPOOL_TYPE_SEGMENT : FILE_SPOOL_TYPE_TEXT));
 			if (!fileSpooler.init(props, basePropertyName)) {
 				fileSpoolerEnabled = false;
 				LOG.fatal("Couldn't initialize file spooler. Disabling it. queue="
@@ -157,6 +176,27 @@ public abstract class AuditQueue extends BaseAuditHandler {
 		return consumer;
 	}
 
+	@Override
+	public List<AuditHandler> getConsumers() {
+		return consumer != null ? Collections.singletonList(consumer) : Collections.<AuditHandler>emptyList();
+	}
+
+	@Override
+	public long getEnqueuedCount() {
+		return enqueuedCount.get();
+	}
+
+	@Override
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	@Override
+	public long getSpoolBacklogBytes() {
+		AuditFileSpool spooler = fileSpooler;
+		return fileSpoolerEnabled && spooler != null ? spooler.getBacklogBytes() : 0;
+	}
+
 	public boolean isDrainMaxTimeElapsed() {
 		return (stopTime - System.currentTimeMillis()) > AUDIT_CONSUMER_THREAD_WAIT_MS;
 	}
@@ -0,0 +1,406 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.log4j.MDC;
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.provider.AuditHandler;
+import org.apache.ranger.audit.provider.MiscUtil;
+
+/**
+ * Bounded multi-producer, single-consumer queue over a preallocated ring of slots. Producers claim a slot with a
+ * compare-and-set on the producer sequence and publish the event by storing its sequence in the slot; no lock is taken
+ * and nothing is allocated per event. The consumer thread collects published events into a batch, which is reused
+ * across calls to the consumer; consumers must not keep a reference to the collection after log() returns.
+ *
+ * When the ring is full, events are handled per overflow.policy:
+ *   drop  - the event is dropped; the number of dropped events is logged periodically
+ *   block - the producer waits for a free slot
+ *   spool - the event is written to the file spool, which sends it to the consumer later; requires filespool.enable
+ */
+public class AuditRingBufferQueue extends AuditQueue implements Runnable {
+	private static final Log logger = LogFactory.getLog(AuditRingBufferQueue.class);
+
+	public static final String PROP_OVERFLOW_POLICY = "overflow.policy";
+
+	public static final String OVERFLOW_POLICY_DROP = "drop";
+	public static final String OVERFLOW_POLICY_BLOCK = "block";
+	public static final String OVERFLOW_POLICY_SPOOL = "spool";
+
+	public static final int AUDIT_RING_BUFFER_SIZE_DEFAULT = 64 * 1024;
+
+	static final long IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+	static final long BLOCK_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+	static final long DROP_SUMMARY_INTERVAL_MS = 60 * 1000;
+	static final String DEFAULT_NAME = "ringbuffer";
+	static int threadCount = 0;
+
+	private String overflowPolicy = OVERFLOW_POLICY_DROP;
+
+	private AuditEventBase[] slots = null;
+	private AtomicLongArray publishedSeqs = null; // sequence of the event published in each slot
+	private int mask = 0;
+
+	private final AtomicLong producerSeq = new AtomicLong(0); // next sequence to claim
+	private final AtomicLong consumerSeq = new AtomicLong(0); // next sequence to consume; slots before it are free
+
+	private final AtomicLong blockedCount = new AtomicLong(0);
+	private final AtomicLong spooledCount = new AtomicLong(0);
+	private long lastDropSummaryTime = System.currentTimeMillis();
+	private long lastDropSummaryCount = 0;
+
+	private Thread consumerThread = null;
+
+	public AuditRingBufferQueue(AuditHandler consumer) {
+		super(consumer);
+		setName(DEFAULT_NAME);
+		setMaxQueueSize(AUDIT_RING_BUFFER_SIZE_DEFAULT);
+	}
+
+	@Override
+	public void init(Properties props, String basePropertyName) {
+		super.init(props, basePropertyName);
+
+		String policy = MiscUtil.getStringProperty(props, propPrefix + "."
+				+ PROP_OVERFLOW_POLICY);
+		if (OVERFLOW_POLICY_BLOCK.equalsIgnoreCase(policy)) {
+			overflowPolicy = OVERFLOW_POLICY_BLOCK;
+		} else if (OVERFLOW_POLICY_SPOOL.equalsIgnoreCase(policy)) {
+			if (fileSpoolerEnabled) {
+				overflowPolicy = OVERFLOW_POLICY_SPOOL;
+			} else {
+				logger.warn(propPrefix + "." + PROP_OVERFLOW_POLICY + "=" + policy
+						+ " requires file spool to be enabled. Will drop events on overflow. name="
+						+ getName());
+			}
+		} else if (policy != null && !policy.isEmpty()
+				&& !OVERFLOW_POLICY_DROP.equalsIgnoreCase(policy)) {
+			logger.warn("Unsupported " + propPrefix + "." + PROP_OVERFLOW_POLICY
+					+ "=" + policy + ". Will drop events on overflow. name=" + getName());
+		}
+
+		int capacity = Integer.highestOneBit(Math.max(2, getMaxQueueSize()) - 1) << 1; // power of 2
+		setMaxQueueSize(capacity);
+
+		logger.info("ringBufferSize=" + capacity + ", overflowPolicy="
+				+ overflowPolicy + ", name=" + getName());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * org.apache.ranger.audit.provider.AuditProvider#log(org.apache.ranger.
+	 * audit.model.AuditEventBase)
+	 */
+	@Override
+	public boolean log(AuditEventBase event) {
+		final int capacity = slots.length;
+
+		while (true) {
+			long seq = producerSeq.get();
+
+			if (seq - consumerSeq.get() >= capacity) { // full
+				if (!handleOverflow(event)) {
+					return false;
+				}
+				if (!OVERFLOW_POLICY_BLOCK.equals(overflowPolicy)) { // spooled
+					return true;
+				}
+				continue;
+			}
+
+			if (producerSeq.compareAndSet(seq, seq + 1)) {
+				int index = (int) (seq & mask);
+
+				slots[index] = event;
+				publishedSeqs.lazySet(index, seq); // publishes the slot write
+				enqueuedCount.incrementAndGet();
+
+				return true;
+			}
+		}
+	}
+
+	@Override
+	public boolean log(Collection<AuditEventBase> events) {
+		boolean ret = true;
+		for (AuditEventBase event : events) {
+			ret = log(event);
+			if (!ret) {
+				break;
+			}
+		}
+		return ret;
+	}
+
+	public String getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	public int getQueueSize() {
+		return (int) (producerSeq.get() - consumerSeq.get());
+	}
+
+	@Override
+	public long getQueueDepth() {
+		return getQueueSize();
+	}
+
+	/**
+	 * @return number of times a producer waited for a free slot, with overflow.policy=block
+	 */
+	public long getBlockedCount() {
+		return blockedCount.get();
+	}
+
+	public long getSpooledCount() {
+		return spooledCount.get();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.apache.ranger.audit.provider.AuditProvider#start()
+	 */
+	@Override
+	synchronized public void start() {
+		if (consumerThread != null) {
+			logger.error("Provider is already started. name=" + getName());
+			return;
+		}
+
+		int capacity = getMaxQueueSize();
+		slots = new AuditEventBase[capacity];
+		publishedSeqs = new AtomicLongArray(capacity);
+		mask = capacity - 1;
+		for (int i = 0; i < capacity; i++) {
+			publishedSeqs.set(i, -1);
+		}
+
+		if (consumer != null) {
+			consumer.start();
+		} else {
+			logger.error("consumer is not set. Nothing will be sent to any consumer. name="
+					+ getName());
+		}
+
+		if (fileSpoolerEnabled) {
+			fileSpooler.start();
+		}
+
+		consumerThread = new Thread(this, this.getClass().getName()
+				+ (threadCount++));
+		consumerThread.setDaemon(true);
+		consumerThread.start();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.apache.ranger.audit.provider.AuditProvider#stop()
+	 */
+	@Override
+	public void stop() {
+		logger.info("Stop called. name=" + getName());
+		setDrain(true);
+		try {
+			if (consumerThread != null) {
+				logger.info("Interrupting consumerThread. name=" + getName()
+						+ ", consumer="
+						+ (consumer == null ? null : consumer.getName()));
+				consumerThread.interrupt();
+			}
+		} catch (Throwable t) {
+			// ignore any exception
+		}
+		consumerThread = null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.apache.ranger.audit.provider.AuditProvider#flush()
+	 */
+	@Override
+	public void flush() {
+		if (fileSpoolerEnabled) {
+			fileSpooler.flush();
+		}
+		super.flush();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Runnable#run()
+	 */
+	@Override
+	public void run() {
+		try {
+			//This is done to clear the MDC context to avoid issue with Ranger Auditing for Knox
+			MDC.clear();
+			runLogAudit();
+		} catch (Throwable t) {
+			logger.fatal("Exited thread abnormaly. queue=" + getName(), t);
+		}
+	}
+
+	public void runLogAudit() {
+		Collection<AuditEventBase> eventList = new ArrayList<AuditEventBase>(getMaxBatchSize());
+
+		while (true) {
+			logStatusIfRequired();
+			logDropSummaryIfRequired();
+
+			try {
+				if (drainTo(eventList, getMaxBatchSize()) > 0) {
+					dispatch(eventList);
+				} else if (!isDrain()) {
+					LockSupport.parkNanos(this, IDLE_WAIT_NANOS);
+				}
+			} catch (Throwable t) {
+				logger.error("Caught error during processing request.", t);
+			} finally {
+				eventList.clear();
+			}
+
+			if (isDrain()) {
+				if (getQueueSize() == 0) {
+					break;
+				}
+				if (isDrainMaxTimeElapsed()) {
+					logger.warn("Exiting polling loop because max time allowed reached. name="
+							+ getName()
+							+ ", waited for "
+							+ (stopTime - System.currentTimeMillis()) + " ms");
+				}
+			}
+		}
+		logger.info("Exiting polling loop. name=" + getName());
+
+		try {
+			// Call stop on the consumer
+			logger.info("Calling to stop consumer. name=" + getName()
+					+ ", consumer.name=" + consumer.getName());
+
+			consumer.stop();
+			if (fileSpoolerEnabled) {
+				fileSpooler.stop();
+			}
+		} catch (Throwable t) {
+			logger.error("Error while calling stop on consumer.", t);
+		}
+		logDropSummaryIfRequired();
+		logStatus();
+		logger.info("Exiting consumerThread.run() method. name=" + getName());
+	}
+
+	// moves published events, in sequence, to the given collection; called only from the consumer thread
+	private int drainTo(Collection<AuditEventBase> eventList, int maxCount) {
+		long next = consumerSeq.get();
+		int ret = 0;
+
+		while (ret < maxCount) {
+			int index = (int) (next & mask);
+
+			if (publishedSeqs.get(index) != next) { // not yet published
+				break;
+			}
+
+			eventList.add(slots[index]);
+			slots[index] = null;
+			next++;
+			ret++;
+		}
+
+		if (ret > 0) {
+			consumerSeq.set(next); // frees the slots for producers
+		}
+
+		return ret;
+	}
+
+	private void dispatch(Collection<AuditEventBase> eventList) {
+		addTotalCount(eventList.size());
+
+		boolean ret = consumer.log(eventList);
+
+		if (ret) {
+			addSuccessCount(eventList.size());
+			recordLatency(eventList);
+		} else if (fileSpoolerEnabled) {
+			// Transient error. Stash and move on
+			fileSpooler.stashLogs(eventList);
+			addStashedCount(eventList.size());
+		} else {
+			addFailedCount(eventList.size());
+			logFailedEvent(eventList);
+		}
+	}
+
+	// returns false if the event is to be dropped
+	private boolean handleOverflow(AuditEventBase event) {
+		boolean ret = true;
+
+		if (OVERFLOW_POLICY_BLOCK.equals(overflowPolicy) && !isDrain()) {
+			blockedCount.incrementAndGet();
+			LockSupport.parkNanos(this, BLOCK_WAIT_NANOS);
+		} else if (OVERFLOW_POLICY_SPOOL.equals(overflowPolicy)) {
+			fileSpooler.stashLogs(event);
+			spooledCount.incrementAndGet();
+		} else {
+			droppedCount.incrementAndGet();
+			ret = false;
+		}
+
+		return ret;
+	}
+
+	private void logDropSummaryIfRequired() {
+		long now = System.currentTimeMillis();
+
+		if (now - lastDropSummaryTime < DROP_SUMMARY_INTERVAL_MS && !isDrain()) {
+			return;
+		}
+
+		long currDroppedCount = droppedCount.get();
+
+		if (currDroppedCount > lastDropSummaryCount) {
+			logger.warn("Audit ring buffer full: dropped " + (currDroppedCount - lastDropSummaryCount)
+					+ " events in last " + formatIntervalForLog(now - lastDropSummaryTime)
+					+ ". totalDroppedCount=" + currDroppedCount + ", ringBufferSize=" + getMaxQueueSize()
+					+ ", name=" + getName());
+		}
+
+		lastDropSummaryTime = now;
+		lastDropSummaryCount = currDroppedCount;
+	}
+}
@@ -0,0 +1,777 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.AuditHandler;
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.apache.ranger.audit.utils.AuthzAuditEventJson;
+
+/**
+ * File spool that appends events to segment files, instead of the text files and JSON index of AuditFileSpool.
+ *
+ * Each event is stored as a record: payload length (4 bytes), CRC32 of the payload (4 bytes) and the JSON of the
+ * event in UTF-8. Records are appended to the current segment with a FileChannel; a new segment is started when the
+ * current one reaches filespool.segment.max.bytes, or is older than filespool.file.rollover.sec, and on every start.
+ *
+ * The destination thread reads records in batches of the queue's batch size, sends them with logJSON() and, after
+ * each successful batch, overwrites a checkpoint file with the segment id and offset of the next record (20 bytes,
+ * with a CRC32). The current segment is read while it is being written, up to the last complete record. After a
+ * restart, sending resumes from the checkpoint, in the middle of a segment if needed. Fully sent segments are moved
+ * to the archive folder, where at most filespool.archive.max.files segments are kept.
+ */
+public class AuditSegmentSpool extends AuditFileSpool {
+	private static final Log logger = LogFactory.getLog(AuditSegmentSpool.class);
+
+	public static final String PROP_FILE_SPOOL_SEGMENT_MAX_BYTES = "filespool.segment.max.bytes";
+	public static final String PROP_FILE_SPOOL_SEGMENT_FSYNC     = "filespool.segment.fsync";
+
+	static final String SEGMENT_FILE_EXTENSION    = ".seg";
+	static final String CHECKPOINT_FILE_EXTENSION = ".checkpoint";
+	static final int    RECORD_HEADER_SIZE        = 8;  // payload length, CRC32 of payload
+	static final int    CHECKPOINT_SIZE           = 20; // segment id, offset, CRC32 of segment id and offset
+	static final int    MAX_RECORD_SIZE           = 64 * 1024 * 1024;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private long    maxSegmentBytes = 64L * 1024 * 1024;
+	private boolean isFsyncEnabled  = false;
+	private File    checkpointFile  = null;
+
+	private volatile boolean hasPendingRecords = false;
+
+	// segments not yet fully sent, by id; guarded by this
+	private final TreeMap<Long, File> segments = new TreeMap<Long, File>();
+
+	// writer state; guarded by this
+	private FileChannel writeChannel           = null;
+	private long        writeSegmentId         = -1;
+	private long        writeSegmentCreateTime = 0;
+	private long        writePosition          = 0;
+	private long        nextSegmentId          = 0;
+	private ByteBuffer  writeBuffer            = ByteBuffer.allocate(64 * 1024);
+	private final CRC32 writeCrc               = new CRC32();
+
+	// reader state; used only by the destination thread, after init()
+	private FileChannel       readChannel       = null;
+	private long              readSegmentId     = -1;
+	private long              readPosition      = 0;
+	private ByteBuffer        readBuffer        = ByteBuffer.allocate(64 * 1024);
+	private final CRC32       readCrc           = new CRC32();
+	private FileChannel       checkpointChannel = null;
+	private final ByteBuffer  checkpointBuffer  = ByteBuffer.allocate(CHECKPOINT_SIZE);
+
+	public AuditSegmentSpool(AuditQueue queueProvider, AuditHandler consumerProvider) {
+		super(queueProvider, consumerProvider);
+	}
+
+	@Override
+	public boolean init(Properties props, String basePropertyName) {
+		if (initDone) {
+			logger.error("init() called more than once. queueProvider=" + queueProvider.getName() + ", consumerProvider=" + consumerProvider.getName());
+			return true;
+		}
+
+		String propPrefix = "xasecure.audit.filespool";
+		if (basePropertyName != null) {
+			propPrefix = basePropertyName;
+		}
+
+		try {
+			String logFolderProp     = MiscUtil.getStringProperty(props, propPrefix + "." + PROP_FILE_SPOOL_LOCAL_DIR);
+			String archiveFolderProp = MiscUtil.getStringProperty(props, propPrefix + "." + PROP_FILE_SPOOL_ARCHIVE_DIR);
+
+			fileNamePrefix     = MiscUtil.getStringProperty(props, propPrefix + "." + PROP_FILE_SPOOL_FILENAME_PREFIX);
+			retryDestinationMS = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_FILE_SPOOL_DEST_RETRY_MS, retryDestinationMS);
+			fileRolloverSec    = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_FILE_SPOOL_FILE_ROLLOVER, fileRolloverSec);
+			maxArchiveFiles    = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_FILE_SPOOL_ARCHIVE_MAX_FILES_COUNT, maxArchiveFiles);
+			maxSegmentBytes    = MiscUtil.getLongProperty(props, propPrefix + "." + PROP_FILE_SPOOL_SEGMENT_MAX_BYTES, maxSegmentBytes);
+			isFsyncEnabled     = MiscUtil.getBooleanProperty(props, propPrefix + "." + PROP_FILE_SPOOL_SEGMENT_FSYNC, isFsyncEnabled);
+
+			logger.info("retryDestinationMS=" + retryDestinationMS + ", fileRolloverSec=" + fileRolloverSec + ", maxArchiveFiles=" + maxArchiveFiles
+					+ ", maxSegmentBytes=" + maxSegmentBytes + ", fsync=" + isFsyncEnabled + ", queueName=" + queueProvider.getName());
+
+			if (logFolderProp == null || logFolderProp.isEmpty()) {
+				logger.fatal("Audit spool folder is not configured. Please set " + propPrefix + "." + PROP_FILE_SPOOL_LOCAL_DIR + ". queueName=" + queueProvider.getName());
+				return false;
+			}
+
+			logFolder     = new File(logFolderProp);
+			archiveFolder = (archiveFolderProp == null || archiveFolderProp.isEmpty()) ? new File(logFolder, "archive") : new File(archiveFolderProp);
+
+			for (File folder : new File[] { logFolder, archiveFolder }) {
+				if (!folder.isDirectory()) {
+					folder.mkdirs();
+
+					if (!folder.isDirectory()) {
+						logger.fatal("File Spool folder not found and can't be created. folder=" + folder.getAbsolutePath() + ", queueName=" + queueProvider.getName());
+						return false;
+					}
+				}
+			}
+
+			if (fileNamePrefix == null || fileNamePrefix.isEmpty()) {
+				fileNamePrefix = queueProvider.getName() + "_" + consumerProvider.getName();
+			}
+
+			checkpointFile = new File(logFolder, fileNamePrefix + CHECKPOINT_FILE_EXTENSION);
+
+			logger.info("logFolder=" + logFolder + ", archiveFolder=" + archiveFolder + ", checkpointFile=" + checkpointFile + ", queueName=" + queueProvider.getName());
+
+			for (File segmentFile : listSegmentFiles(logFolder)) {
+				segments.put(getSegmentId(segmentFile), segmentFile);
+			}
+
+			checkpointChannel = new RandomAccessFile(checkpointFile, "rw").getChannel();
+
+			long[] checkpoint = loadCheckpoint();
+
+			readSegmentId = checkpoint[0];
+			readPosition  = checkpoint[1];
+
+			// segments before the checkpoint have been sent
+			while (!segments.isEmpty() && segments.firstKey() < readSegmentId) {
+				archiveSegment(segments.firstKey());
+			}
+
+			nextSegmentId = Math.max(readSegmentId, segments.isEmpty() ? 0 : segments.lastKey()) + 1;
+
+			for (Map.Entry<Long, File> entry : segments.tailMap(readSegmentId, true).entrySet()) {
+				long start = entry.getKey() == readSegmentId ? readPosition : 0;
+
+				backlogBytes.addAndGet(Math.max(0, entry.getValue().length() - start));
+			}
+
+			// always write to a new segment, so that a segment with an incomplete last record is never appended to
+			openNewSegment();
+
+			hasPendingRecords = segments.size() > 1;
+
+			logger.info("Found " + (segments.size() - 1) + " segments to send. checkpoint=(segment=" + readSegmentId + ", offset=" + readPosition + "), queueName=" + queueProvider.getName());
+		} catch (Throwable t) {
+			logger.fatal("Error initializing File Spooler. queue=" + queueProvider.getName(), t);
+			return false;
+		}
+
+		initDone = true;
+
+		return true;
+	}
+
+	@Override
+	public void stop() {
+		if (!initDone) {
+			logger.error("Cannot stop Audit File Spooler. Initilization not done. queueName=" + queueProvider.getName());
+			return;
+		}
+
+		logger.info("Stop called, queueName=" + queueProvider.getName() + ", consumer=" + consumerProvider.getName());
+
+		synchronized (this) {
+			isDrain = true;
+
+			closeWriteChannel();
+
+			notifyAll();
+		}
+
+		try {
+			if (destinationThread != null) {
+				destinationThread.interrupt();
+			}
+			destinationThread = null;
+		} catch (Throwable e) {
+			// ignore
+		}
+	}
+
+	/**
+	 * Records are written to the segment file by stashLogs(); this syncs them to the disk, if filespool.segment.fsync
+	 * is enabled
+	 */
+	@Override
+	synchronized public void flush() {
+		if (!initDone) {
+			logger.error("Cannot flush Audit File Spooler. Initilization not done. queueName=" + queueProvider.getName());
+			return;
+		}
+
+		if (isFsyncEnabled && writeChannel != null) {
+			try {
+				writeChannel.force(false);
+			} catch (IOException excp) {
+				logger.error("Error syncing spool segment. queueName=" + queueProvider.getName() + ", segment=" + writeSegmentId, excp);
+			}
+		}
+	}
+
+	@Override
+	public boolean isPending() {
+		if (!initDone) {
+			logError("isPending(): File Spooler not initialized. queueName=" + queueProvider.getName());
+			return false;
+		}
+
+		return hasPendingRecords;
+	}
+
+	@Override
+	synchronized public void stashLogs(AuditEventBase event) {
+		appendRecords(Collections.singletonList(toJson(event)));
+	}
+
+	@Override
+	synchronized public void stashLogs(Collection<AuditEventBase> events) {
+		List<String> records = new ArrayList<String>(events.size());
+
+		for (AuditEventBase event : events) {
+			records.add(toJson(event));
+		}
+
+		appendRecords(records);
+		flush();
+	}
+
+	@Override
+	synchronized public void stashLogsString(String event) {
+		appendRecords(Collections.singletonList(event));
+	}
+
+	@Override
+	synchronized public void stashLogsString(Collection<String> events) {
+		appendRecords(events);
+		flush();
+	}
+
+	@Override
+	public void runLogAudit() {
+		List<String> lines = new ArrayList<String>();
+
+		while (true) {
+			try {
+				if (isDestDown) {
+					logger.info("Destination is down. sleeping for " + retryDestinationMS + " milli seconds. queueName=" + queueProvider.getName() + ", consumer=" + consumerProvider.getName());
+					Thread.sleep(retryDestinationMS);
+				}
+
+				if (isDrain) {
+					break;
+				}
+
+				if (!sendNextBatch(lines)) {
+					synchronized (this) {
+						if (!isDrain && !isDestDown && !hasUnreadRecords()) {
+							wait(retryDestinationMS);
+						}
+					}
+				}
+			} catch (InterruptedException e) {
+				logger.info("Caught exception in consumer thread. Shutdown might be in progress");
+			} catch (Throwable t) {
+				logger.error("Exception in destination writing thread.", t);
+
+				closeReadChannel();
+			}
+		}
+
+		closeReadChannel();
+
+		try {
+			checkpointChannel.close();
+		} catch (IOException excp) {
+			logger.warn("Error closing checkpoint file " + checkpointFile, excp);
+		}
+
+		logger.info("Exiting file spooler. provider=" + queueProvider.getName() + ", consumer=" + consumerProvider.getName());
+	}
+
+	/**
+	 * Sends the next batch of records to the consumer; the checkpoint is updated if the consumer accepts them
+	 *
+	 * @return true if records were sent or a segment was completed, false if there was nothing to send or the
+	 *         destination is down
+	 */
+	private boolean sendNextBatch(List<String> lines) throws IOException {
+		if (!openReadSegment()) {
+			return false;
+		}
+
+		long    limit    = getReadLimit(readSegmentId);
+		boolean isSealed = limit < 0;
+
+		if (isSealed) {
+			limit = readChannel.size();
+		}
+
+		long position = readPosition;
+
+		lines.clear();
+
+		while (lines.size() < queueProvider.getMaxBatchSize() && position < limit) {
+			long next = readRecord(position, limit, lines);
+
+			if (next < 0) {
+				logger.error("Invalid record in spool segment. Skipping rest of the segment. segment=" + readSegmentId + ", offset=" + position + ", queueName=" + queueProvider.getName());
+
+				position = limit;
+
+				break;
+			}
+
+			position = next;
+		}
+
+		if (!lines.isEmpty()) {
+			boolean ret = sendEvent(lines);
+
+			if (!ret) {
+				isDestDown      = true;
+				lastAttemptTime = System.currentTimeMillis();
+
+				return false;
+			}
+		}
+
+		backlogBytes.addAndGet(readPosition - position);
+
+		readPosition = position;
+
+		if (isSealed && position >= limit) {
+			// the segment is fully sent
+			long segmentId = readSegmentId;
+
+			closeReadChannel();
+
+			synchronized (this) {
+				archiveSegment(segmentId);
+
+				Long nextId = segments.higherKey(segmentId);
+
+				readSegmentId = nextId != null ? nextId : writeSegmentId;
+				readPosition  = 0;
+			}
+		} else if (lines.isEmpty()) {
+			return false;
+		}
+
+		saveCheckpoint(readSegmentId, readPosition);
+
+		synchronized (this) {
+			if (!hasUnreadRecords()) {
+				hasPendingRecords = false;
+			}
+		}
+
+		return true;
+	}
+
+	private boolean sendEvent(List<String> lines) {
+		boolean ret = true;
+
+		try {
+			ret = consumerProvider.logJSON(lines);
+
+			if (!ret) {
+				// Need to log error after fixed interval
+				logError("Error sending logs to consumer. provider=" + queueProvider.getName() + ", consumer=" + consumerProvider.getName());
+			} else if (isDestDown) {
+				isDestDown = false;
+
+				logger.info("Destination up now. segment=" + readSegmentId + ", queueName=" + queueProvider.getName() + ", consumer=" + consumerProvider.getName());
+			}
+		} catch (Throwable t) {
+			logger.error("Error while sending logs to consumer. provider=" + queueProvider.getName() + ", consumer=" + consumerProvider.getName(), t);
+
+			ret = false;
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Reads the record at the given position, and adds its payload to the given list
+	 *
+	 * @return position of the next record; -1 if the record is incomplete or its checksum doesn't match
+	 */
+	private long readRecord(long position, long limit, List<String> records) throws IOException {
+		if (position + RECORD_HEADER_SIZE > limit) {
+			return -1;
+		}
+
+		readBuffer.clear();
+		readBuffer.limit(RECORD_HEADER_SIZE);
+		readFully(readChannel, readBuffer, position);
+
+		int length = readBuffer.getInt(0);
+		int crc    = readBuffer.getInt(4);
+
+		if (length < 0 || length > MAX_RECORD_SIZE || position + RECORD_HEADER_SIZE + length > limit) {
+			return -1;
+		}
+
+		if (readBuffer.capacity() < length) {
+			readBuffer = ByteBuffer.allocate(length);
+		}
+
+		readBuffer.clear();
+		readBuffer.limit(length);
+		readFully(readChannel, readBuffer, position + RECORD_HEADER_SIZE);
+
+		readCrc.reset();
+		readCrc.update(readBuffer.array(), 0, length);
+
+		if ((int) readCrc.getValue() != crc) {
+			return -1;
+		}
+
+		records.add(new String(readBuffer.array(), 0, length, UTF_8));
+
+		return position + RECORD_HEADER_SIZE + length;
+	}
+
+	private boolean openReadSegment() throws IOException {
+		if (readChannel != null) {
+			return true;
+		}
+
+		File segmentFile;
+
+		synchronized (this) {
+			Long segmentId = segments.ceilingKey(readSegmentId);
+
+			if (segmentId == null) {
+				return false;
+			}
+
+			if (segmentId != readSegmentId) {
+				readSegmentId = segmentId;
+				readPosition  = 0;
+			}
+
+			segmentFile = segments.get(segmentId);
+		}
+
+		readChannel = new RandomAccessFile(segmentFile, "r").getChannel();
+
+		return true;
+	}
+
+	private void closeReadChannel() {
+		if (readChannel != null) {
+			try {
+				readChannel.close();
+			} catch (IOException excp) {
+				logger.warn("Error closing spool segment. segment=" + readSegmentId, excp);
+			}
+
+			readChannel = null;
+		}
+	}
+
+	/**
+	 * @return end of the records written to the given segment, if it is being written; -1 otherwise
+	 */
+	private synchronized long getReadLimit(long segmentId) {
+		return segmentId == writeSegmentId ? writePosition : -1;
+	}
+
+	// must be called with the lock held
+	private boolean hasUnreadRecords() {
+		return readSegmentId != writeSegmentId || readPosition != writePosition;
+	}
+
+	// must be called with the lock held
+	private void appendRecords(Collection<String> records) {
+		if (isDrain) {
+			// Stop has been called, so this method shouldn't be called
+			logger.error("stashLogs() is called after stop is called. eventCount=" + records.size());
+			return;
+		}
+
+		try {
+			rollSegmentIfNeeded();
+
+			writeBuffer.clear();
+
+			for (String record : records) {
+				byte[] payload = record.getBytes(UTF_8);
+
+				if (payload.length > MAX_RECORD_SIZE) {
+					logger.error("Event too large to spool. Dropping it. size=" + payload.length + ", queueName=" + queueProvider.getName());
+					continue;
+				}
+
+				if (writeBuffer.remaining() < RECORD_HEADER_SIZE + payload.length) {
+					ByteBuffer newBuffer = ByteBuffer.allocate(Math.max(writeBuffer.capacity() * 2, writeBuffer.position() + RECORD_HEADER_SIZE + payload.length));
+
+					writeBuffer.flip();
+					newBuffer.put(writeBuffer);
+
+					writeBuffer = newBuffer;
+				}
+
+				writeCrc.reset();
+				writeCrc.update(payload, 0, payload.length);
+
+				writeBuffer.putInt(payload.length).putInt((int) writeCrc.getValue()).put(payload);
+			}
+
+			writeBuffer.flip();
+
+			int byteCount = writeBuffer.remaining();
+
+			while (writeBuffer.hasRemaining()) {
+				writeChannel.write(writeBuffer);
+			}
+
+			writePosition += byteCount;
+
+			backlogBytes.addAndGet(byteCount);
+
+			hasPendingRecords = true;
+
+			notifyAll();
+		} catch (Exception excp) {
+			logger.error("Error writing to spool segment. queueName=" + queueProvider.getName() + ", segment=" + writeSegmentId + ", eventCount=" + records.size(), excp);
+
+			try {
+				// discard partially written records
+				writeChannel.truncate(writePosition);
+				writeChannel.position(writePosition);
+			} catch (Exception excp2) {
+				logger.error("Error truncating spool segment. Starting a new segment. queueName=" + queueProvider.getName() + ", segment=" + writeSegmentId, excp2);
+
+				try {
+					openNewSegment();
+				} catch (IOException excp3) {
+					logger.error("Error creating spool segment. queueName=" + queueProvider.getName(), excp3);
+				}
+			}
+		} finally {
+			if (writeBuffer.capacity() > MAX_RECORD_SIZE) {
+				writeBuffer = ByteBuffer.allocate(64 * 1024);
+			}
+		}
+	}
+
+	// must be called with the lock held
+	private void rollSegmentIfNeeded() throws IOException {
+		if (writeChannel == null) {
+			openNewSegment();
+		} else if (writePosition > 0) {
+			if (writePosition >= maxSegmentBytes) {
+				logger.info("Rolling over segment. Size limit reached. queueName=" + queueProvider.getName() + ", segment=" + writeSegmentId);
+
+				openNewSegment();
+			} else if (System.currentTimeMillis() - writeSegmentCreateTime > fileRolloverSec * 1000L) {
+				logger.info("Rolling over segment. queueName=" + queueProvider.getName() + ", segment=" + writeSegmentId);
+
+				openNewSegment();
+			}
+		}
+	}
+
+	// must be called with the lock held
+	private void openNewSegment() throws IOException {
+		closeWriteChannel();
+
+		long segmentId   = nextSegmentId++;
+		File segmentFile = new File(logFolder, getSegmentFileName(segmentId));
+
+		writeChannel           = new RandomAccessFile(segmentFile, "rw").getChannel();
+		writeSegmentId         = segmentId;
+		writeSegmentCreateTime = System.currentTimeMillis();
+		writePosition          = 0;
+
+		writeChannel.truncate(0);
+
+		segments.put(segmentId, segmentFile);
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("Created spool segment " + segmentFile + ", queueName=" + queueProvider.getName());
+		}
+	}
+
+	// must be called with the lock held
+	private void closeWriteChannel() {
+		if (writeChannel != null) {
+			try {
+				if (isFsyncEnabled) {
+					writeChannel.force(false);
+				}
+
+				writeChannel.close();
+			} catch (IOException excp) {
+				logger.error("Error closing spool segment. queueName=" + queueProvider.getName() + ", segment=" + writeSegmentId, excp);
+			}
+
+			writeChannel = null;
+		}
+	}
+
+	// must be called with the lock held
+	private void archiveSegment(long segmentId) {
+		File segmentFile = segments.remove(segmentId);
+
+		if (segmentFile == null) {
+			return;
+		}
+
+		File archiveFile = new File(archiveFolder, segmentFile.getName());
+
+		if (segmentFile.length() == 0 || maxArchiveFiles <= 0) {
+			if (!segmentFile.delete()) {
+				logger.error("Error deleting segment " + segmentFile);
+			}
+
+			return;
+		}
+
+		logger.info("Moving segment " + segmentFile + " to " + archiveFile);
+
+		if (!segmentFile.renameTo(archiveFile)) {
+			logger.error("Error moving segment " + segmentFile + " to " + archiveFile + ". Deleting it");
+
+			if (!segmentFile.delete()) {
+				logger.error("Error deleting segment " + segmentFile);
+			}
+		}
+
+		File[] archivedFiles = listSegmentFiles(archiveFolder);
+
+		// file names sort by segment id
+		for (int i = 0; i < archivedFiles.length - maxArchiveFiles; i++) {
+			logger.info("Deleting archive file " + archivedFiles[i]);
+
+			if (!archivedFiles[i].delete()) {
+				logger.error("Error deleting archive file. archiveFile=" + archivedFiles[i]);
+			}
+		}
+	}
+
+	/**
+	 * @return segment id and offset of the next record to send
+	 */
+	private long[] loadCheckpoint() throws IOException {
+		long[] ret = new long[] { segments.isEmpty() ? 0 : segments.firstKey(), 0 };
+
+		if (checkpointChannel.size() >= CHECKPOINT_SIZE) {
+			checkpointBuffer.clear();
+			readFully(checkpointChannel, checkpointBuffer, 0);
+
+			readCrc.reset();
+			readCrc.update(checkpointBuffer.array(), 0, CHECKPOINT_SIZE - 4);
+
+			if ((int) readCrc.getValue() == checkpointBuffer.getInt(CHECKPOINT_SIZE - 4)) {
+				ret[0] = checkpointBuffer.getLong(0);
+				ret[1] = checkpointBuffer.getLong(8);
+			} else {
+				logger.error("Invalid checkpoint in " + checkpointFile + ". Events in spool segments will be sent from the beginning. queueName=" + queueProvider.getName());
+			}
+		}
+
+		return ret;
+	}
+
+	private void saveCheckpoint(long segmentId, long position) throws IOException {
+		checkpointBuffer.clear();
+		checkpointBuffer.putLong(segmentId).putLong(position);
+
+		readCrc.reset();
+		readCrc.update(checkpointBuffer.array(), 0, CHECKPOINT_SIZE - 4);
+
+		checkpointBuffer.putInt((int) readCrc.getValue());
+		checkpointBuffer.flip();
+
+		for (long offset = 0; checkpointBuffer.hasRemaining(); ) {
+			offset += checkpointChannel.write(checkpointBuffer, offset);
+		}
+
+		if (isFsyncEnabled) {
+			checkpointChannel.force(false);
+		}
+	}
+
+	private String toJson(AuditEventBase event) {
+		return AuthzAuditEventJson.isSupported(event) ? AuthzAuditEventJson.toJson((AuthzAuditEvent) event) : MiscUtil.stringify(event);
+	}
+
+	private String getSegmentFileName(long segmentId) {
+		return String.format("%s_%020d%s", fileNamePrefix, segmentId, SEGMENT_FILE_EXTENSION);
+	}
+
+	private long getSegmentId(File segmentFile) {
+		String name = segmentFile.getName();
+
+		return Long.parseLong(name.substring(fileNamePrefix.length() + 1, name.length() - SEGMENT_FILE_EXTENSION.length()));
+	}
+
+	private File[] listSegmentFiles(File folder) {
+		File[] ret = folder.listFiles(new FileFilter() {
+			@Override
+			public boolean accept(File file) {
+				String name = file.getName();
+
+				return file.isFile() && name.startsWith(fileNamePrefix + "_") && name.endsWith(SEGMENT_FILE_EXTENSION)
+						&& name.length() == fileNamePrefix.length() + 1 + 20 + SEGMENT_FILE_EXTENSION.length();
+			}
+		});
+
+		if (ret == null) {
+			ret = new File[0];
+		}
+
+		Arrays.sort(ret);
+
+		return ret;
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int count = channel.read(buffer, position);
+
+			if (count < 0) {
+				throw new IOException("unexpected end of file");
+			}
+
+			position += count;
+		}
+	}
+}
@@ -20,10 +20,10 @@
 package org.apache.ranger.audit.queue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Collection;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -36,13 +36,30 @@ import org.apache.ranger.audit.provider.AuditHandler;
 import org.apache.ranger.audit.provider.MiscUtil;
 
 /**
- * This is a non-blocking queue with no limit on capacity.
+ * This is a non-blocking queue that summarizes events with the same key over
+ * a window of summary.interval.ms, and sends one event per key to the
+ * consumer, with the count and duration of the events it summarizes.
+ *
+ * With window type "tumbling" (default), all summaries are sent together at
+ * the end of each interval. With window type "sliding", each summary covers
+ * the interval starting at its first event, and is sent when that interval
+ * elapses; expired summaries are looked for every summary.slide.interval.ms.
+ *
+ * Summaries are kept in an open-addressing table keyed by the event
+ * fingerprint, with at most summary.max.entries entries; when the table is
+ * full, all summaries are sent before the end of their window.
  */
 public class AuditSummaryQueue extends AuditQueue implements Runnable {
 	private static final Log logger = LogFactory
 			.getLog(AuditSummaryQueue.class);
 
 	public static final String PROP_SUMMARY_INTERVAL = "summary.interval.ms";
+	public static final String PROP_SUMMARY_WINDOW_TYPE = "summary.window.type";
+	public static final String PROP_SUMMARY_SLIDE_INTERVAL = "summary.slide.interval.ms";
+	public static final String PROP_SUMMARY_MAX_ENTRIES = "summary.max.entries";
+
+	public static final String WINDOW_TYPE_TUMBLING = "tumbling";
+	public static final String WINDOW_TYPE_SLIDING = "sliding";
 
 	LinkedBlockingQueue<AuditEventBase> queue = new LinkedBlockingQueue<AuditEventBase>();
 	Thread consumerThread = null;
@@ -53,8 +70,12 @@ public class AuditSummaryQueue extends AuditQueue implements Runnable {
 	private static final int MAX_DRAIN = 100000;
 
 	private int maxSummaryIntervalMs = 5000;
+	private boolean isSlidingWindow = false;
+	private int slideIntervalMs = 0;
+	private int maxSummaryEntries = 10000;
+	private long summaryTableFullCount = 0;
 
-	HashMap<String, AuditSummary> summaryMap = new HashMap<String, AuditSummary>();
+	SummaryTable summaryTable = null;
 
 	public AuditSummaryQueue(AuditHandler consumer) {
 		super(consumer);
@@ -66,10 +87,51 @@ public class AuditSummaryQueue extends AuditQueue implements Runnable {
 		super.init(props, propPrefix);
 		maxSummaryIntervalMs = MiscUtil.getIntProperty(props, propPrefix + "."
 				+ PROP_SUMMARY_INTERVAL, maxSummaryIntervalMs);
-		logger.info("maxSummaryInterval=" + maxSummaryIntervalMs + ", name="
+
+		String windowType = MiscUtil.getStringProperty(props, propPrefix + "."
+				+ PROP_SUMMARY_WINDOW_TYPE);
+		if (windowType != null && !windowType.trim().isEmpty()) {
+			if (WINDOW_TYPE_SLIDING.equalsIgnoreCase(windowType.trim())) {
+				isSlidingWindow = true;
+			} else if (!WINDOW_TYPE_TUMBLING.equalsIgnoreCase(windowType.trim())) {
+				logger.warn("Unknown value " + windowType + " for "
+						+ propPrefix + "." + PROP_SUMMARY_WINDOW_TYPE
+						+ ". Using " + WINDOW_TYPE_TUMBLING);
+			}
+		}
+
+		slideIntervalMs = MiscUtil.getIntProperty(props, propPrefix + "."
+				+ PROP_SUMMARY_SLIDE_INTERVAL,
+				Math.max(100, maxSummaryIntervalMs / 10));
+		slideIntervalMs = Math.max(1, Math.min(slideIntervalMs, maxSummaryIntervalMs));
+
+		maxSummaryEntries = MiscUtil.getIntProperty(props, propPrefix + "."
+				+ PROP_SUMMARY_MAX_ENTRIES, maxSummaryEntries);
+		maxSummaryEntries = Math.max(1, maxSummaryEntries);
+
+		summaryTable = new SummaryTable(maxSummaryEntries);
+
+		logger.info("maxSummaryInterval=" + maxSummaryIntervalMs
+				+ ", windowType="
+				+ (isSlidingWindow ? WINDOW_TYPE_SLIDING : WINDOW_TYPE_TUMBLING)
+				+ (isSlidingWindow ? ", slideInterval=" + slideIntervalMs : "")
+				+ ", maxSummaryEntries=" + maxSummaryEntries + ", name="
 				+ getName());
 	}
 
+	public long getSummaryTableFullCount() {
+		return summaryTableFullCount;
+	}
+
+	/**
+	 * @return number of events waiting to be summarized, plus number of summaries waiting to be dispatched
+	 */
+	@Override
+	public long getQueueDepth() {
+		SummaryTable table = summaryTable;
+		return queue.size() + (table != null ? table.size() : 0);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 *
@@ -81,9 +143,11 @@ public class AuditSummaryQueue extends AuditQueue implements Runnable {
 	public boolean log(AuditEventBase event) {
 		// Add to the queue and return ASAP
 		if (queue.size() >= getMaxQueueSize()) {
+			droppedCount.incrementAndGet();
 			return false;
 		}
 		queue.add(event);
+		enqueuedCount.incrementAndGet();
 		return true;
 	}
 
@@ -157,15 +221,22 @@ public class AuditSummaryQueue extends AuditQueue implements Runnable {
 	}
 
 	public void runLogAudit() {
+		if (summaryTable == null) {
+			summaryTable = new SummaryTable(maxSummaryEntries);
+		}
 
+		// with sliding windows, expired summaries are looked for every slide interval
+		int dispatchIntervalMs = isSlidingWindow ? slideIntervalMs : maxSummaryIntervalMs;
 		long lastDispatchTime = System.currentTimeMillis();
+		List<AuditEventBase> eventList = new ArrayList<AuditEventBase>();
+		List<AuditSummary> summaryList = new ArrayList<AuditSummary>();
 
 		while (true) {
 			// Time to next dispatch
 			long nextDispatchDuration = lastDispatchTime
-					- System.currentTimeMillis() + maxSummaryIntervalMs;
+					- System.currentTimeMillis() + dispatchIntervalMs;
 
-			Collection<AuditEventBase> eventList = new ArrayList<AuditEventBase>();
+			eventList.clear();
 
 			try {
 				AuditEventBase event = null;
@@ -183,7 +254,7 @@ public class AuditSummaryQueue extends AuditQueue implements Runnable {
 				} else {
 					// poll returned due to timeout, so reseting clock
 					nextDispatchDuration = lastDispatchTime
-							- System.currentTimeMillis() + maxSummaryIntervalMs;
+							- System.currentTimeMillis() + dispatchIntervalMs;
 					lastDispatchTime = System.currentTimeMillis();
 				}
 			} catch (InterruptedException e) {
@@ -192,20 +263,19 @@ public class AuditSummaryQueue extends AuditQueue implements Runnable {
 				logger.error("Caught error during processing request.", t);
 			}
 
+			long now = System.currentTimeMillis();
+
 			for (AuditEventBase event : eventList) {
-				// Add to hash map
-				String key = event.getEventKey();
-				AuditSummary auditSummary = summaryMap.get(key);
-				if (auditSummary == null) {
-					auditSummary = new AuditSummary();
-					auditSummary.event = event;
-					auditSummary.startTime = event.getEventTime();
-					auditSummary.endTime = event.getEventTime();
-					auditSummary.count = 1;
-					summaryMap.put(key, auditSummary);
-				} else {
-					auditSummary.endTime = event.getEventTime();
-					auditSummary.count++;
+				summaryTable.add(event, now);
+
+				if (summaryTable.isFull()) {
+					// Send summaries before the end of their window, to keep memory bounded
+					summaryTableFullCount++;
+					if (logger.isDebugEnabled()) {
+						logger.debug("Summary table is full. Sending summaries before end of window. name="
+								+ getName() + ", entries=" + summaryTable.size());
+					}
+					dispatch(summaryTable.removeAll(summaryList));
 				}
 			}
 
@@ -213,25 +283,16 @@ public class AuditSummaryQueue extends AuditQueue implements Runnable {
 				// Reset time just before sending the logs
 				lastDispatchTime = System.currentTimeMillis();
 
-				for (Map.Entry<String, AuditSummary> entry : summaryMap
-						.entrySet()) {
-					AuditSummary auditSummary = entry.getValue();
-					auditSummary.event.setEventCount(auditSummary.count);
-					long timeDiff = auditSummary.endTime.getTime()
-							- auditSummary.startTime.getTime();
-					timeDiff = timeDiff > 0 ? timeDiff : 1;
-					auditSummary.event.setEventDurationMS(timeDiff);
-					boolean ret = consumer.log(auditSummary.event);
-					if (!ret) {
-						// We need to drop this event
-						logFailedEvent(auditSummary.event);
-					}
+				if (isDrain() || !isSlidingWindow) {
+					dispatch(summaryTable.removeAll(summaryList));
+				} else {
+					dispatch(summaryTable.removeExpired(lastDispatchTime
+							- maxSummaryIntervalMs, summaryList));
 				}
-				summaryMap.clear();
 			}
 
 			if (isDrain()) {
-				if (summaryMap.isEmpty() && queue.isEmpty()) {
+				if (summaryTable.size() == 0 && queue.isEmpty()) {
 					break;
 				}
 				if (isDrainMaxTimeElapsed()) {
@@ -256,10 +317,161 @@ public class AuditSummaryQueue extends AuditQueue implements Runnable {
 		logger.info("Exiting consumerThread.run() method. name=" + getName());
 	}
 
-	class AuditSummary {
-		Date startTime = null;
-		Date endTime = null;
+	private void dispatch(List<AuditSummary> summaries) {
+		for (AuditSummary auditSummary : summaries) {
+			auditSummary.event.setEventCount(auditSummary.count);
+			long timeDiff = auditSummary.endTime - auditSummary.startTime;
+			timeDiff = timeDiff > 0 ? timeDiff : 1;
+			auditSummary.event.setEventDurationMS(timeDiff);
+			addTotalCount(1);
+			boolean ret = consumer.log(auditSummary.event);
+			if (!ret) {
+				// We need to drop this event
+				logFailedEvent(auditSummary.event);
+			} else {
+				recordLatency(Collections.singletonList(auditSummary.event));
+			}
+		}
+		summaries.clear();
+	}
+
+	static class AuditSummary {
+		long fingerprint;
+		long firstSeenTime; // to find the window of this summary
+		long startTime; // event time of the first and last events
+		long endTime;
 		int count = 0;
 		AuditEventBase event;
 	}
+
+	/**
+	 * Open-addressing table, with linear probing, of summaries keyed by event
+	 * fingerprint. The table holds up to maxEntries summaries, at a load
+	 * factor of at most 0.75. Not thread-safe; used only by the consumer
+	 * thread.
+	 */
+	static class SummaryTable {
+		private final long[] fingerprints;
+		private final AuditSummary[] summaries;
+		private final int mask;
+		private final int maxEntries;
+		private int size = 0;
+
+		SummaryTable(int maxEntries) {
+			int capacity = Integer.highestOneBit(Math.max(2, (int) Math.min(1L << 30, maxEntries * 4L / 3 + 1)) - 1) << 1;
+
+			this.fingerprints = new long[capacity];
+			this.summaries = new AuditSummary[capacity];
+			this.mask = capacity - 1;
+			this.maxEntries = maxEntries;
+		}
+
+		int size() {
+			return size;
+		}
+
+		boolean isFull() {
+			return size >= maxEntries;
+		}
+
+		void add(AuditEventBase event, long now) {
+			long fingerprint = event.getEventFingerprint();
+			long eventTime = event.getEventTime() != null ? event.getEventTime().getTime() : now;
+			int idx = indexOf(fingerprint);
+
+			for (AuditSummary summary = summaries[idx]; summary != null; summary = summaries[idx]) {
+				if (fingerprints[idx] == fingerprint && summary.event.hasSameEventKey(event)) {
+					summary.endTime = eventTime;
+					summary.count++;
+
+					return;
+				}
+
+				idx = (idx + 1) & mask;
+			}
+
+			AuditSummary summary = new AuditSummary();
+
+			summary.fingerprint = fingerprint;
+			summary.firstSeenTime = now;
+			summary.startTime = eventTime;
+			summary.endTime = eventTime;
+			summary.count = 1;
+			summary.event = event;
+
+			insert(summary);
+		}
+
+		/**
+		 * Removes all summaries, in the order of the table
+		 */
+		List<AuditSummary> removeAll(List<AuditSummary> ret) {
+			if (size > 0) {
+				for (AuditSummary summary : summaries) {
+					if (summary != null) {
+						ret.add(summary);
+					}
+				}
+
+				Arrays.fill(summaries, null);
+				size = 0;
+			}
+
+			return ret;
+		}
+
+		/**
+		 * Removes summaries first seen before the given time
+		 */
+		List<AuditSummary> removeExpired(long firstSeenBefore, List<AuditSummary> ret) {
+			List<AuditSummary> remaining = null;
+
+			for (AuditSummary summary : summaries) {
+				if (summary != null && summary.firstSeenTime <= firstSeenBefore) {
+					if (remaining == null) {
+						remaining = new ArrayList<AuditSummary>(size);
+					}
+					ret.add(summary);
+				}
+			}
+
+			if (remaining != null) {
+				// rebuild the table from the remaining entries, as removing
+				// entries would break the probe sequences of others
+				for (AuditSummary summary : summaries) {
+					if (summary != null && summary.firstSeenTime > firstSeenBefore) {
+						remaining.add(summary);
+					}
+				}
+
+				Arrays.fill(summaries, null);
+				size = 0;
+
+				for (AuditSummary summary : remaining) {
+					insert(summary);
+				}
+			}
+
+			return ret;
+		}
+
+		private void insert(AuditSummary summary) {
+			int idx = indexOf(summary.fingerprint);
+
+			while (summaries[idx] != null) {
+				idx = (idx + 1) & mask;
+			}
+
+			fingerprints[idx] = summary.fingerprint;
+			summaries[idx] = summary;
+			size++;
+		}
+
+		private int indexOf(long fingerprint) {
+			// fold the high bits in, as only the low bits select the slot
+			long h = fingerprint ^ (fingerprint >>> 32);
+
+			return (int) (h ^ (h >>> 16)) & mask;
+		}
+	}
 }
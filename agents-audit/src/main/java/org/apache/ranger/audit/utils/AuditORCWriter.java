@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ListColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.TimestampColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.orc.CompressionKind;
+import org.apache.orc.OrcFile;
+import org.apache.orc.TypeDescription;
+import org.apache.orc.Writer;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+
+/**
+ * Writes AuthzAuditEvent to an ORC file, one typed column per field. Columns are named after the JSON fields of the
+ * event, so that tables defined over JSON audit files can be defined over ORC files with the same column names.
+ *
+ * String columns are dictionary-encoded by ORC when the number of distinct values is low enough, which is the case
+ * for most audit fields (user, access type, repository, agent, etc.). ORC options not set here, like
+ * orc.dictionary.key.threshold and orc.stripe.size, are read from the given configuration.
+ *
+ * Events are accumulated in a row batch of the given size and handed to the ORC writer, which writes a stripe when
+ * orc.stripe.size is reached. Data written to the file is readable only after close(), or after flush() writes an
+ * intermediate footer; as each footer ends the current stripe, flush() does so at most once in flushIntervalMs, to
+ * avoid files with many small stripes. This class is not thread-safe.
+ *
+ * This class, and the ORC libraries it uses (orc-core, hive-storage-api, aircompressor), are loaded only when ORC
+ * file type is configured for an audit destination.
+ */
+public class AuditORCWriter {
+	private static final Log LOG = LogFactory.getLog(AuditORCWriter.class);
+
+	public static final int  DEFAULT_BATCH_SIZE        = 1024;
+	public static final long DEFAULT_FLUSH_INTERVAL_MS = 15 * 60 * 1000L;
+
+	public static final TypeDescription SCHEMA = TypeDescription.createStruct()
+			.addField("repoType", TypeDescription.createInt())
+			.addField("repo", TypeDescription.createString())
+			.addField("reqUser", TypeDescription.createString())
+			.addField("evtTime", TypeDescription.createTimestamp())
+			.addField("access", TypeDescription.createString())
+			.addField("resource", TypeDescription.createString())
+			.addField("resType", TypeDescription.createString())
+			.addField("action", TypeDescription.createString())
+			.addField("result", TypeDescription.createShort())
+			.addField("agent", TypeDescription.createString())
+			.addField("policy", TypeDescription.createLong())
+			.addField("reason", TypeDescription.createString())
+			.addField("enforcer", TypeDescription.createString())
+			.addField("sess", TypeDescription.createString())
+			.addField("cliType", TypeDescription.createString())
+			.addField("cliIP", TypeDescription.createString())
+			.addField("reqData", TypeDescription.createString())
+			.addField("agentHost", TypeDescription.createString())
+			.addField("logType", TypeDescription.createString())
+			.addField("id", TypeDescription.createString())
+			.addField("seq_num", TypeDescription.createLong())
+			.addField("event_count", TypeDescription.createLong())
+			.addField("event_dur_ms", TypeDescription.createLong())
+			.addField("tags", TypeDescription.createList(TypeDescription.createString()))
+			.addField("additional_info", TypeDescription.createString())
+			.addField("cluster_name", TypeDescription.createString());
+
+	private final Path               path;
+	private final Writer             writer;
+	private final VectorizedRowBatch batch;
+	private final long               flushIntervalMs;
+	private long                     lastFlushTime;
+
+	/**
+	 * @param compression name of an ORC CompressionKind, like ZLIB or SNAPPY
+	 * @param flushIntervalMs minimum interval between intermediate footers written by flush(); 0 disables these
+	 */
+	public AuditORCWriter(FileSystem fileSystem, Path path, Configuration conf, String compression, int batchSize, long flushIntervalMs) throws IOException {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> AuditORCWriter(path=" + path + ", compression=" + compression + ", batchSize=" + batchSize + ", flushIntervalMs=" + flushIntervalMs + ")");
+		}
+
+		this.path            = path;
+		this.writer          = OrcFile.createWriter(path, OrcFile.writerOptions(conf)
+																	.fileSystem(fileSystem)
+																	.setSchema(SCHEMA)
+																	.compress(CompressionKind.valueOf(compression)));
+		this.batch           = SCHEMA.createRowBatch(batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE);
+		this.flushIntervalMs = flushIntervalMs;
+		this.lastFlushTime   = System.currentTimeMillis();
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== AuditORCWriter(path=" + path + ", compression=" + compression + ", batchSize=" + batchSize + ", flushIntervalMs=" + flushIntervalMs + ")");
+		}
+	}
+
+	/**
+	 * Returns the given compression name in the form accepted by the constructor; throws IllegalArgumentException if
+	 * it is not a supported ORC compression.
+	 */
+	public static String toCompressionName(String compression) {
+		return CompressionKind.valueOf(compression.trim().toUpperCase()).name();
+	}
+
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * Adds the event to the row batch, after writing the batch if it is full. The event is buffered only if this
+	 * method returns without exception.
+	 */
+	public void write(AuthzAuditEvent event) throws IOException {
+		if (batch.size == batch.getMaxSize()) {
+			writeBatch();
+		}
+
+		int row = batch.size;
+		int col = 0;
+
+		setLong(batch.cols[col++], row, event.getRepositoryType());
+		setString(batch.cols[col++], row, event.getRepositoryName());
+		setString(batch.cols[col++], row, event.getUser());
+		setTimestamp(batch.cols[col++], row, event.getEventTime());
+		setString(batch.cols[col++], row, event.getAccessType());
+		setString(batch.cols[col++], row, event.getResourcePath());
+		setString(batch.cols[col++], row, event.getResourceType());
+		setString(batch.cols[col++], row, event.getAction());
+		setLong(batch.cols[col++], row, event.getAccessResult());
+		setString(batch.cols[col++], row, event.getAgentId());
+		setLong(batch.cols[col++], row, event.getPolicyId());
+		setString(batch.cols[col++], row, event.getResultReason());
+		setString(batch.cols[col++], row, event.getAclEnforcer());
+		setString(batch.cols[col++], row, event.getSessionId());
+		setString(batch.cols[col++], row, event.getClientType());
+		setString(batch.cols[col++], row, event.getClientIP());
+		setString(batch.cols[col++], row, event.getRequestData());
+		setString(batch.cols[col++], row, event.getAgentHostname());
+		setString(batch.cols[col++], row, event.getLogType());
+		setString(batch.cols[col++], row, event.getEventId());
+		setLong(batch.cols[col++], row, event.getSeqNum());
+		setLong(batch.cols[col++], row, event.getEventCount());
+		setLong(batch.cols[col++], row, event.getEventDurationMS());
+		setStringList(batch.cols[col++], row, event.getTags());
+		setString(batch.cols[col++], row, event.getAdditionalInfo());
+		setString(batch.cols[col++], row, event.getClusterName());
+
+		batch.size++;
+	}
+
+	/**
+	 * Writes buffered events and an intermediate footer, so that events written so far can be read even if the file is
+	 * not closed; does nothing if the last footer was written less than flushIntervalMs ago. Returns true if a footer
+	 * was written.
+	 */
+	public boolean flush() throws IOException {
+		boolean ret = false;
+		long    now = System.currentTimeMillis();
+
+		if (flushIntervalMs > 0 && (now - lastFlushTime) >= flushIntervalMs) {
+			writeBatch();
+
+			writer.writeIntermediateFooter();
+
+			lastFlushTime = now;
+			ret           = true;
+		}
+
+		return ret;
+	}
+
+	public void close() throws IOException {
+		writeBatch();
+
+		writer.close();
+	}
+
+	// rows are handed to the ORC writer only once, even if it fails; close() must not write them again
+	private void writeBatch() throws IOException {
+		if (batch.size > 0) {
+			try {
+				writer.addRowBatch(batch);
+			} finally {
+				batch.reset();
+			}
+		}
+	}
+
+	private static void setLong(ColumnVector col, int row, long value) {
+		((LongColumnVector) col).vector[row] = value;
+	}
+
+	private static void setString(ColumnVector col, int row, String value) {
+		if (value == null) {
+			setNull(col, row);
+		} else {
+			((BytesColumnVector) col).setVal(row, value.getBytes(StandardCharsets.UTF_8));
+			col.isNull[row] = false; // row may have been partly filled by a failed write()
+		}
+	}
+
+	private static void setTimestamp(ColumnVector col, int row, Date value) {
+		if (value == null) {
+			setNull(col, row);
+		} else {
+			((TimestampColumnVector) col).set(row, new Timestamp(value.getTime()));
+			col.isNull[row] = false;
+		}
+	}
+
+	private static void setStringList(ColumnVector col, int row, Set<String> values) {
+		ListColumnVector  list     = (ListColumnVector) col;
+		BytesColumnVector elements = (BytesColumnVector) list.child;
+		int               count    = values != null ? values.size() : 0;
+		int               offset   = list.childCount;
+
+		list.offsets[row] = offset;
+		list.lengths[row] = count;
+		list.childCount  += count;
+
+		if (count > 0) {
+			elements.ensureSize(list.childCount, true);
+
+			for (String value : values) {
+				setString(elements, offset++, value);
+			}
+		}
+	}
+
+	private static void setNull(ColumnVector col, int row) {
+		col.noNulls     = false;
+		col.isNull[row] = true;
+	}
+}
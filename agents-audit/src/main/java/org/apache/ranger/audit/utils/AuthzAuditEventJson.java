@@ -0,0 +1,635 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+
+/**
+ * Writes and reads AuthzAuditEvent as JSON without reflection, in the format produced by MiscUtil.stringify() with
+ * Gson: same field names and order, null fields omitted, dates formatted as yyyy-MM-dd HH:mm:ss.SSS, and strings
+ * escaped the way Gson does by default (HTML characters included).
+ *
+ * Serialization appends to a per-thread buffer, which is reused across events. Only AuthzAuditEvent instances are
+ * handled: subclasses may have more fields, and are to be serialized by Gson.
+ */
+public class AuthzAuditEventJson {
+	public static final String DATE_FORMAT = "yyyy-MM-dd HH:mm:ss.SSS";
+
+	private static final int    MAX_CACHED_BUFFER_SIZE = 64 * 1024;
+	private static final char[] HEX_DIGITS             = "0123456789abcdef".toCharArray();
+
+	private static final ThreadLocal<Buffers> BUFFERS = new ThreadLocal<Buffers>() {
+		@Override
+		protected Buffers initialValue() {
+			return new Buffers();
+		}
+	};
+
+	private AuthzAuditEventJson() {
+	}
+
+	public static boolean isSupported(Object obj) {
+		return obj != null && obj.getClass() == AuthzAuditEvent.class;
+	}
+
+	public static String toJson(AuthzAuditEvent event) {
+		Buffers       buffers = BUFFERS.get();
+		StringBuilder sb      = buffers.getStringBuilder();
+
+		appendTo(sb, event, buffers.dateFormat);
+
+		return sb.toString();
+	}
+
+	/**
+	 * Writes the JSON of the event to the writer, without creating a String
+	 */
+	public static void write(AuthzAuditEvent event, Writer writer) throws IOException {
+		Buffers       buffers = BUFFERS.get();
+		StringBuilder sb      = buffers.getStringBuilder();
+
+		appendTo(sb, event, buffers.dateFormat);
+
+		char[] chars = buffers.getChars(sb.length());
+
+		sb.getChars(0, sb.length(), chars, 0);
+
+		writer.write(chars, 0, sb.length());
+	}
+
+	/**
+	 * @return event read from the given JSON
+	 * @throws IllegalArgumentException if the JSON can't be read by this parser; Gson might still read it
+	 */
+	public static AuthzAuditEvent fromJson(String json) {
+		return new Parser(json, BUFFERS.get()).parseEvent();
+	}
+
+	private static void appendTo(StringBuilder sb, AuthzAuditEvent event, SimpleDateFormat dateFormat) {
+		sb.append('{');
+
+		sb.append("\"repoType\":").append(event.getRepositoryType());
+		appendString(sb, "repo", event.getRepositoryName());
+		appendString(sb, "reqUser", event.getUser());
+		if (event.getEventTime() != null) {
+			appendString(sb, "evtTime", dateFormat.format(event.getEventTime()));
+		}
+		appendString(sb, "access", event.getAccessType());
+		appendString(sb, "resource", event.getResourcePath());
+		appendString(sb, "resType", event.getResourceType());
+		appendString(sb, "action", event.getAction());
+		sb.append(",\"result\":").append(event.getAccessResult());
+		appendString(sb, "agent", event.getAgentId());
+		sb.append(",\"policy\":").append(event.getPolicyId());
+		appendString(sb, "reason", event.getResultReason());
+		appendString(sb, "enforcer", event.getAclEnforcer());
+		appendString(sb, "sess", event.getSessionId());
+		appendString(sb, "cliType", event.getClientType());
+		appendString(sb, "cliIP", event.getClientIP());
+		appendString(sb, "reqData", event.getRequestData());
+		appendString(sb, "agentHost", event.getAgentHostname());
+		appendString(sb, "logType", event.getLogType());
+		appendString(sb, "id", event.getEventId());
+		sb.append(",\"seq_num\":").append(event.getSeqNum());
+		sb.append(",\"event_count\":").append(event.getEventCount());
+		sb.append(",\"event_dur_ms\":").append(event.getEventDurationMS());
+		if (event.getTags() != null) {
+			sb.append(",\"tags\":[");
+
+			boolean isFirst = true;
+
+			for (String tag : event.getTags()) {
+				if (!isFirst) {
+					sb.append(',');
+				}
+
+				if (tag == null) {
+					sb.append("null");
+				} else {
+					appendQuoted(sb, tag);
+				}
+
+				isFirst = false;
+			}
+
+			sb.append(']');
+		}
+		appendString(sb, "additional_info", event.getAdditionalInfo());
+		appendString(sb, "cluster_name", event.getClusterName());
+
+		sb.append('}');
+	}
+
+	private static void appendString(StringBuilder sb, String name, String value) {
+		if (value != null) {
+			sb.append(",\"").append(name).append("\":");
+
+			appendQuoted(sb, value);
+		}
+	}
+
+	// escapes as Gson JsonWriter does, with HTML escaping enabled
+	private static void appendQuoted(StringBuilder sb, String value) {
+		sb.append('"');
+
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+
+			switch (c) {
+				case '"':
+					sb.append("\\\"");
+				break;
+
+				case '\\':
+					sb.append("\\\\");
+				break;
+
+				case '\t':
+					sb.append("\\t");
+				break;
+
+				case '\b':
+					sb.append("\\b");
+				break;
+
+				case '\n':
+					sb.append("\\n");
+				break;
+
+				case '\r':
+					sb.append("\\r");
+				break;
+
+				case '\f':
+					sb.append("\\f");
+				break;
+
+				case '<':
+				case '>':
+				case '&':
+				case '=':
+				case '\'':
+				case '\u2028':
+				case '\u2029':
+					appendUnicodeEscape(sb, c);
+				break;
+
+				default:
+					if (c < 0x20) {
+						appendUnicodeEscape(sb, c);
+					} else {
+						sb.append(c);
+					}
+				break;
+			}
+		}
+
+		sb.append('"');
+	}
+
+	private static void appendUnicodeEscape(StringBuilder sb, char c) {
+		sb.append("\\u")
+		  .append(HEX_DIGITS[(c >> 12) & 0xf])
+		  .append(HEX_DIGITS[(c >> 8) & 0xf])
+		  .append(HEX_DIGITS[(c >> 4) & 0xf])
+		  .append(HEX_DIGITS[c & 0xf]);
+	}
+
+	private static class Buffers {
+		final SimpleDateFormat dateFormat = new SimpleDateFormat(DATE_FORMAT, Locale.US);
+
+		StringBuilder stringBuilder = new StringBuilder(1024);
+		char[]        chars         = new char[1024];
+
+		StringBuilder getStringBuilder() {
+			if (stringBuilder.capacity() > MAX_CACHED_BUFFER_SIZE) { // don't hold on to buffers grown by large events
+				stringBuilder = new StringBuilder(1024);
+			} else {
+				stringBuilder.setLength(0);
+			}
+
+			return stringBuilder;
+		}
+
+		char[] getChars(int length) {
+			if (chars.length < length || chars.length > MAX_CACHED_BUFFER_SIZE) {
+				chars = new char[Math.max(length, 1024)];
+			}
+
+			return chars;
+		}
+	}
+
+	/**
+	 * Parser for the JSON of a single AuthzAuditEvent. Unknown fields are skipped; values of unexpected type result in
+	 * IllegalArgumentException.
+	 */
+	private static class Parser {
+		private final String  json;
+		private final Buffers buffers;
+		private int           pos = 0;
+
+		Parser(String json, Buffers buffers) {
+			this.json    = json;
+			this.buffers = buffers;
+		}
+
+		AuthzAuditEvent parseEvent() {
+			AuthzAuditEvent ret = new AuthzAuditEvent();
+
+			expect('{');
+
+			if (!consumeIf('}')) {
+				do {
+					String name = parseString();
+
+					expect(':');
+
+					parseField(ret, name);
+				} while (consumeIf(','));
+
+				expect('}');
+			}
+
+			skipWhitespace();
+
+			if (pos != json.length()) {
+				throw error("unexpected content after event");
+			}
+
+			return ret;
+		}
+
+		private void parseField(AuthzAuditEvent event, String name) {
+			switch (name) {
+				case "repoType":
+					event.setRepositoryType((int) parseLong(event.getRepositoryType()));
+				break;
+
+				case "repo":
+					event.setRepositoryName(parseNullableString());
+				break;
+
+				case "reqUser":
+					event.setUser(parseNullableString());
+				break;
+
+				case "evtTime":
+					event.setEventTime(parseDate());
+				break;
+
+				case "access":
+					event.setAccessType(parseNullableString());
+				break;
+
+				case "resource":
+					event.setResourcePath(parseNullableString());
+				break;
+
+				case "resType":
+					event.setResourceType(parseNullableString());
+				break;
+
+				case "action":
+					event.setAction(parseNullableString());
+				break;
+
+				case "result":
+					event.setAccessResult((short) parseLong(event.getAccessResult()));
+				break;
+
+				case "agent":
+					event.setAgentId(parseNullableString());
+				break;
+
+				case "policy":
+					event.setPolicyId(parseLong(event.getPolicyId()));
+				break;
+
+				case "reason":
+					event.setResultReason(parseNullableString());
+				break;
+
+				case "enforcer":
+					event.setAclEnforcer(parseNullableString());
+				break;
+
+				case "sess":
+					event.setSessionId(parseNullableString());
+				break;
+
+				case "cliType":
+					event.setClientType(parseNullableString());
+				break;
+
+				case "cliIP":
+					event.setClientIP(parseNullableString());
+				break;
+
+				case "reqData":
+					event.setRequestData(parseNullableString());
+				break;
+
+				case "agentHost":
+					event.setAgentHostname(parseNullableString());
+				break;
+
+				case "logType":
+					event.setLogType(parseNullableString());
+				break;
+
+				case "id":
+					event.setEventId(parseNullableString());
+				break;
+
+				case "seq_num":
+					event.setSeqNum(parseLong(event.getSeqNum()));
+				break;
+
+				case "event_count":
+					event.setEventCount(parseLong(event.getEventCount()));
+				break;
+
+				case "event_dur_ms":
+					event.setEventDurationMS(parseLong(event.getEventDurationMS()));
+				break;
+
+				case "tags":
+					event.setTags(parseStringSet());
+				break;
+
+				case "additional_info":
+					event.setAdditionalInfo(parseNullableString());
+				break;
+
+				case "cluster_name":
+					event.setClusterName(parseNullableString());
+				break;
+
+				default:
+					skipValue();
+				break;
+			}
+		}
+
+		private String parseNullableString() {
+			return consumeNull() ? null : parseString();
+		}
+
+		private Date parseDate() {
+			if (consumeNull()) {
+				return null;
+			}
+
+			String value = parseString();
+
+			try {
+				return buffers.dateFormat.parse(value);
+			} catch (ParseException excp) {
+				throw error("invalid date: " + value);
+			}
+		}
+
+		// null leaves primitive fields unchanged, as in Gson
+		private long parseLong(long defaultValue) {
+			if (consumeNull()) {
+				return defaultValue;
+			}
+
+			skipWhitespace();
+
+			boolean isQuoted = pos < json.length() && json.charAt(pos) == '"';
+			String  value    = isQuoted ? parseString() : parseNumberToken();
+
+			try {
+				return Long.parseLong(value);
+			} catch (NumberFormatException excp) {
+				throw error("invalid number: " + value);
+			}
+		}
+
+		private Set<String> parseStringSet() {
+			if (consumeNull()) {
+				return null;
+			}
+
+			Set<String> ret = new LinkedHashSet<String>();
+
+			expect('[');
+
+			if (!consumeIf(']')) {
+				do {
+					ret.add(parseNullableString());
+				} while (consumeIf(','));
+
+				expect(']');
+			}
+
+			return ret;
+		}
+
+		private String parseString() {
+			expect('"');
+
+			StringBuilder sb = null;
+			int           start = pos;
+
+			while (pos < json.length()) {
+				char c = json.charAt(pos++);
+
+				if (c == '"') {
+					return sb == null ? json.substring(start, pos - 1) : sb.toString();
+				}
+
+				if (c != '\\') {
+					if (sb != null) {
+						sb.append(c);
+					}
+
+					continue;
+				}
+
+				if (sb == null) {
+					sb = new StringBuilder(json.length() - start);
+
+					sb.append(json, start, pos - 1);
+				}
+
+				if (pos >= json.length()) {
+					break;
+				}
+
+				char escaped = json.charAt(pos++);
+
+				switch (escaped) {
+					case 'u':
+						if (pos + 4 > json.length()) {
+							throw error("invalid unicode escape");
+						}
+
+						try {
+							sb.append((char) Integer.parseInt(json.substring(pos, pos + 4), 16));
+						} catch (NumberFormatException excp) {
+							throw error("invalid unicode escape");
+						}
+
+						pos += 4;
+					break;
+
+					case 't':
+						sb.append('\t');
+					break;
+
+					case 'b':
+						sb.append('\b');
+					break;
+
+					case 'n':
+						sb.append('\n');
+					break;
+
+					case 'r':
+						sb.append('\r');
+					break;
+
+					case 'f':
+						sb.append('\f');
+					break;
+
+					default: // '"', '\\', '/'
+						sb.append(escaped);
+					break;
+				}
+			}
+
+			throw error("unterminated string");
+		}
+
+		private String parseNumberToken() {
+			int start = pos;
+
+			while (pos < json.length()) {
+				char c = json.charAt(pos);
+
+				if ((c >= '0' && c <= '9') || c == '-' || c == '+') {
+					pos++;
+				} else {
+					break;
+				}
+			}
+
+			if (start == pos) {
+				throw error("number expected");
+			}
+
+			return json.substring(start, pos);
+		}
+
+		private void skipValue() {
+			skipWhitespace();
+
+			if (pos >= json.length()) {
+				throw error("value expected");
+			}
+
+			char c = json.charAt(pos);
+
+			if (c == '"') {
+				parseString();
+			} else if (c == '{' || c == '[') {
+				char close = c == '{' ? '}' : ']';
+
+				pos++;
+
+				if (!consumeIf(close)) {
+					do {
+						if (c == '{') {
+							parseString();
+							expect(':');
+						}
+
+						skipValue();
+					} while (consumeIf(','));
+
+					expect(close);
+				}
+			} else {
+				int start = pos;
+
+				while (pos < json.length() && ",}] \t\r\n".indexOf(json.charAt(pos)) == -1) {
+					pos++;
+				}
+
+				if (start == pos) {
+					throw error("value expected");
+				}
+			}
+		}
+
+		private boolean consumeNull() {
+			skipWhitespace();
+
+			if (json.startsWith("null", pos)) {
+				pos += 4;
+
+				return true;
+			}
+
+			return false;
+		}
+
+		private boolean consumeIf(char c) {
+			skipWhitespace();
+
+			if (pos < json.length() && json.charAt(pos) == c) {
+				pos++;
+
+				return true;
+			}
+
+			return false;
+		}
+
+		private void expect(char c) {
+			if (!consumeIf(c)) {
+				throw error("'" + c + "' expected");
+			}
+		}
+
+		private void skipWhitespace() {
+			while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
+				pos++;
+			}
+		}
+
+		private IllegalArgumentException error(String msg) {
+			return new IllegalArgumentException(msg + " at position " + pos);
+		}
+	}
+}
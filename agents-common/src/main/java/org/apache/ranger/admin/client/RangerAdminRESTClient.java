@@ -42,16 +42,46 @@ import javax.servlet.http.HttpServletResponse;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.security.PrivilegedAction;
+import java.util.HashMap;
 import java.util.List;
-
-public class RangerAdminRESTClient implements RangerAdminClient {
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+public class RangerAdminRESTClient implements RangerAdminClient, RangerAdminVersionWatcher {
 	private static final Log LOG = LogFactory.getLog(RangerAdminRESTClient.class);
 
+	// read timeout of watch requests is longer than the wait in Ranger Admin by this much
+	private static final int WATCH_READ_TIMEOUT_MARGIN_MS = 10 * 1000;
+
+	private static final ExecutorService WATCH_EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread ret = new Thread(r, "RangerAdminRESTClient-watch");
+
+			ret.setDaemon(true);
+
+			return ret;
+		}
+	});
+
 	private String           serviceName = null;
 	private String           pluginId    = null;
 	private RangerRESTClient restClient  = null;
 	private String clusterName = null;
+	private boolean supportsPolicyDeltas = false;
+	private boolean supportsTagDeltas = false;
 	private RangerRESTUtils restUtils   = new RangerRESTUtils();
+	private String url = null;
+	private String sslConfigFileName = null;
+	private int restClientConnTimeOutMs = 120 * 1000;
+
+	// clients for watch requests, by read timeout; these requests wait longer than the read timeout of restClient
+	private final Map<Integer, RangerRESTClient> watchRestClients = new HashMap<Integer, RangerRESTClient>();
 
 	public RangerAdminRESTClient() {
 	}
@@ -85,6 +115,8 @@ public class RangerAdminRESTClient implements RangerAdminClient {
 		clusterName       				= RangerConfiguration.getInstance().get(propertyPrefix + ".ambari.cluster.name", "");
 		int	 restClientConnTimeOutMs	= RangerConfiguration.getInstance().getInt(propertyPrefix + ".policy.rest.client.connection.timeoutMs", 120 * 1000);
 		int	 restClientReadTimeOutMs	= RangerConfiguration.getInstance().getInt(propertyPrefix + ".policy.rest.client.read.timeoutMs", 30 * 1000);
+		supportsPolicyDeltas			= RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".policy.rest.supports.policy.deltas", false);
+		supportsTagDeltas				= RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".tag.rest.supports.tag.deltas", false);
 
 		init(url, sslConfigFileName, restClientConnTimeOutMs , restClientReadTimeOutMs);
 	}
@@ -110,7 +142,8 @@ public class RangerAdminRESTClient implements RangerAdminClient {
 							.queryParam(RangerRESTUtils.REST_PARAM_LAST_KNOWN_POLICY_VERSION, Long.toString(lastKnownVersion))
 							.queryParam(RangerRESTUtils.REST_PARAM_LAST_ACTIVATION_TIME, Long.toString(lastActivationTimeInMillis))
 							.queryParam(RangerRESTUtils.REST_PARAM_PLUGIN_ID, pluginId)
-							.queryParam(RangerRESTUtils.REST_PARAM_CLUSTER_NAME, clusterName);
+							.queryParam(RangerRESTUtils.REST_PARAM_CLUSTER_NAME, clusterName)
+							.queryParam(RangerRESTUtils.REST_PARAM_SUPPORTS_POLICY_DELTAS, Boolean.toString(supportsPolicyDeltas));
 					return secureWebResource.accept(RangerRESTUtils.REST_MIME_TYPE_JSON).get(ClientResponse.class);
 				}
 			};
@@ -123,7 +156,8 @@ public class RangerAdminRESTClient implements RangerAdminClient {
 					.queryParam(RangerRESTUtils.REST_PARAM_LAST_KNOWN_POLICY_VERSION, Long.toString(lastKnownVersion))
 					.queryParam(RangerRESTUtils.REST_PARAM_LAST_ACTIVATION_TIME, Long.toString(lastActivationTimeInMillis))
 					.queryParam(RangerRESTUtils.REST_PARAM_PLUGIN_ID, pluginId)
-					.queryParam(RangerRESTUtils.REST_PARAM_CLUSTER_NAME, clusterName);
+					.queryParam(RangerRESTUtils.REST_PARAM_CLUSTER_NAME, clusterName)
+					.queryParam(RangerRESTUtils.REST_PARAM_SUPPORTS_POLICY_DELTAS, Boolean.toString(supportsPolicyDeltas));
 			response = webResource.accept(RangerRESTUtils.REST_MIME_TYPE_JSON).get(ClientResponse.class);
 		}
 
@@ -162,6 +196,83 @@ public class RangerAdminRESTClient implements RangerAdminClient {
 		return ret;
 	}
 
+	@Override
+	public Long waitForPolicyVersionChange(long lastKnownVersion, long timeoutMs) throws Exception {
+		return waitForVersionChange(RangerRESTUtils.REST_WATCH_TYPE_POLICIES, lastKnownVersion, timeoutMs);
+	}
+
+	@Override
+	public Long waitForTagVersionChange(long lastKnownVersion, long timeoutMs) throws Exception {
+		return waitForVersionChange(RangerRESTUtils.REST_WATCH_TYPE_TAGS, lastKnownVersion, timeoutMs);
+	}
+
+	private Long waitForVersionChange(final String watchType, final long lastKnownVersion, final long timeoutMs) throws Exception {
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerAdminRESTClient.waitForVersionChange(" + watchType + ", " + lastKnownVersion + ", " + timeoutMs + ")");
+		}
+
+		Long ret = null;
+		UserGroupInformation user = MiscUtil.getUGILoginUser();
+		boolean isSecureMode = user != null && UserGroupInformation.isSecurityEnabled();
+
+		// the request waits up to timeoutMs in Ranger Admin
+		final WebResource webResource = getWatchRestClient(timeoutMs).getResource(RangerRESTUtils.REST_URL_WATCH_SERVICE_VERSION + watchType + "/" + serviceName)
+				.queryParam(RangerRESTUtils.REST_PARAM_LAST_KNOWN_POLICY_VERSION, Long.toString(lastKnownVersion))
+				.queryParam(RangerRESTUtils.REST_PARAM_TIMEOUT_MS, Long.toString(timeoutMs));
+
+		final PrivilegedAction<ClientResponse> action = new PrivilegedAction<ClientResponse>() {
+			public ClientResponse run() {
+				return webResource.accept(RangerRESTUtils.REST_MIME_TYPE_TEXT).get(ClientResponse.class);
+			}
+		};
+		final UserGroupInformation doAsUser = isSecureMode ? user : null;
+
+		// the request is made from another thread, so that the caller can be interrupted while waiting for the response
+		Future<ClientResponse> future = WATCH_EXECUTOR.submit(new Callable<ClientResponse>() {
+			@Override
+			public ClientResponse call() {
+				return doAsUser != null ? doAsUser.doAs(action) : action.run();
+			}
+		});
+
+		ClientResponse response = null;
+
+		try {
+			response = future.get();
+		} catch (InterruptedException excp) {
+			// this doesn't interrupt a blocked read; the read timeout of the watch client bounds how long the thread stays
+			future.cancel(true);
+
+			throw excp;
+		} catch (ExecutionException excp) {
+			throw excp.getCause() instanceof Exception ? (Exception) excp.getCause() : excp;
+		}
+
+		if (response == null) {
+			throw new Exception("unknown error while waiting for " + watchType + " changes. serviceName=" + serviceName);
+		} else if (response.getStatus() == HttpServletResponse.SC_OK) {
+			ret = Long.valueOf(response.getEntity(String.class).trim());
+		} else if (response.getStatus() == HttpServletResponse.SC_NOT_MODIFIED) {
+			ret = null;
+		} else if (response.getStatus() == HttpServletResponse.SC_NOT_FOUND) {
+			String exceptionMsg = response.hasEntity() ? response.getEntity(String.class) : null;
+
+			RangerServiceNotFoundException.throwExceptionIfServiceNotFound(serviceName, exceptionMsg);
+
+			throw new UnsupportedOperationException("Ranger Admin does not support waiting for " + watchType + " changes");
+		} else {
+			RESTResponse resp = RESTResponse.fromClientResponse(response);
+
+			throw new Exception("HTTP " + response.getStatus() + " Error while waiting for " + watchType + " changes: " + resp.getMessage());
+		}
+
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerAdminRESTClient.waitForVersionChange(" + watchType + ", " + lastKnownVersion + ", " + timeoutMs + "): " + ret);
+		}
+
+		return ret;
+	}
+
 	@Override
 	public void grantAccess(final GrantRevokeRequest request) throws Exception {
 		if(LOG.isDebugEnabled()) {
@@ -258,6 +369,10 @@ public class RangerAdminRESTClient implements RangerAdminClient {
 			LOG.debug("==> RangerAdminRESTClient.init(" + url + ", " + sslConfigFileName + ")");
 		}
 
+		this.url                     = url;
+		this.sslConfigFileName       = sslConfigFileName;
+		this.restClientConnTimeOutMs = restClientConnTimeOutMs;
+
 		restClient = new RangerRESTClient(url, sslConfigFileName);
 		restClient.setRestClientConnTimeOutMs(restClientConnTimeOutMs);
 		restClient.setRestClientReadTimeOutMs(restClientReadTimeOutMs);
@@ -267,6 +382,24 @@ public class RangerAdminRESTClient implements RangerAdminClient {
 		}
 	}
 
+	private RangerRESTClient getWatchRestClient(long timeoutMs) {
+		int readTimeoutMs = (int) Math.min(Integer.MAX_VALUE, timeoutMs + WATCH_READ_TIMEOUT_MARGIN_MS);
+
+		synchronized (watchRestClients) {
+			RangerRESTClient ret = watchRestClients.get(readTimeoutMs);
+
+			if (ret == null) {
+				ret = new RangerRESTClient(url, sslConfigFileName);
+				ret.setRestClientConnTimeOutMs(restClientConnTimeOutMs);
+				ret.setRestClientReadTimeOutMs(readTimeoutMs);
+
+				watchRestClients.put(readTimeoutMs, ret);
+			}
+
+			return ret;
+		}
+	}
+
 	private WebResource createWebResource(String url) {
 		WebResource ret = restClient.getResource(url);
 		
@@ -291,7 +424,8 @@ public class RangerAdminRESTClient implements RangerAdminClient {
 					WebResource secureWebResource = createWebResource(RangerRESTUtils.REST_URL_GET_SECURE_SERVICE_TAGS_IF_UPDATED + serviceName)
 							.queryParam(RangerRESTUtils.LAST_KNOWN_TAG_VERSION_PARAM, Long.toString(lastKnownVersion))
 							.queryParam(RangerRESTUtils.REST_PARAM_LAST_ACTIVATION_TIME, Long.toString(lastActivationTimeInMillis))
-							.queryParam(RangerRESTUtils.REST_PARAM_PLUGIN_ID, pluginId);
+							.queryParam(RangerRESTUtils.REST_PARAM_PLUGIN_ID, pluginId)
+							.queryParam(RangerRESTUtils.REST_PARAM_SUPPORTS_TAG_DELTAS, Boolean.toString(supportsTagDeltas));
 					return secureWebResource.accept(RangerRESTUtils.REST_MIME_TYPE_JSON).get(ClientResponse.class);
 				}
 			};
@@ -303,7 +437,8 @@ public class RangerAdminRESTClient implements RangerAdminClient {
 			webResource = createWebResource(RangerRESTUtils.REST_URL_GET_SERVICE_TAGS_IF_UPDATED + serviceName)
 					.queryParam(RangerRESTUtils.LAST_KNOWN_TAG_VERSION_PARAM, Long.toString(lastKnownVersion))
 					.queryParam(RangerRESTUtils.REST_PARAM_LAST_ACTIVATION_TIME, Long.toString(lastActivationTimeInMillis))
-					.queryParam(RangerRESTUtils.REST_PARAM_PLUGIN_ID, pluginId);
+					.queryParam(RangerRESTUtils.REST_PARAM_PLUGIN_ID, pluginId)
+					.queryParam(RangerRESTUtils.REST_PARAM_SUPPORTS_TAG_DELTAS, Boolean.toString(supportsTagDeltas));
 			response = webResource.accept(RangerRESTUtils.REST_MIME_TYPE_JSON).get(ClientResponse.class);
 		}
 
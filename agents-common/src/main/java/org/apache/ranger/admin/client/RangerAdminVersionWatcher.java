@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.admin.client;
+
+
+/**
+ * Implemented by RangerAdminClient implementations that can wait for changes to policies or tags in Ranger Admin,
+ * instead of polling for changes. Threads waiting for changes can be interrupted.
+ */
+public interface RangerAdminVersionWatcher {
+
+	/**
+	 * @return latest policy version, as soon as it differs from lastKnownVersion; null if the version does not change within timeoutMs
+	 * @throws UnsupportedOperationException if Ranger Admin does not support waiting for changes
+	 */
+	Long waitForPolicyVersionChange(long lastKnownVersion, long timeoutMs) throws Exception;
+
+	/**
+	 * @return latest tag version, as soon as it differs from lastKnownVersion; null if the version does not change within timeoutMs
+	 * @throws UnsupportedOperationException if Ranger Admin does not support waiting for changes
+	 */
+	Long waitForTagVersionChange(long lastKnownVersion, long timeoutMs) throws Exception;
+
+}
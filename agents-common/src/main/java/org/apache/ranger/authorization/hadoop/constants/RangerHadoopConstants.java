@@ -28,6 +28,9 @@ public class RangerHadoopConstants {
 
 	public static final String HDFS_ROOT_FOLDER_PATH_ALT = "";
 	public static final String HDFS_ROOT_FOLDER_PATH = "/";
+	// when enabled, directories that reuse a decision are not evaluated, hence generate no audit events
+	public static final String  HDFS_REUSE_DECISIONS_PROP          = "ranger.plugin.hdfs.reuse.decisions";
+	public static final boolean HDFS_REUSE_DECISIONS_DEFAULT_VALUE = false;
 	
 	public static final String  HIVE_UPDATE_RANGER_POLICIES_ON_GRANT_REVOKE_PROP 	     = "xasecure.hive.update.xapolicies.on.grant.revoke";
 	public static final boolean HIVE_UPDATE_RANGER_POLICIES_ON_GRANT_REVOKE_DEFAULT_VALUE = true;
@@ -38,6 +41,8 @@ public class RangerHadoopConstants {
 
 	public static final String  HBASE_UPDATE_RANGER_POLICIES_ON_GRANT_REVOKE_PROP 	     = "xasecure.hbase.update.xapolicies.on.grant.revoke";
 	public static final boolean HBASE_UPDATE_RANGER_POLICIES_ON_GRANT_REVOKE_DEFAULT_VALUE = true;
+	public static final String  HBASE_FILTER_COLUMN_DECISION_CACHE_SIZE_PROP          = "ranger.plugin.hbase.filter.column.decision.cache.size";
+	public static final int     HBASE_FILTER_COLUMN_DECISION_CACHE_SIZE_DEFAULT_VALUE = 10000;
 	
 	public static final String KNOX_ACCESS_VERIFIER_CLASS_NAME_PROP 	= "knox.authorization.verifier.classname";
 	public static final String KNOX_ACCESS_VERIFIER_CLASS_NAME_DEFAULT_VALUE = "org.apache.ranger.pdp.knox.RangerAuthorizer";
@@ -0,0 +1,366 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.audit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.authorization.hadoop.config.RangerConfiguration;
+
+/**
+ * Reduces the number of audit events of allowed accesses, before they are handed to the audit provider. Events are
+ * grouped by user, access type and resource prefix (the first resourcePrefixDepth elements of the resource path); for
+ * each group:
+ *  - sampling: one in every sampleRate events is logged
+ *  - rate limiting: a token bucket of rateLimitBurst tokens, refilled at rateLimitPerSecond, is charged for each
+ *    event that passes sampling; events are suppressed when the bucket is empty
+ *
+ * Denied accesses are always logged. A logged event carries, in its event count, the events of its group suppressed
+ * since the previous logged event; so the sum of event counts is the number of accesses, as with summarized events.
+ * Shaping can be limited to a set of users and/or a set of policies; events outside of these sets are always logged.
+ *
+ * Suppressed events not carried by a logged event within summaryIntervalMs, as their group went quiet, are carried by
+ * a summary event: the last suppressed event of the group, with the suppressed count as its event count. Summaries
+ * are returned by getSummaries(), which the audit handler calls as it logs events; hence they are logged with the
+ * first event audited after the interval expires. The number of groups tracked is bounded by maxKeys: when exceeded,
+ * all groups are reset, and their suppressed counts are returned as summaries right away. Counts of suppressed events
+ * still pending when the process exits are lost.
+ */
+public class RangerAuditShaper {
+	private static final Log LOG = LogFactory.getLog(RangerAuditShaper.class);
+
+	public static final String PROP_PREFIX                = "xasecure.audit.shaping.";
+	public static final String PROP_ENABLED               = PROP_PREFIX + "enabled";
+	public static final String PROP_SAMPLE_RATE           = PROP_PREFIX + "sample.rate";
+	public static final String PROP_RATE_LIMIT_PER_SECOND = PROP_PREFIX + "rate.limit.per.second";
+	public static final String PROP_RATE_LIMIT_BURST      = PROP_PREFIX + "rate.limit.burst";
+	public static final String PROP_RESOURCE_PREFIX_DEPTH = PROP_PREFIX + "resource.prefix.depth";
+	public static final String PROP_USERS                 = PROP_PREFIX + "users";
+	public static final String PROP_POLICIES              = PROP_PREFIX + "policies";
+	public static final String PROP_MAX_KEYS              = PROP_PREFIX + "max.keys";
+	public static final String PROP_SUMMARY_INTERVAL_MS   = PROP_PREFIX + "summary.interval.ms";
+
+	public static final int  DEFAULT_RESOURCE_PREFIX_DEPTH = 2;
+	public static final int  DEFAULT_MAX_KEYS              = 10000;
+	public static final long DEFAULT_SUMMARY_INTERVAL_MS   = 60 * 1000L;
+
+	private static volatile RangerAuditShaper instance = null;
+
+	private final int         sampleRate;
+	private final double      rateLimitPerSecond;
+	private final double      rateLimitBurst;
+	private final int         resourcePrefixDepth;
+	private final Set<String> users;
+	private final Set<Long>   policyIds;
+	private final int         maxKeys;
+	private final long        summaryIntervalNanos;
+
+	private final ConcurrentMap<String, KeyState> keyStates        = new ConcurrentHashMap<String, KeyState>();
+	private final AtomicLong                      suppressedCount  = new AtomicLong();
+	private final Queue<AuthzAuditEvent>          pendingSummaries = new ConcurrentLinkedQueue<AuthzAuditEvent>();
+	private final AtomicLong                      nextSummaryCheckNanos;
+
+	public RangerAuditShaper(int sampleRate, double rateLimitPerSecond, double rateLimitBurst, int resourcePrefixDepth, Set<String> users, Set<Long> policyIds, int maxKeys, long summaryIntervalMs) {
+		this.sampleRate            = Math.max(1, sampleRate);
+		this.rateLimitPerSecond    = rateLimitPerSecond;
+		this.rateLimitBurst        = Math.max(1, rateLimitBurst);
+		this.resourcePrefixDepth   = resourcePrefixDepth;
+		this.users                 = users != null ? users : Collections.<String>emptySet();
+		this.policyIds             = policyIds != null ? policyIds : Collections.<Long>emptySet();
+		this.maxKeys               = maxKeys > 0 ? maxKeys : DEFAULT_MAX_KEYS;
+		this.summaryIntervalNanos  = TimeUnit.MILLISECONDS.toNanos(summaryIntervalMs > 0 ? summaryIntervalMs : DEFAULT_SUMMARY_INTERVAL_MS);
+		this.nextSummaryCheckNanos = new AtomicLong(getCurrentTimeNanos() + this.summaryIntervalNanos);
+	}
+
+	/**
+	 * @return the shaper configured in RangerConfiguration, or null if audit shaping is not enabled. Configuration is
+	 *         read on the first call, which should be made after the plugin is initialized.
+	 */
+	public static RangerAuditShaper getInstance() {
+		RangerAuditShaper ret = instance;
+
+		if (ret == null) {
+			synchronized (RangerAuditShaper.class) {
+				ret = instance;
+
+				if (ret == null) {
+					ret = instance = createFromConfig(RangerConfiguration.getInstance());
+				}
+			}
+		}
+
+		return ret.isEnabled() ? ret : null;
+	}
+
+	/**
+	 * @return true if the event is to be logged; if so, its event count includes the events suppressed before it
+	 */
+	public boolean isToBeLogged(AuthzAuditEvent event) {
+		if (event.getAccessResult() == 0 || !isShaped(event)) {
+			return true;
+		}
+
+		if (keyStates.size() > maxKeys) {
+			LOG.warn("RangerAuditShaper: number of tracked users/resources exceeded " + maxKeys + "; resetting");
+
+			for (Iterator<KeyState> iter = keyStates.values().iterator(); iter.hasNext(); ) {
+				AuthzAuditEvent summary = iter.next().takeSummary(0, true);
+
+				if (summary != null) {
+					pendingSummaries.add(summary);
+				}
+
+				iter.remove();
+			}
+		}
+
+		String   key   = getKey(event);
+		KeyState state = keyStates.get(key);
+
+		if (state == null) {
+			KeyState newState = new KeyState(rateLimitBurst, getCurrentTimeNanos());
+
+			state = keyStates.putIfAbsent(key, newState);
+
+			if (state == null) {
+				state = newState;
+			}
+		}
+
+		boolean ret = state.isToBeLogged(event);
+
+		if (!ret) {
+			suppressedCount.incrementAndGet();
+		}
+
+		return ret;
+	}
+
+	/**
+	 * @return summary events to be logged: of groups whose suppressed events were not carried by a logged event within
+	 *         the summary interval, and of groups reset as maxKeys was exceeded. Cheap when there are none; groups are
+	 *         checked at most once per summary interval.
+	 */
+	public List<AuthzAuditEvent> getSummaries() {
+		long now           = getCurrentTimeNanos();
+		long nextCheckTime = nextSummaryCheckNanos.get();
+
+		if (now - nextCheckTime >= 0 && nextSummaryCheckNanos.compareAndSet(nextCheckTime, now + summaryIntervalNanos)) {
+			long suppressedBefore = now - summaryIntervalNanos;
+
+			for (KeyState state : keyStates.values()) {
+				AuthzAuditEvent summary = state.takeSummary(suppressedBefore, false);
+
+				if (summary != null) {
+					pendingSummaries.add(summary);
+				}
+			}
+		}
+
+		if (pendingSummaries.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		List<AuthzAuditEvent> ret = new ArrayList<AuthzAuditEvent>();
+
+		for (AuthzAuditEvent summary = pendingSummaries.poll(); summary != null; summary = pendingSummaries.poll()) {
+			ret.add(summary);
+		}
+
+		return ret;
+	}
+
+	public long getSuppressedCount() {
+		return suppressedCount.get();
+	}
+
+	public int getKeyCount() {
+		return keyStates.size();
+	}
+
+	protected long getCurrentTimeNanos() {
+		return System.nanoTime();
+	}
+
+	boolean isEnabled() {
+		return sampleRate > 1 || rateLimitPerSecond > 0;
+	}
+
+	private boolean isShaped(AuthzAuditEvent event) {
+		return (users.isEmpty() || users.contains(event.getUser())) && (policyIds.isEmpty() || policyIds.contains(event.getPolicyId()));
+	}
+
+	private String getKey(AuthzAuditEvent event) {
+		StringBuilder sb = new StringBuilder();
+
+		sb.append(event.getUser()).append('\u0000').append(event.getAccessType()).append('\u0000').append(getResourcePrefix(event.getResourcePath()));
+
+		return sb.toString();
+	}
+
+	String getResourcePrefix(String resourcePath) {
+		if (resourcePath == null || resourcePrefixDepth <= 0) {
+			return resourcePath;
+		}
+
+		int elementCount = 0;
+
+		for (int i = 1; i < resourcePath.length(); i++) {
+			if (resourcePath.charAt(i) == '/' && ++elementCount == resourcePrefixDepth) {
+				return resourcePath.substring(0, i);
+			}
+		}
+
+		return resourcePath;
+	}
+
+	private static RangerAuditShaper createFromConfig(RangerConfiguration config) {
+		RangerAuditShaper ret;
+
+		if (config.getBoolean(PROP_ENABLED, false)) {
+			float rateLimitPerSecond = config.getFloat(PROP_RATE_LIMIT_PER_SECOND, 0);
+
+			ret = new RangerAuditShaper(config.getInt(PROP_SAMPLE_RATE, 1),
+			                            rateLimitPerSecond,
+			                            config.getFloat(PROP_RATE_LIMIT_BURST, rateLimitPerSecond),
+			                            config.getInt(PROP_RESOURCE_PREFIX_DEPTH, DEFAULT_RESOURCE_PREFIX_DEPTH),
+			                            toStringSet(config.get(PROP_USERS)),
+			                            toLongSet(config.get(PROP_POLICIES)),
+			                            config.getInt(PROP_MAX_KEYS, DEFAULT_MAX_KEYS),
+			                            config.getLong(PROP_SUMMARY_INTERVAL_MS, DEFAULT_SUMMARY_INTERVAL_MS));
+		} else {
+			ret = new RangerAuditShaper(1, 0, 0, 0, null, null, 0, 0);
+		}
+
+		LOG.info("RangerAuditShaper: enabled=" + ret.isEnabled() + ", sampleRate=" + ret.sampleRate + ", rateLimitPerSecond=" + ret.rateLimitPerSecond
+		         + ", rateLimitBurst=" + ret.rateLimitBurst + ", resourcePrefixDepth=" + ret.resourcePrefixDepth + ", users=" + ret.users + ", policies=" + ret.policyIds
+		         + ", summaryIntervalMs=" + TimeUnit.NANOSECONDS.toMillis(ret.summaryIntervalNanos));
+
+		return ret;
+	}
+
+	private static Set<String> toStringSet(String value) {
+		Set<String> ret = new HashSet<String>();
+
+		for (String str : StringUtils.split(StringUtils.defaultString(value), ',')) {
+			if (StringUtils.isNotBlank(str)) {
+				ret.add(str.trim());
+			}
+		}
+
+		return ret;
+	}
+
+	private static Set<Long> toLongSet(String value) {
+		Set<Long> ret = new HashSet<Long>();
+
+		for (String str : toStringSet(value)) {
+			try {
+				ret.add(Long.valueOf(str));
+			} catch (NumberFormatException excp) {
+				LOG.warn("RangerAuditShaper: ignoring invalid policy id '" + str + "' in " + PROP_POLICIES);
+			}
+		}
+
+		return ret;
+	}
+
+	private class KeyState {
+		private long   sampleCounter   = 0;
+		private double tokens;
+		private long   lastRefillNanos;
+		private long   suppressedCount = 0;
+
+		// last suppressed event not yet carried by a logged event, to be logged as summary if the group goes quiet
+		private AuthzAuditEvent lastSuppressedEvent  = null;
+		private long            firstSuppressedNanos = 0;
+
+		KeyState(double tokens, long nowNanos) {
+			this.tokens          = tokens;
+			this.lastRefillNanos = nowNanos;
+		}
+
+		synchronized boolean isToBeLogged(AuthzAuditEvent event) {
+			boolean ret = (sampleCounter++ % sampleRate) == 0;
+
+			if (ret && rateLimitPerSecond > 0) {
+				long now = getCurrentTimeNanos();
+
+				tokens          = Math.min(rateLimitBurst, tokens + (now - lastRefillNanos) * rateLimitPerSecond / TimeUnit.SECONDS.toNanos(1));
+				lastRefillNanos = now;
+
+				if (tokens >= 1) {
+					tokens -= 1;
+				} else {
+					ret = false;
+				}
+			}
+
+			if (ret) {
+				event.setEventCount(event.getEventCount() + suppressedCount);
+
+				suppressedCount     = 0;
+				lastSuppressedEvent = null;
+			} else {
+				if (suppressedCount == 0) {
+					firstSuppressedNanos = getCurrentTimeNanos();
+				}
+
+				suppressedCount     += event.getEventCount();
+				lastSuppressedEvent  = event;
+			}
+
+			return ret;
+		}
+
+		/**
+		 * @return the last suppressed event, carrying all pending suppressed events, if events were suppressed before
+		 *         suppressedBeforeNanos or isForced; null otherwise
+		 */
+		synchronized AuthzAuditEvent takeSummary(long suppressedBeforeNanos, boolean isForced) {
+			AuthzAuditEvent ret = null;
+
+			if (lastSuppressedEvent != null && (isForced || firstSuppressedNanos - suppressedBeforeNanos <= 0)) {
+				ret = lastSuppressedEvent;
+
+				ret.setEventCount(suppressedCount);
+
+				suppressedCount     = 0;
+				lastSuppressedEvent = null;
+			}
+
+			return ret;
+		}
+	}
+}
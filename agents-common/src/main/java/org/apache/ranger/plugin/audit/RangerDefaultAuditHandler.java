@@ -168,18 +168,47 @@ public class RangerDefaultAuditHandler implements RangerAccessResultProcessor {
 			LOG.debug("==> RangerDefaultAuditHandler.logAuthzAudit(" + auditEvent + ")");
 		}
 
-		if(auditEvent != null) {
+		if(auditEvent != null && isToBeLogged(auditEvent)) {
 			populateDefaults(auditEvent);
                         if(!AuditProviderFactory.getAuditProvider().log(auditEvent)) {
 				MiscUtil.logErrorMessageByInterval(LOG, "fail to log audit event " + auditEvent);
 			}
 		}
 
+		logShapingSummaries();
+
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("<== RangerDefaultAuditHandler.logAuthzAudit(" + auditEvent + ")");
 		}
 	}
 
+	private boolean isToBeLogged(AuthzAuditEvent auditEvent) {
+		RangerAuditShaper auditShaper = RangerAuditShaper.getInstance();
+
+		boolean ret = auditShaper == null || auditShaper.isToBeLogged(auditEvent);
+
+		if(LOG.isDebugEnabled() && !ret) {
+			LOG.debug("RangerDefaultAuditHandler.isToBeLogged(): suppressed by audit shaping: " + auditEvent);
+		}
+
+		return ret;
+	}
+
+	// events suppressed by audit shaping, not yet carried by a logged event
+	private void logShapingSummaries() {
+		RangerAuditShaper auditShaper = RangerAuditShaper.getInstance();
+
+		if(auditShaper != null) {
+			for(AuthzAuditEvent summary : auditShaper.getSummaries()) {
+				populateDefaults(summary);
+
+				if(!AuditProviderFactory.getAuditProvider().log(summary)) {
+					MiscUtil.logErrorMessageByInterval(LOG, "fail to log audit shaping summary " + summary);
+				}
+			}
+		}
+	}
+
 	private void populateDefaults(AuthzAuditEvent auditEvent) {
 		if( auditEvent.getAclEnforcer() == null || auditEvent.getAclEnforcer().isEmpty()) {
 			auditEvent.setAclEnforcer("ranger-acl"); // TODO: review
@@ -23,6 +23,7 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.ranger.admin.client.RangerAdminClient;
+import org.apache.ranger.admin.client.RangerAdminVersionWatcher;
 import org.apache.ranger.plugin.service.RangerBasePlugin;
 import org.apache.ranger.plugin.util.ServiceTags;
 
@@ -63,5 +64,14 @@ public class RangerAdminTagRetriever extends RangerTagRetriever {
 		return serviceTags;
 	}
 
+	@Override
+	public Long waitForTagVersionChange(long lastKnownVersion, long timeoutMs) throws Exception {
+		if (adminClient instanceof RangerAdminVersionWatcher) {
+			return ((RangerAdminVersionWatcher) adminClient).waitForTagVersionChange(lastKnownVersion, timeoutMs);
+		}
+
+		return super.waitForTagVersionChange(lastKnownVersion, timeoutMs);
+	}
+
 }
 
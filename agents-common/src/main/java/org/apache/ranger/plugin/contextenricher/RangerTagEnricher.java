@@ -38,6 +38,7 @@ import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
 import org.apache.ranger.plugin.util.RangerPerfTracer;
 import org.apache.ranger.plugin.util.RangerResourceTrie;
 import org.apache.ranger.plugin.util.RangerServiceNotFoundException;
+import org.apache.ranger.plugin.util.RangerServiceTagsDeltaUtil;
 import org.apache.ranger.plugin.util.ServiceTags;
 
 import java.io.File;
@@ -61,11 +62,15 @@ public class RangerTagEnricher extends RangerAbstractContextEnricher {
 	public static final String TAG_REFRESHER_POLLINGINTERVAL_OPTION = "tagRefresherPollingInterval";
 	public static final String TAG_RETRIEVER_CLASSNAME_OPTION       = "tagRetrieverClassName";
 	public static final String TAG_DISABLE_TRIE_PREFILTER_OPTION    = "disableTrieLookupPrefilter";
+	public static final String TAG_COMPACT_TRIE_OPTION              = "compactResourceTrie";
 
 	private RangerTagRefresher                 tagRefresher               = null;
 	private RangerTagRetriever                 tagRetriever               = null;
 	private boolean                            disableTrieLookupPrefilter = false;
+	private boolean                            compactResourceTrie        = false;
 	private EnrichedServiceTags                enrichedServiceTags;
+	private ServiceTags                        serviceTags; // tags last set, even if there are no tagged resources; deltas are applied to these
+	private volatile long                      serviceTagsUpdateCount     = 0;
 	private boolean                            disableCacheIfServiceNotFound = true;
 
 	@Override
@@ -81,6 +86,7 @@ public class RangerTagEnricher extends RangerAbstractContextEnricher {
 		long pollingIntervalMs = getLongOption(TAG_REFRESHER_POLLINGINTERVAL_OPTION, 60 * 1000);
 
 		disableTrieLookupPrefilter = getBooleanOption(TAG_DISABLE_TRIE_PREFILTER_OPTION, false);
+		compactResourceTrie        = getBooleanOption(TAG_COMPACT_TRIE_OPTION, false);
 
 		if (StringUtils.isNotBlank(tagRetrieverClassName)) {
 
@@ -109,12 +115,14 @@ public class RangerTagEnricher extends RangerAbstractContextEnricher {
 				cacheFilename = cacheFilename.replace(File.pathSeparatorChar,  '_');
 
 				String cacheFile = cacheDir == null ? null : (cacheDir + File.separator + cacheFilename);
+				boolean isLongPollEnabled = RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".tag.longpoll.enabled", true);
+				long    longPollTimeoutMs = isLongPollEnabled ? RangerConfiguration.getInstance().getLong(propertyPrefix + ".tag.longpoll.timeoutMs", 120 * 1000) : 0;
 				tagRetriever.setServiceName(serviceName);
 				tagRetriever.setServiceDef(serviceDef);
 				tagRetriever.setAppId(appId);
 				tagRetriever.init(enricherDef.getEnricherOptions());
 
-				tagRefresher = new RangerTagRefresher(tagRetriever, this, -1L, cacheFile, pollingIntervalMs);
+				tagRefresher = new RangerTagRefresher(tagRetriever, this, -1L, cacheFile, pollingIntervalMs, longPollTimeoutMs);
 
 				try {
 					tagRefresher.populateTags();
@@ -162,20 +170,7 @@ public class RangerTagEnricher extends RangerAbstractContextEnricher {
 			if (CollectionUtils.isNotEmpty(serviceResources)) {
 
 				for (RangerServiceResource serviceResource : serviceResources) {
-					RangerDefaultPolicyResourceMatcher matcher = new RangerDefaultPolicyResourceMatcher();
-
-					matcher.setServiceDef(this.serviceDef);
-					matcher.setPolicyResources(serviceResource.getResourceElements());
-
-					if (LOG.isDebugEnabled()) {
-						LOG.debug("RangerTagEnricher.setServiceTags() - Initializing matcher with (resource=" + serviceResource
-								+ ", serviceDef=" + this.serviceDef.getName() + ")");
-
-					}
-					matcher.init();
-
-					RangerServiceResourceMatcher serviceResourceMatcher = new RangerServiceResourceMatcher(serviceResource, matcher);
-					resourceMatchers.add(serviceResourceMatcher);
+					resourceMatchers.add(createResourceMatcher(serviceResource));
 				}
 
 			}
@@ -183,20 +178,58 @@ public class RangerTagEnricher extends RangerAbstractContextEnricher {
 			Map<String, RangerResourceTrie<RangerServiceResourceMatcher>> serviceResourceTrie = null;
 
 			if (!disableTrieLookupPrefilter) {
-				serviceResourceTrie = new HashMap<String, RangerResourceTrie<RangerServiceResourceMatcher>>();
-
-				for (RangerServiceDef.RangerResourceDef resourceDef : serviceDef.getResources()) {
-					serviceResourceTrie.put(resourceDef.getName(), new RangerResourceTrie<RangerServiceResourceMatcher>(resourceDef, resourceMatchers));
-				}
+				serviceResourceTrie = createResourceTrieMap(resourceMatchers);
 			}
 
-			Set<RangerTagForEval> tagsForEmptyResourceAndAnyAccess = new HashSet<RangerTagForEval>();
-			for (Map.Entry<Long, RangerTag> entry : serviceTags.getTags().entrySet()) {
-				tagsForEmptyResourceAndAnyAccess.add(new RangerTagForEval(entry.getValue(), RangerPolicyResourceMatcher.MatchType.DESCENDANT));
-			}
+			Set<RangerTagForEval> tagsForEmptyResourceAndAnyAccess = createTagsForEmptyResourceAndAnyAccess(serviceTags);
 
 			enrichedServiceTags = new EnrichedServiceTags(serviceTags, resourceMatchers, serviceResourceTrie, tagsForEmptyResourceAndAnyAccess);
 		}
+
+		this.serviceTags = serviceTags;
+
+		serviceTagsUpdateCount++;
+	}
+
+	/*
+	 * Applies changes in the given delta to tags last set in this enricher. Matchers of unchanged resources are reused,
+	 * and resource tries are updated only for added/removed matchers. Returns the resulting full tags; returns null
+	 * if the delta can't be applied, in which case all tags must be downloaded again.
+	 */
+	public ServiceTags applyServiceTagsDelta(final ServiceTags delta) {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerTagEnricher.applyServiceTagsDelta(serviceName=" + serviceName + ", newVersion=" + delta.getTagVersion() + ")");
+		}
+
+		final ServiceTags baseTags = this.serviceTags;
+
+		ServiceTags ret = null;
+
+		if (baseTags == null) {
+			LOG.warn("RangerTagEnricher.applyServiceTagsDelta(serviceName=" + serviceName + "): no tags to apply the delta to");
+		} else {
+			ret = RangerServiceTagsDeltaUtil.applyDelta(baseTags, delta);
+
+			if (ret != null) {
+				final EnrichedServiceTags enrichedServiceTags = this.enrichedServiceTags;
+
+				if (enrichedServiceTags == null || CollectionUtils.isEmpty(ret.getServiceResources())) {
+					setServiceTags(ret);
+				} else {
+					updateServiceTags(enrichedServiceTags, ret, delta);
+				}
+			}
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerTagEnricher.applyServiceTagsDelta(serviceName=" + serviceName + ", newVersion=" + delta.getTagVersion() + "): " + (ret != null ? "delta applied" : "delta not applied"));
+		}
+
+		return ret;
+	}
+
+	public long getServiceTagsUpdateCount() {
+		return serviceTagsUpdateCount;
 	}
 
 	@Override
@@ -348,6 +381,123 @@ public class RangerTagEnricher extends RangerAbstractContextEnricher {
 		return ret;
 	}
 
+	private void updateServiceTags(EnrichedServiceTags enrichedServiceTags, ServiceTags serviceTags, ServiceTags delta) {
+		Set<Long>                          changedResourceIds = new HashSet<Long>();
+		Map<Long, RangerServiceResource>   changedResources   = new HashMap<Long, RangerServiceResource>();
+		List<RangerServiceResourceMatcher> resourceMatchers   = new ArrayList<RangerServiceResourceMatcher>(serviceTags.getServiceResources().size());
+		List<RangerServiceResourceMatcher> removedMatchers    = new ArrayList<RangerServiceResourceMatcher>();
+		List<RangerServiceResourceMatcher> addedMatchers      = new ArrayList<RangerServiceResourceMatcher>();
+
+		if (delta.getDeletedResourceIds() != null) {
+			changedResourceIds.addAll(delta.getDeletedResourceIds());
+		}
+
+		for (RangerServiceResource serviceResource : delta.getServiceResources()) {
+			changedResourceIds.add(serviceResource.getId());
+			changedResources.put(serviceResource.getId(), serviceResource);
+		}
+
+		for (RangerServiceResourceMatcher matcher : enrichedServiceTags.getServiceResourceMatchers()) {
+			Long resourceId = matcher.getServiceResource().getId();
+
+			if (!changedResourceIds.contains(resourceId)) {
+				resourceMatchers.add(matcher);
+			} else {
+				RangerServiceResource serviceResource = changedResources.remove(resourceId);
+
+				if (serviceResource != null && RangerServiceTagsDeltaUtil.isSameResource(matcher.getServiceResource(), serviceResource)) { // only associated tags changed
+					resourceMatchers.add(matcher);
+				} else {
+					removedMatchers.add(matcher);
+
+					if (serviceResource != null) {
+						RangerServiceResourceMatcher newMatcher = createResourceMatcher(serviceResource);
+
+						addedMatchers.add(newMatcher);
+						resourceMatchers.add(newMatcher);
+					}
+				}
+			}
+		}
+
+		for (RangerServiceResource serviceResource : changedResources.values()) {
+			RangerServiceResourceMatcher newMatcher = createResourceMatcher(serviceResource);
+
+			addedMatchers.add(newMatcher);
+			resourceMatchers.add(newMatcher);
+		}
+
+		final Map<String, RangerResourceTrie<RangerServiceResourceMatcher>> serviceResourceTrie;
+
+		if (disableTrieLookupPrefilter) {
+			serviceResourceTrie = null;
+		} else if (removedMatchers.isEmpty() && addedMatchers.isEmpty()) {
+			serviceResourceTrie = enrichedServiceTags.getServiceResourceTrie();
+		} else if (compactResourceTrie || enrichedServiceTags.getServiceResourceTrie() == null) { // compact tries don't support copy-on-write updates
+			serviceResourceTrie = createResourceTrieMap(resourceMatchers);
+		} else {
+			serviceResourceTrie = new HashMap<String, RangerResourceTrie<RangerServiceResourceMatcher>>();
+
+			for (Map.Entry<String, RangerResourceTrie<RangerServiceResourceMatcher>> entry : enrichedServiceTags.getServiceResourceTrie().entrySet()) {
+				serviceResourceTrie.put(entry.getKey(), new RangerResourceTrie<RangerServiceResourceMatcher>(entry.getValue(), removedMatchers, addedMatchers));
+			}
+		}
+
+		final Set<RangerTagForEval> tagsForEmptyResourceAndAnyAccess;
+
+		if (MapUtils.isEmpty(delta.getTags()) && CollectionUtils.isEmpty(delta.getDeletedTagIds())) {
+			tagsForEmptyResourceAndAnyAccess = enrichedServiceTags.getTagsForEmptyResourceAndAnyAccess();
+		} else {
+			tagsForEmptyResourceAndAnyAccess = createTagsForEmptyResourceAndAnyAccess(serviceTags);
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("RangerTagEnricher.updateServiceTags(serviceName=" + serviceName + ", newVersion=" + serviceTags.getTagVersion() + "): matcherCount=" + resourceMatchers.size()
+					+ ", removedMatcherCount=" + removedMatchers.size() + ", addedMatcherCount=" + addedMatchers.size());
+		}
+
+		this.enrichedServiceTags = new EnrichedServiceTags(serviceTags, resourceMatchers, serviceResourceTrie, tagsForEmptyResourceAndAnyAccess);
+		this.serviceTags         = serviceTags;
+
+		serviceTagsUpdateCount++;
+	}
+
+	private RangerServiceResourceMatcher createResourceMatcher(RangerServiceResource serviceResource) {
+		RangerDefaultPolicyResourceMatcher matcher = new RangerDefaultPolicyResourceMatcher();
+
+		matcher.setServiceDef(this.serviceDef);
+		matcher.setPolicyResources(serviceResource.getResourceElements());
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("RangerTagEnricher.createResourceMatcher() - Initializing matcher with (resource=" + serviceResource
+					+ ", serviceDef=" + this.serviceDef.getName() + ")");
+
+		}
+		matcher.init();
+
+		return new RangerServiceResourceMatcher(serviceResource, matcher);
+	}
+
+	private Map<String, RangerResourceTrie<RangerServiceResourceMatcher>> createResourceTrieMap(List<RangerServiceResourceMatcher> resourceMatchers) {
+		Map<String, RangerResourceTrie<RangerServiceResourceMatcher>> ret = new HashMap<String, RangerResourceTrie<RangerServiceResourceMatcher>>();
+
+		for (RangerServiceDef.RangerResourceDef resourceDef : serviceDef.getResources()) {
+			ret.put(resourceDef.getName(), new RangerResourceTrie<RangerServiceResourceMatcher>(resourceDef, resourceMatchers, compactResourceTrie));
+		}
+
+		return ret;
+	}
+
+	private static Set<RangerTagForEval> createTagsForEmptyResourceAndAnyAccess(ServiceTags serviceTags) {
+		Set<RangerTagForEval> ret = new HashSet<RangerTagForEval>();
+
+		for (Map.Entry<Long, RangerTag> entry : serviceTags.getTags().entrySet()) {
+			ret.add(new RangerTagForEval(entry.getValue(), RangerPolicyResourceMatcher.MatchType.DESCENDANT));
+		}
+
+		return ret;
+	}
+
 	static private Set<RangerTagForEval> getTagsForServiceResource(final ServiceTags serviceTags, final RangerServiceResource serviceResource, final RangerPolicyResourceMatcher.MatchType matchType) {
 
 		Set<RangerTagForEval> ret = new HashSet<RangerTagForEval>();
@@ -405,21 +555,25 @@ public class RangerTagEnricher extends RangerAbstractContextEnricher {
 		private long lastActivationTimeInMillis = 0L;
 
 		private final long pollingIntervalMs;
+		private final long longPollTimeoutMs;
 		private final String cacheFile;
 		private boolean hasProvidedTagsToReceiver = false;
 		private Gson gson;
+		private boolean isLongPollSupported = true;
+		private Long lastNotifiedVersion = null;
 
 
 		final long getPollingIntervalMs() {
 			return pollingIntervalMs;
 		}
 
-		RangerTagRefresher(RangerTagRetriever tagRetriever, RangerTagEnricher tagEnricher, long lastKnownVersion, String cacheFile, long pollingIntervalMs) {
+		RangerTagRefresher(RangerTagRetriever tagRetriever, RangerTagEnricher tagEnricher, long lastKnownVersion, String cacheFile, long pollingIntervalMs, long longPollTimeoutMs) {
 			this.tagRetriever = tagRetriever;
 			this.tagEnricher = tagEnricher;
 			this.lastKnownVersion = lastKnownVersion;
 			this.cacheFile = cacheFile;
 			this.pollingIntervalMs = pollingIntervalMs;
+			this.longPollTimeoutMs = longPollTimeoutMs;
 			try {
 				gson = new GsonBuilder().setDateFormat("yyyyMMdd-HH:mm:ss.SSS-Z").setPrettyPrinting().create();
 			} catch(Throwable excp) {
@@ -446,12 +600,15 @@ public class RangerTagEnricher extends RangerAbstractContextEnricher {
 
 				try {
 
-					// Sleep first and then fetch tags
-					if (pollingIntervalMs > 0) {
-						Thread.sleep(pollingIntervalMs);
-					} else {
+					// Wait for a change (or sleep) first and then fetch tags
+					if (pollingIntervalMs <= 0) {
 						break;
 					}
+
+					if (!waitForTagChange()) {
+						continue;
+					}
+
 					RangerPerfTracer perf = null;
 
 					if(RangerPerfTracer.isPerfTraceEnabled(PERF_CONTEXTENRICHER_INIT_LOG)) {
@@ -472,24 +629,80 @@ public class RangerTagEnricher extends RangerAbstractContextEnricher {
 			}
 		}
 
+		/*
+		 * Waits for tags to change in Ranger Admin, if the retriever supports long-polling; otherwise sleeps for
+		 * pollingIntervalMs. Returns false if the long-poll timed out without a change.
+		 */
+		private boolean waitForTagChange() throws InterruptedException {
+			// avoid repeated immediate retries when the last notified change could not be loaded
+			boolean isLastChangeLoaded = lastNotifiedVersion == null || lastNotifiedVersion.longValue() == lastKnownVersion;
+
+			if (isLongPollSupported && longPollTimeoutMs > 0 && isLastChangeLoaded) {
+				lastNotifiedVersion = null;
+
+				try {
+					lastNotifiedVersion = tagRetriever.waitForTagVersionChange(lastKnownVersion, longPollTimeoutMs);
+
+					if (LOG.isDebugEnabled()) {
+						LOG.debug("RangerTagRefresher.waitForTagChange(lastKnownVersion=" + lastKnownVersion + "): newVersion=" + lastNotifiedVersion);
+					}
+
+					return lastNotifiedVersion != null;
+				} catch (InterruptedException excp) {
+					throw excp;
+				} catch (UnsupportedOperationException excp) {
+					LOG.info("RangerTagRefresher(serviceName=" + tagRetriever.getServiceName() + "): " + excp.getMessage() + ". Will poll for changes every " + pollingIntervalMs + "ms");
+
+					isLongPollSupported = false;
+				} catch (Exception excp) {
+					LOG.warn("RangerTagRefresher(serviceName=" + tagRetriever.getServiceName() + "): failed to wait for tag changes. Will retry in " + pollingIntervalMs + "ms", excp);
+				}
+			}
+
+			lastNotifiedVersion = null;
+
+			Thread.sleep(pollingIntervalMs);
+
+			return true;
+		}
+
 		private void populateTags() throws InterruptedException {
 
 			if (tagEnricher != null) {
 				ServiceTags serviceTags = null;
 
 				try {
+					boolean isServiceTagsSet = false;
+
 					serviceTags = tagRetriever.retrieveTags(lastKnownVersion, lastActivationTimeInMillis);
 
 					if (serviceTags == null) {
 						if (!hasProvidedTagsToReceiver) {
 							serviceTags = loadFromCache();
 						}
+					} else if (RangerServiceTagsDeltaUtil.isDelta(serviceTags)) {
+						ServiceTags delta = serviceTags;
+
+						serviceTags = tagEnricher.applyServiceTagsDelta(delta);
+
+						if (serviceTags != null) {
+							isServiceTagsSet = true;
+
+							saveToCache(serviceTags);
+						} else {
+							LOG.warn("RangerTagRefresher.populateTags() - failed to apply changes in version " + delta.getTagVersion() + " of tags, lastKnownVersion=" + lastKnownVersion
+									+ ". All tags will be downloaded in next refresh");
+
+							lastKnownVersion = -1L;
+						}
 					} else {
 						saveToCache(serviceTags);
 					}
 
 					if (serviceTags != null) {
-						tagEnricher.setServiceTags(serviceTags);
+						if (!isServiceTagsSet) {
+							tagEnricher.setServiceTags(serviceTags);
+						}
 						LOG.info("RangerTagRefresher.populateTags() - Updated tags-cache to new version of tags, lastKnownVersion=" + lastKnownVersion + "; newVersion="
 								+ (serviceTags.getTagVersion() == null ? -1L : serviceTags.getTagVersion()));
 						hasProvidedTagsToReceiver = true;
@@ -34,6 +34,16 @@ public abstract class RangerTagRetriever {
 
 	public abstract ServiceTags retrieveTags(long lastKnownVersion, long lastActivationTimeInMillis) throws Exception;
 
+	/**
+	 * Waits until the version of tags differs from lastKnownVersion, or until timeoutMs elapses.
+	 *
+	 * @return latest version of tags; null if the version did not change within timeoutMs
+	 * @throws UnsupportedOperationException if this retriever cannot wait for changes
+	 */
+	public Long waitForTagVersionChange(long lastKnownVersion, long timeoutMs) throws Exception {
+		throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support waiting for tag changes");
+	}
+
 	public String getServiceName() {
 		return serviceName;
 	}
@@ -0,0 +1,312 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.plugin.contextenricher.RangerTagForEval;
+import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * Bounded cache of access decisions, keyed on everything that the evaluation of a request without
+ * custom conditions depends on: resource, owner, user, groups, access-type, matching-scope and tags
+ * found by the tag enricher. Entries belong to a generation tied to the version of data installed
+ * in context enrichers; a change in that version replaces the whole generation at once.
+ */
+public class RangerAccessDecisionCache {
+	private static final Log LOG = LogFactory.getLog(RangerAccessDecisionCache.class);
+
+	public static final int DEFAULT_SEGMENT_COUNT = 16;
+
+	private final int                         cacheSize;
+	private final int                         segmentCount;
+	private final AtomicReference<Generation> generation;
+
+	private final AtomicLong hitCount        = new AtomicLong();
+	private final AtomicLong missCount       = new AtomicLong();
+	private final AtomicLong bypassCount     = new AtomicLong();
+	private final AtomicLong invalidateCount = new AtomicLong();
+
+	public RangerAccessDecisionCache(int cacheSize, int segmentCount) {
+		int numOfSegments = 1;
+
+		while(numOfSegments < segmentCount) {
+			numOfSegments <<= 1;
+		}
+
+		this.cacheSize    = cacheSize;
+		this.segmentCount = numOfSegments;
+		this.generation   = new AtomicReference<Generation>(new Generation(0, cacheSize, numOfSegments));
+	}
+
+	public static DecisionKey getKey(RangerAccessRequest request) {
+		RangerAccessResource resource = request.getResource();
+		String               cacheKey = resource != null ? resource.getCacheKey() : null;
+
+		if(cacheKey == null || StringUtils.isEmpty(request.getAccessType())) {
+			return null;
+		}
+
+		Set<RangerTagForEval> tags = RangerAccessRequestUtil.getRequestTagsFromContext(request.getContext());
+
+		return new DecisionKey(cacheKey, resource.getOwnerUser(), request.getUser(), request.getUserGroups(), request.getAccessType(), request.getResourceMatchingScope(), tags);
+	}
+
+	public boolean setFromCache(DecisionKey key, long dataVersion, RangerAccessResult result) {
+		Generation     current  = getGeneration(dataVersion);
+		CachedDecision decision = current != null ? current.get(key) : null;
+
+		if(decision != null) {
+			hitCount.incrementAndGet();
+
+			decision.copyTo(result);
+		} else {
+			missCount.incrementAndGet();
+		}
+
+		return decision != null;
+	}
+
+	public void put(DecisionKey key, long dataVersion, RangerAccessResult result) {
+		Generation current = generation.get();
+
+		// a decision computed with data older than the current generation must not be added to it
+		if(current.dataVersion == dataVersion) {
+			current.put(key, new CachedDecision(result));
+		}
+	}
+
+	public void recordBypass() {
+		bypassCount.incrementAndGet();
+	}
+
+	public void invalidate() {
+		Generation current = generation.get();
+
+		if(generation.compareAndSet(current, new Generation(current.dataVersion, cacheSize, segmentCount))) {
+			invalidateCount.incrementAndGet();
+		}
+	}
+
+	public long getHitCount() { return hitCount.get(); }
+
+	public long getMissCount() { return missCount.get(); }
+
+	public long getBypassCount() { return bypassCount.get(); }
+
+	public long getInvalidateCount() { return invalidateCount.get(); }
+
+	public double getHitRatio() {
+		long hits  = hitCount.get();
+		long total = hits + missCount.get();
+
+		return total == 0 ? 0 : ((double)hits / total);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+
+		sb.append("RangerAccessDecisionCache={");
+		sb.append("cacheSize={").append(cacheSize).append("} ");
+		sb.append("segmentCount={").append(segmentCount).append("} ");
+		sb.append("hitCount={").append(getHitCount()).append("} ");
+		sb.append("missCount={").append(getMissCount()).append("} ");
+		sb.append("bypassCount={").append(getBypassCount()).append("} ");
+		sb.append("invalidateCount={").append(getInvalidateCount()).append("} ");
+		sb.append("hitRatio={").append(getHitRatio()).append("} ");
+		sb.append("}");
+
+		return sb.toString();
+	}
+
+	// returns null if the given version is older than the current generation, as can happen for a request enriched before the data was updated
+	private Generation getGeneration(long dataVersion) {
+		Generation ret = generation.get();
+
+		while(ret != null && ret.dataVersion != dataVersion) {
+			if(ret.dataVersion > dataVersion) {
+				ret = null;
+
+				break;
+			}
+
+			Generation newGeneration = new Generation(dataVersion, cacheSize, segmentCount);
+
+			if(generation.compareAndSet(ret, newGeneration)) {
+				if(LOG.isDebugEnabled()) {
+					LOG.debug("RangerAccessDecisionCache: enricher data version changed from " + ret.dataVersion + " to " + dataVersion + "; discarded cached decisions");
+				}
+
+				invalidateCount.incrementAndGet();
+
+				ret = newGeneration;
+			} else {
+				ret = generation.get();
+			}
+		}
+
+		return ret;
+	}
+
+	public static final class DecisionKey {
+		private final String                resource;
+		private final String                owner;
+		private final String                user;
+		private final Set<String>           userGroups;
+		private final String                accessType;
+		private final Object                matchingScope;
+		private final Set<RangerTagForEval> tags;
+		private final int                   hashCode;
+
+		DecisionKey(String resource, String owner, String user, Set<String> userGroups, String accessType, Object matchingScope, Set<RangerTagForEval> tags) {
+			this.resource      = resource;
+			this.owner         = owner;
+			this.user          = user;
+			this.userGroups    = CollectionUtils.isEmpty(userGroups) ? Collections.<String>emptySet() : new HashSet<String>(userGroups);
+			this.accessType    = accessType;
+			this.matchingScope = matchingScope;
+			this.tags          = CollectionUtils.isEmpty(tags) ? Collections.<RangerTagForEval>emptySet() : new HashSet<RangerTagForEval>(tags);
+
+			int result = 1;
+
+			result = 31 * result + resource.hashCode();
+			result = 31 * result + (owner == null ? 0 : owner.hashCode());
+			result = 31 * result + (user == null ? 0 : user.hashCode());
+			result = 31 * result + this.userGroups.hashCode();
+			result = 31 * result + accessType.hashCode();
+			result = 31 * result + (matchingScope == null ? 0 : matchingScope.hashCode());
+			result = 31 * result + this.tags.hashCode();
+
+			this.hashCode = result;
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(this == obj) {
+				return true;
+			}
+
+			if(!(obj instanceof DecisionKey)) {
+				return false;
+			}
+
+			DecisionKey other = (DecisionKey) obj;
+
+			return hashCode == other.hashCode
+					&& StringUtils.equals(resource, other.resource)
+					&& StringUtils.equals(owner, other.owner)
+					&& StringUtils.equals(user, other.user)
+					&& StringUtils.equals(accessType, other.accessType)
+					&& (matchingScope == null ? other.matchingScope == null : matchingScope.equals(other.matchingScope))
+					&& userGroups.equals(other.userGroups)
+					&& tags.equals(other.tags);
+		}
+	}
+
+	private static final class CachedDecision {
+		private final boolean isAccessDetermined;
+		private final boolean isAllowed;
+		private final long    policyId;
+		private final String  reason;
+		private final boolean isAuditedDetermined;
+		private final boolean isAudited;
+		private final long    auditPolicyId;
+
+		CachedDecision(RangerAccessResult result) {
+			this.isAccessDetermined  = result.getIsAccessDetermined();
+			this.isAllowed           = result.getIsAllowed();
+			this.policyId            = result.getPolicyId();
+			this.reason              = result.getReason();
+			this.isAuditedDetermined = result.getIsAuditedDetermined();
+			this.isAudited           = result.getIsAudited();
+			this.auditPolicyId       = result.getAuditPolicyId();
+		}
+
+		void copyTo(RangerAccessResult result) {
+			result.setIsAllowed(isAllowed);
+			result.setIsAccessDetermined(isAccessDetermined);
+			result.setPolicyId(policyId);
+			result.setReason(reason);
+
+			if(isAuditedDetermined) {
+				result.setIsAudited(isAudited);
+			}
+
+			result.setAuditPolicyId(auditPolicyId);
+		}
+	}
+
+	private static final class Generation {
+		private final long                                          dataVersion;
+		private final CacheMap<DecisionKey, CachedDecision>[]       segments;
+		private final int                                           segmentMask;
+
+		@SuppressWarnings("unchecked")
+		Generation(long dataVersion, int cacheSize, int segmentCount) {
+			this.dataVersion = dataVersion;
+			this.segments    = new CacheMap[segmentCount];
+			this.segmentMask = segmentCount - 1;
+
+			int segmentSize = Math.max(1, (cacheSize + segmentCount - 1) / segmentCount);
+
+			for(int i = 0; i < segmentCount; i++) {
+				segments[i] = new CacheMap<DecisionKey, CachedDecision>(segmentSize);
+			}
+		}
+
+		CachedDecision get(DecisionKey key) {
+			CacheMap<DecisionKey, CachedDecision> segment = getSegment(key);
+
+			synchronized(segment) {
+				return segment.get(key);
+			}
+		}
+
+		void put(DecisionKey key, CachedDecision decision) {
+			CacheMap<DecisionKey, CachedDecision> segment = getSegment(key);
+
+			synchronized(segment) {
+				segment.put(key, decision);
+			}
+		}
+
+		private CacheMap<DecisionKey, CachedDecision> getSegment(DecisionKey key) {
+			int h = key.hashCode();
+
+			h ^= (h >>> 16);
+
+			return segments[h & segmentMask];
+		}
+	}
+}
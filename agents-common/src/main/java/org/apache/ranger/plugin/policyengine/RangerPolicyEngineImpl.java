@@ -26,11 +26,13 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.ranger.authorization.hadoop.config.RangerConfiguration;
 import org.apache.ranger.plugin.contextenricher.RangerContextEnricher;
+import org.apache.ranger.plugin.contextenricher.RangerTagEnricher;
 import org.apache.ranger.plugin.contextenricher.RangerTagForEval;
 import org.apache.ranger.plugin.model.RangerPolicy;
 import org.apache.ranger.plugin.model.RangerServiceDef;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
 import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher;
 import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
 import org.apache.ranger.plugin.util.RangerPerfTracer;
 import org.apache.ranger.plugin.util.ServicePolicies;
@@ -39,6 +41,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -62,9 +65,16 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 
 	private final Map<Long, RangerPolicyEvaluator> policyEvaluatorsMap;
 
+	private final RangerAccessDecisionCache accessDecisionCache;
+	private final boolean                   hasDynamicTagPolicies;
+	private final boolean                   hasDynamicResourcePolicies;
+
 	private boolean  useForwardedIPAddress = false;
 	private String[] trustedProxyAddresses = null;
 
+	// false once context enrichers are handed over to an engine created by cloneWithDeltas()
+	private volatile boolean isContextEnricherOwner = true;
+
 	public RangerPolicyEngineImpl(String appId, ServicePolicies servicePolicies, RangerPolicyEngineOptions options) {
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("==> RangerPolicyEngineImpl(" + appId + ", " + servicePolicies + ", " + options + ")");
@@ -108,11 +118,7 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 
 		ServicePolicies.TagPolicies tagPolicies = servicePolicies.getTagPolicies();
 
-		if (!options.disableTagPolicyEvaluation
-				&& tagPolicies != null
-				&& !StringUtils.isEmpty(tagPolicies.getServiceName())
-				&& tagPolicies.getServiceDef() != null
-				&& !CollectionUtils.isEmpty(tagPolicies.getPolicies())) {
+		if (isTagPolicyRepositoryNeeded(tagPolicies, options)) {
 
 			if (LOG.isDebugEnabled()) {
 				LOG.debug("RangerPolicyEngineImpl : Building tag-policy-repository for tag-service " + tagPolicies.getServiceName());
@@ -127,24 +133,14 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 			tagPolicyRepository = null;
 		}
 
-		List<RangerContextEnricher> tmpList;
-
-		List<RangerContextEnricher> tagContextEnrichers = tagPolicyRepository == null ? null :tagPolicyRepository.getContextEnrichers();
-		List<RangerContextEnricher> resourceContextEnrichers = policyRepository.getContextEnrichers();
-
-		if (CollectionUtils.isEmpty(tagContextEnrichers)) {
-			tmpList = resourceContextEnrichers;
-		} else if (CollectionUtils.isEmpty(resourceContextEnrichers)) {
-			tmpList = tagContextEnrichers;
-		} else {
-			tmpList = new ArrayList<RangerContextEnricher>(tagContextEnrichers);
-			tmpList.addAll(resourceContextEnrichers);
-		}
-
-		this.allContextEnrichers = tmpList;
+		this.allContextEnrichers = getAllContextEnrichers();
 
 		policyEvaluatorsMap = createPolicyEvaluatorsMap();
 
+		accessDecisionCache        = options.cacheAccessDecisions ? createAccessDecisionCache() : null;
+		hasDynamicTagPolicies      = accessDecisionCache != null && tagPolicyRepository != null && hasDynamicEvaluator(tagPolicyRepository.getPolicyEvaluators());
+		hasDynamicResourcePolicies = accessDecisionCache != null && hasDynamicEvaluator(policyRepository.getPolicyEvaluators());
+
 		RangerPerfTracer.log(perf);
 
 		if (PERF_POLICYENGINE_INIT_LOG.isDebugEnabled()) {
@@ -158,6 +154,62 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 		}
 	}
 
+	private RangerPolicyEngineImpl(RangerPolicyEngineImpl other, RangerPolicyRepository policyRepository, RangerPolicyEngineOptions options) {
+		this.policyRepository      = policyRepository;
+		this.tagPolicyRepository   = other.tagPolicyRepository;
+		this.useForwardedIPAddress = other.useForwardedIPAddress;
+		this.trustedProxyAddresses = other.trustedProxyAddresses;
+
+		this.allContextEnrichers = getAllContextEnrichers();
+
+		policyEvaluatorsMap = createPolicyEvaluatorsMap();
+
+		accessDecisionCache        = options.cacheAccessDecisions ? createAccessDecisionCache() : null;
+		hasDynamicTagPolicies      = accessDecisionCache != null && tagPolicyRepository != null && hasDynamicEvaluator(tagPolicyRepository.getPolicyEvaluators());
+		hasDynamicResourcePolicies = accessDecisionCache != null && hasDynamicEvaluator(policyRepository.getPolicyEvaluators());
+	}
+
+	/*
+	 * Returns an engine for servicePolicies having policy deltas, created by updating only the changed policies of this engine;
+	 * returns null if the deltas can't be applied to this engine. This engine is not modified, so requests being evaluated
+	 * with it are not affected; the tag policy repository and context enrichers are handed over to the returned engine.
+	 */
+	public RangerPolicyEngineImpl cloneWithDeltas(ServicePolicies servicePolicies, RangerPolicyEngineOptions options) {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerPolicyEngineImpl.cloneWithDeltas(fromVersion=" + getPolicyVersion() + ", toVersion=" + servicePolicies.getPolicyVersion() + ")");
+		}
+
+		RangerPolicyEngineImpl ret = null;
+
+		RangerPerfTracer perf = null;
+
+		if(RangerPerfTracer.isPerfTraceEnabled(PERF_POLICYENGINE_INIT_LOG)) {
+			perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_INIT_LOG, "RangerPolicyEngine.cloneWithDeltas(hashCode=" + Integer.toHexString(System.identityHashCode(this)) + ")");
+		}
+
+		if (options == null) {
+			options = new RangerPolicyEngineOptions();
+		}
+
+		if (isContextEnricherOwner && isSameTagPolicies(servicePolicies.getTagPolicies(), options)) {
+			RangerPolicyRepository newPolicyRepository = policyRepository.cloneWithDeltas(servicePolicies, options);
+
+			if (newPolicyRepository != null) {
+				ret = new RangerPolicyEngineImpl(this, newPolicyRepository, options);
+
+				isContextEnricherOwner = false;
+			}
+		}
+
+		RangerPerfTracer.log(perf);
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerPolicyEngineImpl.cloneWithDeltas(fromVersion=" + getPolicyVersion() + ", toVersion=" + servicePolicies.getPolicyVersion() + "): " + (ret != null ? "deltas applied" : "deltas not applicable"));
+		}
+
+		return ret;
+	}
+
 	@Override
 	public String getServiceName() {
 		return policyRepository.getServiceName();
@@ -177,6 +229,10 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 		return policyEvaluatorsMap.get(id);
 	}
 
+	public RangerAccessDecisionCache getAccessDecisionCache() {
+		return accessDecisionCache;
+	}
+
 	public RangerPolicy getPolicy(Long id) {
 		RangerPolicyEvaluator evaluator = getPolicyEvaluator(id);
 		return evaluator != null ? evaluator.getPolicy() : null;
@@ -203,6 +259,30 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 
 	@Override
 	public void preProcess(RangerAccessRequest request) {
+		preProcess(request, null);
+	}
+
+	@Override
+	public void preProcess(Collection<RangerAccessRequest> requests) {
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerPolicyEngineImpl.preProcess(" + requests + ")");
+		}
+
+		if(CollectionUtils.isNotEmpty(requests)) {
+			// tags depend only on the resource and how it is matched; requests of the batch that share these are enriched once
+			Map<String, RangerAccessRequest> tagEnrichedRequests = new HashMap<String, RangerAccessRequest>();
+
+			for(RangerAccessRequest request : requests) {
+				preProcess(request, tagEnrichedRequests);
+			}
+		}
+
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerPolicyEngineImpl.preProcess(" + requests + ")");
+		}
+	}
+
+	private void preProcess(RangerAccessRequest request, Map<String, RangerAccessRequest> tagEnrichedRequests) {
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("==> RangerPolicyEngineImpl.preProcess(" + request + ")");
 		}
@@ -226,7 +306,22 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 					perf = RangerPerfTracer.getPerfTracer(PERF_CONTEXTENRICHER_REQUEST_LOG, "RangerContextEnricher.enrich(requestHashCode=" + Integer.toHexString(System.identityHashCode(request)) + ", enricherName=" + enricher.getName() + ")");
 				}
 
-				enricher.enrich(request);
+				if(tagEnrichedRequests != null && enricher instanceof RangerTagEnricher) {
+					String              tagsKey         = getTagsKey(request);
+					RangerAccessRequest enrichedRequest = tagsKey == null ? null : tagEnrichedRequests.get(tagsKey);
+
+					if(enrichedRequest != null) {
+						RangerAccessRequestUtil.setRequestTagsInContext(request.getContext(), RangerAccessRequestUtil.getRequestTagsFromContext(enrichedRequest.getContext()));
+					} else {
+						enricher.enrich(request);
+
+						if(tagsKey != null) {
+							tagEnrichedRequests.put(tagsKey, request);
+						}
+					}
+				} else {
+					enricher.enrich(request);
+				}
 
 				RangerPerfTracer.log(perf);
 			}
@@ -239,23 +334,6 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 		}
 	}
 
-	@Override
-	public void preProcess(Collection<RangerAccessRequest> requests) {
-		if(LOG.isDebugEnabled()) {
-			LOG.debug("==> RangerPolicyEngineImpl.preProcess(" + requests + ")");
-		}
-
-		if(CollectionUtils.isNotEmpty(requests)) {
-			for(RangerAccessRequest request : requests) {
-				preProcess(request);
-			}
-		}
-
-		if(LOG.isDebugEnabled()) {
-			LOG.debug("<== RangerPolicyEngineImpl.preProcess(" + requests + ")");
-		}
-	}
-
 	@Override
 	public RangerAccessResult isAccessAllowed(RangerAccessRequest request, RangerAccessResultProcessor resultProcessor) {
 		if (LOG.isDebugEnabled()) {
@@ -294,19 +372,42 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 
 	@Override
 	public Collection<RangerAccessResult> isAccessAllowed(Collection<RangerAccessRequest> requests, RangerAccessResultProcessor resultProcessor) {
+		return isAccessAllowed(requests, resultProcessor, false);
+	}
+
+	@Override
+	public Collection<RangerAccessResult> isAccessAllowed(Collection<RangerAccessRequest> requests, RangerAccessResultProcessor resultProcessor, boolean stopOnDeny) {
 		if (LOG.isDebugEnabled()) {
-			LOG.debug("==> RangerPolicyEngineImpl.isAccessAllowed(" + requests + ")");
+			LOG.debug("==> RangerPolicyEngineImpl.isAccessAllowed(" + requests + ", stopOnDeny=" + stopOnDeny + ")");
 		}
 
 		Collection<RangerAccessResult> ret = new ArrayList<RangerAccessResult>();
 
 		if (requests != null) {
+			RangerPerfTracer perf = null;
+
+			if(RangerPerfTracer.isPerfTraceEnabled(PERF_POLICYENGINE_REQUEST_LOG)) {
+				perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_REQUEST_LOG, "RangerPolicyEngine.isAccessAllowed(requestCount=" + requests.size() + ")");
+			}
+
+			RequestBatch batch = new RequestBatch();
+
 			for (RangerAccessRequest request : requests) {
 
-				RangerAccessResult result = isAccessAllowedNoAudit(request);
+				RangerAccessResult result = isAccessAllowedNoAudit(request, batch);
+
+				if (result != null) {
+					updatePolicyUsageCounts(request, result);
+				}
 
 				ret.add(result);
+
+				if (stopOnDeny && (result == null || !result.getIsAllowed())) {
+					break;
+				}
 			}
+
+			RangerPerfTracer.log(perf);
 		}
 
 		if (resultProcessor != null) {
@@ -314,7 +415,7 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 		}
 
 		if (LOG.isDebugEnabled()) {
-			LOG.debug("<== RangerPolicyEngineImpl.isAccessAllowed(" + requests + "): " + ret);
+			LOG.debug("<== RangerPolicyEngineImpl.isAccessAllowed(" + requests + ", stopOnDeny=" + stopOnDeny + "): " + ret);
 		}
 
 		return ret;
@@ -585,10 +686,53 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 	}
 
 	protected RangerAccessResult isAccessAllowedNoAudit(RangerAccessRequest request) {
+		return isAccessAllowedNoAudit(request, null);
+	}
+
+	private RangerAccessResult isAccessAllowedNoAudit(RangerAccessRequest request, RequestBatch batch) {
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("==> RangerPolicyEngineImpl.isAccessAllowedNoAudit(" + request + ")");
 		}
 
+		final RangerAccessResult ret;
+
+		final RangerAccessDecisionCache.DecisionKey decisionKey = (accessDecisionCache != null && request != null) ? RangerAccessDecisionCache.getKey(request) : null;
+
+		if (decisionKey == null) {
+			if (accessDecisionCache != null) {
+				accessDecisionCache.recordBypass();
+			}
+
+			ret = evaluatePolicies(request, batch);
+		} else {
+			final long         enricherDataVersion = getEnricherDataVersion();
+			RangerAccessResult cachedResult        = createAccessResult(request);
+
+			if (accessDecisionCache.setFromCache(decisionKey, enricherDataVersion, cachedResult)) {
+				ret = cachedResult;
+			} else {
+				ret = evaluatePolicies(request, batch);
+
+				if (isDecisionCacheable(request, batch)) {
+					accessDecisionCache.put(decisionKey, enricherDataVersion, ret);
+				} else {
+					accessDecisionCache.recordBypass();
+				}
+			}
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerPolicyEngineImpl.isAccessAllowedNoAudit(" + request + "): " + ret);
+		}
+
+		return ret;
+	}
+
+	private RangerAccessResult evaluatePolicies(RangerAccessRequest request, RequestBatch batch) {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerPolicyEngineImpl.evaluatePolicies(" + request + ")");
+		}
+
 		RangerAccessResult ret = createAccessResult(request);
 
 		if (ret != null && request != null) {
@@ -614,10 +758,10 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 					ret.setIsAccessDetermined(false); // discard allowed result by tag-policies, to evaluate resource policies for possible deny
 				}
 
-				List<RangerPolicyEvaluator> evaluators = policyRepository.getPolicyEvaluators(request.getResource());
+				List<RangerPolicyEvaluator> evaluators = getPolicyEvaluators(request, batch);
 				for (RangerPolicyEvaluator evaluator : evaluators) {
 					ret.incrementEvaluatedPoliciesCount();
-					evaluator.evaluate(request, ret);
+					evaluator.evaluate(request, ret, batch != null ? batch.getMatchType(evaluator, request) : null);
 
 					if(ret.getIsAllowed() && !evaluator.hasDeny()) { // all policies having deny have been evaluated
 						ret.setIsAccessDetermined(true);
@@ -639,7 +783,7 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 		}
 
 		if (LOG.isDebugEnabled()) {
-			LOG.debug("<== RangerPolicyEngineImpl.isAccessAllowedNoAudit(" + request + "): " + ret);
+			LOG.debug("<== RangerPolicyEngineImpl.evaluatePolicies(" + request + "): " + ret);
 		}
 
 		return ret;
@@ -772,7 +916,7 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 			LOG.debug("==> RangerPolicyEngineImpl.preCleanup()");
 		}
 
-		if (CollectionUtils.isNotEmpty(allContextEnrichers)) {
+		if (isContextEnricherOwner && CollectionUtils.isNotEmpty(allContextEnrichers)) {
 			for (RangerContextEnricher contextEnricher : allContextEnrichers) {
 				boolean notReadyForCleanup = contextEnricher.preCleanup();
 				if (!notReadyForCleanup) {
@@ -805,7 +949,7 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 		}
 		preCleanup();
 
-		if (CollectionUtils.isNotEmpty(allContextEnrichers)) {
+		if (isContextEnricherOwner && CollectionUtils.isNotEmpty(allContextEnrichers)) {
 			for (RangerContextEnricher contextEnricher : allContextEnrichers) {
 				contextEnricher.cleanup();
 			}
@@ -882,6 +1026,115 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 		return policyRepository != null && CollectionUtils.isNotEmpty(policyRepository.getPolicies());
 	}
 
+	// decisions of policies having custom conditions or dynamic resource values depend on more than the decision-cache key
+	private boolean isDecisionCacheable(RangerAccessRequest request, RequestBatch batch) {
+		boolean ret = true;
+
+		if (hasDynamicTagPolicies && CollectionUtils.isNotEmpty(RangerAccessRequestUtil.getRequestTagsFromContext(request.getContext()))) {
+			ret = false;
+		} else if (hasDynamicResourcePolicies) {
+			ret = !hasDynamicEvaluator(getPolicyEvaluators(request, batch));
+		}
+
+		return ret;
+	}
+
+	private List<RangerPolicyEvaluator> getPolicyEvaluators(RangerAccessRequest request, RequestBatch batch) {
+		return batch == null ? policyRepository.getPolicyEvaluators(request.getResource()) : policyRepository.getPolicyEvaluators(request.getResource(), batch.trieLookups);
+	}
+
+	// requests having the same key get the same tags from the tag enricher; null if the resource can't be keyed
+	private static String getTagsKey(RangerAccessRequest request) {
+		RangerAccessResource resource = request.getResource();
+		String               cacheKey = resource == null ? null : resource.getCacheKey();
+
+		return cacheKey == null ? null : (cacheKey + "|" + request.isAccessTypeAny() + "|" + request.getResourceMatchingScope());
+	}
+
+	private static boolean hasDynamicEvaluator(List<RangerPolicyEvaluator> evaluators) {
+		if (CollectionUtils.isNotEmpty(evaluators)) {
+			for (RangerPolicyEvaluator evaluator : evaluators) {
+				if (evaluator.getCustomConditionsCount() > 0) {
+					return true;
+				}
+
+				if (evaluator.getPolicyResourceMatcher() != null && evaluator.getPolicyResourceMatcher().getNeedsDynamicEval()) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	private long getEnricherDataVersion() {
+		long ret = 0;
+
+		List<RangerContextEnricher> enrichers = allContextEnrichers;
+
+		if (enrichers != null) {
+			for (RangerContextEnricher enricher : enrichers) {
+				if (enricher instanceof RangerTagEnricher) {
+					ret += ((RangerTagEnricher) enricher).getServiceTagsUpdateCount();
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	private static boolean isTagPolicyRepositoryNeeded(ServicePolicies.TagPolicies tagPolicies, RangerPolicyEngineOptions options) {
+		return !options.disableTagPolicyEvaluation
+				&& tagPolicies != null
+				&& !StringUtils.isEmpty(tagPolicies.getServiceName())
+				&& tagPolicies.getServiceDef() != null
+				&& !CollectionUtils.isEmpty(tagPolicies.getPolicies());
+	}
+
+	private boolean isSameTagPolicies(ServicePolicies.TagPolicies tagPolicies, RangerPolicyEngineOptions options) {
+		final boolean ret;
+
+		if (isTagPolicyRepositoryNeeded(tagPolicies, options)) {
+			ret = tagPolicyRepository != null
+					&& StringUtils.equals(tagPolicies.getServiceName(), tagPolicyRepository.getServiceName())
+					&& tagPolicies.getPolicyVersion() != null
+					&& tagPolicies.getPolicyVersion() == tagPolicyRepository.getPolicyVersion();
+		} else {
+			ret = tagPolicyRepository == null;
+		}
+
+		return ret;
+	}
+
+	private List<RangerContextEnricher> getAllContextEnrichers() {
+		List<RangerContextEnricher> ret;
+
+		List<RangerContextEnricher> tagContextEnrichers = tagPolicyRepository == null ? null :tagPolicyRepository.getContextEnrichers();
+		List<RangerContextEnricher> resourceContextEnrichers = policyRepository.getContextEnrichers();
+
+		if (CollectionUtils.isEmpty(tagContextEnrichers)) {
+			ret = resourceContextEnrichers;
+		} else if (CollectionUtils.isEmpty(resourceContextEnrichers)) {
+			ret = tagContextEnrichers;
+		} else {
+			ret = new ArrayList<RangerContextEnricher>(tagContextEnrichers);
+			ret.addAll(resourceContextEnrichers);
+		}
+
+		return ret;
+	}
+
+	private RangerAccessDecisionCache createAccessDecisionCache() {
+		final int RANGER_POLICYENGINE_DECISION_CACHE_SIZE = 64 * 1024;
+
+		String propertyPrefix = "ranger.plugin." + policyRepository.getServiceName() + ".policyengine";
+
+		int decisionCacheSize = RangerConfiguration.getInstance().getInt(propertyPrefix + ".decisioncachesize", RANGER_POLICYENGINE_DECISION_CACHE_SIZE);
+		int segmentCount      = RangerConfiguration.getInstance().getInt(propertyPrefix + ".decisioncache.segment.count", RangerAccessDecisionCache.DEFAULT_SEGMENT_COUNT);
+
+		return new RangerAccessDecisionCache(decisionCacheSize, segmentCount);
+	}
+
 	private Map<Long, RangerPolicyEvaluator> createPolicyEvaluatorsMap() {
 		Map<Long, RangerPolicyEvaluator> tmpPolicyEvaluatorMap = new HashMap<Long, RangerPolicyEvaluator>();
 
@@ -953,4 +1206,43 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 			evaluator.incrementUsageCount(number);
 		}
 	}
+
+	/*
+	 * Evaluation state shared by requests of a batch. Trie lookups depend only on the value of a resource level, and the
+	 * match of a policy's resources only on the request resource; hence requests sharing a resource prefix - like columns
+	 * of a table - or the resource itself - like different access-types on a table - don't repeat them.
+	 */
+	private static final class RequestBatch {
+		final Map<String, Map<String, List<RangerPolicyEvaluator>>>                          trieLookups = new HashMap<>();
+		final Map<String, Map<RangerPolicyEvaluator, RangerPolicyResourceMatcher.MatchType>> matchTypes  = new HashMap<>();
+
+		// returns null, to have the evaluator compute the match, when the match depends on more than the resource
+		RangerPolicyResourceMatcher.MatchType getMatchType(RangerPolicyEvaluator evaluator, RangerAccessRequest request) {
+			RangerPolicyResourceMatcher matcher  = evaluator.getPolicyResourceMatcher();
+			RangerAccessResource        resource = request.getResource();
+			String                      cacheKey = resource == null ? null : resource.getCacheKey();
+
+			if (matcher == null || cacheKey == null || matcher.getNeedsDynamicEval()) {
+				return null;
+			}
+
+			Map<RangerPolicyEvaluator, RangerPolicyResourceMatcher.MatchType> resourceMatchTypes = matchTypes.get(cacheKey);
+
+			if (resourceMatchTypes == null) {
+				resourceMatchTypes = new IdentityHashMap<>();
+
+				matchTypes.put(cacheKey, resourceMatchTypes);
+			}
+
+			RangerPolicyResourceMatcher.MatchType ret = resourceMatchTypes.get(evaluator);
+
+			if (ret == null) {
+				ret = matcher.getMatchType(resource, request.getContext());
+
+				resourceMatchTypes.put(evaluator, ret);
+			}
+
+			return ret;
+		}
+	}
 }
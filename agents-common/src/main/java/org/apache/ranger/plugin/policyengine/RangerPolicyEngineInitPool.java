@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.plugin.util.RangerPerfTracer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Runs policy-engine initialization tasks on fork-join pools shared by all policy engines in the process, one pool
+ * per parallelism. Results are returned in the order of the input, so that the outcome doesn't depend on scheduling.
+ */
+final class RangerPolicyEngineInitPool {
+	private static final Log LOG = LogFactory.getLog(RangerPolicyEngineInitPool.class);
+
+	private static final Log PERF_POLICYENGINE_INIT_LOG = RangerPerfTracer.getPerfLogger("policyengine.init");
+
+	// number of leaf tasks per thread; more tasks even out the load when items take different time to process
+	private static final int TASKS_PER_THREAD = 8;
+
+	private static final Map<Integer, ForkJoinPool> pools = new HashMap<Integer, ForkJoinPool>();
+
+	interface Task<T, R> {
+		R run(T item);
+	}
+
+	private RangerPolicyEngineInitPool() {
+	}
+
+	static boolean isParallel(RangerPolicyEngineOptions options) {
+		return options.initThreadCount > 1;
+	}
+
+	/*
+	 * Returns the results of running the task on each item, in the order of items. Items are processed in the calling thread
+	 * when parallelism is less than 2 or when there are fewer items than minItemsPerTask.
+	 */
+	static <T, R> List<R> map(String name, List<T> items, Task<T, R> task, int parallelism, int minItemsPerTask) {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerPolicyEngineInitPool.map(name=" + name + ", itemCount=" + items.size() + ", parallelism=" + parallelism + ")");
+		}
+
+		final List<R> ret;
+
+		if (parallelism < 2 || items.size() < Math.max(2, minItemsPerTask)) {
+			ret = new ArrayList<R>(items.size());
+
+			for (T item : items) {
+				ret.add(task.run(item));
+			}
+		} else {
+			long       startTimeNanos = System.nanoTime();
+			AtomicLong taskTimeNanos  = new AtomicLong();
+			Object[]   results        = new Object[items.size()];
+			int        itemsPerTask   = Math.max(Math.max(1, minItemsPerTask), items.size() / (parallelism * TASKS_PER_THREAD));
+			MapTask<T, R> mapTask     = new MapTask<T, R>(items, results, 0, items.size(), itemsPerTask, task, taskTimeNanos);
+
+			if (ForkJoinTask.inForkJoinPool()) {
+				mapTask.invoke();
+			} else {
+				getPool(parallelism).invoke(mapTask);
+			}
+
+			@SuppressWarnings("unchecked")
+			List<R> tmp = (List<R>) Arrays.asList(results);
+
+			ret = tmp;
+
+			if (RangerPerfTracer.isPerfTraceEnabled(PERF_POLICYENGINE_INIT_LOG)) {
+				long elapsedNanos = System.nanoTime() - startTimeNanos;
+
+				PERF_POLICYENGINE_INIT_LOG.debug("[PERF] RangerPolicyEngineInitPool.map(name=" + name + ", itemCount=" + items.size() + ", parallelism=" + parallelism + "): elapsedMs=" + (elapsedNanos / 1000000)
+				                                 + ", taskTimeMs=" + (taskTimeNanos.get() / 1000000) + ", speedup=" + String.format("%.2f", (double) taskTimeNanos.get() / Math.max(1, elapsedNanos)));
+			}
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerPolicyEngineInitPool.map(name=" + name + ", itemCount=" + items.size() + ", parallelism=" + parallelism + ")");
+		}
+
+		return ret;
+	}
+
+	// starts the given task in the pool, to run while the calling thread does other work; the result is available via join()
+	static <R> ForkJoinTask<R> submit(Callable<R> task, int parallelism) {
+		return getPool(parallelism).submit(task);
+	}
+
+	private static ForkJoinPool getPool(int parallelism) {
+		synchronized (pools) {
+			ForkJoinPool ret = pools.get(parallelism);
+
+			if (ret == null) {
+				LOG.info("RangerPolicyEngineInitPool: creating fork-join pool with parallelism=" + parallelism);
+
+				ret = new ForkJoinPool(parallelism);
+
+				pools.put(parallelism, ret);
+			}
+
+			return ret;
+		}
+	}
+
+	private static final class MapTask<T, R> extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final List<T>    items;
+		private final Object[]   results;
+		private final int        fromIndex;
+		private final int        toIndex;
+		private final int        itemsPerTask;
+		private final Task<T, R> task;
+		private final AtomicLong taskTimeNanos;
+
+		MapTask(List<T> items, Object[] results, int fromIndex, int toIndex, int itemsPerTask, Task<T, R> task, AtomicLong taskTimeNanos) {
+			this.items         = items;
+			this.results       = results;
+			this.fromIndex     = fromIndex;
+			this.toIndex       = toIndex;
+			this.itemsPerTask  = itemsPerTask;
+			this.task          = task;
+			this.taskTimeNanos = taskTimeNanos;
+		}
+
+		@Override
+		protected void compute() {
+			if (toIndex - fromIndex <= itemsPerTask) {
+				long startTimeNanos = System.nanoTime();
+
+				for (int i = fromIndex; i < toIndex; i++) {
+					results[i] = task.run(items.get(i));
+				}
+
+				taskTimeNanos.addAndGet(System.nanoTime() - startTimeNanos);
+			} else {
+				int midIndex = (fromIndex + toIndex) >>> 1;
+
+				invokeAll(new MapTask<T, R>(items, results, fromIndex, midIndex, itemsPerTask, task, taskTimeNanos),
+				          new MapTask<T, R>(items, results, midIndex, toIndex, itemsPerTask, task, taskTimeNanos));
+			}
+		}
+	}
+}
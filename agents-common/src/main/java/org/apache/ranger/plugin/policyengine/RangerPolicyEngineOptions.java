@@ -30,4 +30,7 @@ public class RangerPolicyEngineOptions {
 	public boolean disableTagPolicyEvaluation = true;
 	public boolean evaluateDelegateAdminOnly = false;
 	public boolean disableTrieLookupPrefilter = false;
+	public boolean compactResourceTrie = false;
+	public boolean cacheAccessDecisions = false;
+	public int     initThreadCount = 1;
 }
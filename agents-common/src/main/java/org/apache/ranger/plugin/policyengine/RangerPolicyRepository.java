@@ -26,6 +26,7 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.ranger.authorization.hadoop.config.RangerConfiguration;
 import org.apache.ranger.plugin.contextenricher.RangerContextEnricher;
 import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicyDelta;
 import org.apache.ranger.plugin.model.RangerServiceDef;
 import org.apache.ranger.plugin.policyevaluator.RangerCachedPolicyEvaluator;
 import org.apache.ranger.plugin.policyevaluator.RangerOptimizedPolicyEvaluator;
@@ -40,15 +41,22 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinTask;
 
 class RangerPolicyRepository {
     private static final Log LOG = LogFactory.getLog(RangerPolicyRepository.class);
 
     private static final Log PERF_CONTEXTENRICHER_INIT_LOG = RangerPerfTracer.getPerfLogger("contextenricher.init");
+    private static final Log PERF_POLICYENGINE_INIT_LOG    = RangerPerfTracer.getPerfLogger("policyengine.init");
+
+    // policies are handed to threads of the init pool in batches of at least this size
+    private static final int MIN_POLICIES_PER_INIT_TASK = 16;
 
     enum AuditModeEnum {
         AUDIT_ALL, AUDIT_NONE, AUDIT_DEFAULT
@@ -106,30 +114,9 @@ class RangerPolicyRepository {
             LOG.debug("RangerPolicyRepository : building resource-policy-repository for service " + serviceName);
         }
 
-        String auditMode = servicePolicies.getAuditMode();
-
-        if (StringUtils.equals(auditMode, RangerPolicyEngine.AUDIT_ALL)) {
-            auditModeEnum = AuditModeEnum.AUDIT_ALL;
-        } else if (StringUtils.equals(auditMode, RangerPolicyEngine.AUDIT_NONE)) {
-            auditModeEnum = AuditModeEnum.AUDIT_NONE;
-        } else {
-            auditModeEnum = AuditModeEnum.AUDIT_DEFAULT;
-        }
-
-        if (auditModeEnum == AuditModeEnum.AUDIT_DEFAULT) {
-            String propertyName = "ranger.plugin." + serviceName + ".policyengine.auditcachesize";
+        this.auditModeEnum = getAuditModeEnum(servicePolicies.getAuditMode());
 
-            if (options.cacheAuditResults) {
-                final int RANGER_POLICYENGINE_AUDITRESULT_CACHE_SIZE = 64 * 1024;
-
-                int auditResultCacheSize = RangerConfiguration.getInstance().getInt(propertyName, RANGER_POLICYENGINE_AUDITRESULT_CACHE_SIZE);
-                accessAuditCache = Collections.synchronizedMap(new CacheMap<String, AuditInfo>(auditResultCacheSize));
-            } else {
-                accessAuditCache = null;
-            }
-        } else {
-            this.accessAuditCache = null;
-        }
+        this.accessAuditCache = createAccessAuditCache(options);
 
         if(LOG.isDebugEnabled()) {
             LOG.debug("RangerPolicyRepository : building policy-repository for service[" + serviceName
@@ -143,9 +130,9 @@ class RangerPolicyRepository {
             dataMaskResourceTrie  = null;
             rowFilterResourceTrie = null;
         } else {
-            policyResourceTrie    = createResourceTrieMap(policyEvaluators);
-            dataMaskResourceTrie  = createResourceTrieMap(dataMaskPolicyEvaluators);
-            rowFilterResourceTrie = createResourceTrieMap(rowFilterPolicyEvaluators);
+            policyResourceTrie    = createResourceTrieMap(policyEvaluators, options);
+            dataMaskResourceTrie  = createResourceTrieMap(dataMaskPolicyEvaluators, options);
+            rowFilterResourceTrie = createResourceTrieMap(rowFilterPolicyEvaluators, options);
         }
     }
 
@@ -164,15 +151,7 @@ class RangerPolicyRepository {
         this.policies = Collections.unmodifiableList(normalizeAndPrunePolicies(tagPolicies.getPolicies(), componentServiceDef.getName()));
         this.policyVersion = tagPolicies.getPolicyVersion() != null ? tagPolicies.getPolicyVersion() : -1;
 
-        String auditMode = tagPolicies.getAuditMode();
-
-        if (StringUtils.equals(auditMode, RangerPolicyEngine.AUDIT_ALL)) {
-            auditModeEnum = AuditModeEnum.AUDIT_ALL;
-        } else if (StringUtils.equals(auditMode, RangerPolicyEngine.AUDIT_NONE)) {
-            auditModeEnum = AuditModeEnum.AUDIT_NONE;
-        } else {
-            auditModeEnum = AuditModeEnum.AUDIT_DEFAULT;
-        }
+        this.auditModeEnum = getAuditModeEnum(tagPolicies.getAuditMode());
 
         this.accessAuditCache = null;
 
@@ -188,12 +167,132 @@ class RangerPolicyRepository {
             dataMaskResourceTrie  = null;
             rowFilterResourceTrie = null;
         } else {
-            policyResourceTrie    = createResourceTrieMap(policyEvaluators);
-            dataMaskResourceTrie  = createResourceTrieMap(dataMaskPolicyEvaluators);
-            rowFilterResourceTrie = createResourceTrieMap(rowFilterPolicyEvaluators);
+            policyResourceTrie    = createResourceTrieMap(policyEvaluators, options);
+            dataMaskResourceTrie  = createResourceTrieMap(dataMaskPolicyEvaluators, options);
+            rowFilterResourceTrie = createResourceTrieMap(rowFilterPolicyEvaluators, options);
         }
     }
 
+    /*
+     * Creates a repository for the given policies, which are those of 'other' with the given deltas applied. Evaluators are built
+     * only for created/updated policies; other evaluators, context enrichers and unchanged nodes of resource tries are shared
+     * with 'other', which is not modified and continues to serve requests that are evaluated with it.
+     */
+    private RangerPolicyRepository(RangerPolicyRepository other, ServicePolicies servicePolicies, Set<Long> changedPolicyIds, RangerPolicyEngineOptions options) {
+        super();
+
+        this.serviceName          = other.serviceName;
+        this.componentServiceName = other.componentServiceName;
+        this.serviceDef           = other.serviceDef;
+        this.componentServiceDef  = other.componentServiceDef;
+        this.appId                = other.appId;
+        this.auditModeEnum        = other.auditModeEnum;
+
+        this.policies      = Collections.unmodifiableList(servicePolicies.getPolicies());
+        this.policyVersion = servicePolicies.getPolicyVersion() != null ? servicePolicies.getPolicyVersion() : -1;
+
+        this.accessAuditCache = createAccessAuditCache(options);
+
+        List<RangerPolicyEvaluator> removedPolicyEvaluators          = new ArrayList<RangerPolicyEvaluator>();
+        List<RangerPolicyEvaluator> removedDataMaskPolicyEvaluators  = new ArrayList<RangerPolicyEvaluator>();
+        List<RangerPolicyEvaluator> removedRowFilterPolicyEvaluators = new ArrayList<RangerPolicyEvaluator>();
+        List<RangerPolicyEvaluator> addedPolicyEvaluators            = new ArrayList<RangerPolicyEvaluator>();
+        List<RangerPolicyEvaluator> addedDataMaskPolicyEvaluators    = new ArrayList<RangerPolicyEvaluator>();
+        List<RangerPolicyEvaluator> addedRowFilterPolicyEvaluators   = new ArrayList<RangerPolicyEvaluator>();
+
+        List<RangerPolicyEvaluator> policyEvaluators          = getUnchangedPolicyEvaluators(other.policyEvaluators, changedPolicyIds, removedPolicyEvaluators);
+        List<RangerPolicyEvaluator> dataMaskPolicyEvaluators  = getUnchangedPolicyEvaluators(other.dataMaskPolicyEvaluators, changedPolicyIds, removedDataMaskPolicyEvaluators);
+        List<RangerPolicyEvaluator> rowFilterPolicyEvaluators = getUnchangedPolicyEvaluators(other.rowFilterPolicyEvaluators, changedPolicyIds, removedRowFilterPolicyEvaluators);
+
+        List<RangerPolicy> changedPolicies = new ArrayList<RangerPolicy>();
+
+        for (RangerPolicy policy : policies) {
+            if (changedPolicyIds.contains(policy.getId())) {
+                changedPolicies.add(policy);
+            }
+        }
+
+        List<RangerPolicyEvaluator> changedPolicyEvaluators = buildPolicyEvaluators(changedPolicies, options);
+
+        for (int i = 0; i < changedPolicies.size(); i++) {
+            RangerPolicy          policy    = changedPolicies.get(i);
+            RangerPolicyEvaluator evaluator = changedPolicyEvaluators.get(i);
+
+            if (evaluator != null) {
+                if(policy.getPolicyType() == null || policy.getPolicyType() == RangerPolicy.POLICY_TYPE_ACCESS) {
+                    addedPolicyEvaluators.add(evaluator);
+                } else if(policy.getPolicyType() == RangerPolicy.POLICY_TYPE_DATAMASK) {
+                    addedDataMaskPolicyEvaluators.add(evaluator);
+                } else if(policy.getPolicyType() == RangerPolicy.POLICY_TYPE_ROWFILTER) {
+                    addedRowFilterPolicyEvaluators.add(evaluator);
+                } else {
+                    LOG.warn("RangerPolicyEngine: ignoring policy id=" + policy.getId() + " - invalid policyType '" + policy.getPolicyType() + "'");
+                }
+            }
+        }
+
+        policyEvaluators.addAll(addedPolicyEvaluators);
+        Collections.sort(policyEvaluators);
+        this.policyEvaluators = Collections.unmodifiableList(policyEvaluators);
+
+        dataMaskPolicyEvaluators.addAll(addedDataMaskPolicyEvaluators);
+        Collections.sort(dataMaskPolicyEvaluators);
+        this.dataMaskPolicyEvaluators = Collections.unmodifiableList(dataMaskPolicyEvaluators);
+
+        rowFilterPolicyEvaluators.addAll(addedRowFilterPolicyEvaluators);
+        Collections.sort(rowFilterPolicyEvaluators);
+        this.rowFilterPolicyEvaluators = Collections.unmodifiableList(rowFilterPolicyEvaluators);
+
+        if (CollectionUtils.isEmpty(other.contextEnrichers) && CollectionUtils.isNotEmpty(this.policyEvaluators)) {
+            this.contextEnrichers = buildContextEnrichers(options);
+        } else {
+            this.contextEnrichers = other.contextEnrichers;
+        }
+
+        if(options.disableTrieLookupPrefilter) {
+            policyResourceTrie    = null;
+            dataMaskResourceTrie  = null;
+            rowFilterResourceTrie = null;
+        } else {
+            policyResourceTrie    = updateResourceTrieMap(other.policyResourceTrie, this.policyEvaluators, removedPolicyEvaluators, addedPolicyEvaluators, options);
+            dataMaskResourceTrie  = updateResourceTrieMap(other.dataMaskResourceTrie, this.dataMaskPolicyEvaluators, removedDataMaskPolicyEvaluators, addedDataMaskPolicyEvaluators, options);
+            rowFilterResourceTrie = updateResourceTrieMap(other.rowFilterResourceTrie, this.rowFilterPolicyEvaluators, removedRowFilterPolicyEvaluators, addedRowFilterPolicyEvaluators, options);
+        }
+    }
+
+    /*
+     * Returns a repository for the given servicePolicies, built by applying its policy deltas to this repository; returns null
+     * if servicePolicies is not the result of applying its deltas to policies of this repository, in which case a new
+     * repository must be built with all policies.
+     */
+    RangerPolicyRepository cloneWithDeltas(ServicePolicies servicePolicies, RangerPolicyEngineOptions options) {
+        if(LOG.isDebugEnabled()) {
+            LOG.debug("==> RangerPolicyRepository.cloneWithDeltas(serviceName=" + serviceName + ", fromVersion=" + policyVersion + ", toVersion=" + servicePolicies.getPolicyVersion() + ")");
+        }
+
+        RangerPolicyRepository  ret          = null;
+        List<RangerPolicyDelta> policyDeltas = servicePolicies.getPolicyDeltas();
+
+        if (policyDeltas != null && StringUtils.equals(serviceName, servicePolicies.getServiceName()) && serviceDef == servicePolicies.getServiceDef()
+                && auditModeEnum == getAuditModeEnum(servicePolicies.getAuditMode()) && servicePolicies.getPolicies() != null) {
+            Set<Long> changedPolicyIds = new HashSet<Long>();
+
+            for (RangerPolicyDelta policyDelta : policyDeltas) {
+                changedPolicyIds.add(policyDelta.getPolicyId());
+            }
+
+            if (isUnchangedPolicies(servicePolicies.getPolicies(), changedPolicyIds)) {
+                ret = new RangerPolicyRepository(this, servicePolicies, changedPolicyIds, options);
+            }
+        }
+
+        if(LOG.isDebugEnabled()) {
+            LOG.debug("<== RangerPolicyRepository.cloneWithDeltas(serviceName=" + serviceName + ", fromVersion=" + policyVersion + ", toVersion=" + servicePolicies.getPolicyVersion() + "): " + (ret != null ? "deltas applied" : "deltas not applicable"));
+        }
+
+        return ret;
+    }
+
     public String getServiceName() { return serviceName; }
 
     public RangerServiceDef getServiceDef() {
@@ -217,7 +316,17 @@ class RangerPolicyRepository {
     List<RangerPolicyEvaluator> getPolicyEvaluators(RangerAccessResource resource) {
        String resourceStr = resource == null ? null : resource.getAsString();
 
-       return policyResourceTrie == null || StringUtils.isEmpty(resourceStr)  ? getPolicyEvaluators() : getPolicyEvaluators(policyResourceTrie, resource);
+       return policyResourceTrie == null || StringUtils.isEmpty(resourceStr)  ? getPolicyEvaluators() : getPolicyEvaluators(policyResourceTrie, resource, null);
+    }
+
+    /*
+     * Same as getPolicyEvaluators(resource), with trie lookups remembered in trieLookups - keyed on resource-name and value -
+     * so that requests of a batch sharing a resource prefix, like columns of a table, look up each prefix only once
+     */
+    List<RangerPolicyEvaluator> getPolicyEvaluators(RangerAccessResource resource, Map<String, Map<String, List<RangerPolicyEvaluator>>> trieLookups) {
+       String resourceStr = resource == null ? null : resource.getAsString();
+
+       return policyResourceTrie == null || StringUtils.isEmpty(resourceStr)  ? getPolicyEvaluators() : getPolicyEvaluators(policyResourceTrie, resource, trieLookups);
     }
 
     List<RangerPolicyEvaluator> getDataMaskPolicyEvaluators() {
@@ -227,7 +336,7 @@ class RangerPolicyRepository {
     List<RangerPolicyEvaluator> getDataMaskPolicyEvaluators(RangerAccessResource resource) {
         String resourceStr = resource == null ? null : resource.getAsString();
 
-        return dataMaskResourceTrie == null || StringUtils.isEmpty(resourceStr)  ? getDataMaskPolicyEvaluators() : getPolicyEvaluators(dataMaskResourceTrie, resource);
+        return dataMaskResourceTrie == null || StringUtils.isEmpty(resourceStr)  ? getDataMaskPolicyEvaluators() : getPolicyEvaluators(dataMaskResourceTrie, resource, null);
     }
 
     List<RangerPolicyEvaluator> getRowFilterPolicyEvaluators() {
@@ -237,11 +346,11 @@ class RangerPolicyRepository {
     List<RangerPolicyEvaluator> getRowFilterPolicyEvaluators(RangerAccessResource resource) {
         String resourceStr = resource == null ? null : resource.getAsString();
 
-        return rowFilterResourceTrie == null || StringUtils.isEmpty(resourceStr)  ? getRowFilterPolicyEvaluators() : getPolicyEvaluators(rowFilterResourceTrie, resource);
+        return rowFilterResourceTrie == null || StringUtils.isEmpty(resourceStr)  ? getRowFilterPolicyEvaluators() : getPolicyEvaluators(rowFilterResourceTrie, resource, null);
     }
     AuditModeEnum getAuditModeEnum() { return auditModeEnum; }
 
-    private List<RangerPolicyEvaluator> getPolicyEvaluators(Map<String, RangerResourceTrie> resourceTrie, RangerAccessResource resource) {
+    private List<RangerPolicyEvaluator> getPolicyEvaluators(Map<String, RangerResourceTrie> resourceTrie, RangerAccessResource resource, Map<String, Map<String, List<RangerPolicyEvaluator>>> trieLookups) {
         List<RangerPolicyEvaluator> ret          = null;
         Set<String>                 resourceKeys = resource == null ? null : resource.getKeys();
 
@@ -255,7 +364,7 @@ class RangerPolicyRepository {
                     continue;
                 }
 
-                List<RangerPolicyEvaluator> resourceEvaluators = trie.getEvaluatorsForResource(resource.getValue(resourceName));
+                List<RangerPolicyEvaluator> resourceEvaluators = trieLookups == null ? trie.getEvaluatorsForResource(resource.getValue(resourceName)) : getEvaluatorsForResource(trie, resourceName, resource.getValue(resourceName), trieLookups);
 
                 if(CollectionUtils.isEmpty(resourceEvaluators)) { // no policies for this resource, bail out
                     ret = null;
@@ -300,6 +409,102 @@ class RangerPolicyRepository {
         return ret;
     }
 
+    private static List<RangerPolicyEvaluator> getEvaluatorsForResource(RangerResourceTrie trie, String resourceName, String resourceValue, Map<String, Map<String, List<RangerPolicyEvaluator>>> trieLookups) {
+        Map<String, List<RangerPolicyEvaluator>> valueLookups = trieLookups.get(resourceName);
+
+        if(valueLookups == null) {
+            valueLookups = new HashMap<>();
+
+            trieLookups.put(resourceName, valueLookups);
+        }
+
+        List<RangerPolicyEvaluator> ret = valueLookups.get(resourceValue);
+
+        if(ret == null && !valueLookups.containsKey(resourceValue)) {
+            ret = trie.getEvaluatorsForResource(resourceValue);
+
+            valueLookups.put(resourceValue, ret);
+        }
+
+        return ret;
+    }
+
+    private Map<String, AuditInfo> createAccessAuditCache(RangerPolicyEngineOptions options) {
+        final Map<String, AuditInfo> ret;
+
+        if (auditModeEnum == AuditModeEnum.AUDIT_DEFAULT && options.cacheAuditResults) {
+            final int RANGER_POLICYENGINE_AUDITRESULT_CACHE_SIZE = 64 * 1024;
+
+            String propertyName         = "ranger.plugin." + serviceName + ".policyengine.auditcachesize";
+            int    auditResultCacheSize = RangerConfiguration.getInstance().getInt(propertyName, RANGER_POLICYENGINE_AUDITRESULT_CACHE_SIZE);
+
+            ret = Collections.synchronizedMap(new CacheMap<String, AuditInfo>(auditResultCacheSize));
+        } else {
+            ret = null;
+        }
+
+        return ret;
+    }
+
+    private static AuditModeEnum getAuditModeEnum(String auditMode) {
+        final AuditModeEnum ret;
+
+        if (StringUtils.equals(auditMode, RangerPolicyEngine.AUDIT_ALL)) {
+            ret = AuditModeEnum.AUDIT_ALL;
+        } else if (StringUtils.equals(auditMode, RangerPolicyEngine.AUDIT_NONE)) {
+            ret = AuditModeEnum.AUDIT_NONE;
+        } else {
+            ret = AuditModeEnum.AUDIT_DEFAULT;
+        }
+
+        return ret;
+    }
+
+    // policies not in changedPolicyIds must be the very instances used to build this repository
+    private boolean isUnchangedPolicies(List<RangerPolicy> newPolicies, Set<Long> changedPolicyIds) {
+        Map<Long, RangerPolicy> unchangedPolicies = new HashMap<Long, RangerPolicy>();
+
+        for (RangerPolicy policy : policies) {
+            if (!changedPolicyIds.contains(policy.getId())) {
+                unchangedPolicies.put(policy.getId(), policy);
+            }
+        }
+
+        int unchangedCount = 0;
+
+        for (RangerPolicy policy : newPolicies) {
+            if (changedPolicyIds.contains(policy.getId())) {
+                continue;
+            }
+
+            if (unchangedPolicies.get(policy.getId()) != policy) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("RangerPolicyRepository.isUnchangedPolicies(): policy id=" + policy.getId() + " is not in version " + policyVersion + " of service " + serviceName);
+                }
+
+                return false;
+            }
+
+            unchangedCount++;
+        }
+
+        return unchangedCount == unchangedPolicies.size();
+    }
+
+    private static List<RangerPolicyEvaluator> getUnchangedPolicyEvaluators(List<RangerPolicyEvaluator> evaluators, Set<Long> changedPolicyIds, List<RangerPolicyEvaluator> removedEvaluators) {
+        List<RangerPolicyEvaluator> ret = new ArrayList<RangerPolicyEvaluator>(evaluators.size());
+
+        for (RangerPolicyEvaluator evaluator : evaluators) {
+            if (changedPolicyIds.contains(evaluator.getPolicy().getId())) {
+                removedEvaluators.add(evaluator);
+            } else {
+                ret.add(evaluator);
+            }
+        }
+
+        return ret;
+    }
+
     private RangerServiceDef normalizeAccessTypeDefs(RangerServiceDef serviceDef, final String componentType) {
 
         if (serviceDef != null && StringUtils.isNotBlank(componentType)) {
@@ -481,18 +686,44 @@ class RangerPolicyRepository {
         return ret;
     }
 
-    private void init(RangerPolicyEngineOptions options) {
+    private void init(final RangerPolicyEngineOptions options) {
+        RangerPerfTracer perf = null;
+
+        if(RangerPerfTracer.isPerfTraceEnabled(PERF_POLICYENGINE_INIT_LOG)) {
+            perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_INIT_LOG, "RangerPolicyRepository.init(serviceName=" + serviceName + ",policyCount=" + policies.size() + ",initThreadCount=" + options.initThreadCount + ")");
+        }
 
         List<RangerPolicyEvaluator> policyEvaluators = new ArrayList<RangerPolicyEvaluator>();
         List<RangerPolicyEvaluator> dataMaskPolicyEvaluators  = new ArrayList<RangerPolicyEvaluator>();
         List<RangerPolicyEvaluator> rowFilterPolicyEvaluators = new ArrayList<RangerPolicyEvaluator>();
 
-        for (RangerPolicy policy : policies) {
-            if (skipBuildingPolicyEvaluator(policy, options)) {
-                continue;
+        // when running in parallel, context enrichers are initialized while policy evaluators are being built
+        ForkJoinTask<List<RangerContextEnricher>> contextEnrichersTask = null;
+
+        if (RangerPolicyEngineInitPool.isParallel(options) && hasAccessPolicyToEvaluate(options)) {
+            contextEnrichersTask = RangerPolicyEngineInitPool.submit(new Callable<List<RangerContextEnricher>>() {
+                @Override
+                public List<RangerContextEnricher> call() {
+                    return buildContextEnrichers(options);
+                }
+            }, options.initThreadCount);
+        }
+
+        final List<RangerPolicyEvaluator> evaluators;
+
+        try {
+            evaluators = buildPolicyEvaluators(policies, options);
+        } catch (RuntimeException excp) {
+            if (contextEnrichersTask != null) {
+                cleanupContextEnrichers(contextEnrichersTask);
             }
 
-            RangerPolicyEvaluator evaluator = buildPolicyEvaluator(policy, serviceDef, options);
+            throw excp;
+        }
+
+        for (int i = 0; i < policies.size(); i++) {
+            RangerPolicy          policy    = policies.get(i);
+            RangerPolicyEvaluator evaluator = evaluators.get(i);
 
             if (evaluator != null) {
                 if(policy.getPolicyType() == null || policy.getPolicyType() == RangerPolicy.POLICY_TYPE_ACCESS) {
@@ -515,23 +746,17 @@ class RangerPolicyRepository {
         Collections.sort(rowFilterPolicyEvaluators);
         this.rowFilterPolicyEvaluators = Collections.unmodifiableList(rowFilterPolicyEvaluators);
 
-        List<RangerContextEnricher> contextEnrichers = new ArrayList<RangerContextEnricher>();
-        if (CollectionUtils.isNotEmpty(this.policyEvaluators)) {
-            if (!options.disableContextEnrichers && !CollectionUtils.isEmpty(serviceDef.getContextEnrichers())) {
-                for (RangerServiceDef.RangerContextEnricherDef enricherDef : serviceDef.getContextEnrichers()) {
-                    if (enricherDef == null) {
-                        continue;
-                    }
-
-                    RangerContextEnricher contextEnricher = buildContextEnricher(enricherDef);
-
-                    if (contextEnricher != null) {
-                        contextEnrichers.add(contextEnricher);
-                    }
-                }
-            }
+        List<RangerContextEnricher> contextEnrichers;
+        if (contextEnrichersTask != null) {
+            contextEnrichers = contextEnrichersTask.join();
+        } else if (CollectionUtils.isNotEmpty(this.policyEvaluators)) {
+            contextEnrichers = buildContextEnrichers(options);
+        } else {
+            contextEnrichers = Collections.emptyList();
         }
-        this.contextEnrichers = Collections.unmodifiableList(contextEnrichers);
+        this.contextEnrichers = contextEnrichers;
+
+        RangerPerfTracer.log(perf);
 
         if(LOG.isDebugEnabled()) {
             LOG.debug("policy evaluation order: " + this.policyEvaluators.size() + " policies");
@@ -561,6 +786,59 @@ class RangerPolicyRepository {
         }
     }
 
+    private List<RangerContextEnricher> buildContextEnrichers(RangerPolicyEngineOptions options) {
+        List<RangerContextEnricher> contextEnrichers = new ArrayList<RangerContextEnricher>();
+
+        if (!options.disableContextEnrichers && !CollectionUtils.isEmpty(serviceDef.getContextEnrichers())) {
+            List<RangerContextEnricher> enrichers = RangerPolicyEngineInitPool.map("contextEnrichers(serviceName=" + serviceName + ")", serviceDef.getContextEnrichers(), new RangerPolicyEngineInitPool.Task<RangerServiceDef.RangerContextEnricherDef, RangerContextEnricher>() {
+                @Override
+                public RangerContextEnricher run(RangerServiceDef.RangerContextEnricherDef enricherDef) {
+                    return enricherDef != null ? buildContextEnricher(enricherDef) : null;
+                }
+            }, options.initThreadCount, 1);
+
+            for (RangerContextEnricher contextEnricher : enrichers) {
+                if (contextEnricher != null) {
+                    contextEnrichers.add(contextEnricher);
+                }
+            }
+        }
+
+        return Collections.unmodifiableList(contextEnrichers);
+    }
+
+    private void cleanupContextEnrichers(ForkJoinTask<List<RangerContextEnricher>> contextEnrichersTask) {
+        try {
+            for (RangerContextEnricher contextEnricher : contextEnrichersTask.join()) {
+                contextEnricher.preCleanup();
+                contextEnricher.cleanup();
+            }
+        } catch (RuntimeException excp) {
+            LOG.warn("RangerPolicyRepository.cleanupContextEnrichers(): failed to cleanup context enrichers of service " + serviceName, excp);
+        }
+    }
+
+    // same as the condition for policyEvaluators to be non-empty after init()
+    private boolean hasAccessPolicyToEvaluate(RangerPolicyEngineOptions options) {
+        for (RangerPolicy policy : policies) {
+            if ((policy.getPolicyType() == null || policy.getPolicyType() == RangerPolicy.POLICY_TYPE_ACCESS) && !skipBuildingPolicyEvaluator(policy, options)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // returns evaluators in the order of the given policies, with null for policies that don't need an evaluator
+    private List<RangerPolicyEvaluator> buildPolicyEvaluators(List<RangerPolicy> policiesToEvaluate, final RangerPolicyEngineOptions options) {
+        return RangerPolicyEngineInitPool.map("policyEvaluators(serviceName=" + serviceName + ")", policiesToEvaluate, new RangerPolicyEngineInitPool.Task<RangerPolicy, RangerPolicyEvaluator>() {
+            @Override
+            public RangerPolicyEvaluator run(RangerPolicy policy) {
+                return skipBuildingPolicyEvaluator(policy, options) ? null : buildPolicyEvaluator(policy, serviceDef, options);
+            }
+        }, options.initThreadCount, MIN_POLICIES_PER_INIT_TASK);
+    }
+
     private RangerContextEnricher buildContextEnricher(RangerServiceDef.RangerContextEnricherDef enricherDef) {
         if(LOG.isDebugEnabled()) {
             LOG.debug("==> RangerPolicyRepository.buildContextEnricher(" + enricherDef + ")");
@@ -775,14 +1053,23 @@ class RangerPolicyRepository {
         return ret;
     }
 
-    private Map<String, RangerResourceTrie> createResourceTrieMap(List<RangerPolicyEvaluator> evaluators) {
+    private Map<String, RangerResourceTrie> createResourceTrieMap(final List<RangerPolicyEvaluator> evaluators, final RangerPolicyEngineOptions options) {
         final Map<String, RangerResourceTrie> ret;
 
         if (CollectionUtils.isNotEmpty(evaluators) && serviceDef != null && CollectionUtils.isNotEmpty(serviceDef.getResources())) {
+            List<RangerServiceDef.RangerResourceDef> resourceDefs = serviceDef.getResources();
+
+            List<RangerResourceTrie> tries = RangerPolicyEngineInitPool.map("resourceTries(serviceName=" + serviceName + ")", resourceDefs, new RangerPolicyEngineInitPool.Task<RangerServiceDef.RangerResourceDef, RangerResourceTrie>() {
+                @Override
+                public RangerResourceTrie run(RangerServiceDef.RangerResourceDef resourceDef) {
+                    return new RangerResourceTrie(resourceDef, evaluators, options.compactResourceTrie);
+                }
+            }, options.initThreadCount, 1);
+
             ret = new HashMap<String, RangerResourceTrie>();
 
-            for (RangerServiceDef.RangerResourceDef resourceDef : serviceDef.getResources()) {
-                ret.put(resourceDef.getName(), new RangerResourceTrie(resourceDef, evaluators));
+            for (int i = 0; i < resourceDefs.size(); i++) {
+                ret.put(resourceDefs.get(i).getName(), tries.get(i));
             }
         } else {
             ret = null;
@@ -791,6 +1078,25 @@ class RangerPolicyRepository {
         return ret;
     }
 
+    // compact tries are rebuilt, as they don't support copy-on-write updates
+    private Map<String, RangerResourceTrie> updateResourceTrieMap(Map<String, RangerResourceTrie> other, List<RangerPolicyEvaluator> evaluators, List<RangerPolicyEvaluator> removedEvaluators, List<RangerPolicyEvaluator> addedEvaluators, RangerPolicyEngineOptions options) {
+        final Map<String, RangerResourceTrie> ret;
+
+        if (removedEvaluators.isEmpty() && addedEvaluators.isEmpty()) {
+            ret = other;
+        } else if (other == null || options.compactResourceTrie || CollectionUtils.isEmpty(evaluators)) {
+            ret = createResourceTrieMap(evaluators, options);
+        } else {
+            ret = new HashMap<String, RangerResourceTrie>();
+
+            for (Map.Entry<String, RangerResourceTrie> entry : other.entrySet()) {
+                ret.put(entry.getKey(), new RangerResourceTrie(entry.getValue(), removedEvaluators, addedEvaluators));
+            }
+        }
+
+        return ret;
+    }
+
     @Override
     public String toString( ) {
         StringBuilder sb = new StringBuilder();
@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ranger.plugin.policyevaluator;
+
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.plugin.policyengine.CacheMap;
+import org.apache.ranger.plugin.policyengine.RangerAccessResource;
+
+/*
+ * Resource access cache split into independently locked segments, each holding an access-ordered
+ * CacheMap. Eviction is LRU within a segment, which approximates LRU over the whole cache while
+ * letting requests for resources in different segments proceed without contending on one lock.
+ */
+public class RangerConcurrentResourceAccessCache implements RangerResourceAccessCache {
+    private static final Log LOG = LogFactory.getLog(RangerConcurrentResourceAccessCache.class);
+
+    // a cache is created per policy, so segmentation is opt-in: with 1 segment, the non-segmented RangerResourceAccessCacheImpl is used
+    public static final int DEFAULT_SEGMENT_COUNT = 1;
+
+    private final String    name;
+    private final Segment[] matchedSegments;
+    private final Segment[] notMatchedSegments;
+    private final int       segmentMask;
+
+    private final AtomicLong matchedHitCount    = new AtomicLong();
+    private final AtomicLong notMatchedHitCount = new AtomicLong();
+    private final AtomicLong missCount          = new AtomicLong();
+
+    public RangerConcurrentResourceAccessCache(String name, int matchedCacheSize, int notMatchedCacheSize, int segmentCount) {
+        if(LOG.isDebugEnabled()) {
+            LOG.debug("==> RangerConcurrentResourceAccessCache(" + name + ", matchedCacheSize=" + matchedCacheSize + ", notMatchedCacheSize=" + notMatchedCacheSize + ", segmentCount=" + segmentCount + ")");
+        }
+
+        int numOfSegments = 1;
+
+        while(numOfSegments < segmentCount) {
+            numOfSegments <<= 1;
+        }
+
+        this.name               = name;
+        this.segmentMask        = numOfSegments - 1;
+        this.matchedSegments    = createSegments(numOfSegments, matchedCacheSize);
+        this.notMatchedSegments = createSegments(numOfSegments, notMatchedCacheSize);
+
+        if(LOG.isDebugEnabled()) {
+            LOG.debug("<== RangerConcurrentResourceAccessCache(" + name + ", matchedCacheSize=" + matchedCacheSize + ", notMatchedCacheSize=" + notMatchedCacheSize + ", segmentCount=" + numOfSegments + ")");
+        }
+    }
+
+    @Override
+    public LookupResult lookup(RangerAccessResource resource) {
+        String strResource = resource.getCacheKey();
+
+        if(LOG.isDebugEnabled()) {
+            LOG.debug("==> RangerConcurrentResourceAccessCache.lookup(" + strResource + ")");
+        }
+
+        LookupResult result = LookupResult.NOT_FOUND;
+
+        try {
+            int segmentIdx = getSegmentIndex(strResource);
+
+            if(matchedSegments[segmentIdx].contains(strResource)) {
+                result = LookupResult.IN_MATCHED_CACHE;
+
+                matchedHitCount.incrementAndGet();
+            } else if(notMatchedSegments[segmentIdx].contains(strResource)) {
+                result = LookupResult.IN_NOTMATCHED_CACHE;
+
+                notMatchedHitCount.incrementAndGet();
+            } else {
+                missCount.incrementAndGet();
+            }
+        } catch (Exception exception) {
+            result = LookupResult.ERROR;
+        }
+
+        if(LOG.isDebugEnabled()) {
+            LOG.debug("<== RangerConcurrentResourceAccessCache.lookup(" + strResource + "): " + result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void add(RangerAccessResource resource, CacheType cacheType) {
+        String strResource = resource.getCacheKey();
+
+        if(LOG.isDebugEnabled()) {
+            LOG.debug("==> RangerConcurrentResourceAccessCache.add(" + strResource + ", " + cacheType + ")");
+        }
+
+        int segmentIdx = getSegmentIndex(strResource);
+
+        switch (cacheType) {
+            case MATCHED_CACHE:
+                matchedSegments[segmentIdx].add(strResource);
+                break;
+
+            case NOTMATCHED_CACHE:
+                notMatchedSegments[segmentIdx].add(strResource);
+                break;
+
+            default:
+                break;
+        }
+
+        if(LOG.isDebugEnabled()) {
+            LOG.debug("<== RangerConcurrentResourceAccessCache.add(" + strResource + ", " + cacheType + ")");
+        }
+    }
+
+    public long getMatchedHitCount() {
+        return matchedHitCount.get();
+    }
+
+    public long getNotMatchedHitCount() {
+        return notMatchedHitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public int getSegmentCount() {
+        return segmentMask + 1;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("RangerConcurrentResourceAccessCache={");
+        sb.append("name={").append(name).append("} ");
+        sb.append("segmentCount={").append(getSegmentCount()).append("} ");
+        sb.append("matchedHitCount={").append(getMatchedHitCount()).append("} ");
+        sb.append("notMatchedHitCount={").append(getNotMatchedHitCount()).append("} ");
+        sb.append("missCount={").append(getMissCount()).append("} ");
+        sb.append("}");
+
+        return sb.toString();
+    }
+
+    private int getSegmentIndex(String key) {
+        int h = key.hashCode();
+
+        // spread the higher bits, as only the lower bits are used to pick the segment
+        h ^= (h >>> 16);
+
+        return h & segmentMask;
+    }
+
+    private static Segment[] createSegments(int numOfSegments, int cacheSize) {
+        Segment[] ret = new Segment[numOfSegments];
+
+        int segmentSize = Math.max(1, (cacheSize + numOfSegments - 1) / numOfSegments);
+
+        for(int i = 0; i < numOfSegments; i++) {
+            ret[i] = new Segment(segmentSize);
+        }
+
+        return ret;
+    }
+
+    private static final class Segment {
+        private final CacheMap<String, String> cache;
+
+        Segment(int capacity) {
+            cache = new CacheMap<String, String>(capacity);
+        }
+
+        // get(), rather than containsKey(), so that the entry is moved to the tail of the access order
+        synchronized boolean contains(String key) {
+            return cache.get(key) != null;
+        }
+
+        synchronized void add(String key) {
+            cache.put(key, key);
+        }
+    }
+}
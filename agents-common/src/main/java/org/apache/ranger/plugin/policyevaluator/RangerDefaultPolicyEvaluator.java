@@ -154,8 +154,13 @@ public class RangerDefaultPolicyEvaluator extends RangerAbstractPolicyEvaluator
 
     @Override
     public void evaluate(RangerAccessRequest request, RangerAccessResult result) {
+        evaluate(request, result, null);
+    }
+
+    @Override
+    public void evaluate(RangerAccessRequest request, RangerAccessResult result, RangerPolicyResourceMatcher.MatchType resourceMatchType) {
         if (LOG.isDebugEnabled()) {
-            LOG.debug("==> RangerDefaultPolicyEvaluator.evaluate(" + request + ", " + result + ")");
+            LOG.debug("==> RangerDefaultPolicyEvaluator.evaluate(" + request + ", " + result + ", " + resourceMatchType + ")");
         }
 
 		RangerPerfTracer perf = null;
@@ -168,7 +173,11 @@ public class RangerDefaultPolicyEvaluator extends RangerAbstractPolicyEvaluator
         if (request != null && result != null) {
 
 			if (!result.getIsAccessDetermined() || !result.getIsAuditedDetermined()) {
-				RangerPolicyResourceMatcher.MatchType matchType = resourceMatcher != null ? resourceMatcher.getMatchType(request.getResource(), request.getContext()) : RangerPolicyResourceMatcher.MatchType.NONE;
+				RangerPolicyResourceMatcher.MatchType matchType = resourceMatchType;
+
+				if (matchType == null) {
+					matchType = resourceMatcher != null ? resourceMatcher.getMatchType(request.getResource(), request.getContext()) : RangerPolicyResourceMatcher.MatchType.NONE;
+				}
 
 				final boolean isMatched;
 				if (request.isAccessTypeAny()) {
@@ -201,7 +210,7 @@ public class RangerDefaultPolicyEvaluator extends RangerAbstractPolicyEvaluator
 		RangerPerfTracer.log(perf);
 
         if(LOG.isDebugEnabled()) {
-            LOG.debug("<== RangerDefaultPolicyEvaluator.evaluate(" + request + ", " + result + ")");
+            LOG.debug("<== RangerDefaultPolicyEvaluator.evaluate(" + request + ", " + result + ", " + resourceMatchType + ")");
         }
     }
 
@@ -34,6 +34,7 @@ import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
 import org.apache.ranger.plugin.policyengine.RangerResourceAccessInfo;
 import org.apache.ranger.plugin.policyengine.RangerRowFilterResult;
 import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceEvaluator;
+import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher;
 
 
 public interface RangerPolicyEvaluator extends RangerPolicyResourceEvaluator {
@@ -67,6 +68,9 @@ public interface RangerPolicyEvaluator extends RangerPolicyResourceEvaluator {
 
 	void evaluate(RangerAccessRequest request, RangerAccessResult result);
 
+	// same as evaluate(request, result), with the match of policy resources to the request resource computed by the caller; null matchType computes it
+	void evaluate(RangerAccessRequest request, RangerAccessResult result, RangerPolicyResourceMatcher.MatchType matchType);
+
 	void evaluate(RangerAccessRequest request, RangerDataMaskResult result);
 
 	void evaluate(RangerAccessRequest request, RangerRowFilterResult result);
@@ -34,7 +34,16 @@ public class RangerResourceAccessCacheImpl implements RangerResourceAccessCache
     private static final Log LOG = LogFactory.getLog(RangerResourceAccessCacheImpl.class);
 
     public synchronized static RangerResourceAccessCache getInstance(RangerServiceDef serviceDef, RangerPolicy policy) {
-        return new RangerResourceAccessCacheImpl(policy);
+        int segmentCount = RangerConfiguration.getInstance().getInt("ranger.policyengine.resource.access.cache.segment.count", RangerConcurrentResourceAccessCache.DEFAULT_SEGMENT_COUNT);
+
+        if(segmentCount <= 1) {
+            return new RangerResourceAccessCacheImpl(policy);
+        }
+
+        int matchedCacheSize    = RangerConfiguration.getInstance().getInt("ranger.policyengine.matched.cached.count", 1000);
+        int notMatchedCacheSize = RangerConfiguration.getInstance().getInt("ranger.policyengine.not.matched.cached.count", matchedCacheSize * 10);
+
+        return new RangerConcurrentResourceAccessCache(policy.getName(), matchedCacheSize, notMatchedCacheSize, segmentCount);
     }
 
     private Map<String, String> matchedResourceCache    = null;
@@ -96,6 +96,12 @@ public class RangerBasePlugin {
 		return policyEngine != null ? policyEngine.getServiceDef() : null;
 	}
 
+	public long getPolicyVersion() {
+		RangerPolicyEngine policyEngine = this.policyEngine;
+
+		return policyEngine != null ? policyEngine.getPolicyVersion() : -1;
+	}
+
 	public int getServiceDefId() {
 		RangerServiceDef serviceDef = getServiceDef();
 
@@ -147,6 +153,9 @@ public class RangerBasePlugin {
 		policyEngineOptions.disableCustomConditions = RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".policyengine.option.disable.custom.conditions", false);
 		policyEngineOptions.disableTagPolicyEvaluation = RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".policyengine.option.disable.tagpolicy.evaluation", false);
 		policyEngineOptions.disableTrieLookupPrefilter = RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".policyengine.option.disable.trie.lookup.prefilter", false);
+		policyEngineOptions.compactResourceTrie = RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".policyengine.option.compact.resource.trie", false);
+		policyEngineOptions.cacheAccessDecisions = RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".policyengine.option.cache.access.decisions", false);
+		policyEngineOptions.initThreadCount = RangerConfiguration.getInstance().getInt(propertyPrefix + ".policyengine.option.init.thread.count", 1);
 
 		RangerAdminClient admin = createAdminClient(serviceName, appId, propertyPrefix);
 
@@ -193,7 +202,17 @@ public class RangerBasePlugin {
 			if (policies == null) {
 				this.policyEngine = null;
 			} else {
-				RangerPolicyEngine policyEngine = new RangerPolicyEngineImpl(appId, policies, policyEngineOptions);
+				RangerPolicyEngine policyEngine = null;
+
+				// with policy deltas, only the changed policies need to be processed
+				if (policies.getPolicyDeltas() != null && oldPolicyEngine instanceof RangerPolicyEngineImpl) {
+					policyEngine = ((RangerPolicyEngineImpl) oldPolicyEngine).cloneWithDeltas(policies, policyEngineOptions);
+				}
+
+				if (policyEngine == null) {
+					policyEngine = new RangerPolicyEngineImpl(appId, policies, policyEngineOptions);
+				}
+
 				policyEngine.setUseForwardedIPAddress(useForwardedIPAddress);
 				policyEngine.setTrustedProxyAddresses(trustedProxyAddresses);
 
@@ -264,12 +283,16 @@ public class RangerBasePlugin {
 	}
 
 	public Collection<RangerAccessResult> isAccessAllowed(Collection<RangerAccessRequest> requests, RangerAccessResultProcessor resultProcessor) {
+		return isAccessAllowed(requests, resultProcessor, false);
+	}
+
+	public Collection<RangerAccessResult> isAccessAllowed(Collection<RangerAccessRequest> requests, RangerAccessResultProcessor resultProcessor, boolean stopOnDeny) {
 		RangerPolicyEngine policyEngine = this.policyEngine;
 
 		if(policyEngine != null) {
 			policyEngine.preProcess(requests);
 
-			return policyEngine.isAccessAllowed(requests, resultProcessor);
+			return policyEngine.isAccessAllowed(requests, resultProcessor, stopOnDeny);
 		}
 
 		return null;
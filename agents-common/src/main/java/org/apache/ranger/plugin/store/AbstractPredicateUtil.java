@@ -20,6 +20,7 @@
 package org.apache.ranger.plugin.store;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
@@ -37,6 +38,7 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.ranger.plugin.model.RangerBaseModelObject;
 import org.apache.ranger.plugin.model.RangerPolicy;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
 import org.apache.ranger.plugin.model.RangerService;
 import org.apache.ranger.plugin.model.RangerServiceDef;
@@ -64,6 +66,21 @@ public class AbstractPredicateUtil {
 		}
 	}
 
+	/*
+	 * Keeps policies that refer to the given user or to any of the given groups, in one pass over the policies
+	 */
+	public void applyUserOrGroupsFilter(List<? extends RangerBaseModelObject> objList, String userName, Collection<String> groupNames) {
+		if(CollectionUtils.isEmpty(objList)) {
+			return;
+		}
+
+		Predicate pred = addPredicateForUserOrGroups(userName, groupNames, null);
+
+		if(pred != null) {
+			CollectionUtils.filter(objList, pred);
+		}
+	}
+
 	public Predicate getPredicate(SearchFilter filter) {
 		if(filter == null || filter.isEmpty()) {
 			return null;
@@ -91,6 +108,7 @@ public class AbstractPredicateUtil {
 		// addPredicateForTagServiceId(filter.getParam(SearchFilter.TAG_SERVICE_ID), predicates); // not supported
 		addPredicateForUserName(filter.getParam(SearchFilter.USER), predicates);
 		addPredicateForGroupName(filter.getParam(SearchFilter.GROUP), predicates);
+		addPredicateForAccessType(filter.getParam(SearchFilter.ACCESS_TYPE), predicates);
 		addPredicateForResources(filter.getParamsWithPrefix(SearchFilter.RESOURCE_PREFIX, true), predicates);
 		addPredicateForPolicyResource(filter.getParam(SearchFilter.POL_RESOURCE), predicates);
 		addPredicateForPartialPolicyName(filter.getParam(SearchFilter.POLICY_NAME_PARTIAL), predicates);
@@ -541,6 +559,122 @@ public class AbstractPredicateUtil {
 		return ret;
 	}
 
+	private Predicate addPredicateForUserOrGroups(final String userName, final Collection<String> groupNames, List<Predicate> predicates) {
+		if(StringUtils.isEmpty(userName) && CollectionUtils.isEmpty(groupNames)) {
+			return null;
+		}
+
+		Predicate ret = new Predicate() {
+			@Override
+			public boolean evaluate(Object object) {
+				if(object == null) {
+					return false;
+				}
+
+				boolean ret = false;
+
+				if(object instanceof RangerPolicy) {
+					RangerPolicy policy = (RangerPolicy)object;
+
+					List<?>[] policyItemsList = new List<?>[] { policy.getPolicyItems(),
+							policy.getDenyPolicyItems(),
+							policy.getAllowExceptions(),
+							policy.getDenyExceptions(),
+							policy.getDataMaskPolicyItems(),
+							policy.getRowFilterPolicyItems()
+						  };
+
+					for(List<?> policyItemsObj : policyItemsList) {
+						@SuppressWarnings("unchecked")
+						List<RangerPolicyItem> policyItems = (List<RangerPolicyItem>)policyItemsObj;
+
+						for(RangerPolicyItem policyItem : policyItems) {
+							if((userName != null && policyItem.getUsers().contains(userName))
+									|| (groupNames != null && CollectionUtils.containsAny(groupNames, policyItem.getGroups()))) {
+								ret = true;
+
+								break;
+							}
+						}
+						if (ret) {
+							break;
+						}
+					}
+				} else {
+					ret = true;
+				}
+
+				return ret;
+			}
+		};
+
+		if(predicates != null) {
+			predicates.add(ret);
+		}
+
+		return ret;
+	}
+
+	private Predicate addPredicateForAccessType(final String accessType, List<Predicate> predicates) {
+		if(StringUtils.isEmpty(accessType)) {
+			return null;
+		}
+
+		Predicate ret = new Predicate() {
+			@Override
+			public boolean evaluate(Object object) {
+				if(object == null) {
+					return false;
+				}
+
+				boolean ret = false;
+
+				if(object instanceof RangerPolicy) {
+					RangerPolicy policy = (RangerPolicy)object;
+
+					List<?>[] policyItemsList = new List<?>[] { policy.getPolicyItems(),
+							policy.getDenyPolicyItems(),
+							policy.getAllowExceptions(),
+							policy.getDenyExceptions(),
+							policy.getDataMaskPolicyItems(),
+							policy.getRowFilterPolicyItems()
+						  };
+
+					for(List<?> policyItemsObj : policyItemsList) {
+						@SuppressWarnings("unchecked")
+						List<RangerPolicyItem> policyItems = (List<RangerPolicyItem>)policyItemsObj;
+
+						for(RangerPolicyItem policyItem : policyItems) {
+							for(RangerPolicyItemAccess access : policyItem.getAccesses()) {
+								if(StringUtils.equalsIgnoreCase(accessType, access.getType())) {
+									ret = true;
+
+									break;
+								}
+							}
+							if (ret) {
+								break;
+							}
+						}
+						if (ret) {
+							break;
+						}
+					}
+				} else {
+					ret = true;
+				}
+
+				return ret;
+			}
+		};
+
+		if(predicates != null) {
+			predicates.add(ret);
+		}
+
+		return ret;
+	}
+
 	private Predicate addPredicateForIsEnabled(final String status, List<Predicate> predicates) {
 		if(StringUtils.isEmpty(status)) {
 			return null;
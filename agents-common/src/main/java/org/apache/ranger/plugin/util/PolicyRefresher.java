@@ -29,6 +29,7 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.ranger.admin.client.RangerAdminClient;
+import org.apache.ranger.admin.client.RangerAdminVersionWatcher;
 import org.apache.ranger.authorization.hadoop.config.RangerConfiguration;
 import org.apache.ranger.plugin.service.RangerBasePlugin;
 
@@ -49,12 +50,16 @@ public class PolicyRefresher extends Thread {
 	private final String            cacheDir;
 	private final Gson              gson;
 	private final boolean           disableCacheIfServiceNotFound;
+	private final long              longPollTimeoutMs;
+	private RangerAdminVersionWatcher versionWatcher;
 
 	private long 	pollingIntervalMs   = 30 * 1000;
 	private long 	lastKnownVersion    = -1L;
 	private long	lastActivationTimeInMillis;
 	private boolean policiesSetInPlugin;
 	private boolean serviceDefSetInPlugin;
+	private ServicePolicies lastKnownPolicies;
+	private Long    lastNotifiedVersion;
 
 	public PolicyRefresher(RangerBasePlugin plugIn, String serviceType, String appId, String serviceName, RangerAdminClient rangerAdmin, long pollingIntervalMs, String cacheDir) {
 		if(LOG.isDebugEnabled()) {
@@ -89,6 +94,11 @@ public class PolicyRefresher extends Thread {
 		String propertyPrefix    = "ranger.plugin." + serviceType;
 		disableCacheIfServiceNotFound = RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".disable.cache.if.servicenotfound", true);
 
+		boolean isLongPollEnabled = RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".policy.longpoll.enabled", true);
+
+		this.longPollTimeoutMs = RangerConfiguration.getInstance().getLong(propertyPrefix + ".policy.longpoll.timeoutMs", 120 * 1000);
+		this.versionWatcher    = (isLongPollEnabled && rangerAdmin instanceof RangerAdminVersionWatcher) ? (RangerAdminVersionWatcher) rangerAdmin : null;
+
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("<== PolicyRefresher(serviceName=" + serviceName + ").PolicyRefresher()");
 		}
@@ -167,10 +177,15 @@ public class PolicyRefresher extends Thread {
 			LOG.debug("==> PolicyRefresher(serviceName=" + serviceName + ").run()");
 		}
 
+		boolean isLoadNeeded = true;
+
 		while(true) {
-			loadPolicy();
+			if (isLoadNeeded) {
+				loadPolicy();
+			}
+
 			try {
-				Thread.sleep(pollingIntervalMs);
+				isLoadNeeded = waitForPolicyChange();
 			} catch(InterruptedException excp) {
 				LOG.info("PolicyRefresher(serviceName=" + serviceName + ").run(): interrupted! Exiting thread", excp);
 				break;
@@ -182,6 +197,43 @@ public class PolicyRefresher extends Thread {
 		}
 	}
 
+	/*
+	 * Waits for policies to change in Ranger Admin, if it supports long-polling; otherwise sleeps for pollingIntervalMs.
+	 * Returns false if the long-poll timed out without a change, in which case policies need not be downloaded.
+	 */
+	private boolean waitForPolicyChange() throws InterruptedException {
+		// avoid repeated immediate retries when the last notified change could not be loaded
+		boolean isLastChangeLoaded = lastNotifiedVersion == null || lastNotifiedVersion.longValue() == lastKnownVersion;
+
+		if (versionWatcher != null && isLastChangeLoaded) {
+			lastNotifiedVersion = null;
+
+			try {
+				lastNotifiedVersion = versionWatcher.waitForPolicyVersionChange(lastKnownVersion, longPollTimeoutMs);
+
+				if (LOG.isDebugEnabled()) {
+					LOG.debug("PolicyRefresher(serviceName=" + serviceName + ").waitForPolicyChange(lastKnownVersion=" + lastKnownVersion + "): newVersion=" + lastNotifiedVersion);
+				}
+
+				return lastNotifiedVersion != null;
+			} catch (InterruptedException excp) {
+				throw excp;
+			} catch (UnsupportedOperationException excp) {
+				LOG.info("PolicyRefresher(serviceName=" + serviceName + "): " + excp.getMessage() + ". Will poll for changes every " + pollingIntervalMs + "ms");
+
+				versionWatcher = null;
+			} catch (Exception excp) {
+				LOG.warn("PolicyRefresher(serviceName=" + serviceName + "): failed to wait for policy changes. Will retry in " + pollingIntervalMs + "ms", excp);
+			}
+		}
+
+		lastNotifiedVersion = null;
+
+		Thread.sleep(pollingIntervalMs);
+
+		return true;
+	}
+
 	private void loadPolicy() {
 
 		if(LOG.isDebugEnabled()) {
@@ -199,12 +251,14 @@ public class PolicyRefresher extends Thread {
 
 		try {
 			//load policy from PolicyAdmin
-			ServicePolicies svcPolicies = loadPolicyfromPolicyAdmin();
+			ServicePolicies svcPolicies     = loadPolicyfromPolicyAdmin();
+			boolean         loadedFromCache = false;
 
 			if (svcPolicies == null) {
 				//if Policy fetch from Policy Admin Fails, load from cache
 				if (!policiesSetInPlugin) {
-					svcPolicies = loadFromCache();
+					svcPolicies     = loadFromCache();
+					loadedFromCache = svcPolicies != null;
 				}
 			} else {
 				saveToCache(svcPolicies);
@@ -220,9 +274,21 @@ public class PolicyRefresher extends Thread {
 
 			if (svcPolicies != null) {
 				plugIn.setPolicies(svcPolicies);
+
+				// setPolicies() leaves the current policy engine as-is on failure. Cached policies not applied must not be
+				// taken as the last known version: it would suppress the next download, or have deltas requested from it
+				if (loadedFromCache && plugIn.getPolicyVersion() != (svcPolicies.getPolicyVersion() == null ? -1 : svcPolicies.getPolicyVersion().longValue())) {
+					LOG.warn("PolicyRefresher(serviceName=" + serviceName + "): failed to apply policies from cache (version=" + svcPolicies.getPolicyVersion() + "). Will download policies in next refresh");
+
+					svcPolicies = null;
+				}
+			}
+
+			if (svcPolicies != null) {
 				policiesSetInPlugin = true;
 				setLastActivationTimeInMillis(System.currentTimeMillis());
 				lastKnownVersion = svcPolicies.getPolicyVersion();
+				lastKnownPolicies = svcPolicies;
 			} else {
 				if (!policiesSetInPlugin && !serviceDefSetInPlugin) {
 					plugIn.setPolicies(null);
@@ -235,6 +301,7 @@ public class PolicyRefresher extends Thread {
 				plugIn.setPolicies(null);
 				setLastActivationTimeInMillis(System.currentTimeMillis());
 				lastKnownVersion = -1;
+				lastKnownPolicies = null;
 				serviceDefSetInPlugin = true;
 			}
 		} catch (Exception excp) {
@@ -276,6 +343,22 @@ public class PolicyRefresher extends Thread {
 
 				LOG.info("PolicyRefresher(serviceName=" + serviceName + "): found updated version. lastKnownVersion=" + lastKnownVersion + "; newVersion=" + newVersion);
 
+				if(svcPolicies.getPolicyDeltas() != null) {
+					ServicePolicies mergedPolicies = RangerPolicyDeltaUtil.applyDeltas(lastKnownPolicies, svcPolicies);
+
+					if(mergedPolicies != null) {
+						if(LOG.isDebugEnabled()) {
+							LOG.debug("PolicyRefresher(serviceName=" + serviceName + "): applied " + svcPolicies.getPolicyDeltas().size() + " policy deltas to version " + lastKnownVersion);
+						}
+					} else {
+						LOG.warn("PolicyRefresher(serviceName=" + serviceName + "): failed to apply policy deltas to version " + lastKnownVersion + ". Will download all policies in next refresh");
+
+						lastKnownVersion = -1;
+					}
+
+					svcPolicies = mergedPolicies;
+				}
+
 			} else {
 				if(LOG.isDebugEnabled()) {
 					LOG.debug("PolicyRefresher(serviceName=" + serviceName + ").run(): no update found. lastKnownVersion=" + lastKnownVersion);
@@ -330,7 +413,8 @@ public class PolicyRefresher extends Thread {
 		        		policies.setServiceName(serviceName);
 		        	}
 
-		        	lastKnownVersion = policies.getPolicyVersion() == null ? -1 : policies.getPolicyVersion().longValue();
+		        	// deltas saved along with the policies were applied to an engine that no longer exists
+		        	policies.setPolicyDeltas(null);
 		         }
 	        } catch (Exception excp) {
 	        	LOG.error("failed to load policies from cache file " + cacheFile.getAbsolutePath(), excp);
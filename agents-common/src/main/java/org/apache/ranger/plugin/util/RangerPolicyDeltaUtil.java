@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang.ObjectUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicyDelta;
+
+public class RangerPolicyDeltaUtil {
+	private static final Log LOG = LogFactory.getLog(RangerPolicyDeltaUtil.class);
+
+	/*
+	 * Computes the changes needed to go from oldPolicies to newPolicies. Policies are matched on id;
+	 * a policy present in both is considered updated when its version differs.
+	 */
+	public static List<RangerPolicyDelta> getPolicyDeltas(List<RangerPolicy> oldPolicies, List<RangerPolicy> newPolicies) {
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerPolicyDeltaUtil.getPolicyDeltas(oldCount=" + size(oldPolicies) + ", newCount=" + size(newPolicies) + ")");
+		}
+
+		List<RangerPolicyDelta> ret          = new ArrayList<RangerPolicyDelta>();
+		Map<Long, RangerPolicy> oldPolicyMap = new HashMap<Long, RangerPolicy>();
+
+		if(oldPolicies != null) {
+			for(RangerPolicy policy : oldPolicies) {
+				oldPolicyMap.put(policy.getId(), policy);
+			}
+		}
+
+		if(newPolicies != null) {
+			for(RangerPolicy policy : newPolicies) {
+				RangerPolicy oldPolicy = oldPolicyMap.remove(policy.getId());
+
+				if(oldPolicy == null) {
+					ret.add(new RangerPolicyDelta(RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE, policy.getId(), policy));
+				} else if(policy.getVersion() == null || !ObjectUtils.equals(policy.getVersion(), oldPolicy.getVersion())) {
+					ret.add(new RangerPolicyDelta(RangerPolicyDelta.CHANGE_TYPE_POLICY_UPDATE, policy.getId(), policy));
+				}
+			}
+		}
+
+		for(Long policyId : oldPolicyMap.keySet()) {
+			ret.add(new RangerPolicyDelta(RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE, policyId, null));
+		}
+
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerPolicyDeltaUtil.getPolicyDeltas(oldCount=" + size(oldPolicies) + ", newCount=" + size(newPolicies) + "): deltaCount=" + ret.size());
+		}
+
+		return ret;
+	}
+
+	/*
+	 * Combines deltas of consecutive versions, in the given order, into one list with at most one delta per policy.
+	 */
+	public static List<RangerPolicyDelta> mergeDeltas(List<List<RangerPolicyDelta>> deltasList) {
+		Map<Long, RangerPolicyDelta> merged = new LinkedHashMap<Long, RangerPolicyDelta>();
+
+		for(List<RangerPolicyDelta> deltas : deltasList) {
+			for(RangerPolicyDelta delta : deltas) {
+				RangerPolicyDelta prevDelta = merged.get(delta.getPolicyId());
+
+				if(prevDelta == null) {
+					merged.put(delta.getPolicyId(), delta);
+				} else if(isCreate(prevDelta)) {
+					if(isDelete(delta)) { // created and deleted within the range: nothing to send
+						merged.remove(delta.getPolicyId());
+					} else {
+						merged.put(delta.getPolicyId(), new RangerPolicyDelta(RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE, delta.getPolicyId(), delta.getPolicy()));
+					}
+				} else {
+					merged.put(delta.getPolicyId(), delta);
+				}
+			}
+		}
+
+		return new ArrayList<RangerPolicyDelta>(merged.values());
+	}
+
+	/*
+	 * Returns full policies resulting from applying the deltas to the given policies; serviceDef, tagPolicies and
+	 * auditMode are taken from basePolicies, as deltas are only sent when these have not changed. The deltas are
+	 * retained in the returned policies, so that a policy engine built from basePolicies can be updated incrementally.
+	 * Returns null if the deltas can't be applied.
+	 */
+	public static ServicePolicies applyDeltas(ServicePolicies basePolicies, ServicePolicies deltaPolicies) {
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerPolicyDeltaUtil.applyDeltas(baseVersion=" + (basePolicies != null ? basePolicies.getPolicyVersion() : null) + ", newVersion=" + deltaPolicies.getPolicyVersion() + ", deltaCount=" + size(deltaPolicies.getPolicyDeltas()) + ")");
+		}
+
+		ServicePolicies ret = null;
+
+		if(basePolicies != null && basePolicies.getPolicies() != null && deltaPolicies.getPolicyDeltas() != null) {
+			List<RangerPolicyDelta>      deltas     = deltaPolicies.getPolicyDeltas();
+			Map<Long, RangerPolicyDelta> deltaMap   = new HashMap<Long, RangerPolicyDelta>();
+			Set<Long>                    appliedIds = new HashSet<Long>();
+			List<RangerPolicy>           policies   = new ArrayList<RangerPolicy>(basePolicies.getPolicies().size() + deltas.size());
+
+			for(RangerPolicyDelta delta : deltas) {
+				if(!isDelete(delta) && delta.getPolicy() == null) {
+					LOG.warn("RangerPolicyDeltaUtil.applyDeltas(): ignoring deltas, as policy is missing in " + delta);
+
+					return null;
+				}
+
+				deltaMap.put(delta.getPolicyId(), delta);
+			}
+
+			for(RangerPolicy policy : basePolicies.getPolicies()) {
+				RangerPolicyDelta delta = deltaMap.get(policy.getId());
+
+				if(delta == null) {
+					policies.add(policy);
+				} else {
+					appliedIds.add(delta.getPolicyId());
+
+					if(!isDelete(delta)) {
+						policies.add(delta.getPolicy());
+					}
+				}
+			}
+
+			for(RangerPolicyDelta delta : deltas) {
+				if(!isDelete(delta) && !appliedIds.contains(delta.getPolicyId())) {
+					policies.add(delta.getPolicy());
+				}
+			}
+
+			ret = new ServicePolicies();
+
+			ret.setServiceName(basePolicies.getServiceName());
+			ret.setServiceId(basePolicies.getServiceId());
+			ret.setPolicyVersion(deltaPolicies.getPolicyVersion());
+			ret.setPolicyUpdateTime(deltaPolicies.getPolicyUpdateTime());
+			ret.setPolicies(policies);
+			ret.setServiceDef(basePolicies.getServiceDef());
+			ret.setAuditMode(basePolicies.getAuditMode());
+			ret.setTagPolicies(basePolicies.getTagPolicies());
+			ret.setPolicyDeltas(deltas);
+		}
+
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerPolicyDeltaUtil.applyDeltas(baseVersion=" + (basePolicies != null ? basePolicies.getPolicyVersion() : null) + ", newVersion=" + deltaPolicies.getPolicyVersion() + "): policyCount=" + (ret != null ? size(ret.getPolicies()) : null));
+		}
+
+		return ret;
+	}
+
+	public static boolean isDelete(RangerPolicyDelta delta) {
+		return delta.getChangeType() != null && delta.getChangeType() == RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE;
+	}
+
+	public static boolean isCreate(RangerPolicyDelta delta) {
+		return delta.getChangeType() != null && delta.getChangeType() == RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE;
+	}
+
+	private static int size(List<?> list) {
+		return CollectionUtils.isEmpty(list) ? 0 : list.size();
+	}
+}
@@ -52,8 +52,13 @@ public class RangerRESTUtils {
 
 	public static final String REST_URL_LOOKUP_TAG_NAMES = "/service/tags/lookup";
 
+	public static final String REST_URL_WATCH_SERVICE_VERSION = "/service/plugins/watch/";
+	public static final String REST_WATCH_TYPE_POLICIES       = "policies";
+	public static final String REST_WATCH_TYPE_TAGS           = "tags";
+
 	public static final String REST_EXPECTED_MIME_TYPE = "application/json";
 	public static final String REST_MIME_TYPE_JSON     = "application/json";
+	public static final String REST_MIME_TYPE_TEXT     = "text/plain";
 
 	public static final String REST_PARAM_LAST_KNOWN_POLICY_VERSION = "lastKnownVersion";
 	public static final String REST_PARAM_LAST_ACTIVATION_TIME = "lastActivationTime";
@@ -62,6 +67,9 @@ public class RangerRESTUtils {
 	private static final int MAX_PLUGIN_ID_LEN = 255;
 	
 	public static final String REST_PARAM_CLUSTER_NAME   = "clusterName";
+	public static final String REST_PARAM_SUPPORTS_POLICY_DELTAS = "supportsPolicyDeltas";
+	public static final String REST_PARAM_SUPPORTS_TAG_DELTAS    = "supportsTagDeltas";
+	public static final String REST_PARAM_TIMEOUT_MS             = "timeoutMs";
 
 	public String getPolicyRestUrl(String propertyPrefix) {
 		String url = RangerConfiguration.getInstance().get(propertyPrefix + ".policy.rest.url");
@@ -30,10 +30,13 @@ import org.apache.ranger.plugin.resourcematcher.RangerAbstractResourceMatcher;
 import org.apache.ranger.plugin.resourcematcher.RangerResourceMatcher;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 
 public class RangerResourceTrie<T extends RangerPolicyResourceEvaluator> {
@@ -42,14 +45,21 @@ public class RangerResourceTrie<T extends RangerPolicyResourceEvaluator> {
     private static final String DEFAULT_WILDCARD_CHARS = "*?";
 
     private final String   resourceName;
+    private final Integer  resourceLevel;
     private final boolean  optIgnoreCase;
     private final boolean  optWildcard;
     private final String   wildcardChars;
+    private final boolean  isCompact;
     private final TrieNode root;
+    private final CompactTrieNode compactRoot;
 
     public RangerResourceTrie(RangerServiceDef.RangerResourceDef resourceDef, List<T> evaluators) {
+        this(resourceDef, evaluators, false);
+    }
+
+    public RangerResourceTrie(RangerServiceDef.RangerResourceDef resourceDef, List<T> evaluators, boolean isCompact) {
         if(LOG.isDebugEnabled()) {
-            LOG.debug("==> RangerResourceTrie(" + resourceDef.getName() + ", evaluatorCount=" + evaluators.size() + ")");
+            LOG.debug("==> RangerResourceTrie(" + resourceDef.getName() + ", evaluatorCount=" + evaluators.size() + ", isCompact=" + isCompact + ")");
         }
 
         Map<String, String> matcherOptions = resourceDef.getMatcherOptions();
@@ -69,42 +79,27 @@ public class RangerResourceTrie<T extends RangerPolicyResourceEvaluator> {
         }
 
         this.resourceName  = resourceDef.getName();
+        this.resourceLevel = resourceDef.getLevel();
         this.optIgnoreCase = RangerAbstractResourceMatcher.getOptionIgnoreCase(matcherOptions);
         this.optWildcard   = RangerAbstractResourceMatcher.getOptionWildCard(matcherOptions);
         this.wildcardChars = optWildcard ? DEFAULT_WILDCARD_CHARS + tokenReplaceSpecialChars : "" + tokenReplaceSpecialChars;
-        this.root          = new TrieNode(Character.valueOf((char)0));
-
-        for(T evaluator : evaluators) {
-            Map<String, RangerPolicyResource> policyResources = evaluator.getPolicyResource();
-            RangerPolicyResource              policyResource  = policyResources != null ? policyResources.get(resourceName) : null;
+        this.isCompact     = isCompact;
 
-            if(policyResource == null) {
-                if(evaluator.getLeafResourceLevel() != null && resourceDef.getLevel() != null && evaluator.getLeafResourceLevel() < resourceDef.getLevel()) {
-                    root.addWildcardEvaluator(evaluator);
-                }
+        TrieNode root = new TrieNode(Character.valueOf((char)0));
 
-                continue;
-            }
+        addEvaluators(root, evaluators);
 
-            if(policyResource.getIsExcludes()) {
-                root.addWildcardEvaluator(evaluator);
-            } else {
-                RangerResourceMatcher resourceMatcher = evaluator.getResourceMatcher(resourceName);
+        root.postSetup(null);
 
-                if(resourceMatcher != null && (resourceMatcher.isMatchAny())) {
-                    root.addWildcardEvaluator(evaluator);
-                } else {
-                    if(CollectionUtils.isNotEmpty(policyResource.getValues())) {
-                        for (String resource : policyResource.getValues()) {
-                            insert(resource, policyResource.getIsRecursive(), evaluator);
-                        }
-                    }
-                }
-            }
+        if(isCompact) {
+            // the HashMap based nodes are needed only while building; retain the compact copy for lookups
+            this.root        = null;
+            this.compactRoot = new CompactTrieNode<T>(CompactTrieNode.EMPTY_LABEL, root);
+        } else {
+            this.root        = root;
+            this.compactRoot = null;
         }
 
-        root.postSetup(null);
-
         LOG.info(toString());
 
         if(LOG.isDebugEnabled()) {
@@ -112,6 +107,42 @@ public class RangerResourceTrie<T extends RangerPolicyResourceEvaluator> {
         }
     }
 
+    /*
+     * Creates a trie having evaluators of the given trie, less removedEvaluators, plus addedEvaluators. Only nodes
+     * on the paths of removed/added evaluators, and subtrees under nodes whose wildcard-evaluators change, are
+     * copied; other nodes are shared with the given trie, which remains usable for lookups as is.
+     */
+    public RangerResourceTrie(RangerResourceTrie<T> other, List<T> removedEvaluators, List<T> addedEvaluators) {
+        if(LOG.isDebugEnabled()) {
+            LOG.debug("==> RangerResourceTrie(" + other.resourceName + ", removedEvaluatorCount=" + removedEvaluators.size() + ", addedEvaluatorCount=" + addedEvaluators.size() + ")");
+        }
+
+        if(other.isCompact) {
+            throw new IllegalArgumentException("RangerResourceTrie(" + other.resourceName + "): copy-on-write update is not supported for compact trie");
+        }
+
+        this.resourceName  = other.resourceName;
+        this.resourceLevel = other.resourceLevel;
+        this.optIgnoreCase = other.optIgnoreCase;
+        this.optWildcard   = other.optWildcard;
+        this.wildcardChars = other.wildcardChars;
+        this.isCompact     = false;
+        this.compactRoot   = null;
+
+        // nodes to which removed/added evaluators were/are to be added
+        TrieNode removedRoot = new TrieNode(Character.valueOf((char)0));
+        TrieNode addedRoot   = new TrieNode(Character.valueOf((char)0));
+
+        addEvaluators(removedRoot, removedEvaluators);
+        addEvaluators(addedRoot, addedEvaluators);
+
+        this.root = copyOnWrite(other.root, removedRoot, addedRoot, null, null, new HashSet<T>(removedEvaluators));
+
+        if(LOG.isDebugEnabled()) {
+            LOG.debug("<== RangerResourceTrie(" + other.resourceName + ", removedEvaluatorCount=" + removedEvaluators.size() + ", addedEvaluatorCount=" + addedEvaluators.size() + "): " + toString());
+        }
+    }
+
     public String getResourceName() {
         return resourceName;
     }
@@ -121,6 +152,45 @@ public class RangerResourceTrie<T extends RangerPolicyResourceEvaluator> {
             LOG.debug("==> RangerResourceTrie.getEvaluatorsForResource(" + resource + ")");
         }
 
+        List<T> ret = compactRoot != null ? getEvaluatorsFromCompactTrie(resource) : getEvaluatorsFromTrie(resource);
+
+        if(LOG.isDebugEnabled()) {
+            LOG.debug("<== RangerResourceTrie.getEvaluatorsForResource(" + resource + "): evaluatorCount=" + (ret == null ? 0 : ret.size()));
+        }
+
+        return ret;
+    }
+
+    public boolean isCompact() {
+        return isCompact;
+    }
+
+    public TrieData getTrieData() {
+        TrieData ret = new TrieData();
+
+        if(compactRoot != null) {
+            compactRoot.populateTrieData(ret);
+        } else {
+            root.populateTrieData(ret);
+        }
+        ret.maxDepth = getMaxDepth();
+
+        return ret;
+    }
+
+    public int getMaxDepth() {
+        return compactRoot != null ? compactRoot.getMaxDepth() : root.getMaxDepth();
+    }
+
+    public void reorderEvaluators() {
+        if(compactRoot != null) {
+            compactRoot.reorderEvaluators(null);
+        } else {
+            root.reorderEvaluators(null);
+        }
+    }
+
+    private List<T> getEvaluatorsFromTrie(String resource) {
         List<T> ret = null;
 
         TrieNode curr = root;
@@ -145,39 +215,148 @@ public class RangerResourceTrie<T extends RangerPolicyResourceEvaluator> {
             }
         }
 
-        if(LOG.isDebugEnabled()) {
-            LOG.debug("<== RangerResourceTrie.getEvaluatorsForResource(" + resource + "): evaluatorCount=" + (ret == null ? 0 : ret.size()));
-        }
-
         return ret;
     }
 
-    public TrieData getTrieData() {
-        TrieData ret = new TrieData();
+    private List<T> getEvaluatorsFromCompactTrie(String resource) {
+        CompactTrieNode<T> curr = compactRoot;
 
-        root.populateTrieData(ret);
-        ret.maxDepth = getMaxDepth();
+        final int len = resource.length();
+        for(int i = 0; i < len; ) {
+            CompactTrieNode<T> child = curr.getChild(getLookupChar(resource.charAt(i++)));
 
-        return ret;
+            if(child == null) {
+                return curr.getWildcardEvaluators();
+            }
+
+            // nodes collapsed into the child's label share curr's wildcard evaluators; so a mismatch or
+            // the resource ending within the label results in the same list as a mismatch at curr
+            final char[] label = child.getLabel();
+
+            for(int j = 1; j < label.length; j++, i++) {
+                if(i == len || getLookupChar(resource.charAt(i)) != label[j]) {
+                    return curr.getWildcardEvaluators();
+                }
+            }
+
+            curr = child;
+        }
+
+        return curr.getEvaluators();
     }
 
-    public int getMaxDepth() {
-        return root.getMaxDepth();
+    private void addEvaluators(TrieNode root, List<T> evaluators) {
+        for(T evaluator : evaluators) {
+            Map<String, RangerPolicyResource> policyResources = evaluator.getPolicyResource();
+            RangerPolicyResource              policyResource  = policyResources != null ? policyResources.get(resourceName) : null;
+
+            if(policyResource == null) {
+                if(evaluator.getLeafResourceLevel() != null && resourceLevel != null && evaluator.getLeafResourceLevel() < resourceLevel) {
+                    root.addWildcardEvaluator(evaluator);
+                }
+
+                continue;
+            }
+
+            if(policyResource.getIsExcludes()) {
+                root.addWildcardEvaluator(evaluator);
+            } else {
+                RangerResourceMatcher resourceMatcher = evaluator.getResourceMatcher(resourceName);
+
+                if(resourceMatcher != null && (resourceMatcher.isMatchAny())) {
+                    root.addWildcardEvaluator(evaluator);
+                } else {
+                    if(CollectionUtils.isNotEmpty(policyResource.getValues())) {
+                        for (String resource : policyResource.getValues()) {
+                            insert(root, resource, policyResource.getIsRecursive(), evaluator);
+                        }
+                    }
+                }
+            }
+        }
     }
 
-    public void reorderEvaluators() {
-        root.reorderEvaluators(null);
+    /*
+     * Returns the node replacing 'node' in the updated trie: 'node' itself when nothing changes in its subtree, a copy otherwise.
+     * removed/added are the nodes at the same path in tries built with only the removed/added evaluators, and are null if the
+     * path has no such evaluators. Returns null for a non-root node left with no evaluators of its own and no children.
+     */
+    private TrieNode<T> copyOnWrite(TrieNode<T> node, TrieNode<T> removed, TrieNode<T> added, List<T> oldParentWildcardEvaluators, List<T> newParentWildcardEvaluators, Set<T> removedEvaluators) {
+        if(removed == null && added == null && oldParentWildcardEvaluators == newParentWildcardEvaluators) {
+            return node;
+        }
+
+        List<T> ownEvaluators         = node != null ? node.getOwnEvaluators() : new ArrayList<T>();
+        List<T> ownWildcardEvaluators = node != null ? node.getOwnWildcardEvaluators(oldParentWildcardEvaluators) : new ArrayList<T>();
+
+        if(!removedEvaluators.isEmpty()) {
+            ownEvaluators.removeAll(removedEvaluators);
+            ownWildcardEvaluators.removeAll(removedEvaluators);
+        }
+
+        if(added != null) {
+            addAll(ownEvaluators, added.getEvaluators());
+            addAll(ownWildcardEvaluators, added.getWildcardEvaluators());
+        }
+
+        TrieNode<T> ret = new TrieNode<T>(node != null ? node.getChar() : added.getChar());
+
+        ret.setup(ownEvaluators, ownWildcardEvaluators, newParentWildcardEvaluators, node);
+
+        Map<Character, TrieNode> nodeChildren    = node != null ? node.getChildren() : null;
+        Map<Character, TrieNode> removedChildren = removed != null ? removed.getChildren() : null;
+        Map<Character, TrieNode> addedChildren   = added != null ? added.getChildren() : null;
+
+        if(nodeChildren != null) {
+            for(Map.Entry<Character, TrieNode> entry : nodeChildren.entrySet()) {
+                Character   ch           = entry.getKey();
+                TrieNode<T> removedChild = removedChildren != null ? removedChildren.get(ch) : null;
+                TrieNode<T> addedChild   = addedChildren != null ? addedChildren.get(ch) : null;
+                TrieNode<T> child        = copyOnWrite(entry.getValue(), removedChild, addedChild, node.getWildcardEvaluators(), ret.getWildcardEvaluators(), removedEvaluators);
+
+                if(child != null) {
+                    ret.addChild(child);
+                }
+            }
+        }
+
+        if(addedChildren != null) {
+            for(Map.Entry<Character, TrieNode> entry : addedChildren.entrySet()) {
+                if(nodeChildren != null && nodeChildren.containsKey(entry.getKey())) {
+                    continue;
+                }
+
+                TrieNode<T> child = copyOnWrite(null, null, entry.getValue(), null, ret.getWildcardEvaluators(), removedEvaluators);
+
+                if(child != null) {
+                    ret.addChild(child);
+                }
+            }
+        }
+
+        // such a node returns the same evaluators as its parent for all lookups
+        if(ret.getChildren() == null && ownEvaluators.isEmpty() && ownWildcardEvaluators.isEmpty() && ret.getChar() != 0) {
+            ret = null;
+        }
+
+        return ret;
     }
 
-    private final Character getLookupChar(char ch) {
-        if(optIgnoreCase) {
-            ch = Character.toLowerCase(ch);
+    private static <T> void addAll(List<T> list, List<T> evaluators) {
+        if(evaluators != null) {
+            for(T evaluator : evaluators) {
+                if(!list.contains(evaluator)) {
+                    list.add(evaluator);
+                }
+            }
         }
+    }
 
-        return Character.valueOf(ch);
+    private char getLookupChar(char ch) {
+        return optIgnoreCase ? Character.toLowerCase(ch) : ch;
     }
 
-    private void insert(String resource, boolean isRecursive, T evaluator) {
+    private void insert(TrieNode root, String resource, boolean isRecursive, T evaluator) {
         TrieNode curr       = root;
         boolean  isWildcard = false;
 
@@ -212,6 +391,7 @@ public class RangerResourceTrie<T extends RangerPolicyResourceEvaluator> {
         sb.append("; optIgnoreCase=").append(optIgnoreCase);
         sb.append("; optWildcard=").append(optWildcard);
         sb.append("; wildcardChars=").append(wildcardChars);
+        sb.append("; isCompact=").append(isCompact);
         sb.append("; nodeCount=").append(trieData.nodeCount);
         sb.append("; leafNodeCount=").append(trieData.leafNodeCount);
         sb.append("; singleChildNodeCount=").append(trieData.singleChildNodeCount);
@@ -263,6 +443,15 @@ class TrieNode<T extends RangerPolicyResourceEvaluator> {
         return wildcardEvaluators;
     }
 
+    boolean isSharingParentWildcardEvaluators() {
+        return isSharingParentWildcardEvaluators;
+    }
+
+    // true if lookups ending at, or failing at, this node return the same list as for the parent node
+    boolean isPathCompressible() {
+        return children != null && children.size() == 1 && isSharingParentWildcardEvaluators && evaluators == wildcardEvaluators;
+    }
+
     TrieNode getChild(Character c) {
         TrieNode ret = children == null ? null : children.get(c);
 
@@ -321,6 +510,88 @@ class TrieNode<T extends RangerPolicyResourceEvaluator> {
         return ret + 1;
     }
 
+    void addChild(TrieNode child) {
+        if(children == null) {
+            children = new HashMap<Character, TrieNode>();
+        }
+
+        children.put(child.getChar(), child);
+    }
+
+    // evaluators added to this node, i.e. excluding the wildcard-evaluators merged in by postSetup()
+    List<T> getOwnEvaluators() {
+        List<T> ret = new ArrayList<T>();
+
+        if(evaluators != null && evaluators != wildcardEvaluators) {
+            ret.addAll(evaluators);
+
+            if(wildcardEvaluators != null) {
+                ret.removeAll(new HashSet<T>(wildcardEvaluators));
+            }
+        }
+
+        return ret;
+    }
+
+    // wildcard-evaluators added to this node, i.e. excluding those of the parent merged in by postSetup()
+    List<T> getOwnWildcardEvaluators(List<T> parentWildcardEvaluators) {
+        List<T> ret = new ArrayList<T>();
+
+        if(wildcardEvaluators != null && !isSharingParentWildcardEvaluators) {
+            ret.addAll(wildcardEvaluators);
+
+            if(parentWildcardEvaluators != null) {
+                ret.removeAll(new HashSet<T>(parentWildcardEvaluators));
+            }
+        }
+
+        return ret;
+    }
+
+    /*
+     * Initializes evaluator lists of this node, as postSetup() would have after adding the given evaluators. Lists of
+     * the node being replaced are retained when they have the same evaluators, so that its unchanged children can be shared.
+     */
+    void setup(List<T> ownEvaluators, List<T> ownWildcardEvaluators, List<T> parentWildcardEvaluators, TrieNode<T> replacedNode) {
+        if(ownWildcardEvaluators.isEmpty()) {
+            wildcardEvaluators = parentWildcardEvaluators;
+        } else {
+            wildcardEvaluators = ownWildcardEvaluators;
+
+            if(parentWildcardEvaluators != null) {
+                for(T evaluator : parentWildcardEvaluators) {
+                    addWildcardEvaluator(evaluator);
+                }
+            }
+
+            if(replacedNode != null && !replacedNode.isSharingParentWildcardEvaluators && hasSameEvaluators(replacedNode.wildcardEvaluators, wildcardEvaluators)) {
+                wildcardEvaluators = replacedNode.wildcardEvaluators;
+            } else {
+                Collections.sort(wildcardEvaluators);
+            }
+        }
+
+        isSharingParentWildcardEvaluators = wildcardEvaluators == parentWildcardEvaluators;
+
+        if(ownEvaluators.isEmpty()) {
+            evaluators = wildcardEvaluators;
+        } else {
+            evaluators = ownEvaluators;
+
+            if(wildcardEvaluators != null) {
+                for(T evaluator : wildcardEvaluators) {
+                    addEvaluator(evaluator);
+                }
+            }
+
+            if(replacedNode != null && replacedNode.evaluators != replacedNode.wildcardEvaluators && hasSameEvaluators(replacedNode.evaluators, evaluators)) {
+                evaluators = replacedNode.evaluators;
+            } else {
+                Collections.sort(evaluators);
+            }
+        }
+    }
+
     TrieNode getOrCreateChild(Character c) {
         if(children == null) {
             children = new HashMap<Character, TrieNode>();
@@ -462,7 +733,11 @@ class TrieNode<T extends RangerPolicyResourceEvaluator> {
         wildcardEvaluators = null;
     }
 
-    private List<T> getSortedCopy(List<T> evaluators) {
+    private static <T> boolean hasSameEvaluators(List<T> list1, List<T> list2) {
+        return list1 != null && list2 != null && list1.size() == list2.size() && new HashSet<T>(list1).containsAll(list2);
+    }
+
+    static <T extends RangerPolicyResourceEvaluator> List<T> getSortedCopy(List<T> evaluators) {
         final List<T> ret;
 
         if(CollectionUtils.isNotEmpty(evaluators)) {
@@ -476,3 +751,175 @@ class TrieNode<T extends RangerPolicyResourceEvaluator> {
         return ret;
     }
 }
+
+class CompactTrieNode<T extends RangerPolicyResourceEvaluator> {
+    static final char[]                    EMPTY_LABEL    = new char[0];
+    private static final CompactTrieNode[] EMPTY_CHILDREN = new CompactTrieNode[0];
+
+    private final char[]            label;      // chars on the path from parent; more than one char when single-child chains are collapsed
+    private final char[]            childChars; // sorted; first char of each child's label
+    private final CompactTrieNode[] children;   // in the same order as childChars
+    private List<T>                 evaluators;
+    private List<T>                 wildcardEvaluators;
+    private final boolean           isSharingParentWildcardEvaluators;
+
+    CompactTrieNode(char[] label, TrieNode<T> node) {
+        this.label                             = label;
+        this.evaluators                        = node.getEvaluators();
+        this.wildcardEvaluators                = node.getWildcardEvaluators();
+        this.isSharingParentWildcardEvaluators = node.isSharingParentWildcardEvaluators();
+
+        Map<Character, TrieNode> nodeChildren = node.getChildren();
+
+        if(nodeChildren == null || nodeChildren.isEmpty()) {
+            this.childChars = EMPTY_LABEL;
+            this.children   = EMPTY_CHILDREN;
+        } else {
+            final int count = nodeChildren.size();
+
+            childChars = new char[count];
+            children   = new CompactTrieNode[count];
+
+            int idx = 0;
+            for(Character c : nodeChildren.keySet()) {
+                childChars[idx++] = c;
+            }
+
+            Arrays.sort(childChars);
+
+            StringBuilder sb = new StringBuilder();
+
+            for(idx = 0; idx < count; idx++) {
+                TrieNode<T> child = nodeChildren.get(childChars[idx]);
+
+                sb.setLength(0);
+                sb.append(childChars[idx]);
+
+                while(child.isPathCompressible()) {
+                    Map.Entry<Character, TrieNode> onlyChild = child.getChildren().entrySet().iterator().next();
+
+                    sb.append(onlyChild.getKey().charValue());
+                    child = onlyChild.getValue();
+                }
+
+                char[] childLabel = new char[sb.length()];
+
+                sb.getChars(0, childLabel.length, childLabel, 0);
+
+                children[idx] = new CompactTrieNode<T>(childLabel, child);
+            }
+        }
+    }
+
+    char[] getLabel() {
+        return label;
+    }
+
+    List<T> getEvaluators() {
+        return evaluators;
+    }
+
+    List<T> getWildcardEvaluators() {
+        return wildcardEvaluators;
+    }
+
+    CompactTrieNode<T> getChild(char c) {
+        int idx = childChars.length == 0 ? -1 : Arrays.binarySearch(childChars, c);
+
+        return idx < 0 ? null : children[idx];
+    }
+
+    void populateTrieData(RangerResourceTrie.TrieData trieData) {
+        trieData.nodeCount++;
+
+        if(wildcardEvaluators != null) {
+            if(isSharingParentWildcardEvaluators) {
+                trieData.wildcardEvaluatorListRefCount++;
+            } else {
+                trieData.wildcardEvaluatorListCount++;
+            }
+        }
+
+        if(evaluators != null) {
+            if(evaluators == wildcardEvaluators) {
+                trieData.evaluatorListRefCount++;
+            } else {
+                trieData.evaluatorListCount++;
+            }
+        }
+
+        if(children.length > 0) {
+            if(children.length == 1) {
+                trieData.singleChildNodeCount++;
+            }
+
+            for(CompactTrieNode child : children) {
+                child.populateTrieData(trieData);
+            }
+        } else {
+            trieData.leafNodeCount++;
+        }
+    }
+
+    int getMaxDepth() {
+        int ret = 0;
+
+        for(CompactTrieNode child : children) {
+            int maxChildDepth = child.getMaxDepth();
+
+            if(maxChildDepth > ret) {
+                ret = maxChildDepth;
+            }
+        }
+
+        // depth is in chars, so that it is comparable with the depth of a non-compact trie
+        return ret + (label.length == 0 ? 1 : label.length);
+    }
+
+    void reorderEvaluators(List<T> parentWildcardEvaluators) {
+        boolean isEvaluatorsSameAsWildcardEvaluators = evaluators == wildcardEvaluators;
+
+        if(isSharingParentWildcardEvaluators) {
+            wildcardEvaluators = parentWildcardEvaluators;
+        } else {
+            wildcardEvaluators = TrieNode.getSortedCopy(wildcardEvaluators);
+        }
+
+        if(isEvaluatorsSameAsWildcardEvaluators) {
+            evaluators = wildcardEvaluators;
+        } else {
+            evaluators = TrieNode.getSortedCopy(evaluators);
+        }
+
+        for(CompactTrieNode child : children) {
+            child.reorderEvaluators(wildcardEvaluators);
+        }
+    }
+
+    public void toString(String prefix, StringBuilder sb) {
+        String nodeValue = prefix + new String(label);
+
+        sb.append("nodeValue=").append(nodeValue);
+        sb.append("; childCount=").append(children.length);
+        sb.append("; evaluators=[ ");
+        if(evaluators != null) {
+            for(T evaluator : evaluators) {
+                sb.append(evaluator.getId()).append(" ");
+            }
+        }
+        sb.append("]");
+
+        sb.append("; wildcardEvaluators=[ ");
+        if(wildcardEvaluators != null) {
+            for(T evaluator : wildcardEvaluators) {
+                sb.append(evaluator.getId()).append(" ");
+            }
+        }
+        sb.append("]");
+        sb.append(Character.LINE_SEPARATOR);
+
+        for(CompactTrieNode child : children) {
+            child.toString(nodeValue, sb);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.collections.MapUtils;
+import org.apache.commons.lang.ObjectUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.plugin.model.RangerServiceResource;
+import org.apache.ranger.plugin.model.RangerTag;
+
+public class RangerServiceTagsDeltaUtil {
+	private static final Log LOG = LogFactory.getLog(RangerServiceTagsDeltaUtil.class);
+
+	/*
+	 * Computes the changes needed to go from oldTags to newTags. Tags and resources are matched on id; as their
+	 * versions are not updated in the store, a tag is considered updated when its type, owner or attributes differ,
+	 * and a resource when its resource-elements, isEnabled or the ids of tags associated with it differ.
+	 */
+	public static ServiceTags getServiceTagsDelta(ServiceTags oldTags, ServiceTags newTags) {
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerServiceTagsDeltaUtil.getServiceTagsDelta(oldVersion=" + oldTags.getTagVersion() + ", newVersion=" + newTags.getTagVersion() + ")");
+		}
+
+		ServiceTags                      ret               = createDelta(newTags);
+		Map<Long, RangerServiceResource> oldResources      = new HashMap<Long, RangerServiceResource>();
+		Map<Long, RangerTag>             oldTagMap         = new HashMap<Long, RangerTag>(oldTags.getTags());
+		Map<Long, List<Long>>            oldResourceTagIds = oldTags.getResourceToTagIds();
+		Map<Long, List<Long>>            newResourceTagIds = newTags.getResourceToTagIds();
+
+		for(RangerServiceResource resource : oldTags.getServiceResources()) {
+			oldResources.put(resource.getId(), resource);
+		}
+
+		for(RangerServiceResource resource : newTags.getServiceResources()) {
+			RangerServiceResource oldResource = oldResources.remove(resource.getId());
+			List<Long>            tagIds      = newResourceTagIds.get(resource.getId());
+
+			if(oldResource == null || !isSameResource(oldResource, resource) || !isSameTagIds(oldResourceTagIds.get(resource.getId()), tagIds)) {
+				ret.getServiceResources().add(resource);
+
+				if(tagIds != null) {
+					ret.getResourceToTagIds().put(resource.getId(), tagIds);
+				}
+			}
+		}
+
+		for(Map.Entry<Long, RangerTag> entry : newTags.getTags().entrySet()) {
+			RangerTag oldTag = oldTagMap.remove(entry.getKey());
+
+			if(oldTag == null || !oldTag.equals(entry.getValue())) {
+				ret.getTags().put(entry.getKey(), entry.getValue());
+			}
+		}
+
+		ret.getDeletedResourceIds().addAll(oldResources.keySet());
+		ret.getDeletedTagIds().addAll(oldTagMap.keySet());
+
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerServiceTagsDeltaUtil.getServiceTagsDelta(oldVersion=" + oldTags.getTagVersion() + ", newVersion=" + newTags.getTagVersion() + "): " + toSummary(ret));
+		}
+
+		return ret;
+	}
+
+	/*
+	 * Combines deltas of consecutive versions, in the given order, into one delta with at most one change per tag and
+	 * per resource.
+	 */
+	public static ServiceTags mergeDeltas(List<ServiceTags> deltas) {
+		ServiceTags                      last               = deltas.get(deltas.size() - 1);
+		Map<Long, RangerServiceResource> resources          = new LinkedHashMap<Long, RangerServiceResource>();
+		Map<Long, List<Long>>            resourceToTagIds   = new HashMap<Long, List<Long>>();
+		Map<Long, RangerTag>             tags               = new HashMap<Long, RangerTag>();
+		Set<Long>                        deletedResourceIds = new LinkedHashSet<Long>();
+		Set<Long>                        deletedTagIds      = new LinkedHashSet<Long>();
+
+		for(ServiceTags delta : deltas) {
+			if(delta.getDeletedResourceIds() != null) {
+				for(Long resourceId : delta.getDeletedResourceIds()) {
+					resources.remove(resourceId);
+					resourceToTagIds.remove(resourceId);
+					deletedResourceIds.add(resourceId);
+				}
+			}
+
+			if(delta.getDeletedTagIds() != null) {
+				for(Long tagId : delta.getDeletedTagIds()) {
+					tags.remove(tagId);
+					deletedTagIds.add(tagId);
+				}
+			}
+
+			for(RangerServiceResource resource : delta.getServiceResources()) {
+				List<Long> tagIds = delta.getResourceToTagIds().get(resource.getId());
+
+				resources.put(resource.getId(), resource);
+				deletedResourceIds.remove(resource.getId());
+
+				if(tagIds != null) {
+					resourceToTagIds.put(resource.getId(), tagIds);
+				} else {
+					resourceToTagIds.remove(resource.getId());
+				}
+			}
+
+			for(Map.Entry<Long, RangerTag> entry : delta.getTags().entrySet()) {
+				tags.put(entry.getKey(), entry.getValue());
+				deletedTagIds.remove(entry.getKey());
+			}
+		}
+
+		ServiceTags ret = createDelta(last);
+
+		ret.getServiceResources().addAll(resources.values());
+		ret.getResourceToTagIds().putAll(resourceToTagIds);
+		ret.getTags().putAll(tags);
+		ret.getDeletedResourceIds().addAll(deletedResourceIds);
+		ret.getDeletedTagIds().addAll(deletedTagIds);
+
+		return ret;
+	}
+
+	/*
+	 * Returns full tags resulting from applying the delta to baseTags; baseTags is not modified. Tag definitions are
+	 * taken from the delta if present, otherwise from baseTags. Returns null if the delta can't be applied.
+	 */
+	public static ServiceTags applyDelta(ServiceTags baseTags, ServiceTags delta) {
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerServiceTagsDeltaUtil.applyDelta(baseVersion=" + (baseTags != null ? baseTags.getTagVersion() : null) + ", newVersion=" + delta.getTagVersion() + ", " + toSummary(delta) + ")");
+		}
+
+		ServiceTags ret = null;
+
+		if(baseTags != null && !ObjectUtils.equals(baseTags.getServiceName(), delta.getServiceName())) {
+			LOG.warn("RangerServiceTagsDeltaUtil.applyDelta(): ignoring delta for service " + delta.getServiceName() + ", as base tags are of service " + baseTags.getServiceName());
+		} else {
+			Map<Long, RangerServiceResource> resources        = new LinkedHashMap<Long, RangerServiceResource>();
+			Map<Long, List<Long>>            resourceToTagIds = new HashMap<Long, List<Long>>();
+			Map<Long, RangerTag>             tags             = new HashMap<Long, RangerTag>();
+
+			if(baseTags != null) {
+				for(RangerServiceResource resource : baseTags.getServiceResources()) {
+					resources.put(resource.getId(), resource);
+				}
+
+				resourceToTagIds.putAll(baseTags.getResourceToTagIds());
+				tags.putAll(baseTags.getTags());
+			}
+
+			if(delta.getDeletedResourceIds() != null) {
+				for(Long resourceId : delta.getDeletedResourceIds()) {
+					resources.remove(resourceId);
+					resourceToTagIds.remove(resourceId);
+				}
+			}
+
+			if(delta.getDeletedTagIds() != null) {
+				for(Long tagId : delta.getDeletedTagIds()) {
+					tags.remove(tagId);
+				}
+			}
+
+			for(RangerServiceResource resource : delta.getServiceResources()) {
+				List<Long> tagIds = delta.getResourceToTagIds().get(resource.getId());
+
+				resources.put(resource.getId(), resource);
+
+				if(tagIds != null) {
+					resourceToTagIds.put(resource.getId(), tagIds);
+				} else {
+					resourceToTagIds.remove(resource.getId());
+				}
+			}
+
+			tags.putAll(delta.getTags());
+
+			ret = new ServiceTags();
+
+			ret.setOp(delta.getOp());
+			ret.setServiceName(delta.getServiceName());
+			ret.setTagVersion(delta.getTagVersion());
+			ret.setTagUpdateTime(delta.getTagUpdateTime());
+			ret.setTagDefinitions(MapUtils.isNotEmpty(delta.getTagDefinitions()) || baseTags == null ? delta.getTagDefinitions() : baseTags.getTagDefinitions());
+			ret.setServiceResources(new ArrayList<RangerServiceResource>(resources.values()));
+			ret.setResourceToTagIds(resourceToTagIds);
+			ret.setTags(tags);
+		}
+
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerServiceTagsDeltaUtil.applyDelta(baseVersion=" + (baseTags != null ? baseTags.getTagVersion() : null) + ", newVersion=" + delta.getTagVersion() + "): resourceCount=" + (ret != null ? ret.getServiceResources().size() : null));
+		}
+
+		return ret;
+	}
+
+	public static boolean isDelta(ServiceTags serviceTags) {
+		return serviceTags != null && Boolean.TRUE.equals(serviceTags.getIsDelta());
+	}
+
+	// number of tags and resources sent in the delta, including deleted ones; used to decide if the delta is worth keeping
+	public static int getChangeCount(ServiceTags delta) {
+		return delta.getServiceResources().size() + delta.getTags().size() + size(delta.getDeletedResourceIds()) + size(delta.getDeletedTagIds());
+	}
+
+	public static boolean isSameResource(RangerServiceResource resource1, RangerServiceResource resource2) {
+		return ObjectUtils.equals(resource1.getResourceElements(), resource2.getResourceElements())
+				&& ObjectUtils.equals(resource1.getIsEnabled(), resource2.getIsEnabled());
+	}
+
+	private static boolean isSameTagIds(List<Long> tagIds1, List<Long> tagIds2) {
+		return CollectionUtils.isEmpty(tagIds1) ? CollectionUtils.isEmpty(tagIds2) : tagIds1.equals(tagIds2);
+	}
+
+	private static ServiceTags createDelta(ServiceTags serviceTags) {
+		ServiceTags ret = new ServiceTags();
+
+		ret.setOp(serviceTags.getOp());
+		ret.setServiceName(serviceTags.getServiceName());
+		ret.setTagVersion(serviceTags.getTagVersion());
+		ret.setTagUpdateTime(serviceTags.getTagUpdateTime());
+		ret.setTagDefinitions(serviceTags.getTagDefinitions());
+		ret.setIsDelta(Boolean.TRUE);
+		ret.setDeletedResourceIds(new ArrayList<Long>());
+		ret.setDeletedTagIds(new ArrayList<Long>());
+
+		return ret;
+	}
+
+	private static String toSummary(ServiceTags delta) {
+		return "resourceCount=" + delta.getServiceResources().size() + ", tagCount=" + delta.getTags().size()
+				+ ", deletedResourceCount=" + size(delta.getDeletedResourceIds()) + ", deletedTagCount=" + size(delta.getDeletedTagIds());
+	}
+
+	private static int size(List<?> list) {
+		return CollectionUtils.isEmpty(list) ? 0 : list.size();
+	}
+}
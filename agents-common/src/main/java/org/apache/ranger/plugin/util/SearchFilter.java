@@ -40,6 +40,7 @@ public class SearchFilter {
 	public static final String TAG_SERVICE_ID  = "tagServiceId";  // search
 	public static final String USER            = "user";          // search
 	public static final String GROUP           = "group";         // search
+	public static final String ACCESS_TYPE     = "accessType";    // search
 	public static final String RESOURCE_PREFIX = "resource:";     // search
 	public static final String RESOURCE_MATCH_SCOPE = "resourceMatchScope"; // search - valid values: "self", "ancestor", "self_or_ancestor"
 	public static final String POL_RESOURCE    = "polResource";   // search
@@ -58,6 +58,9 @@ public class ServiceTags implements java.io.Serializable {
 	private Map<Long, RangerTag>        tags;
 	private List<RangerServiceResource> serviceResources;
 	private Map<Long, List<Long>>       resourceToTagIds;
+	private Boolean                     isDelta;
+	private List<Long>                  deletedResourceIds;
+	private List<Long>                  deletedTagIds;
 
 	public ServiceTags() {
 		this(OP_ADD_OR_UPDATE, null, 0L, null, null, null, null, null);
@@ -162,6 +165,34 @@ public class ServiceTags implements java.io.Serializable {
 		this.resourceToTagIds = resourceToTagIds == null ? new HashMap<Long, List<Long>>() : resourceToTagIds;
 	}
 
+	/**
+	 * @return true if this contains only changes since the version known to the caller: tags and serviceResources
+	 * created or updated, with resourceToTagIds of these resources, and ids of deleted resources and tags
+	 */
+	public Boolean getIsDelta() {
+		return isDelta;
+	}
+
+	public void setIsDelta(Boolean isDelta) {
+		this.isDelta = isDelta;
+	}
+
+	public List<Long> getDeletedResourceIds() {
+		return deletedResourceIds;
+	}
+
+	public void setDeletedResourceIds(List<Long> deletedResourceIds) {
+		this.deletedResourceIds = deletedResourceIds;
+	}
+
+	public List<Long> getDeletedTagIds() {
+		return deletedTagIds;
+	}
+
+	public void setDeletedTagIds(List<Long> deletedTagIds) {
+		this.deletedTagIds = deletedTagIds;
+	}
+
 	@Override
 	public String toString( ) {
 		StringBuilder sb = new StringBuilder();
@@ -176,7 +207,8 @@ public class ServiceTags implements java.io.Serializable {
 				.append("op=").append(op).append(", ")
 				.append("serviceName=").append(serviceName).append(", ")
 				.append("tagVersion=").append(tagVersion).append(", ")
-				.append("tagUpdateTime={").append(tagUpdateTime).append("}")
+				.append("tagUpdateTime={").append(tagUpdateTime).append("}, ")
+				.append("isDelta=").append(isDelta)
 				.append("}");
 
 		return sb;
@@ -0,0 +1,210 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.audit;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestRangerAuditShaper {
+
+	@Test
+	public void testSampling() {
+		RangerAuditShaper shaper = new RangerAuditShaper(10, 0, 0, 2, null, null, 0, 0);
+
+		int  loggedCount = 0;
+		long eventCount  = 0;
+
+		for(int i = 0; i < 100; i++) {
+			AuthzAuditEvent event = createEvent("etl", "/data/d1/t" + i, true);
+
+			if(shaper.isToBeLogged(event)) {
+				loggedCount++;
+				eventCount += event.getEventCount();
+			}
+		}
+
+		assertEquals(10, loggedCount);
+		assertEquals("last 9 suppressed events are yet to be carried by a logged event", 91, eventCount);
+		assertEquals(90, shaper.getSuppressedCount());
+		assertEquals(1, shaper.getKeyCount());
+	}
+
+	@Test
+	public void testDeniedAccessIsAlwaysLogged() {
+		RangerAuditShaper shaper = new RangerAuditShaper(10, 1, 1, 2, null, null, 0, 0);
+
+		for(int i = 0; i < 50; i++) {
+			AuthzAuditEvent event = createEvent("etl", "/data/d1/t1", false);
+
+			assertTrue(shaper.isToBeLogged(event));
+			assertEquals(1, event.getEventCount());
+		}
+
+		assertEquals(0, shaper.getSuppressedCount());
+	}
+
+	@Test
+	public void testRateLimit() {
+		TestShaper shaper = new TestShaper(2, 2);
+
+		assertEquals(2, logEvents(shaper, 10));
+
+		shaper.nowNanos += TimeUnit.SECONDS.toNanos(1);
+
+		AuthzAuditEvent event = createEvent("etl", "/data/d1/t1", true);
+
+		assertTrue(shaper.isToBeLogged(event));
+		assertEquals("event should carry the 8 events suppressed before it", 9, event.getEventCount());
+		assertEquals(1, logEvents(shaper, 10));
+
+		// a different resource prefix has its own bucket
+		assertTrue(shaper.isToBeLogged(createEvent("etl", "/data/d2/t1", true)));
+	}
+
+	@Test
+	public void testSummaryOfQuietGroup() {
+		TestShaper shaper = new TestShaper(2, 2);
+
+		assertEquals(2, logEvents(shaper, 10));
+		assertTrue("summary interval has not expired", shaper.getSummaries().isEmpty());
+
+		shaper.nowNanos += TimeUnit.SECONDS.toNanos(1);
+
+		List<AuthzAuditEvent> summaries = shaper.getSummaries();
+
+		assertEquals(1, summaries.size());
+		assertEquals("summary should carry the 8 suppressed events", 8, summaries.get(0).getEventCount());
+		assertEquals("/data/d1/t1", summaries.get(0).getResourcePath());
+
+		shaper.nowNanos += TimeUnit.SECONDS.toNanos(1);
+
+		assertTrue(shaper.getSummaries().isEmpty());
+
+		AuthzAuditEvent event = createEvent("etl", "/data/d1/t1", true);
+
+		assertTrue(shaper.isToBeLogged(event));
+		assertEquals("suppressed events should not be carried again", 1, event.getEventCount());
+	}
+
+	@Test
+	public void testSummariesOnReset() {
+		RangerAuditShaper shaper = new RangerAuditShaper(10, 0, 0, 2, null, null, 2, 0);
+
+		long eventCount = 0;
+
+		for(int i = 0; i < 2; i++) {
+			for(int j = 0; j < 5; j++) {
+				AuthzAuditEvent event = createEvent("etl", "/data/d" + i + "/t1", true);
+
+				if(shaper.isToBeLogged(event)) {
+					eventCount += event.getEventCount();
+				}
+			}
+		}
+
+		assertTrue(shaper.isToBeLogged(createEvent("etl", "/data/d2/t1", true)));
+		assertEquals(3, shaper.getKeyCount());
+		assertTrue(shaper.getSummaries().isEmpty());
+
+		eventCount += 1;
+
+		// exceeds maxKeys: groups are reset, their suppressed events returned as summaries
+		AuthzAuditEvent event = createEvent("etl", "/data/d3/t1", true);
+
+		assertTrue(shaper.isToBeLogged(event));
+		assertEquals(1, shaper.getKeyCount());
+
+		eventCount += event.getEventCount();
+
+		List<AuthzAuditEvent> summaries = shaper.getSummaries();
+
+		assertEquals(2, summaries.size());
+
+		for(AuthzAuditEvent summary : summaries) {
+			eventCount += summary.getEventCount();
+		}
+
+		assertEquals("every access should be counted once", 12, eventCount);
+	}
+
+	@Test
+	public void testShapingLimitedToUsers() {
+		RangerAuditShaper shaper = new RangerAuditShaper(10, 0, 0, 2, Collections.singleton("etl"), null, 0, 0);
+
+		for(int i = 0; i < 20; i++) {
+			assertTrue(shaper.isToBeLogged(createEvent("alice", "/data/d1/t1", true)));
+		}
+
+		assertEquals(0, shaper.getSuppressedCount());
+	}
+
+	@Test
+	public void testResourcePrefix() {
+		RangerAuditShaper shaper = new RangerAuditShaper(10, 0, 0, 2, null, null, 0, 0);
+
+		assertEquals("/data/d1", shaper.getResourcePrefix("/data/d1/t1/part-0"));
+		assertEquals("db1/tbl1", shaper.getResourcePrefix("db1/tbl1/col1"));
+		assertEquals("db1", shaper.getResourcePrefix("db1"));
+	}
+
+	private int logEvents(RangerAuditShaper shaper, int count) {
+		int ret = 0;
+
+		for(int i = 0; i < count; i++) {
+			if(shaper.isToBeLogged(createEvent("etl", "/data/d1/t1", true))) {
+				ret++;
+			}
+		}
+
+		return ret;
+	}
+
+	private AuthzAuditEvent createEvent(String user, String resourcePath, boolean isAllowed) {
+		AuthzAuditEvent ret = new AuthzAuditEvent();
+
+		ret.setUser(user);
+		ret.setAccessType("read");
+		ret.setResourcePath(resourcePath);
+		ret.setAccessResult((short) (isAllowed ? 1 : 0));
+
+		return ret;
+	}
+
+	// rate-limits allowed events, with a clock set by the test
+	private static class TestShaper extends RangerAuditShaper {
+		long nowNanos = 0;
+
+		TestShaper(double rateLimitPerSecond, double rateLimitBurst) {
+			super(1, rateLimitPerSecond, rateLimitBurst, 2, null, null, 0, 1000);
+		}
+
+		@Override
+		protected long getCurrentTimeNanos() {
+			return nowNanos;
+		}
+	}
+}
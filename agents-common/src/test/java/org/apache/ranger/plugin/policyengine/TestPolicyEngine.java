@@ -34,9 +34,13 @@ import org.apache.ranger.authorization.hadoop.config.RangerConfiguration;
 import org.apache.ranger.plugin.audit.RangerDefaultAuditHandler;
 import org.apache.ranger.plugin.contextenricher.RangerTagForEval;
 import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
 import org.apache.ranger.plugin.model.RangerServiceDef;
 import org.apache.ranger.plugin.policyengine.TestPolicyEngine.PolicyEngineTestCase.TestData;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
 import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.apache.ranger.plugin.util.RangerPolicyDeltaUtil;
 import org.apache.ranger.plugin.util.RangerRequestedResources;
 import org.apache.ranger.plugin.util.ServicePolicies;
 import org.junit.AfterClass;
@@ -50,6 +54,11 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -296,44 +305,201 @@ public class TestPolicyEngine {
 		runTestsFromResourceFiles(resourceFiles);
 	}
 
-	private void runTestsFromResourceFiles(String[] resourceNames) {
-		for(String resourceName : resourceNames) {
-			InputStream inStream = this.getClass().getResourceAsStream(resourceName);
-			InputStreamReader reader   = new InputStreamReader(inStream);
+	@Test
+	public void testPolicyEngine_compactResourceTrie() {
+		String[] resourceFiles = { "/policyengine/test_policyengine_hdfs.json",
+		                           "/policyengine/test_policyengine_hive.json",
+		                           "/policyengine/test_policyengine_hbase.json",
+		                           "/policyengine/test_policyengine_tag_hive.json",
+		                           "/policyengine/test_policyengine_hive_mask_filter.json" };
 
-			runTests(reader, resourceName);
-		}
+		RangerPolicyEngineOptions policyEngineOptions = getDefaultPolicyEngineOptions();
+
+		policyEngineOptions.compactResourceTrie = true;
+
+		runTestsFromResourceFiles(resourceFiles, policyEngineOptions);
 	}
 
-	private void runTests(InputStreamReader reader, String testName) {
-		PolicyEngineTestCase testCase = gsonBuilder.fromJson(reader, PolicyEngineTestCase.class);
+	@Test
+	public void testPolicyEngine_cacheAccessDecisions() {
+		String[] resourceFiles = { "/policyengine/test_policyengine_hdfs.json",
+		                           "/policyengine/test_policyengine_hive.json",
+		                           "/policyengine/test_policyengine_tag_hive.json",
+		                           "/policyengine/test_policyengine_conditions.json",
+		                           "/policyengine/test_policyengine_owner.json" };
 
-		assertTrue("invalid input: " + testName, testCase != null && testCase.serviceDef != null && testCase.policies != null && testCase.tests != null);
+		RangerPolicyEngineOptions policyEngineOptions = getDefaultPolicyEngineOptions();
 
-		ServicePolicies servicePolicies = new ServicePolicies();
-		servicePolicies.setServiceName(testCase.serviceName);
-		servicePolicies.setServiceDef(testCase.serviceDef);
-		servicePolicies.setPolicies(testCase.policies);
+		policyEngineOptions.cacheAccessDecisions = true;
 
-		if (StringUtils.isNotBlank(testCase.auditMode)) {
-			servicePolicies.setAuditMode(testCase.auditMode);
+		runTestsFromResourceFiles(resourceFiles, policyEngineOptions);
+	}
+
+	@Test
+	public void testPolicyEngine_parallelInit() {
+		String[] resourceFiles = { "/policyengine/test_policyengine_hdfs.json",
+		                           "/policyengine/test_policyengine_hive.json",
+		                           "/policyengine/test_policyengine_hbase.json",
+		                           "/policyengine/test_policyengine_tag_hive.json",
+		                           "/policyengine/test_policyengine_descendant_tags.json",
+		                           "/policyengine/test_policyengine_hive_mask_filter.json" };
+
+		RangerPolicyEngineOptions policyEngineOptions = getDefaultPolicyEngineOptions();
+
+		policyEngineOptions.initThreadCount = 4;
+
+		runTestsFromResourceFiles(resourceFiles, policyEngineOptions);
+	}
+
+	/*
+	 * parallel init splits work only when there are at least RangerPolicyRepository.MIN_POLICIES_PER_INIT_TASK policies,
+	 * more than any of the test files above has; hence generate enough policies to be split over multiple tasks
+	 */
+	@Test
+	public void testPolicyEngine_parallelInitWithManyPolicies() {
+		InputStream          inStream = this.getClass().getResourceAsStream("/policyengine/test_policyengine_hdfs.json");
+		PolicyEngineTestCase testCase = gsonBuilder.fromJson(new InputStreamReader(inStream), PolicyEngineTestCase.class);
+		RangerPolicy         template = testCase.policies.get(1);
+
+		List<RangerAccessRequest> requests = new ArrayList<RangerAccessRequest>();
+
+		for (TestData test : testCase.tests) {
+			requests.add(test.request);
 		}
 
-		if (null != testCase.tagPolicyInfo) {
-			ServicePolicies.TagPolicies tagPolicies = new ServicePolicies.TagPolicies();
-			tagPolicies.setServiceName(testCase.tagPolicyInfo.serviceName);
-			tagPolicies.setServiceDef(testCase.tagPolicyInfo.serviceDef);
-			tagPolicies.setPolicies(testCase.tagPolicyInfo.tagPolicies);
+		for (int i = 0; i < 100; i++) {
+			RangerPolicy                      policy    = copyOf(template);
+			Map<String, RangerPolicyResource> resources = new HashMap<String, RangerPolicyResource>();
+			String                            path      = "/generated/dir" + i;
+			String                            group     = "group" + (i % 5);
 
-			if (StringUtils.isNotBlank(testCase.auditMode)) {
-				tagPolicies.setAuditMode(testCase.auditMode);
+			resources.put("path", new RangerPolicyResource(path, false, true));
+
+			policy.setId(100L + i);
+			policy.setName("generated-" + i);
+			policy.setIsAuditEnabled(i % 2 == 0);
+			policy.setResources(resources);
+			policy.getPolicyItems().get(0).setGroups(Collections.singletonList(group));
+
+			if (i % 4 == 0) { // deny, and allow by the policy for the parent directory
+				policy.setDenyPolicyItems(policy.getPolicyItems());
+				policy.setPolicyItems(new ArrayList<RangerPolicyItem>());
+			}
+
+			testCase.policies.add(policy);
+
+			for (String accessGroup : new String[] { group, "group" + ((i + 1) % 5) }) {
+				Map<String, String> elements = new HashMap<String, String>();
+
+				elements.put("path", path + "/file" + i);
+
+				requests.add(new RangerAccessRequestImpl(new RangerAccessResourceImpl(elements), "read", "user" + i, new HashSet<String>(Collections.singleton(accessGroup))));
 			}
-			servicePolicies.setTagPolicies(tagPolicies);
 		}
 
-		RangerPolicyEngineOptions policyEngineOptions = new RangerPolicyEngineOptions();
+		RangerPolicy parentPolicy = copyOf(template);
+
+		parentPolicy.setId(1000L);
+		parentPolicy.setName("generated-parent");
+		parentPolicy.getResources().put("path", new RangerPolicyResource("/generated", false, true));
+		parentPolicy.getPolicyItems().get(0).setGroups(Collections.singletonList("group0"));
+
+		testCase.policies.add(parentPolicy);
+
+		RangerPolicyEngineOptions serialOptions   = getDefaultPolicyEngineOptions();
+		RangerPolicyEngineOptions parallelOptions = getDefaultPolicyEngineOptions();
+
+		parallelOptions.initThreadCount = 4;
+
+		ServicePolicies servicePolicies = createServicePolicies(testCase);
+
+		RangerPolicyRepository serialRepository   = new RangerPolicyRepository("serial", servicePolicies, serialOptions);
+		RangerPolicyRepository parallelRepository = new RangerPolicyRepository("parallel", servicePolicies, parallelOptions);
+
+		assertEquals("evaluator order mismatched", getPolicyIds(serialRepository.getPolicyEvaluators()), getPolicyIds(parallelRepository.getPolicyEvaluators()));
+
+		for (RangerAccessRequest request : requests) {
+			assertEquals("evaluator order mismatched for " + request.getResource().getAsString(), getPolicyIds(serialRepository.getPolicyEvaluators(request.getResource())), getPolicyIds(parallelRepository.getPolicyEvaluators(request.getResource())));
+		}
+
+		RangerPolicyEngine serialEngine   = new RangerPolicyEngineImpl("serial", servicePolicies, serialOptions);
+		RangerPolicyEngine parallelEngine = new RangerPolicyEngineImpl("parallel", servicePolicies, parallelOptions);
+
+		for (RangerAccessRequest request : requests) {
+			serialEngine.preProcess(request);
+
+			RangerAccessResult expected = serialEngine.isAccessAllowed(request, null);
+
+			parallelEngine.preProcess(request);
+
+			RangerAccessResult result = parallelEngine.isAccessAllowed(request, null);
+
+			assertEquals("isAllowed mismatched! - " + request.getResource().getAsString(), expected.getIsAllowed(), result.getIsAllowed());
+			assertEquals("isAudited mismatched! - " + request.getResource().getAsString(), expected.getIsAudited(), result.getIsAudited());
+			assertEquals("policyId mismatched! - " + request.getResource().getAsString(), expected.getPolicyId(), result.getPolicyId());
+		}
+	}
+
+	@Test
+	public void testPolicyEngine_policyDeltas() {
+		String[] resourceFiles = { "/policyengine/test_policyengine_hdfs.json",
+		                           "/policyengine/test_policyengine_hive.json",
+		                           "/policyengine/test_policyengine_hbase.json",
+		                           "/policyengine/test_policyengine_tag_hive.json",
+		                           "/policyengine/test_policyengine_hive_mask_filter.json" };
+
+		runTestsFromResourceFiles(resourceFiles, getDefaultPolicyEngineOptions(), true);
+	}
+
+	@Test
+	public void testPolicyEngine_batchEvaluation() {
+		String[] resourceFiles = { "/policyengine/test_policyengine_hdfs.json",
+		                           "/policyengine/test_policyengine_hive.json",
+		                           "/policyengine/test_policyengine_hbase.json",
+		                           "/policyengine/test_policyengine_conditions.json",
+		                           "/policyengine/test_policyengine_owner.json",
+		                           "/policyengine/test_policyengine_descendant_tags.json",
+		                           "/policyengine/test_policyengine_tag_hive_filebased.json" };
+
+		for(String resourceName : resourceFiles) {
+			InputStream       inStream = this.getClass().getResourceAsStream(resourceName);
+			InputStreamReader reader   = new InputStreamReader(inStream);
+
+			runBatchTests(reader, resourceName, getDefaultPolicyEngineOptions());
+		}
+	}
+
+	private void runTestsFromResourceFiles(String[] resourceNames) {
+		runTestsFromResourceFiles(resourceNames, getDefaultPolicyEngineOptions());
+	}
+
+	private void runTestsFromResourceFiles(String[] resourceNames, RangerPolicyEngineOptions policyEngineOptions) {
+		runTestsFromResourceFiles(resourceNames, policyEngineOptions, false);
+	}
+
+	private void runTestsFromResourceFiles(String[] resourceNames, RangerPolicyEngineOptions policyEngineOptions, boolean applyPolicyDeltas) {
+		for(String resourceName : resourceNames) {
+			InputStream inStream = this.getClass().getResourceAsStream(resourceName);
+			InputStreamReader reader   = new InputStreamReader(inStream);
+
+			runTests(reader, resourceName, policyEngineOptions, applyPolicyDeltas);
+		}
+	}
+
+	private RangerPolicyEngineOptions getDefaultPolicyEngineOptions() {
+		RangerPolicyEngineOptions ret = new RangerPolicyEngineOptions();
+
+		ret.disableTagPolicyEvaluation = false;
+
+		return ret;
+	}
+
+	private void runTests(InputStreamReader reader, String testName, RangerPolicyEngineOptions policyEngineOptions, boolean applyPolicyDeltas) {
+		PolicyEngineTestCase testCase = gsonBuilder.fromJson(reader, PolicyEngineTestCase.class);
+
+		assertTrue("invalid input: " + testName, testCase != null && testCase.serviceDef != null && testCase.policies != null && testCase.tests != null);
 
-		policyEngineOptions.disableTagPolicyEvaluation = false;
+		ServicePolicies servicePolicies = createServicePolicies(testCase);
 
 		boolean useForwardedIPAddress = RangerConfiguration.getInstance().getBoolean("ranger.plugin.hive.use.x-forwarded-for.ipaddress", false);
 		String trustedProxyAddressString = RangerConfiguration.getInstance().get("ranger.plugin.hive.trusted.proxy.ipaddresses");
@@ -343,7 +509,7 @@ public class TestPolicyEngine {
 				trustedProxyAddresses[i] = trustedProxyAddresses[i].trim();
 			}
 		}
-		RangerPolicyEngine policyEngine = new RangerPolicyEngineImpl(testName, servicePolicies, policyEngineOptions);
+		RangerPolicyEngine policyEngine = applyPolicyDeltas ? createPolicyEngineWithDeltas(testName, servicePolicies, policyEngineOptions) : new RangerPolicyEngineImpl(testName, servicePolicies, policyEngineOptions);
 		policyEngine.setUseForwardedIPAddress(useForwardedIPAddress);
 		policyEngine.setTrustedProxyAddresses(trustedProxyAddresses);
 		long requestCount = 0L;
@@ -434,6 +600,14 @@ public class TestPolicyEngine {
 				assertEquals("isAllowed mismatched! - " + test.name, expected.getIsAllowed(), result.getIsAllowed());
 				assertEquals("isAudited mismatched! - " + test.name, expected.getIsAudited(), result.getIsAudited());
 				assertEquals("policyId mismatched! - " + test.name, expected.getPolicyId(), result.getPolicyId());
+
+				if(policyEngineOptions.cacheAccessDecisions) {
+					result = policyEngine.isAccessAllowed(request, auditHandler);
+
+					assertEquals("isAllowed mismatched on reevaluation! - " + test.name, expected.getIsAllowed(), result.getIsAllowed());
+					assertEquals("isAudited mismatched on reevaluation! - " + test.name, expected.getIsAudited(), result.getIsAudited());
+					assertEquals("policyId mismatched on reevaluation! - " + test.name, expected.getPolicyId(), result.getPolicyId());
+				}
 			}
 
 			if(test.dataMaskResult != null) {
@@ -469,6 +643,162 @@ public class TestPolicyEngine {
 		}
 	}
 
+	// evaluates the requests of all tests having an expected access result in one batch
+	private void runBatchTests(InputStreamReader reader, String testName, RangerPolicyEngineOptions policyEngineOptions) {
+		PolicyEngineTestCase testCase = gsonBuilder.fromJson(reader, PolicyEngineTestCase.class);
+
+		assertTrue("invalid input: " + testName, testCase != null && testCase.serviceDef != null && testCase.policies != null && testCase.tests != null);
+
+		RangerPolicyEngine        policyEngine = new RangerPolicyEngineImpl(testName, createServicePolicies(testCase), policyEngineOptions);
+		List<TestData>            tests        = new ArrayList<TestData>();
+		List<RangerAccessRequest> requests     = new ArrayList<RangerAccessRequest>();
+
+		for(TestData test : testCase.tests) {
+			if(test.result != null) {
+				tests.add(test);
+				requests.add(test.request);
+			}
+		}
+
+		policyEngine.preProcess(requests);
+
+		Collection<RangerAccessResult> results = policyEngine.isAccessAllowed(requests, new RangerDefaultAuditHandler());
+
+		assertEquals("result count mismatched! - " + testName, requests.size(), results.size());
+
+		int i = 0;
+
+		for(RangerAccessResult result : results) {
+			TestData           test     = tests.get(i++);
+			RangerAccessResult expected = test.result;
+
+			assertNotNull("result was null! - " + test.name, result);
+			assertEquals("isAllowed mismatched in batch! - " + test.name, expected.getIsAllowed(), result.getIsAllowed());
+			assertEquals("isAudited mismatched in batch! - " + test.name, expected.getIsAudited(), result.getIsAudited());
+			assertEquals("policyId mismatched in batch! - " + test.name, expected.getPolicyId(), result.getPolicyId());
+		}
+
+		// with stopOnDeny, requests after the first denied one are not evaluated
+		int expectedCount = 0;
+
+		for(TestData test : tests) {
+			expectedCount++;
+
+			if(!test.result.getIsAllowed()) {
+				break;
+			}
+		}
+
+		Collection<RangerAccessResult> stoppedResults = policyEngine.isAccessAllowed(requests, null, true);
+
+		assertEquals("result count mismatched with stopOnDeny! - " + testName, expectedCount, stoppedResults.size());
+
+		i = 0;
+
+		for(RangerAccessResult result : stoppedResults) {
+			TestData test = tests.get(i++);
+
+			assertEquals("isAllowed mismatched with stopOnDeny! - " + test.name, test.result.getIsAllowed(), result.getIsAllowed());
+		}
+	}
+
+	private ServicePolicies createServicePolicies(PolicyEngineTestCase testCase) {
+		ServicePolicies servicePolicies = new ServicePolicies();
+		servicePolicies.setServiceName(testCase.serviceName);
+		servicePolicies.setServiceDef(testCase.serviceDef);
+		servicePolicies.setPolicies(testCase.policies);
+
+		if (StringUtils.isNotBlank(testCase.auditMode)) {
+			servicePolicies.setAuditMode(testCase.auditMode);
+		}
+
+		if (null != testCase.tagPolicyInfo) {
+			ServicePolicies.TagPolicies tagPolicies = new ServicePolicies.TagPolicies();
+			tagPolicies.setServiceName(testCase.tagPolicyInfo.serviceName);
+			tagPolicies.setServiceDef(testCase.tagPolicyInfo.serviceDef);
+			tagPolicies.setPolicies(testCase.tagPolicyInfo.tagPolicies);
+
+			if (StringUtils.isNotBlank(testCase.auditMode)) {
+				tagPolicies.setAuditMode(testCase.auditMode);
+			}
+			servicePolicies.setTagPolicies(tagPolicies);
+		}
+
+		return servicePolicies;
+	}
+
+	// builds an engine with a different set of policies, and updates it with deltas to get to servicePolicies
+	private RangerPolicyEngine createPolicyEngineWithDeltas(String testName, ServicePolicies servicePolicies, RangerPolicyEngineOptions policyEngineOptions) {
+		List<RangerPolicy> policies     = servicePolicies.getPolicies();
+		List<RangerPolicy> basePolicies = new ArrayList<RangerPolicy>();
+		long               maxPolicyId  = 0;
+
+		for (RangerPolicy policy : policies) {
+			policy.setVersion(2L);
+
+			maxPolicyId = Math.max(maxPolicyId, policy.getId());
+		}
+
+		for (int i = 0; i < policies.size(); i++) {
+			RangerPolicy policy = policies.get(i);
+
+			if (i % 3 == 1) { // to be updated by deltas
+				RangerPolicy oldPolicy = copyOf(policy);
+
+				oldPolicy.setVersion(1L);
+
+				basePolicies.add(oldPolicy);
+			} else if (i % 3 == 2) { // unchanged
+				basePolicies.add(policy);
+			} // else: to be created by deltas
+
+			// to be deleted by deltas
+			RangerPolicy deletedPolicy = copyOf(policy);
+
+			deletedPolicy.setId(maxPolicyId + 1 + i);
+
+			basePolicies.add(deletedPolicy);
+		}
+
+		ServicePolicies baseServicePolicies = new ServicePolicies();
+
+		baseServicePolicies.setServiceName(servicePolicies.getServiceName());
+		baseServicePolicies.setServiceDef(servicePolicies.getServiceDef());
+		baseServicePolicies.setAuditMode(servicePolicies.getAuditMode());
+		baseServicePolicies.setTagPolicies(servicePolicies.getTagPolicies());
+		baseServicePolicies.setPolicyVersion(1L);
+		baseServicePolicies.setPolicies(basePolicies);
+
+		RangerPolicyEngineImpl baseEngine = new RangerPolicyEngineImpl(testName, baseServicePolicies, policyEngineOptions);
+
+		ServicePolicies deltaServicePolicies = new ServicePolicies();
+
+		deltaServicePolicies.setServiceName(servicePolicies.getServiceName());
+		deltaServicePolicies.setPolicyVersion(2L);
+		deltaServicePolicies.setPolicyDeltas(RangerPolicyDeltaUtil.getPolicyDeltas(basePolicies, policies));
+
+		RangerPolicyEngine ret = baseEngine.cloneWithDeltas(RangerPolicyDeltaUtil.applyDeltas(baseServicePolicies, deltaServicePolicies), policyEngineOptions);
+
+		assertNotNull("policy deltas not applied - " + testName, ret);
+		assertEquals("policyVersion mismatched after applying deltas - " + testName, 2L, ret.getPolicyVersion());
+
+		return ret;
+	}
+
+	private static List<Long> getPolicyIds(List<RangerPolicyEvaluator> evaluators) {
+		List<Long> ret = new ArrayList<Long>(evaluators.size());
+
+		for (RangerPolicyEvaluator evaluator : evaluators) {
+			ret.add(evaluator.getPolicy().getId());
+		}
+
+		return ret;
+	}
+
+	private static RangerPolicy copyOf(RangerPolicy policy) {
+		return gsonBuilder.fromJson(gsonBuilder.toJson(policy), RangerPolicy.class);
+	}
+
 	static class PolicyEngineTestCase {
 		public String             serviceName;
 		public RangerServiceDef   serviceDef;
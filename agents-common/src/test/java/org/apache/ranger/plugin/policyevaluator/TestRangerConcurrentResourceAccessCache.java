@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyevaluator;
+
+import org.apache.ranger.plugin.policyengine.RangerAccessResource;
+import org.apache.ranger.plugin.policyevaluator.RangerResourceAccessCache.CacheType;
+import org.apache.ranger.plugin.policyevaluator.RangerResourceAccessCache.LookupResult;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TestRangerConcurrentResourceAccessCache {
+
+	@Test
+	public void testLookupAndAdd() {
+		RangerConcurrentResourceAccessCache cache = new RangerConcurrentResourceAccessCache("test", 64, 64, 5);
+
+		assertEquals("segmentCount should be rounded up to a power of 2", 8, cache.getSegmentCount());
+
+		RangerAccessResource matched    = getResource("/data/matched");
+		RangerAccessResource notMatched = getResource("/data/not-matched");
+
+		assertEquals(LookupResult.NOT_FOUND, cache.lookup(matched));
+		assertEquals(LookupResult.NOT_FOUND, cache.lookup(notMatched));
+
+		cache.add(matched, CacheType.MATCHED_CACHE);
+		cache.add(notMatched, CacheType.NOTMATCHED_CACHE);
+
+		assertEquals(LookupResult.IN_MATCHED_CACHE, cache.lookup(matched));
+		assertEquals(LookupResult.IN_NOTMATCHED_CACHE, cache.lookup(notMatched));
+
+		assertEquals(1, cache.getMatchedHitCount());
+		assertEquals(1, cache.getNotMatchedHitCount());
+		assertEquals(2, cache.getMissCount());
+	}
+
+	@Test
+	public void testEviction() {
+		final int cacheSize = 32;
+
+		RangerConcurrentResourceAccessCache cache = new RangerConcurrentResourceAccessCache("test", cacheSize, cacheSize, 4);
+
+		for(int i = 0; i < cacheSize * 10; i++) {
+			cache.add(getResource("/data/" + i), CacheType.MATCHED_CACHE);
+		}
+
+		int foundCount = 0;
+
+		for(int i = 0; i < cacheSize * 10; i++) {
+			if(cache.lookup(getResource("/data/" + i)) == LookupResult.IN_MATCHED_CACHE) {
+				foundCount++;
+			}
+		}
+
+		assertTrue("cache grew beyond its capacity: foundCount=" + foundCount, foundCount <= cacheSize);
+		assertTrue("most recently added entry was evicted", foundCount > 0);
+		assertEquals(LookupResult.IN_MATCHED_CACHE, cache.lookup(getResource("/data/" + (cacheSize * 10 - 1))));
+	}
+
+	@Test
+	public void testConcurrentAccess() throws Exception {
+		final RangerConcurrentResourceAccessCache cache = new RangerConcurrentResourceAccessCache("test", 10000, 10000, 16);
+
+		Thread[] threads = new Thread[8];
+
+		for(int t = 0; t < threads.length; t++) {
+			final RangerAccessResource[] resources = new RangerAccessResource[100];
+
+			for(int i = 0; i < resources.length; i++) {
+				resources[i] = getResource("/data/" + t + "/" + i);
+			}
+
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for(int i = 0; i < 1000; i++) {
+						RangerAccessResource resource = resources[i % resources.length];
+
+						if(cache.lookup(resource) == LookupResult.NOT_FOUND) {
+							cache.add(resource, (i % 2) == 0 ? CacheType.MATCHED_CACHE : CacheType.NOTMATCHED_CACHE);
+						}
+					}
+				}
+			};
+		}
+
+		for(Thread thread : threads) {
+			thread.start();
+		}
+
+		for(Thread thread : threads) {
+			thread.join();
+		}
+
+		long lookupCount = cache.getMatchedHitCount() + cache.getNotMatchedHitCount() + cache.getMissCount();
+
+		assertEquals(threads.length * 1000, lookupCount);
+		assertEquals(threads.length * 100, cache.getMissCount());
+	}
+
+	private static RangerAccessResource getResource(String path) {
+		RangerAccessResource ret = mock(RangerAccessResource.class);
+
+		when(ret.getCacheKey()).thenReturn("path=" + path);
+
+		return ret;
+	}
+}
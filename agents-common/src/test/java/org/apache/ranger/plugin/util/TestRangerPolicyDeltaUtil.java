@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicyDelta;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class TestRangerPolicyDeltaUtil {
+
+	@Test
+	public void testGetPolicyDeltas() {
+		List<RangerPolicy> oldPolicies = Arrays.asList(policy(1L, 1L), policy(2L, 1L), policy(3L, 1L));
+		List<RangerPolicy> newPolicies = Arrays.asList(policy(1L, 1L), policy(2L, 2L), policy(4L, 1L));
+
+		Map<Long, RangerPolicyDelta> deltas = toMap(RangerPolicyDeltaUtil.getPolicyDeltas(oldPolicies, newPolicies));
+
+		assertEquals(3, deltas.size());
+		assertEquals(Integer.valueOf(RangerPolicyDelta.CHANGE_TYPE_POLICY_UPDATE), deltas.get(2L).getChangeType());
+		assertEquals(Integer.valueOf(RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE), deltas.get(3L).getChangeType());
+		assertEquals(Integer.valueOf(RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE), deltas.get(4L).getChangeType());
+		assertNull(deltas.get(3L).getPolicy());
+	}
+
+	@Test
+	public void testMergeDeltas() {
+		List<RangerPolicyDelta> deltas1 = Arrays.asList(create(policy(4L, 1L)), create(policy(5L, 1L)), update(policy(1L, 2L)));
+		List<RangerPolicyDelta> deltas2 = Arrays.asList(update(policy(4L, 2L)), delete(5L), delete(1L));
+
+		List<List<RangerPolicyDelta>> deltasList = new ArrayList<List<RangerPolicyDelta>>();
+
+		deltasList.add(deltas1);
+		deltasList.add(deltas2);
+
+		Map<Long, RangerPolicyDelta> merged = toMap(RangerPolicyDeltaUtil.mergeDeltas(deltasList));
+
+		assertEquals(2, merged.size());
+		assertEquals(Integer.valueOf(RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE), merged.get(4L).getChangeType());
+		assertEquals(Long.valueOf(2L), merged.get(4L).getPolicy().getVersion());
+		assertEquals(Integer.valueOf(RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE), merged.get(1L).getChangeType());
+	}
+
+	@Test
+	public void testApplyDeltas() {
+		ServicePolicies basePolicies = new ServicePolicies();
+
+		basePolicies.setServiceName("cl1_hive");
+		basePolicies.setPolicyVersion(10L);
+		basePolicies.setPolicies(Arrays.asList(policy(1L, 1L), policy(2L, 1L), policy(3L, 1L)));
+
+		RangerPolicy updatedPolicy = policy(2L, 2L);
+		RangerPolicy createdPolicy = policy(4L, 1L);
+
+		ServicePolicies deltaPolicies = new ServicePolicies();
+
+		deltaPolicies.setServiceName("cl1_hive");
+		deltaPolicies.setPolicyVersion(12L);
+		deltaPolicies.setPolicyDeltas(Arrays.asList(update(updatedPolicy), delete(3L), create(createdPolicy)));
+
+		ServicePolicies merged = RangerPolicyDeltaUtil.applyDeltas(basePolicies, deltaPolicies);
+
+		assertEquals(Long.valueOf(12L), merged.getPolicyVersion());
+		assertEquals(3, merged.getPolicies().size());
+		assertSame(basePolicies.getPolicies().get(0), merged.getPolicies().get(0));
+		assertSame(updatedPolicy, merged.getPolicies().get(1));
+		assertSame(createdPolicy, merged.getPolicies().get(2));
+		assertSame(deltaPolicies.getPolicyDeltas(), merged.getPolicyDeltas());
+
+		assertEquals("base policies must not be modified", 3, basePolicies.getPolicies().size());
+		assertNull("deltas can't be applied without base policies", RangerPolicyDeltaUtil.applyDeltas(null, deltaPolicies));
+	}
+
+	private static RangerPolicy policy(Long id, Long version) {
+		RangerPolicy ret = new RangerPolicy();
+
+		ret.setId(id);
+		ret.setVersion(version);
+
+		return ret;
+	}
+
+	private static RangerPolicyDelta create(RangerPolicy policy) {
+		return new RangerPolicyDelta(RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE, policy.getId(), policy);
+	}
+
+	private static RangerPolicyDelta update(RangerPolicy policy) {
+		return new RangerPolicyDelta(RangerPolicyDelta.CHANGE_TYPE_POLICY_UPDATE, policy.getId(), policy);
+	}
+
+	private static RangerPolicyDelta delete(Long policyId) {
+		return new RangerPolicyDelta(RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE, policyId, null);
+	}
+
+	private static Map<Long, RangerPolicyDelta> toMap(List<RangerPolicyDelta> deltas) {
+		Map<Long, RangerPolicyDelta> ret = new HashMap<Long, RangerPolicyDelta>();
+
+		for(RangerPolicyDelta delta : deltas) {
+			ret.put(delta.getPolicyId(), delta);
+		}
+
+		return ret;
+	}
+}
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerServiceResource;
+import org.apache.ranger.plugin.model.RangerTag;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestRangerServiceTagsDeltaUtil {
+
+	@Test
+	public void testGetServiceTagsDelta() {
+		ServiceTags oldTags = serviceTags(1L);
+		ServiceTags newTags = serviceTags(2L);
+
+		addResource(oldTags, resource(1L, "db1"), 11L);
+		addResource(oldTags, resource(2L, "db2"), 12L);
+		addResource(oldTags, resource(3L, "db3"), 13L);
+		addResource(oldTags, resource(4L, "db4"), 14L);
+
+		addResource(newTags, resource(1L, "db1"), 11L);   // unchanged
+		addResource(newTags, resource(2L, "db2"), 13L);   // associated tag changed
+		addResource(newTags, resource(3L, "db3_1"), 13L); // resource changed
+		addResource(newTags, resource(5L, "db5"), 15L);   // created; resource 4 deleted
+
+		oldTags.getTags().put(11L, tag("PII", "1"));
+		oldTags.getTags().put(12L, tag("PII", "1"));
+		oldTags.getTags().put(13L, tag("PII", "1"));
+		oldTags.getTags().put(14L, tag("PII", "1"));
+
+		newTags.getTags().put(11L, tag("PII", "1"));
+		newTags.getTags().put(13L, tag("PII", "3"));
+		newTags.getTags().put(15L, tag("PII", "1"));
+
+		ServiceTags delta = RangerServiceTagsDeltaUtil.getServiceTagsDelta(oldTags, newTags);
+
+		assertTrue(RangerServiceTagsDeltaUtil.isDelta(delta));
+		assertEquals(Long.valueOf(2L), delta.getTagVersion());
+		assertEquals(Arrays.asList(2L, 3L, 5L), getResourceIds(delta));
+		assertEquals(Arrays.asList(13L), delta.getResourceToTagIds().get(2L));
+		assertEquals(2, delta.getTags().size());
+		assertEquals("3", delta.getTags().get(13L).getAttributes().get("level"));
+		assertEquals(Arrays.asList(4L), delta.getDeletedResourceIds());
+		assertEquals(2, delta.getDeletedTagIds().size());
+		assertTrue(delta.getDeletedTagIds().containsAll(Arrays.asList(12L, 14L)));
+	}
+
+	@Test
+	public void testMergeDeltas() {
+		ServiceTags delta1 = delta(2L);
+		ServiceTags delta2 = delta(3L);
+
+		addResource(delta1, resource(4L, "db4"), 14L);
+		addResource(delta1, resource(5L, "db5"), 15L);
+		delta1.getTags().put(14L, tag("PII", "1"));
+		delta1.getDeletedResourceIds().add(1L);
+		delta1.getDeletedTagIds().add(11L);
+
+		addResource(delta2, resource(1L, "db1"), 11L);
+		addResource(delta2, resource(4L, "db4_1"), 14L);
+		delta2.getTags().put(11L, tag("PII", "1"));
+		delta2.getDeletedResourceIds().add(5L);
+
+		ServiceTags merged = RangerServiceTagsDeltaUtil.mergeDeltas(Arrays.asList(delta1, delta2));
+
+		assertEquals(Long.valueOf(3L), merged.getTagVersion());
+		assertEquals(Arrays.asList(4L, 1L), getResourceIds(merged));
+		assertEquals("db4_1", merged.getServiceResources().get(0).getResourceElements().get("database").getValues().get(0));
+		assertNull(merged.getResourceToTagIds().get(5L));
+		assertEquals(Arrays.asList(5L), merged.getDeletedResourceIds());
+		assertEquals(2, merged.getTags().size());
+		assertTrue(merged.getDeletedTagIds().isEmpty());
+	}
+
+	@Test
+	public void testApplyDelta() {
+		ServiceTags baseTags = serviceTags(1L);
+
+		addResource(baseTags, resource(1L, "db1"), 11L);
+		addResource(baseTags, resource(2L, "db2"), 12L);
+		baseTags.getTags().put(11L, tag("PII", "1"));
+		baseTags.getTags().put(12L, tag("PII", "1"));
+
+		ServiceTags delta = delta(2L);
+
+		addResource(delta, resource(3L, "db3"), 11L);
+		delta.getTags().put(11L, tag("PII", "3"));
+		delta.getDeletedResourceIds().add(2L);
+		delta.getDeletedTagIds().add(12L);
+
+		ServiceTags result = RangerServiceTagsDeltaUtil.applyDelta(baseTags, delta);
+
+		assertEquals(Long.valueOf(2L), result.getTagVersion());
+		assertEquals(Arrays.asList(1L, 3L), getResourceIds(result));
+		assertEquals(Arrays.asList(11L), result.getResourceToTagIds().get(3L));
+		assertNull(result.getResourceToTagIds().get(2L));
+		assertEquals(1, result.getTags().size());
+		assertEquals("3", result.getTags().get(11L).getAttributes().get("level"));
+		assertNull(result.getIsDelta());
+
+		// base tags must not be modified
+		assertEquals(Arrays.asList(1L, 2L), getResourceIds(baseTags));
+		assertEquals(2, baseTags.getTags().size());
+
+		ServiceTags otherServiceDelta = delta(2L);
+
+		otherServiceDelta.setServiceName("cl1_hbase");
+
+		assertNull(RangerServiceTagsDeltaUtil.applyDelta(baseTags, otherServiceDelta));
+	}
+
+	private static ServiceTags serviceTags(Long tagVersion) {
+		ServiceTags ret = new ServiceTags();
+
+		ret.setServiceName("cl1_hive");
+		ret.setTagVersion(tagVersion);
+
+		return ret;
+	}
+
+	private static ServiceTags delta(Long tagVersion) {
+		ServiceTags ret = serviceTags(tagVersion);
+
+		ret.setIsDelta(Boolean.TRUE);
+		ret.setDeletedResourceIds(new ArrayList<Long>());
+		ret.setDeletedTagIds(new ArrayList<Long>());
+
+		return ret;
+	}
+
+	private static void addResource(ServiceTags serviceTags, RangerServiceResource resource, Long tagId) {
+		serviceTags.getServiceResources().add(resource);
+		serviceTags.getResourceToTagIds().put(resource.getId(), Arrays.asList(tagId));
+	}
+
+	private static RangerServiceResource resource(Long id, String database) {
+		Map<String, RangerPolicyResource> resourceElements = new HashMap<String, RangerPolicyResource>();
+
+		resourceElements.put("database", new RangerPolicyResource(database));
+
+		RangerServiceResource ret = new RangerServiceResource(null, "cl1_hive", resourceElements);
+
+		ret.setId(id);
+
+		return ret;
+	}
+
+	private static RangerTag tag(String type, String level) {
+		Map<String, String> attributes = new HashMap<String, String>();
+
+		attributes.put("level", level);
+
+		return new RangerTag(null, type, attributes, RangerTag.OWNER_SERVICERESOURCE);
+	}
+
+	private static List<Long> getResourceIds(ServiceTags serviceTags) {
+		List<Long> ret = new ArrayList<Long>();
+
+		for (RangerServiceResource resource : serviceTags.getServiceResources()) {
+			ret.add(resource.getId());
+		}
+
+		return ret;
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.authorization.hbase;
+
+import java.util.Arrays;
+
+import org.apache.hadoop.hbase.filter.Filter.ReturnCode;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * Filter decisions of a scan, keyed on the family and qualifier bytes of cells. Lookups compare the key with the
+ * bytes in the backing arrays of the cell, hence finding the decision for a cell doesn't allocate any object.
+ * Not thread-safe: a filter instance is used by one scanner at a time.
+ */
+class ColumnDecisionCache {
+	private static final int    INITIAL_CAPACITY = 64;
+	private static final float  LOAD_FACTOR      = 0.5f;
+	private static final byte[] EMPTY_BYTES      = new byte[0];
+
+	private final int maxSize;
+
+	private byte[][]     families;
+	private byte[][]     qualifiers;
+	private int[]        hashes;
+	private ReturnCode[] decisions;
+	private int          size;
+
+	ColumnDecisionCache(int maxSize) {
+		this.maxSize = maxSize;
+
+		allocate(INITIAL_CAPACITY);
+	}
+
+	ReturnCode get(byte[] familyArray, int familyOffset, int familyLength, byte[] qualifierArray, int qualifierOffset, int qualifierLength) {
+		int hash = hash(familyArray, familyOffset, familyLength, qualifierArray, qualifierOffset, qualifierLength);
+		int mask = decisions.length - 1;
+
+		for (int i = hash & mask; decisions[i] != null; i = (i + 1) & mask) {
+			if (hashes[i] == hash
+					&& Bytes.equals(families[i], 0, families[i].length, familyArray, familyOffset, familyLength)
+					&& Bytes.equals(qualifiers[i], 0, qualifiers[i].length, qualifierArray, qualifierOffset, qualifierLength)) {
+				return decisions[i];
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Adds the decision for the given column; key bytes are copied, as the backing arrays of cells are reused by scanners.
+	 * Once maxSize columns have been added, as can happen in tables with unbounded qualifiers, decisions are discarded
+	 * and the cache is filled again.
+	 */
+	void put(byte[] familyArray, int familyOffset, int familyLength, byte[] qualifierArray, int qualifierOffset, int qualifierLength, ReturnCode decision) {
+		if (maxSize <= 0) {
+			return;
+		}
+
+		if (size >= maxSize) {
+			clear();
+		} else if (size + 1 > decisions.length * LOAD_FACTOR) {
+			rehash(decisions.length * 2);
+		}
+
+		int hash = hash(familyArray, familyOffset, familyLength, qualifierArray, qualifierOffset, qualifierLength);
+
+		insert(hash, copyOf(familyArray, familyOffset, familyLength), copyOf(qualifierArray, qualifierOffset, qualifierLength), decision);
+	}
+
+	int size() {
+		return size;
+	}
+
+	void clear() {
+		allocate(INITIAL_CAPACITY);
+	}
+
+	private void insert(int hash, byte[] family, byte[] qualifier, ReturnCode decision) {
+		int mask = decisions.length - 1;
+		int i    = hash & mask;
+
+		while (decisions[i] != null) {
+			if (hashes[i] == hash && Bytes.equals(families[i], family) && Bytes.equals(qualifiers[i], qualifier)) {
+				decisions[i] = decision;
+
+				return;
+			}
+
+			i = (i + 1) & mask;
+		}
+
+		families[i]   = family;
+		qualifiers[i] = qualifier;
+		hashes[i]     = hash;
+		decisions[i]  = decision;
+
+		size++;
+	}
+
+	private void rehash(int capacity) {
+		byte[][]     oldFamilies   = families;
+		byte[][]     oldQualifiers = qualifiers;
+		int[]        oldHashes     = hashes;
+		ReturnCode[] oldDecisions  = decisions;
+
+		allocate(capacity);
+
+		for (int i = 0; i < oldDecisions.length; i++) {
+			if (oldDecisions[i] != null) {
+				insert(oldHashes[i], oldFamilies[i], oldQualifiers[i], oldDecisions[i]);
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		families   = new byte[capacity][];
+		qualifiers = new byte[capacity][];
+		hashes     = new int[capacity];
+		decisions  = new ReturnCode[capacity];
+		size       = 0;
+	}
+
+	private static byte[] copyOf(byte[] array, int offset, int length) {
+		return length == 0 ? EMPTY_BYTES : Arrays.copyOfRange(array, offset, offset + length);
+	}
+
+	private static int hash(byte[] familyArray, int familyOffset, int familyLength, byte[] qualifierArray, int qualifierOffset, int qualifierLength) {
+		int ret = 31 * Bytes.hashCode(familyArray, familyOffset, familyLength) + Bytes.hashCode(qualifierArray, qualifierOffset, qualifierLength);
+
+		return ret ^ (ret >>> 16);
+	}
+}
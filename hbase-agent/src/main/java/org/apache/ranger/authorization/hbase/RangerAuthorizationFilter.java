@@ -31,6 +31,8 @@ import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.filter.FilterBase;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.authorization.hadoop.config.RangerConfiguration;
+import org.apache.ranger.authorization.hadoop.constants.RangerHadoopConstants;
 
 public class RangerAuthorizationFilter extends FilterBase {
 
@@ -41,6 +43,8 @@ public class RangerAuthorizationFilter extends FilterBase {
 	final Map<String, Set<String>> _columnsAccessAllowed;
 	final AuthorizationSession _session;
 	final HbaseAuditHandler _auditHandler = HbaseFactory.getInstance().getAuditHandler();
+	// decisions made for columns of this scan; a column is authorized, and its access audited, only for its first cell
+	final ColumnDecisionCache _columnDecisions;
 
 	public RangerAuthorizationFilter(AuthorizationSession session, Set<String> familiesAccessAllowed, Set<String> familiesAccessDenied, Set<String> familiesAccessIndeterminate,
 									 Map<String, Set<String>> columnsAccessAllowed) {
@@ -53,9 +57,9 @@ public class RangerAuthorizationFilter extends FilterBase {
 		_session = session;
 		// we don't want to audit denial, so we need to make sure the hander is what we need it to be.
 		_session.auditHandler(_auditHandler);
+		_columnDecisions = new ColumnDecisionCache(RangerConfiguration.getInstance().getInt(RangerHadoopConstants.HBASE_FILTER_COLUMN_DECISION_CACHE_SIZE_PROP, RangerHadoopConstants.HBASE_FILTER_COLUMN_DECISION_CACHE_SIZE_DEFAULT_VALUE));
 	}
 	
-	@SuppressWarnings("deprecation")
 	@Override
 	public ReturnCode filterKeyValue(Cell kv) throws IOException {
 
@@ -63,17 +67,35 @@ public class RangerAuthorizationFilter extends FilterBase {
 			LOG.debug("==> filterKeyValue");
 		}
 
+		ReturnCode result = _columnDecisions.get(kv.getFamilyArray(), kv.getFamilyOffset(), kv.getFamilyLength(), kv.getQualifierArray(), kv.getQualifierOffset(), kv.getQualifierLength());
+
+		if (result != null) {
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("filterKeyValue: family/column found in column decisions cache.");
+			}
+		} else {
+			result = evaluateAccess(kv);
+
+			_columnDecisions.put(kv.getFamilyArray(), kv.getFamilyOffset(), kv.getFamilyLength(), kv.getQualifierArray(), kv.getQualifierOffset(), kv.getQualifierLength(), result);
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("filterKeyValue: " + result);
+		}
+		return result;
+	}
+
+	private ReturnCode evaluateAccess(Cell kv) {
 		String family = null;
-		byte[] familyBytes = kv.getFamily();
-		if (familyBytes != null && familyBytes.length > 0) {
-			family = Bytes.toString(familyBytes);
+		if (kv.getFamilyLength() > 0) {
+			family = Bytes.toString(kv.getFamilyArray(), kv.getFamilyOffset(), kv.getFamilyLength());
 			if (LOG.isDebugEnabled()) {
 				LOG.debug("filterKeyValue: evaluating family[" + family + "].");
 			}
 		}
 		String column = null;
-		if (kv.getQualifier() != null && kv.getQualifier().length > 0) {
-			column = Bytes.toString(kv.getQualifier());
+		if (kv.getQualifierLength() > 0) {
+			column = Bytes.toString(kv.getQualifierArray(), kv.getQualifierOffset(), kv.getQualifierLength());
 			if (LOG.isDebugEnabled()) {
 				LOG.debug("filterKeyValue: evaluating column[" + column + "].");
 			}
@@ -126,9 +148,6 @@ public class RangerAuthorizationFilter extends FilterBase {
 				LOG.debug("filterKeyValue: Access denied.  Denial not audited.");
 			}
 		}
-		if (LOG.isDebugEnabled()) {
-			LOG.debug("filterKeyValue: " + result);
-		}
 		return result;
 	}
 
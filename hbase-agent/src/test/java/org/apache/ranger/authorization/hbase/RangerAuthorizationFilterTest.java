@@ -19,8 +19,11 @@
 package org.apache.ranger.authorization.hbase;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
@@ -30,10 +33,11 @@ import java.util.Set;
 
 import com.google.common.collect.ImmutableSet;
 import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.filter.Filter.ReturnCode;
+import org.apache.hadoop.hbase.util.Bytes;
 import org.junit.Test;
 
-@SuppressWarnings("deprecation")
 public class RangerAuthorizationFilterTest {
 
 	@Test
@@ -58,46 +62,101 @@ public class RangerAuthorizationFilterTest {
 		RangerAuthorizationFilter filter = new RangerAuthorizationFilter(session, familiesAccessAllowed, familiesAccessDenied, familiesAccessIndeterminate, columnsAccessAllowed);
 
 		// evaluate access for various types of cases
-		Cell aCell = mock(Cell.class);
 		// families with know denied acess
 		for (String family : deniedFamilies) {
-			when(aCell.getFamily()).thenReturn(family.getBytes());
-			assertEquals(ReturnCode.NEXT_COL, filter.filterKeyValue(aCell));
+			assertEquals(ReturnCode.NEXT_COL, filter.filterKeyValue(cell(family, null)));
 		}
 		// family that isn't in allowed and if cell does not have column then it should be denied
-		when(aCell.getFamily()).thenReturn("family7".getBytes());
-		when(aCell.getQualifier()).thenReturn(null);
-		assertEquals(ReturnCode.NEXT_COL, filter.filterKeyValue(aCell));
+		assertEquals(ReturnCode.NEXT_COL, filter.filterKeyValue(cell("family7", null)));
 		// families with known partial access
 		for (String column : family7KnowGoodColumns ) {
-			when(aCell.getQualifier()).thenReturn(column.getBytes());
-			assertEquals(ReturnCode.INCLUDE, filter.filterKeyValue(aCell));
+			assertEquals(ReturnCode.INCLUDE, filter.filterKeyValue(cell("family7", column)));
 		}
-		when(aCell.getFamily()).thenReturn("family8".getBytes());
 		for (String column : family8KnowGoodColumns ) {
-			when(aCell.getQualifier()).thenReturn(column.getBytes());
-			assertEquals(ReturnCode.INCLUDE, filter.filterKeyValue(aCell));
+			assertEquals(ReturnCode.INCLUDE, filter.filterKeyValue(cell("family8", column)));
 		}
 		// try some columns that are not in the cache
 		for (String column : new String[] { "family8-column3", "family8-column4"}) {
-			when(aCell.getQualifier()).thenReturn(column.getBytes());
-			assertEquals(ReturnCode.NEXT_COL, filter.filterKeyValue(aCell));
+			assertEquals(ReturnCode.NEXT_COL, filter.filterKeyValue(cell("family8", column)));
 		}
 		// families with known allowed access - for these we need to doctor up the session
 		when(session.isAuthorized()).thenReturn(true);
 		for (String family : allowedFamilies) {
-			when(aCell.getFamily()).thenReturn(family.getBytes());
-			when(aCell.getQualifier()).thenReturn("some-column".getBytes());
-			assertEquals(ReturnCode.INCLUDE, filter.filterKeyValue(aCell));
+			assertEquals(ReturnCode.INCLUDE, filter.filterKeyValue(cell(family, "some-column")));
 		}
 		when(session.isAuthorized()).thenReturn(false);
 		for (String family : indeterminateFamilies) {
-			when(aCell.getFamily()).thenReturn(family.getBytes());
-			when(aCell.getQualifier()).thenReturn("some-column".getBytes());
-			assertEquals(ReturnCode.NEXT_COL, filter.filterKeyValue(aCell));
+			assertEquals(ReturnCode.NEXT_COL, filter.filterKeyValue(cell(family, "some-column")));
 		}
 	}
 
+	@Test
+	public void testFilterKeyValueCell_authorizesColumnOnce() throws IOException {
+		Set<String> familiesAccessAllowed = ImmutableSet.of("family1");
+		Set<String> familiesAccessDenied = ImmutableSet.of();
+		Set<String> familiesAccessIndeterminate = ImmutableSet.of("family2");
+		Map<String, Set<String>> columnsAccessAllowed = new HashMap<String, Set<String>>();
+
+		AuthorizationSession session = createSessionMock();
+		RangerAuthorizationFilter filter = new RangerAuthorizationFilter(session, familiesAccessAllowed, familiesAccessDenied, familiesAccessIndeterminate, columnsAccessAllowed);
+
+		when(session.isAuthorized()).thenReturn(true);
+		for (int row = 0; row < 100; row++) {
+			assertEquals(ReturnCode.INCLUDE, filter.filterKeyValue(cell("row" + row, "family1", "column1")));
+			assertEquals(ReturnCode.INCLUDE, filter.filterKeyValue(cell("row" + row, "family1", "column2")));
+		}
+		// the decision for a column is remembered for the rest of the scan
+		when(session.isAuthorized()).thenReturn(false);
+		for (int row = 0; row < 100; row++) {
+			assertEquals(ReturnCode.INCLUDE, filter.filterKeyValue(cell("row" + row, "family1", "column1")));
+			assertEquals(ReturnCode.NEXT_COL, filter.filterKeyValue(cell("row" + row, "family2", "column1")));
+		}
+
+		verify(session, times(3)).authorize();
+	}
+
+	@Test
+	public void testColumnDecisionCache() {
+		ColumnDecisionCache cache = new ColumnDecisionCache(1000);
+		byte[] buffer = Bytes.toBytes("xxfamily1column1family1column2");
+
+		// keys are compared on the given ranges only
+		cache.put(buffer, 2, 7, buffer, 9, 7, ReturnCode.INCLUDE);
+		cache.put(buffer, 16, 7, buffer, 23, 7, ReturnCode.NEXT_COL);
+
+		assertEquals(ReturnCode.INCLUDE, cache.get(Bytes.toBytes("family1"), 0, 7, Bytes.toBytes("column1"), 0, 7));
+		assertEquals(ReturnCode.NEXT_COL, cache.get(Bytes.toBytes("family1"), 0, 7, Bytes.toBytes("column2"), 0, 7));
+		assertNull(cache.get(Bytes.toBytes("family1"), 0, 7, Bytes.toBytes("column3"), 0, 7));
+		assertNull(cache.get(Bytes.toBytes("family"), 0, 6, Bytes.toBytes("1column1"), 0, 8));
+
+		// key bytes are copied, so changes to the buffer don't affect cached decisions
+		buffer[2] = 'F';
+		assertEquals(ReturnCode.INCLUDE, cache.get(Bytes.toBytes("family1"), 0, 7, Bytes.toBytes("column1"), 0, 7));
+
+		for (int i = 0; i < 998; i++) {
+			byte[] qualifier = Bytes.toBytes("q" + i);
+			cache.put(Bytes.toBytes("family2"), 0, 7, qualifier, 0, qualifier.length, ReturnCode.INCLUDE);
+		}
+		assertEquals(1000, cache.size());
+		for (int i = 0; i < 998; i++) {
+			byte[] qualifier = Bytes.toBytes("q" + i);
+			assertEquals(ReturnCode.INCLUDE, cache.get(Bytes.toBytes("family2"), 0, 7, qualifier, 0, qualifier.length));
+		}
+
+		// a full cache starts over
+		cache.put(Bytes.toBytes("family3"), 0, 7, Bytes.toBytes("column1"), 0, 7, ReturnCode.INCLUDE);
+		assertEquals(1, cache.size());
+		assertNull(cache.get(Bytes.toBytes("family1"), 0, 7, Bytes.toBytes("column1"), 0, 7));
+	}
+
+	static Cell cell(String family, String column) {
+		return cell("row1", family, column);
+	}
+
+	static Cell cell(String row, String family, String column) {
+		return new KeyValue(Bytes.toBytes(row), Bytes.toBytes(family), column == null ? null : Bytes.toBytes(column));
+	}
+
 	AuthorizationSession createSessionMock() {
 		AuthorizationSession session = mock(AuthorizationSession.class);
 		when(session.column(anyString())).thenReturn(session);
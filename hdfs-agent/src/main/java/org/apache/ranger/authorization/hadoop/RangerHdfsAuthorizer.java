@@ -59,6 +59,7 @@ import org.apache.ranger.plugin.service.RangerBasePlugin;
 import com.google.common.collect.Sets;
 
 import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.apache.ranger.plugin.util.ServicePolicies;
 
 public class RangerHdfsAuthorizer extends INodeAttributeProvider {
 	public static final String KEY_FILENAME = "FILENAME";
@@ -194,11 +195,12 @@ public class RangerHdfsAuthorizer extends INodeAttributeProvider {
 									int snapshotId, String path, int ancestorIndex, boolean doCheckOwner,
 									FsAction ancestorAccess, FsAction parentAccess, FsAction access,
 									FsAction subAccess, boolean ignoreEmptyDir) throws AccessControlException {
-			AuthzStatus            authzStatus = AuthzStatus.NOT_DETERMINED;
-			RangerHdfsPlugin       plugin        = rangerPlugin;
-			RangerHdfsAuditHandler auditHandler  = null;
-			String                 user          = ugi != null ? ugi.getShortUserName() : null;
-			Set<String>            groups        = ugi != null ? Sets.newHashSet(ugi.getGroupNames()) : null;
+			AuthzStatus              authzStatus  = AuthzStatus.NOT_DETERMINED;
+			RangerHdfsPlugin         plugin       = rangerPlugin;
+			RangerHdfsAuditHandler   auditHandler = null;
+			String                   user         = ugi != null ? ugi.getShortUserName() : null;
+			Set<String>              groups       = ugi != null ? Sets.newHashSet(ugi.getGroupNames()) : null;
+			Map<String, AuthzStatus> decisions    = RangerHdfsPlugin.isReuseDecisionsEnabled() ? new HashMap<String, AuthzStatus>() : null;
 
 			if(LOG.isDebugEnabled()) {
 				LOG.debug("==> RangerAccessControlEnforcer.checkPermission("
@@ -244,7 +246,7 @@ public class RangerHdfsAuthorizer extends INodeAttributeProvider {
 						}
 
 						if(nodeToCheck != null) {
-							authzStatus = isAccessAllowed(nodeToCheck, nodeAttribs, FsAction.EXECUTE, user, groups, plugin, auditHandler);
+							authzStatus = isAccessAllowed(nodeToCheck, nodeAttribs, FsAction.EXECUTE, user, groups, plugin, auditHandler, decisions);
 						}
 					}
 
@@ -260,7 +262,7 @@ public class RangerHdfsAuthorizer extends INodeAttributeProvider {
 					if(authzStatus == AuthzStatus.ALLOW && ancestorAccess != null && ancestor != null) {
 						INodeAttributes ancestorAttribs = inodeAttrs.length > ancestorIndex ? inodeAttrs[ancestorIndex] : null;
 
-						authzStatus = isAccessAllowed(ancestor, ancestorAttribs, ancestorAccess, user, groups, plugin, auditHandler);
+						authzStatus = isAccessAllowed(ancestor, ancestorAttribs, ancestorAccess, user, groups, plugin, auditHandler, decisions);
 						if (authzStatus == AuthzStatus.NOT_DETERMINED) {
 							authzStatus = checkDefaultEnforcer(fsOwner, superGroup, ugi, inodeAttrs, inodes,
 											pathByNameArr, snapshotId, path, ancestorIndex, doCheckOwner,
@@ -273,7 +275,7 @@ public class RangerHdfsAuthorizer extends INodeAttributeProvider {
 					if(authzStatus == AuthzStatus.ALLOW && parentAccess != null && parent != null) {
 						INodeAttributes parentAttribs = inodeAttrs.length > 1 ? inodeAttrs[inodeAttrs.length - 2] : null;
 
-						authzStatus = isAccessAllowed(parent, parentAttribs, parentAccess, user, groups, plugin, auditHandler);
+						authzStatus = isAccessAllowed(parent, parentAttribs, parentAccess, user, groups, plugin, auditHandler, decisions);
 						if (authzStatus == AuthzStatus.NOT_DETERMINED) {
 							authzStatus = checkDefaultEnforcer(fsOwner, superGroup, ugi, inodeAttrs, inodes,
 											pathByNameArr, snapshotId, path, ancestorIndex, doCheckOwner,
@@ -286,7 +288,7 @@ public class RangerHdfsAuthorizer extends INodeAttributeProvider {
 					if(authzStatus == AuthzStatus.ALLOW && access != null && inode != null) {
 						INodeAttributes inodeAttribs = inodeAttrs.length > 0 ? inodeAttrs[inodeAttrs.length - 1] : null;
 
-						authzStatus = isAccessAllowed(inode, inodeAttribs, access, user, groups, plugin, auditHandler);
+						authzStatus = isAccessAllowed(inode, inodeAttribs, access, user, groups, plugin, auditHandler, decisions);
 						if (authzStatus == AuthzStatus.NOT_DETERMINED) {
 							authzStatus = checkDefaultEnforcer(fsOwner, superGroup, ugi, inodeAttrs, inodes,
 											pathByNameArr, snapshotId, path, ancestorIndex, doCheckOwner,
@@ -297,25 +299,35 @@ public class RangerHdfsAuthorizer extends INodeAttributeProvider {
 
 					// checkSubAccess
 					if(authzStatus == AuthzStatus.ALLOW && subAccess != null && inode != null && inode.isDirectory()) {
-						Stack<INodeDirectory> directories = new Stack<INodeDirectory>();
+						RangerHdfsPathIndex pathIndex   = decisions != null ? plugin.getPathIndex() : null;
+						Stack<SubAccessDir> directories = new Stack<SubAccessDir>();
 
-						for(directories.push(inode.asDirectory()); !directories.isEmpty(); ) {
-							INodeDirectory      dir   = directories.pop();
-							ReadOnlyList<INode> cList = dir.getChildrenList(snapshotId);
+						for(directories.push(new SubAccessDir(inode.asDirectory(), null)); !directories.isEmpty(); ) {
+							SubAccessDir        subAccessDir   = directories.pop();
+							INodeDirectory      dir            = subAccessDir.dir;
+							AllowedSubtree      allowedSubtree = subAccessDir.allowedSubtree;
+							ReadOnlyList<INode> cList          = dir.getChildrenList(snapshotId);
 
 							if (!(cList.isEmpty() && ignoreEmptyDir)) {
 								INodeAttributes dirAttribs = dir.getSnapshotINode(snapshotId);
 
-								authzStatus = isAccessAllowed(dir, dirAttribs, subAccess, user, groups, plugin, auditHandler);
+								if(allowedSubtree == null || !allowedSubtree.includes(dir, dirAttribs)) {
+									authzStatus = isAccessAllowed(dir, dirAttribs, subAccess, user, groups, plugin, auditHandler, dir == inode ? decisions : null);
 
-								if(authzStatus != AuthzStatus.ALLOW) {
-									break;
+									if(authzStatus != AuthzStatus.ALLOW) {
+										break;
+									}
+
+									// policies match all paths under a uniform subtree alike, so directories in it need not be evaluated again
+									if(pathIndex != null && (allowedSubtree != null || pathIndex.isUniformSubtree(dir.getFullPathName()))) {
+										allowedSubtree = new AllowedSubtree(pathIndex.hasOwnerPolicies() ? getOwner(dir, dirAttribs) : null, pathIndex.hasOwnerPolicies());
+									}
 								}
 							}
 
 							for(INode child : cList) {
 								if (child.isDirectory()) {
-									directories.push(child.asDirectory());
+									directories.push(new SubAccessDir(child.asDirectory(), allowedSubtree));
 								}
 							}
 						}
@@ -421,16 +433,12 @@ public class RangerHdfsAuthorizer extends INodeAttributeProvider {
                                 return authzStatus;
                 }
 
-		private AuthzStatus isAccessAllowed(INode inode, INodeAttributes inodeAttribs, FsAction access, String user, Set<String> groups, RangerHdfsPlugin plugin, RangerHdfsAuditHandler auditHandler) {
+		private AuthzStatus isAccessAllowed(INode inode, INodeAttributes inodeAttribs, FsAction access, String user, Set<String> groups, RangerHdfsPlugin plugin, RangerHdfsAuditHandler auditHandler, Map<String, AuthzStatus> decisions) {
 			AuthzStatus ret       = null;
 			String      path      = inode != null ? inode.getFullPathName() : null;
-			String      pathOwner = inodeAttribs != null ? inodeAttribs.getUserName() : null;
+			String      pathOwner = getOwner(inode, inodeAttribs);
 			String 		clusterName = plugin.getClusterName();
 
-			if(pathOwner == null && inode != null) {
-				pathOwner = inode.getUserName();
-			}
-
 			if (RangerHadoopConstants.HDFS_ROOT_FOLDER_PATH_ALT.equals(path)) {
 				path = RangerHadoopConstants.HDFS_ROOT_FOLDER_PATH;
 			}
@@ -439,6 +447,21 @@ public class RangerHdfsAuthorizer extends INodeAttributeProvider {
 				LOG.debug("==> RangerAccessControlEnforcer.isAccessAllowed(" + path + ", " + access + ", " + user + ")");
 			}
 
+			// the same path is often checked more than once in a checkPermission() call, for example as ancestor and as parent
+			String decisionKey = decisions != null ? (path + ":" + access) : null;
+
+			if(decisionKey != null) {
+				ret = decisions.get(decisionKey);
+
+				if(ret != null) {
+					if(LOG.isDebugEnabled()) {
+						LOG.debug("<== RangerAccessControlEnforcer.isAccessAllowed(" + path + ", " + access + ", " + user + "): " + ret + " (reused decision)");
+					}
+
+					return ret;
+				}
+			}
+
 			Set<String> accessTypes = access2ActionListMapper.get(access);
 
 			if(accessTypes == null) {
@@ -469,6 +492,10 @@ public class RangerHdfsAuthorizer extends INodeAttributeProvider {
 				ret = AuthzStatus.NOT_DETERMINED;
 			}
 
+			if(decisionKey != null) {
+				decisions.put(decisionKey, ret);
+			}
+
 			if(LOG.isDebugEnabled()) {
 				LOG.debug("<== RangerAccessControlEnforcer.isAccessAllowed(" + path + ", " + access + ", " + user + "): " + ret);
 			}
@@ -476,12 +503,53 @@ public class RangerHdfsAuthorizer extends INodeAttributeProvider {
 			return ret;
 		}
 	}
+
+	private static String getOwner(INode inode, INodeAttributes inodeAttribs) {
+		String ret = inodeAttribs != null ? inodeAttribs.getUserName() : null;
+
+		if(ret == null && inode != null) {
+			ret = inode.getUserName();
+		}
+
+		return ret;
+	}
+
+	private static class SubAccessDir {
+		final INodeDirectory dir;
+		final AllowedSubtree allowedSubtree;
+
+		SubAccessDir(INodeDirectory dir, AllowedSubtree allowedSubtree) {
+			this.dir            = dir;
+			this.allowedSubtree = allowedSubtree;
+		}
+	}
+
+	/*
+	 * Subtree of a recursive check whose root directory was allowed access, with all paths under it matched by the same
+	 * policies. When policies refer to the resource owner, only directories having the owner of the root are included.
+	 */
+	private static class AllowedSubtree {
+		final String  owner;
+		final boolean isOwnerSpecific;
+
+		AllowedSubtree(String owner, boolean isOwnerSpecific) {
+			this.owner           = owner;
+			this.isOwnerSpecific = isOwnerSpecific;
+		}
+
+		boolean includes(INode dir, INodeAttributes dirAttribs) {
+			return !isOwnerSpecific || StringUtils.equals(owner, getOwner(dir, dirAttribs));
+		}
+	}
 }
 
 
 class RangerHdfsPlugin extends RangerBasePlugin {
 	private static boolean hadoopAuthEnabled = RangerHadoopConstants.RANGER_ADD_HDFS_PERMISSION_DEFAULT;
 	private static String fileNameExtensionSeparator;
+	private static boolean reuseDecisionsEnabled = RangerHadoopConstants.HDFS_REUSE_DECISIONS_DEFAULT_VALUE;
+
+	private volatile RangerHdfsPathIndex pathIndex = null;
 
 
 	public RangerHdfsPlugin() {
@@ -493,6 +561,28 @@ class RangerHdfsPlugin extends RangerBasePlugin {
 		
 		RangerHdfsPlugin.hadoopAuthEnabled = RangerConfiguration.getInstance().getBoolean(RangerHadoopConstants.RANGER_ADD_HDFS_PERMISSION_PROP, RangerHadoopConstants.RANGER_ADD_HDFS_PERMISSION_DEFAULT);
 		RangerHdfsPlugin.fileNameExtensionSeparator = RangerConfiguration.getInstance().get(RangerHdfsAuthorizer.RANGER_FILENAME_EXTENSION_SEPARATOR_PROP, RangerHdfsAuthorizer.DEFAULT_FILENAME_EXTENSION_SEPARATOR);
+		RangerHdfsPlugin.reuseDecisionsEnabled = RangerConfiguration.getInstance().getBoolean(RangerHadoopConstants.HDFS_REUSE_DECISIONS_PROP, RangerHadoopConstants.HDFS_REUSE_DECISIONS_DEFAULT_VALUE);
+	}
+
+	@Override
+	public void setPolicies(ServicePolicies policies) {
+		// called from super.init() as well, before the configuration is read in init()
+		boolean             reuseDecisions = RangerConfiguration.getInstance().getBoolean(RangerHadoopConstants.HDFS_REUSE_DECISIONS_PROP, RangerHadoopConstants.HDFS_REUSE_DECISIONS_DEFAULT_VALUE);
+		RangerHdfsPathIndex pathIndex      = reuseDecisions ? RangerHdfsPathIndex.build(policies) : null;
+
+		super.setPolicies(policies);
+
+		this.pathIndex = pathIndex;
+	}
+
+	/*
+	 * Returns the path index of the policies in use; null if none is available, including when initialization of
+	 * the policy engine failed for the policies the index was built from.
+	 */
+	public RangerHdfsPathIndex getPathIndex() {
+		RangerHdfsPathIndex ret = pathIndex;
+
+		return ret != null && ret.getPolicyVersion() == getPolicyVersion() ? ret : null;
 	}
 
 	public static boolean isHadoopAuthEnabled() {
@@ -501,6 +591,9 @@ class RangerHdfsPlugin extends RangerBasePlugin {
 	public static String getFileNameExtensionSeparator() {
 		return RangerHdfsPlugin.fileNameExtensionSeparator;
 	}
+	public static boolean isReuseDecisionsEnabled() {
+		return RangerHdfsPlugin.reuseDecisionsEnabled;
+	}
 }
 
 class RangerHdfsResource extends RangerAccessResourceImpl {
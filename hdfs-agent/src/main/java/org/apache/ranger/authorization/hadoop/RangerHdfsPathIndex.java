@@ -0,0 +1,309 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.authorization.hadoop;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngine;
+import org.apache.ranger.plugin.util.ServicePolicies;
+
+/**
+ * Index of the path values in HDFS policies, keyed on path components. It answers whether all paths under a directory,
+ * including the directory itself, are matched by the same policies: in such subtrees the authorization decision for a
+ * directory holds for each of its sub-directories, hence recursive checks don't need to evaluate each of them.
+ *
+ * The index errs on the side of reporting a subtree as not uniform: values with wildcards or tokens, and values of
+ * policies having conditions, are considered to match paths under their literal prefix differently. Paths are compared
+ * ignoring case, which can only add such candidates.
+ */
+class RangerHdfsPathIndex {
+	private static final Log LOG = LogFactory.getLog(RangerHdfsPathIndex.class);
+
+	private static final char PATH_SEPARATOR_CHAR = '/';
+
+	private final long    policyVersion;
+	private final boolean hasOwnerPolicies;
+	private final Node    root = new Node();
+
+	private RangerHdfsPathIndex(long policyVersion, boolean hasOwnerPolicies) {
+		this.policyVersion    = policyVersion;
+		this.hasOwnerPolicies = hasOwnerPolicies;
+	}
+
+	/**
+	 * @return index of the path values in the given policies; null if decisions can't be reused for these policies,
+	 *         as is the case when tag-based policies are present, since tags can be associated with any path
+	 */
+	static RangerHdfsPathIndex build(ServicePolicies policies) {
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerHdfsPathIndex.build(policyVersion=" + (policies != null ? policies.getPolicyVersion() : null) + ")");
+		}
+
+		RangerHdfsPathIndex ret = null;
+
+		if(policies != null && policies.getPolicies() != null && !hasTagPolicies(policies)) {
+			boolean hasOwnerPolicies = false;
+
+			for(RangerPolicy policy : policies.getPolicies()) {
+				if(hasResourceOwner(policy)) {
+					hasOwnerPolicies = true;
+
+					break;
+				}
+			}
+
+			ret = new RangerHdfsPathIndex(policies.getPolicyVersion() != null ? policies.getPolicyVersion() : -1, hasOwnerPolicies);
+
+			for(RangerPolicy policy : policies.getPolicies()) {
+				if(!ret.addPolicy(policy)) {
+					ret = null;
+
+					break;
+				}
+			}
+		}
+
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerHdfsPathIndex.build(policyVersion=" + (policies != null ? policies.getPolicyVersion() : null) + "): " + ret);
+		}
+
+		return ret;
+	}
+
+	long getPolicyVersion() {
+		return policyVersion;
+	}
+
+	/**
+	 * @return true if a policy grants or denies access to the owner of resources, in which case decisions can only be
+	 *         reused for paths having the same owner
+	 */
+	boolean hasOwnerPolicies() {
+		return hasOwnerPolicies;
+	}
+
+	/**
+	 * @return true if each path under the given directory is matched by exactly the policies matching the directory
+	 */
+	boolean isUniformSubtree(String path) {
+		String  lowerPath = path.toLowerCase();
+		Node    node      = root;
+		boolean ret       = true;
+
+		for(String component : StringUtils.split(lowerPath, PATH_SEPARATOR_CHAR)) {
+			if(node.matchesDescendantsOf(lowerPath)) {
+				ret = false;
+
+				break;
+			}
+
+			node = node.getChild(component);
+
+			if(node == null) { // no policy value at or under path
+				break;
+			}
+		}
+
+		if(ret && node != null) {
+			ret = !node.distinguishesSelf && !node.hasDescendantValues;
+		}
+
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("RangerHdfsPathIndex.isUniformSubtree(" + path + "): " + ret);
+		}
+
+		return ret;
+	}
+
+	@Override
+	public String toString() {
+		return "RangerHdfsPathIndex={policyVersion=" + policyVersion + ", hasOwnerPolicies=" + hasOwnerPolicies + "}";
+	}
+
+	private boolean addPolicy(RangerPolicy policy) {
+		Map<String, RangerPolicyResource> resources    = policy.getResources();
+		RangerPolicyResource              pathResource = resources != null ? resources.get(RangerHdfsAuthorizer.KEY_RESOURCE_PATH) : null;
+
+		if(pathResource == null || CollectionUtils.isEmpty(pathResource.getValues())) {
+			LOG.warn("RangerHdfsPathIndex.addPolicy(id=" + policy.getId() + "): no path in policy; decisions will not be reused");
+
+			return false;
+		}
+
+		boolean isRecursive   = Boolean.TRUE.equals(pathResource.getIsRecursive());
+		boolean hasConditions = hasConditions(policy);
+
+		for(String value : pathResource.getValues()) {
+			if(value != null) {
+				addValue(value.toLowerCase(), isRecursive, hasConditions);
+			}
+		}
+
+		return true;
+	}
+
+	private void addValue(String value, boolean isRecursive, boolean hasConditions) {
+		int     literalLen  = getLiteralPrefixLength(value);
+		boolean isLiteral   = literalLen == value.length() && !hasConditions;
+		String  literal     = value.substring(0, literalLen);
+		String  nodePath    = literal;
+		boolean isMatchAll  = false; // matches every path starting with the literal prefix
+
+		if(isLiteral) {
+			if(value.length() > 1 && value.charAt(value.length() - 1) == PATH_SEPARATOR_CHAR) { // with wildcards enabled, "/a/b/" is matched as "/a/b/*"
+				isLiteral  = false;
+				isMatchAll = !hasConditions;
+				nodePath   = literal.substring(0, literal.lastIndexOf(PATH_SEPARATOR_CHAR));
+			}
+		} else {
+			isMatchAll = !hasConditions && literalLen == value.length() - 1 && value.charAt(literalLen) == '*';
+			nodePath   = literal.substring(0, Math.max(0, literal.lastIndexOf(PATH_SEPARATOR_CHAR)));
+		}
+
+		Node node = root;
+
+		for(String component : StringUtils.split(nodePath, PATH_SEPARATOR_CHAR)) {
+			node.hasDescendantValues = true;
+			node                     = node.getOrCreateChild(component);
+		}
+
+		if(!(isLiteral && isRecursive)) { // all others match the path at node differently than the paths under it
+			node.distinguishesSelf = true;
+		}
+
+		if(!isLiteral && !isMatchAll) {
+			node.addDescendantMatcher(literal);
+		}
+	}
+
+	// length of the value up to the first wildcard, token or escape character
+	private static int getLiteralPrefixLength(String value) {
+		for(int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+
+			if(c == '*' || c == '?' || c == '{' || c == '\\') {
+				return i;
+			}
+		}
+
+		return value.length();
+	}
+
+	private static boolean hasTagPolicies(ServicePolicies policies) {
+		ServicePolicies.TagPolicies tagPolicies = policies.getTagPolicies();
+
+		return tagPolicies != null && CollectionUtils.isNotEmpty(tagPolicies.getPolicies());
+	}
+
+	private static boolean hasResourceOwner(RangerPolicy policy) {
+		for(RangerPolicyItem item : getPolicyItems(policy)) {
+			if(item.getUsers() != null && item.getUsers().contains(RangerPolicyEngine.RESOURCE_OWNER)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static boolean hasConditions(RangerPolicy policy) {
+		for(RangerPolicyItem item : getPolicyItems(policy)) {
+			if(CollectionUtils.isNotEmpty(item.getConditions())) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static List<RangerPolicyItem> getPolicyItems(RangerPolicy policy) {
+		List<RangerPolicyItem> ret = new ArrayList<RangerPolicyItem>();
+
+		addAll(ret, policy.getPolicyItems());
+		addAll(ret, policy.getDenyPolicyItems());
+		addAll(ret, policy.getAllowExceptions());
+		addAll(ret, policy.getDenyExceptions());
+
+		return ret;
+	}
+
+	private static void addAll(List<RangerPolicyItem> list, List<RangerPolicyItem> items) {
+		if(items != null) {
+			list.addAll(items);
+		}
+	}
+
+	private static class Node {
+		private Map<String, Node> children            = null;
+		private List<String>      descendantMatchers  = null; // literal prefixes of values that can match sub-paths differently
+		private boolean           distinguishesSelf   = false;
+		private boolean           hasDescendantValues = false;
+
+		Node getChild(String component) {
+			return children != null ? children.get(component) : null;
+		}
+
+		Node getOrCreateChild(String component) {
+			Node ret = getChild(component);
+
+			if(ret == null) {
+				if(children == null) {
+					children = new HashMap<String, Node>();
+				}
+
+				ret = new Node();
+
+				children.put(component, ret);
+			}
+
+			return ret;
+		}
+
+		void addDescendantMatcher(String literalPrefix) {
+			if(descendantMatchers == null) {
+				descendantMatchers = new ArrayList<String>();
+			}
+
+			descendantMatchers.add(literalPrefix);
+		}
+
+		// true if a value at this node, which is an ancestor of the given path, can match paths under it differently
+		boolean matchesDescendantsOf(String path) {
+			if(descendantMatchers != null) {
+				for(String literalPrefix : descendantMatchers) {
+					if(path.startsWith(literalPrefix)) {
+						return true;
+					}
+				}
+			}
+
+			return false;
+		}
+	}
+}
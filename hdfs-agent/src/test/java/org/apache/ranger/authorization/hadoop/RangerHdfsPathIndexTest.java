@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.authorization.hadoop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.fs.permission.FsAction;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemCondition;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.policyengine.RangerAccessResult;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngine;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineImpl;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.junit.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+public class RangerHdfsPathIndexTest {
+
+	@Test
+	public void testRecursivePaths() {
+		RangerHdfsPathIndex index = build(policy(true, "/data"), policy(true, "/data/warehouse/sales"));
+
+		assertNotNull(index);
+		assertTrue(index.isUniformSubtree("/data/warehouse/sales"));
+		assertTrue(index.isUniformSubtree("/data/warehouse/sales/2017"));
+		assertTrue(index.isUniformSubtree("/data/warehouse/hr"));
+		assertTrue(index.isUniformSubtree("/tmp"));
+		assertFalse(index.isUniformSubtree("/data/warehouse"));
+		assertFalse(index.isUniformSubtree("/data"));
+		assertFalse(index.isUniformSubtree("/"));
+	}
+
+	@Test
+	public void testNonRecursivePaths() {
+		RangerHdfsPathIndex index = build(policy(false, "/data/warehouse"));
+
+		assertFalse(index.isUniformSubtree("/data/warehouse"));
+		assertTrue(index.isUniformSubtree("/data/warehouse/sales"));
+		assertTrue(index.isUniformSubtree("/data/other"));
+	}
+
+	@Test
+	public void testWildcardPaths() {
+		RangerHdfsPathIndex index = build(policy(true, "/data/*"), policy(true, "/apps/hive/*/tmp"), policy(false, "/user/"));
+
+		assertFalse(index.isUniformSubtree("/data"));
+		assertTrue(index.isUniformSubtree("/data/warehouse"));
+		assertFalse(index.isUniformSubtree("/apps/hive"));
+		assertFalse(index.isUniformSubtree("/apps/hive/warehouse"));
+		assertTrue(index.isUniformSubtree("/apps/spark"));
+		assertFalse(index.isUniformSubtree("/user"));
+		assertTrue(index.isUniformSubtree("/user/bob"));
+	}
+
+	@Test
+	public void testTokensAndConditions() {
+		RangerPolicy withCondition = policy(true, "/data/warehouse");
+
+		withCondition.getPolicyItems().get(0).setConditions(Arrays.asList(new RangerPolicyItemCondition("ip-range", Arrays.asList("10.*"))));
+
+		RangerHdfsPathIndex index = build(policy(true, "/home/{USER}"), withCondition);
+
+		assertFalse(index.isUniformSubtree("/home/bob"));
+		assertFalse(index.isUniformSubtree("/data/warehouse/sales"));
+		assertTrue(index.isUniformSubtree("/tmp"));
+		assertFalse(index.hasOwnerPolicies());
+	}
+
+	@Test
+	public void testOwnerPolicies() {
+		RangerPolicy ownerPolicy = policy(true, "/user");
+
+		ownerPolicy.getPolicyItems().get(0).setUsers(Arrays.asList(RangerPolicyEngine.RESOURCE_OWNER));
+
+		RangerHdfsPathIndex index = build(ownerPolicy);
+
+		assertTrue(index.hasOwnerPolicies());
+		assertTrue(index.isUniformSubtree("/user/bob"));
+	}
+
+	@Test
+	public void testNoIndexWithTagPolicies() {
+		ServicePolicies policies = servicePolicies(policy(true, "/data"));
+
+		ServicePolicies.TagPolicies tagPolicies = new ServicePolicies.TagPolicies();
+
+		tagPolicies.setPolicies(Arrays.asList(new RangerPolicy()));
+
+		policies.setTagPolicies(tagPolicies);
+
+		assertNull(RangerHdfsPathIndex.build(policies));
+	}
+
+	/*
+	 * Under a uniform subtree, the decision made for the subtree root - reused by the enforcer for directories under
+	 * it, when allowed and, with owner policies, of the same owner - must be the decision of a full evaluation
+	 */
+	@Test
+	public void testReusedDecisionsMatchFullEvaluation() throws Exception {
+		RangerPolicy allowPolicy = policy(true, "/data");
+		RangerPolicy denyPolicy  = policy(true, "/data/secure");
+		RangerPolicy ownerPolicy = policy(true, "/user");
+
+		allowPolicy.getPolicyItems().get(0).setAccesses(Arrays.asList(new RangerPolicyItemAccess("read")));
+		denyPolicy.setDenyPolicyItems(denyPolicy.getPolicyItems());
+		denyPolicy.getDenyPolicyItems().get(0).setAccesses(Arrays.asList(new RangerPolicyItemAccess("read")));
+		denyPolicy.setPolicyItems(new ArrayList<RangerPolicyItem>());
+		ownerPolicy.getPolicyItems().get(0).setUsers(Arrays.asList(RangerPolicyEngine.RESOURCE_OWNER));
+		ownerPolicy.getPolicyItems().get(0).setAccesses(Arrays.asList(new RangerPolicyItemAccess("read")));
+
+		ServicePolicies     policies = servicePolicies(allowPolicy, denyPolicy, ownerPolicy);
+		RangerHdfsPathIndex index    = RangerHdfsPathIndex.build(policies);
+
+		policies.setServiceDef(loadHdfsServiceDef());
+
+		for (int i = 0; i < policies.getPolicies().size(); i++) {
+			policies.getPolicies().get(i).setId((long) (i + 1));
+			policies.getPolicies().get(i).setService(policies.getServiceName());
+		}
+
+		RangerPolicyEngine engine = new RangerPolicyEngineImpl("hdfs", policies, new RangerPolicyEngineOptions());
+
+		assertTrue(index.hasOwnerPolicies());
+
+		// allowed subtree
+		assertUniformDecision(index, engine, "/data/public", "bob", "hdfs", true);
+
+		// denied subtree: evaluation of the root already stops the check, yet sub-directories are denied alike
+		assertUniformDecision(index, engine, "/data/secure", "bob", "hdfs", false);
+
+		// owner subtree: same decision for directories of the same owner
+		assertUniformDecision(index, engine, "/user/alice", "alice", "alice", true);
+		assertUniformDecision(index, engine, "/user/alice", "bob", "alice", false);
+
+		// the decision is not reused for a directory of another owner, since it may differ
+		assertFalse(isAllowed(engine, "/user/alice/shared", "bob", "bob") == isAllowed(engine, "/user/alice", "bob", "alice"));
+	}
+
+	private static void assertUniformDecision(RangerHdfsPathIndex index, RangerPolicyEngine engine, String root, String user, String owner, boolean expected) {
+		assertTrue(root, index.isUniformSubtree(root));
+		assertEquals(root, expected, isAllowed(engine, root, user, owner));
+
+		for (String subPath : new String[] { root + "/d1", root + "/d1/d2", root + "/d1/d2/d3" }) {
+			assertTrue(subPath, index.isUniformSubtree(subPath));
+			assertEquals(subPath, expected, isAllowed(engine, subPath, user, owner));
+		}
+	}
+
+	private static boolean isAllowed(RangerPolicyEngine engine, String path, String user, String owner) {
+		RangerHdfsAccessRequest request = new RangerHdfsAccessRequest(null, path, owner, FsAction.READ, "read", user, Collections.<String>emptySet(), null);
+		RangerAccessResult      result  = engine.isAccessAllowed(request, null);
+
+		return result != null && result.getIsAllowed();
+	}
+
+	private static RangerServiceDef loadHdfsServiceDef() throws Exception {
+		Gson   gson   = new GsonBuilder().setDateFormat("yyyyMMdd-HH:mm:ss.SSS-Z").create();
+		Reader reader = new InputStreamReader(RangerHdfsPathIndexTest.class.getResourceAsStream("/hdfs-policies.json"), "UTF-8");
+
+		try {
+			return gson.fromJson(reader, ServicePolicies.class).getServiceDef();
+		} finally {
+			reader.close();
+		}
+	}
+
+	private static RangerHdfsPathIndex build(RangerPolicy... policies) {
+		return RangerHdfsPathIndex.build(servicePolicies(policies));
+	}
+
+	private static ServicePolicies servicePolicies(RangerPolicy... policies) {
+		ServicePolicies ret = new ServicePolicies();
+
+		ret.setServiceName("cl1_hadoop");
+		ret.setPolicyVersion(1L);
+		ret.setPolicies(new ArrayList<RangerPolicy>(Arrays.asList(policies)));
+
+		return ret;
+	}
+
+	private static RangerPolicy policy(boolean isRecursive, String... paths) {
+		Map<String, RangerPolicyResource> resources = new HashMap<String, RangerPolicyResource>();
+
+		resources.put(RangerHdfsAuthorizer.KEY_RESOURCE_PATH, new RangerPolicyResource(Arrays.asList(paths), false, isRecursive));
+
+		RangerPolicyItem item = new RangerPolicyItem();
+
+		item.setUsers(Arrays.asList("bob"));
+
+		List<RangerPolicyItem> items = new ArrayList<RangerPolicyItem>(Collections.singletonList(item));
+
+		RangerPolicy ret = new RangerPolicy();
+
+		ret.setResources(resources);
+		ret.setPolicyItems(items);
+
+		return ret;
+	}
+}
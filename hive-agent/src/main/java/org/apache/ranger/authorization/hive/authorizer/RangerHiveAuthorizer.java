@@ -322,41 +322,43 @@ public class RangerHiveAuthorizer extends RangerHiveAuthorizerBase {
 
 			buildRequestContextWithAllAccessedResources(requests);
 
+			// all requests, with one request per column for multi-column requests, are evaluated in one batch - for the
+			// policy engine to share trie lookups, tag enrichment and resource matches among them. Results are then
+			// audited and checked in the order of requests, as they were when requests were evaluated one at a time.
+			// The batch stops at the first denied request, as the check below does
+			List<List<RangerAccessRequest>> evalRequestsList = new ArrayList<List<RangerAccessRequest>>(requests.size());
+			List<RangerAccessRequest>       batchRequests    = new ArrayList<RangerAccessRequest>();
+
 			for(RangerHiveAccessRequest request : requests) {
+				List<RangerAccessRequest> evalRequests = getRequestsToEvaluate(request);
+
+				evalRequestsList.add(evalRequests);
+				batchRequests.addAll(evalRequests);
+			}
+
+			Collection<RangerAccessResult> batchResults = hivePlugin.isAccessAllowed(batchRequests, null, true);
+			List<RangerAccessResult>       results      = batchResults == null ? null : new ArrayList<RangerAccessResult>(batchResults);
+			int                            resultIdx    = 0;
+
+			for(int i = 0; i < requests.size(); i++) {
+				RangerHiveAccessRequest   request      = requests.get(i);
+				List<RangerAccessRequest> evalRequests = evalRequestsList.get(i);
+
 				if (LOG.isDebugEnabled()) {
 					LOG.debug("request: " + request);
 				}
 				RangerHiveResource resource = (RangerHiveResource)request.getResource();
 				RangerAccessResult result   = null;
 
-				if(resource.getObjectType() == HiveObjectType.COLUMN && StringUtils.contains(resource.getColumn(), COLUMN_SEP)) {
-					List<RangerAccessRequest> colRequests = new ArrayList<RangerAccessRequest>();
+				List<RangerAccessResult> evalResults = results == null ? null : getEvalResults(results, resultIdx, evalRequests);
 
-					String[] columns = StringUtils.split(resource.getColumn(), COLUMN_SEP);
+				resultIdx += evalRequests.size();
 
-					// in case of multiple columns, original request is not sent to the plugin; hence service-def will not be set
-					resource.setServiceDef(hivePlugin.getServiceDef());
+				if(isMultiColumnRequest(request)) {
+					if(evalResults != null) {
+						auditHandler.processResults(evalResults);
 
-					for(String column : columns) {
-						if (column != null) {
-							column = column.trim();
-						}
-						if(StringUtils.isBlank(column)) {
-							continue;
-						}
-
-						RangerHiveResource colResource = new RangerHiveResource(HiveObjectType.COLUMN, resource.getDatabase(), resource.getTable(), column);
-
-						RangerHiveAccessRequest colRequest = request.copy();
-						colRequest.setResource(colResource);
-
-						colRequests.add(colRequest);
-					}
-
-					Collection<RangerAccessResult> colResults = hivePlugin.isAccessAllowed(colRequests, auditHandler);
-
-					if(colResults != null) {
-						for(RangerAccessResult colResult : colResults) {
+						for(RangerAccessResult colResult : evalResults) {
 							result = colResult;
 
 							if(result != null && !result.getIsAllowed()) {
@@ -364,8 +366,12 @@ public class RangerHiveAuthorizer extends RangerHiveAuthorizerBase {
 							}
 						}
 					}
-				} else {
-					result = hivePlugin.isAccessAllowed(request, auditHandler);
+				} else if(evalResults != null) {
+					result = evalResults.get(0);
+
+					if(result != null) {
+						auditHandler.processResult(result);
+					}
 				}
 
 				if((result == null || result.getIsAllowed()) && isBlockAccessIfRowfilterColumnMaskSpecified(hiveOpType, request)) {
@@ -423,6 +429,68 @@ public class RangerHiveAuthorizer extends RangerHiveAuthorizerBase {
 		}
 	}
 
+	// returns results of the given requests, evaluating the ones after a denied column of a multi-column request: all its columns are audited
+	private List<RangerAccessResult> getEvalResults(List<RangerAccessResult> results, int fromIdx, List<RangerAccessRequest> evalRequests) {
+		int toIdx = fromIdx + evalRequests.size();
+
+		if(toIdx <= results.size()) {
+			return results.subList(fromIdx, toIdx);
+		}
+
+		List<RangerAccessResult> ret = new ArrayList<RangerAccessResult>(evalRequests.size());
+
+		if(fromIdx < results.size()) {
+			ret.addAll(results.subList(fromIdx, results.size()));
+		}
+
+		Collection<RangerAccessResult> remainingResults = hivePlugin.isAccessAllowed(evalRequests.subList(ret.size(), evalRequests.size()), null);
+
+		if(remainingResults != null) {
+			ret.addAll(remainingResults);
+		}
+
+		return ret;
+	}
+
+	private boolean isMultiColumnRequest(RangerHiveAccessRequest request) {
+		RangerHiveResource resource = (RangerHiveResource)request.getResource();
+
+		return resource.getObjectType() == HiveObjectType.COLUMN && StringUtils.contains(resource.getColumn(), COLUMN_SEP);
+	}
+
+	// returns the requests to send to the plugin for the given request: one per column for a multi-column request, otherwise the request itself
+	private List<RangerAccessRequest> getRequestsToEvaluate(RangerHiveAccessRequest request) {
+		List<RangerAccessRequest> ret = new ArrayList<RangerAccessRequest>();
+
+		if(isMultiColumnRequest(request)) {
+			RangerHiveResource resource = (RangerHiveResource)request.getResource();
+			String[]           columns  = StringUtils.split(resource.getColumn(), COLUMN_SEP);
+
+			// in case of multiple columns, original request is not sent to the plugin; hence service-def will not be set
+			resource.setServiceDef(hivePlugin.getServiceDef());
+
+			for(String column : columns) {
+				if (column != null) {
+					column = column.trim();
+				}
+				if(StringUtils.isBlank(column)) {
+					continue;
+				}
+
+				RangerHiveResource colResource = new RangerHiveResource(HiveObjectType.COLUMN, resource.getDatabase(), resource.getTable(), column);
+
+				RangerHiveAccessRequest colRequest = request.copy();
+				colRequest.setResource(colResource);
+
+				ret.add(colRequest);
+			}
+		} else {
+			ret.add(request);
+		}
+
+		return ret;
+	}
+
 	/**
 	 * Check if user has privileges to do this action on these objects
 	 * @param objs
@@ -470,6 +538,11 @@ public class RangerHiveAuthorizer extends RangerHiveAuthorizerBase {
 			if (ret == null) { // if we got any items to filter then we can't return back a null.  We must return back a list even if its empty.
 				ret = new ArrayList<HivePrivilegeObject>(objs.size());
 			}
+
+			// requests for all objects are evaluated in one batch; objects are then filtered in their original order
+			List<HivePrivilegeObject> requestObjs = new ArrayList<HivePrivilegeObject>(objs.size());
+			List<RangerAccessRequest> requests    = new ArrayList<RangerAccessRequest>(objs.size());
+
 			for (HivePrivilegeObject privilegeObject : objs) {
 				if (LOG.isDebugEnabled()) {
 					HivePrivObjectActionType actionType = privilegeObject.getActionType();
@@ -489,22 +562,32 @@ public class RangerHiveAuthorizer extends RangerHiveAuthorizerBase {
 				if (resource == null) {
 					LOG.error("filterListCmdObjects: RangerHiveResource returned by createHiveResource is null");
 				} else {
-					RangerHiveAccessRequest request = new RangerHiveAccessRequest(resource, user, groups, context, sessionContext, hivePlugin.getClusterName());
-					RangerAccessResult result = hivePlugin.isAccessAllowed(request);
-					if (result == null) {
-						LOG.error("filterListCmdObjects: Internal error: null RangerAccessResult object received back from isAccessAllowed()!");
-					} else if (!result.getIsAllowed()) {
-						if (!LOG.isDebugEnabled()) {
-							String path = resource.getAsString();
-							LOG.debug(String.format("filterListCmdObjects: Permission denied: user [%s] does not have [%s] privilege on [%s]. resource[%s], request[%s], result[%s]",
-									user, request.getHiveAccessType().name(), path, resource, request, result));
-						}
-					} else {
-						if (LOG.isDebugEnabled()) {
-							LOG.debug(String.format("filterListCmdObjects: access allowed. resource[%s], request[%s], result[%s]", resource, request, result));
-						}
-						ret.add(privilegeObject);
+					requestObjs.add(privilegeObject);
+					requests.add(new RangerHiveAccessRequest(resource, user, groups, context, sessionContext, hivePlugin.getClusterName()));
+				}
+			}
+
+			Collection<RangerAccessResult> batchResults = requests.isEmpty() ? null : hivePlugin.isAccessAllowed(requests);
+			List<RangerAccessResult>       results      = batchResults == null ? null : new ArrayList<RangerAccessResult>(batchResults);
+
+			for (int i = 0; i < requests.size(); i++) {
+				HivePrivilegeObject     privilegeObject = requestObjs.get(i);
+				RangerHiveAccessRequest request         = (RangerHiveAccessRequest) requests.get(i);
+				RangerHiveResource      resource        = (RangerHiveResource) request.getResource();
+				RangerAccessResult      result          = results == null ? null : results.get(i);
+				if (result == null) {
+					LOG.error("filterListCmdObjects: Internal error: null RangerAccessResult object received back from isAccessAllowed()!");
+				} else if (!result.getIsAllowed()) {
+					if (!LOG.isDebugEnabled()) {
+						String path = resource.getAsString();
+						LOG.debug(String.format("filterListCmdObjects: Permission denied: user [%s] does not have [%s] privilege on [%s]. resource[%s], request[%s], result[%s]",
+								user, request.getHiveAccessType().name(), path, resource, request, result));
+					}
+				} else {
+					if (LOG.isDebugEnabled()) {
+						LOG.debug(String.format("filterListCmdObjects: access allowed. resource[%s], request[%s], result[%s]", resource, request, result));
 					}
+					ret.add(privilegeObject);
 				}
 			}
 		}
@@ -0,0 +1,44 @@
+#!/bin/bash
+# Licensed to the Apache Software Foundation (ASF) under one or more
+# contributor license agreements.  See the NOTICE file distributed with
+# this work for additional information regarding copyright ownership.
+# The ASF licenses this file to You under the Apache License, Version 2.0
+# (the "License"); you may not use this file except in compliance with
+# the License.  You may obtain a copy of the License at
+#
+#     http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+
+# Runs the benchmarks with allocation profiling, and compares results with the baseline when one is given.
+#
+# Usage: ranger-benchmarks.sh [-b <baseline.json>] [-o <results.json>] [JMH options, e.g. a benchmark regex or -p policyCount=1000]
+
+cdir=`dirname $0`
+jar=${cdir}/../target/ranger-benchmarks.jar
+baseline=
+results=ranger-benchmarks-results.json
+
+while getopts "b:o:" opt; do
+	case $opt in
+		b) baseline=$OPTARG ;;
+		o) results=$OPTARG ;;
+		*) echo "Usage: $0 [-b <baseline.json>] [-o <results.json>] [JMH options]"; exit 2 ;;
+	esac
+done
+shift $((OPTIND - 1))
+
+if [ ! -f "${jar}" ]; then
+	echo "${jar} not found; build it with: mvn -pl ranger-benchmarks -am package -DskipTests"
+	exit 2
+fi
+
+java -jar "${jar}" -prof gc -rf json -rff "${results}" "$@" || exit $?
+
+if [ -n "${baseline}" ]; then
+	java -cp "${jar}" org.apache.ranger.benchmarks.BenchmarkBaseline compare "${baseline}" "${results}"
+fi
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Base of benchmarks over a synthetic service. Each benchmark invocation handles one of REQUEST_COUNT requests,
+ * taken in turn, so that results don't depend on a single resource. Several forks with fixed heap are run, as
+ * results of a single JVM vary with JIT and heap layout decisions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public abstract class AbstractServiceBenchmark {
+	static final int REQUEST_COUNT = 1024; // a power of 2, for cheap cycling through requests
+
+	@Param({"100", "1000", "10000"})
+	public int policyCount;
+
+	@Param({"1000"})
+	public int userCount;
+
+	@Param({"100"})
+	public int groupCount;
+
+	@Param({"0.0", "0.25"})
+	public double wildcardDensity;
+
+	SyntheticServiceGenerator generator;
+	List<RangerAccessRequest> requests;
+
+	private int next = 0;
+
+	@Setup(Level.Trial)
+	public void setUpService() throws Exception {
+		generator = new SyntheticServiceGenerator(getServiceType(), policyCount, userCount, groupCount, wildcardDensity, 42L);
+		requests  = generator.createAccessRequests(REQUEST_COUNT);
+
+		setUp();
+	}
+
+	abstract String getServiceType();
+
+	abstract void setUp() throws Exception;
+
+	int nextIndex() {
+		return next++ & (REQUEST_COUNT - 1);
+	}
+
+	static RangerPolicyEngineOptions createPolicyEngineOptions() {
+		RangerPolicyEngineOptions ret = new RangerPolicyEngineOptions();
+
+		ret.cacheAccessDecisions = false; // measure evaluation, not cache lookups
+
+		return ret;
+	}
+}
@@ -0,0 +1,260 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmarks;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Records JMH results (as written with "-rf json") into a baseline, and compares later results with it. A result
+ * regresses when its score is worse than the baseline by more than the threshold, taking the benchmark mode into
+ * account, or when it allocates more than the baseline by more than the threshold plus allocSlackBytes; allocation
+ * is available in results of runs with "-prof gc". Baselines are JSON:
+ *
+ * <pre>
+ * {
+ *   "threshold": 0.1,
+ *   "allocSlackBytes": 16.0,
+ *   "results": [
+ *     { "benchmark": "org.apache.ranger.benchmarks.PolicyEngineBenchmark.isAccessAllowed",
+ *       "params": { "policyCount": "1000", "serviceType": "hive", ... },
+ *       "mode": "avgt", "score": 2215.4, "scoreUnit": "ns/op", "allocBytesPerOp": 1432.0 }
+ *   ]
+ * }
+ * </pre>
+ *
+ * Usage:
+ *   BenchmarkBaseline create  &lt;jmh-results.json&gt; &lt;baseline.json&gt; [threshold]
+ *   BenchmarkBaseline compare &lt;baseline.json&gt; &lt;jmh-results.json&gt;
+ * compare exits with status 1 if any result regressed.
+ */
+public class BenchmarkBaseline {
+	public static final double DEFAULT_THRESHOLD         = 0.1;
+	public static final double DEFAULT_ALLOC_SLACK_BYTES = 16;
+
+	private static final Charset UTF_8                = Charset.forName("UTF-8");
+	private static final String  METRIC_ALLOC_PER_OP  = "gc.alloc.rate.norm";
+	private static final String  MODE_THROUGHPUT      = "thrpt";
+
+	private double       threshold       = DEFAULT_THRESHOLD;
+	private double       allocSlackBytes = DEFAULT_ALLOC_SLACK_BYTES;
+	private List<Result> results         = new ArrayList<Result>();
+
+	public static class Result {
+		private String              benchmark;
+		private Map<String, String> params;
+		private String              mode;
+		private double              score;
+		private String              scoreUnit;
+		private Double              allocBytesPerOp;
+
+		public Result() {
+		}
+
+		public Result(String benchmark, Map<String, String> params, String mode, double score, String scoreUnit, Double allocBytesPerOp) {
+			this.benchmark       = benchmark;
+			this.params          = params != null ? new TreeMap<String, String>(params) : new TreeMap<String, String>();
+			this.mode            = mode;
+			this.score           = score;
+			this.scoreUnit       = scoreUnit;
+			this.allocBytesPerOp = allocBytesPerOp;
+		}
+
+		public String getBenchmark() {
+			return benchmark;
+		}
+
+		public Map<String, String> getParams() {
+			return params;
+		}
+
+		public String getMode() {
+			return mode;
+		}
+
+		public double getScore() {
+			return score;
+		}
+
+		public String getScoreUnit() {
+			return scoreUnit;
+		}
+
+		public Double getAllocBytesPerOp() {
+			return allocBytesPerOp;
+		}
+
+		// benchmark name with parameters, as displayed by JMH
+		public String getKey() {
+			return benchmark + (params == null || params.isEmpty() ? "" : new TreeMap<String, String>(params).toString());
+		}
+	}
+
+	public BenchmarkBaseline() {
+	}
+
+	public BenchmarkBaseline(List<Result> results, double threshold) {
+		this.results   = results;
+		this.threshold = threshold;
+	}
+
+	public List<Result> getResults() {
+		return results;
+	}
+
+	public double getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * @return descriptions of the given results that regressed from this baseline; results without baseline are ignored
+	 */
+	public List<String> getRegressions(List<Result> newResults) {
+		List<String>        ret             = new ArrayList<String>();
+		Map<String, Result> baselineResults = new LinkedHashMap<String, Result>();
+
+		for(Result result : results) {
+			baselineResults.put(result.getKey(), result);
+		}
+
+		for(Result result : newResults) {
+			Result baseline = baselineResults.get(result.getKey());
+
+			if(baseline == null) {
+				continue;
+			}
+
+			boolean isHigherBetter = MODE_THROUGHPUT.equals(baseline.mode);
+			double  change         = (result.score - baseline.score) / baseline.score;
+
+			if(isHigherBetter ? change < -threshold : change > threshold) {
+				ret.add(String.format("%s: score %.3f %s, baseline %.3f %s (%+.1f%%)", result.getKey(), result.score, result.scoreUnit, baseline.score, baseline.scoreUnit, change * 100));
+			}
+
+			if(result.allocBytesPerOp != null && baseline.allocBytesPerOp != null
+					&& result.allocBytesPerOp > baseline.allocBytesPerOp * (1 + threshold) + allocSlackBytes) {
+				ret.add(String.format("%s: allocates %.1f bytes/op, baseline %.1f bytes/op", result.getKey(), result.allocBytesPerOp, baseline.allocBytesPerOp));
+			}
+		}
+
+		return ret;
+	}
+
+	/**
+	 * @return results in the given JMH JSON output
+	 */
+	public static List<Result> readJmhResults(Reader reader) {
+		List<Result> ret = new ArrayList<Result>();
+
+		for(JsonElement element : new JsonParser().parse(reader).getAsJsonArray()) {
+			JsonObject          run           = element.getAsJsonObject();
+			JsonObject          primaryMetric = run.getAsJsonObject("primaryMetric");
+			Map<String, String> params        = new TreeMap<String, String>();
+			Double              allocPerOp    = null;
+
+			if(run.has("params")) {
+				for(Map.Entry<String, JsonElement> param : run.getAsJsonObject("params").entrySet()) {
+					params.put(param.getKey(), param.getValue().getAsString());
+				}
+			}
+
+			if(run.has("secondaryMetrics")) {
+				for(Map.Entry<String, JsonElement> metric : run.getAsJsonObject("secondaryMetrics").entrySet()) {
+					if(metric.getKey().endsWith(METRIC_ALLOC_PER_OP)) { // JMH prefixes profiler metrics with a middle dot
+						allocPerOp = metric.getValue().getAsJsonObject().get("score").getAsDouble();
+					}
+				}
+			}
+
+			ret.add(new Result(run.get("benchmark").getAsString(), params, run.get("mode").getAsString(),
+			                   primaryMetric.get("score").getAsDouble(), primaryMetric.get("scoreUnit").getAsString(), allocPerOp));
+		}
+
+		return ret;
+	}
+
+	public static BenchmarkBaseline read(Reader reader) {
+		return createGson().fromJson(reader, BenchmarkBaseline.class);
+	}
+
+	public void write(Writer writer) throws IOException {
+		createGson().toJson(this, writer);
+
+		writer.flush();
+	}
+
+	public static void main(String[] args) throws IOException {
+		if(args.length >= 3 && "create".equals(args[0])) {
+			double            threshold = args.length > 3 ? Double.parseDouble(args[3]) : DEFAULT_THRESHOLD;
+			BenchmarkBaseline baseline  = new BenchmarkBaseline(readJmhResults(open(args[1])), threshold);
+			Writer            writer    = new OutputStreamWriter(new FileOutputStream(args[2]), UTF_8);
+
+			try {
+				baseline.write(writer);
+			} finally {
+				writer.close();
+			}
+
+			System.out.println(args[2] + ": recorded " + baseline.getResults().size() + " results");
+		} else if(args.length == 3 && "compare".equals(args[0])) {
+			BenchmarkBaseline baseline    = read(open(args[1]));
+			List<String>      regressions = baseline.getRegressions(readJmhResults(open(args[2])));
+
+			for(String regression : regressions) {
+				System.out.println("REGRESSION: " + regression);
+			}
+
+			System.out.println(regressions.size() + " regressions found, threshold=" + baseline.getThreshold());
+
+			if(!regressions.isEmpty()) {
+				System.exit(1);
+			}
+		} else {
+			System.err.println("Usage: BenchmarkBaseline create <jmh-results.json> <baseline.json> [threshold]");
+			System.err.println("       BenchmarkBaseline compare <baseline.json> <jmh-results.json>");
+			System.exit(2);
+		}
+	}
+
+	private static Reader open(String fileName) throws IOException {
+		return new InputStreamReader(new FileInputStream(fileName), UTF_8);
+	}
+
+	private static Gson createGson() {
+		return new GsonBuilder().setPrettyPrinting().create();
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerResourceDef;
+import org.apache.ranger.plugin.resourcematcher.RangerPathResourceMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * RangerPathResourceMatcher.isMatch() of hdfs policy paths. Every other invocation pairs a path with the matcher of
+ * the policy covering it, so that both matches and mismatches are measured.
+ */
+public class PathResourceMatcherBenchmark extends AbstractServiceBenchmark {
+	private List<RangerPathResourceMatcher> matchers;
+	private List<String>                    paths;
+
+	@Override
+	String getServiceType() {
+		return SyntheticServiceGenerator.SERVICE_TYPE_HDFS;
+	}
+
+	@Override
+	void setUp() {
+		RangerResourceDef resourceDef = generator.getServiceDef().getResources().get(0);
+
+		matchers = new ArrayList<RangerPathResourceMatcher>();
+		paths    = SyntheticServiceGenerator.getResourceValues(requests, "path");
+
+		for(RangerPolicy policy : generator.createPolicies()) {
+			RangerPathResourceMatcher matcher = new RangerPathResourceMatcher();
+
+			matcher.setResourceDef(resourceDef);
+			matcher.setPolicyResource(policy.getResources().get("path"));
+			matcher.init();
+
+			matchers.add(matcher);
+		}
+	}
+
+	@Benchmark
+	public boolean isMatch() {
+		int    index   = nextIndex();
+		String path    = paths.get(index);
+		int    slot    = getSlot(path);
+		int    matcher = (index % 2 == 0 && slot < matchers.size()) ? slot : index % matchers.size();
+
+		return matchers.get(matcher).isMatch(path, null);
+	}
+
+	// paths are generated as /data/d<n>/t<slot>/part-<m>
+	private static int getSlot(String path) {
+		int start = path.indexOf("/t") + 2;
+
+		return Integer.parseInt(path.substring(start, path.indexOf('/', start)));
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmarks;
+
+import java.util.Collection;
+
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerAccessResult;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * RangerPolicyEngineImpl.isAccessAllowed(), with requests pre-processed as RangerBasePlugin does.
+ */
+public class PolicyEngineBenchmark extends AbstractServiceBenchmark {
+	@Param({"hdfs", "hive"})
+	public String serviceType;
+
+	private RangerPolicyEngineImpl policyEngine;
+
+	@Override
+	String getServiceType() {
+		return serviceType;
+	}
+
+	@Override
+	void setUp() {
+		policyEngine = new RangerPolicyEngineImpl("ranger-benchmarks", generator.createServicePolicies(), createPolicyEngineOptions());
+	}
+
+	@TearDown
+	public void tearDown() {
+		policyEngine.cleanup();
+	}
+
+	@Benchmark
+	public RangerAccessResult isAccessAllowed() {
+		RangerAccessRequest request = requests.get(nextIndex());
+
+		policyEngine.preProcess(request);
+
+		return policyEngine.isAccessAllowed(request, null);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(REQUEST_COUNT)
+	public Collection<RangerAccessResult> isAccessAllowedBatch() {
+		policyEngine.preProcess(requests);
+
+		return policyEngine.isAccessAllowed(requests, null);
+	}
+}
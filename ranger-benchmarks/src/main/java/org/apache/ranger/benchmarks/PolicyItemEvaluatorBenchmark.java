@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
+import org.apache.ranger.plugin.policyevaluator.RangerDefaultPolicyItemEvaluator;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyItemEvaluator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * RangerDefaultPolicyItemEvaluator.isMatch(): user, group and access-type matching of allow items.
+ */
+public class PolicyItemEvaluatorBenchmark extends AbstractServiceBenchmark {
+	@Param({"hdfs", "hive"})
+	public String serviceType;
+
+	private List<RangerDefaultPolicyItemEvaluator> evaluators;
+	private int                                    nextEvaluator = 0;
+
+	@Override
+	String getServiceType() {
+		return serviceType;
+	}
+
+	@Override
+	void setUp() {
+		RangerPolicyEngineOptions options = createPolicyEngineOptions();
+
+		evaluators = new ArrayList<RangerDefaultPolicyItemEvaluator>();
+
+		for(RangerPolicy policy : generator.createPolicies()) {
+			for(int i = 0; i < policy.getPolicyItems().size(); i++) {
+				RangerDefaultPolicyItemEvaluator evaluator = new RangerDefaultPolicyItemEvaluator(generator.getServiceDef(), policy, policy.getPolicyItems().get(i),
+				                                                                                  RangerPolicyItemEvaluator.POLICY_ITEM_TYPE_ALLOW, i, options);
+
+				evaluator.init();
+
+				evaluators.add(evaluator);
+			}
+		}
+	}
+
+	@Benchmark
+	public boolean isMatch() {
+		if(nextEvaluator == evaluators.size()) {
+			nextEvaluator = 0;
+		}
+
+		return evaluators.get(nextEvaluator++).isMatch(requests.get(nextIndex()));
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerResourceDef;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
+import org.apache.ranger.plugin.policyevaluator.RangerOptimizedPolicyEvaluator;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.apache.ranger.plugin.util.RangerResourceTrie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * RangerResourceTrie.getEvaluatorsForResource(), for the first resource of the service-def (path or database).
+ */
+public class ResourceTrieBenchmark extends AbstractServiceBenchmark {
+	@Param({"hdfs", "hive"})
+	public String serviceType;
+
+	@Param({"false", "true"})
+	public boolean compactTrie;
+
+	private RangerResourceTrie<RangerPolicyEvaluator> trie;
+	private List<String>                              values;
+
+	@Override
+	String getServiceType() {
+		return serviceType;
+	}
+
+	@Override
+	void setUp() {
+		RangerPolicyEngineOptions   options      = createPolicyEngineOptions();
+		List<RangerPolicyEvaluator> evaluators   = new ArrayList<RangerPolicyEvaluator>();
+		String                      resourceName = generator.getLeadingResourceName();
+		RangerResourceDef           resourceDef  = null;
+
+		for(RangerResourceDef def : generator.getServiceDef().getResources()) {
+			if(def.getName().equals(resourceName)) {
+				resourceDef = def;
+			}
+		}
+
+		for(RangerPolicy policy : generator.createPolicies()) {
+			RangerOptimizedPolicyEvaluator evaluator = new RangerOptimizedPolicyEvaluator();
+
+			evaluator.init(policy, generator.getServiceDef(), options);
+
+			evaluators.add(evaluator);
+		}
+
+		trie   = new RangerResourceTrie<RangerPolicyEvaluator>(resourceDef, evaluators, compactTrie);
+		values = SyntheticServiceGenerator.getResourceValues(requests, resourceName);
+	}
+
+	@Benchmark
+	public List<RangerPolicyEvaluator> getEvaluatorsForResource() {
+		return trie.getEvaluatorsForResource(values.get(nextIndex()));
+	}
+}
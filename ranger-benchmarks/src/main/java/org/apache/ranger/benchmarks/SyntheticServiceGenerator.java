@@ -0,0 +1,297 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerAccessTypeDef;
+import org.apache.ranger.plugin.model.RangerServiceResource;
+import org.apache.ranger.plugin.model.RangerTag;
+import org.apache.ranger.plugin.model.RangerTagDef;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequestImpl;
+import org.apache.ranger.plugin.policyengine.RangerAccessResourceImpl;
+import org.apache.ranger.plugin.store.EmbeddedServiceDefsUtil;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.apache.ranger.plugin.util.ServiceTags;
+
+/**
+ * Generates synthetic services for benchmarks: policies, access requests and tagged resources of an hdfs or hive
+ * service. Resources are laid out in slots, policy i covering slot i; requests address slots in twice the range of
+ * the policies, so that about half of them match a policy. Generation is deterministic for a given seed.
+ */
+public class SyntheticServiceGenerator {
+	public static final String SERVICE_TYPE_HDFS = "hdfs";
+	public static final String SERVICE_TYPE_HIVE = "hive";
+
+	private static final int DIRECTORY_COUNT = 100;
+	private static final int COLUMN_COUNT    = 20;
+
+	private final String           serviceType;
+	private final int              policyCount;
+	private final int              userCount;
+	private final int              groupCount;
+	private final double           wildcardDensity;
+	private final long             seed;
+	private final RangerServiceDef serviceDef;
+	private final List<String>     accessTypes = new ArrayList<String>();
+
+	public SyntheticServiceGenerator(String serviceType, int policyCount, int userCount, int groupCount, double wildcardDensity, long seed) throws Exception {
+		if(!SERVICE_TYPE_HDFS.equals(serviceType) && !SERVICE_TYPE_HIVE.equals(serviceType)) {
+			throw new IllegalArgumentException(serviceType + ": unsupported service type; supported types: " + SERVICE_TYPE_HDFS + ", " + SERVICE_TYPE_HIVE);
+		}
+
+		this.serviceType     = serviceType;
+		this.policyCount     = policyCount;
+		this.userCount       = Math.max(1, userCount);
+		this.groupCount      = Math.max(1, groupCount);
+		this.wildcardDensity = wildcardDensity;
+		this.seed            = seed;
+		this.serviceDef      = EmbeddedServiceDefsUtil.instance().getEmbeddedServiceDef(serviceType);
+
+		for(RangerAccessTypeDef accessTypeDef : serviceDef.getAccessTypes()) {
+			accessTypes.add(accessTypeDef.getName());
+		}
+	}
+
+	public RangerServiceDef getServiceDef() {
+		return serviceDef;
+	}
+
+	public String getServiceName() {
+		return "bench_" + serviceType;
+	}
+
+	/**
+	 * @return name of the resource looked up in the resource trie: the first resource of the service-def
+	 */
+	public String getLeadingResourceName() {
+		return SERVICE_TYPE_HDFS.equals(serviceType) ? "path" : "database";
+	}
+
+	public List<String> getAccessTypes() {
+		return accessTypes;
+	}
+
+	public ServicePolicies createServicePolicies() {
+		ServicePolicies ret = new ServicePolicies();
+
+		ret.setServiceName(getServiceName());
+		ret.setServiceId(1L);
+		ret.setPolicyVersion(1L);
+		ret.setServiceDef(serviceDef);
+		ret.setPolicies(createPolicies());
+
+		return ret;
+	}
+
+	public List<RangerPolicy> createPolicies() {
+		Random             random = new Random(seed);
+		List<RangerPolicy> ret    = new ArrayList<RangerPolicy>(policyCount);
+
+		for(int i = 0; i < policyCount; i++) {
+			RangerPolicy policy = new RangerPolicy();
+
+			policy.setId((long) (i + 1));
+			policy.setVersion(1L);
+			policy.setService(getServiceName());
+			policy.setName("policy-" + i);
+			policy.setIsAuditEnabled(true);
+			policy.setResources(createPolicyResources(i, random.nextDouble() < wildcardDensity));
+
+			int itemCount = 1 + random.nextInt(3);
+
+			for(int j = 0; j < itemCount; j++) {
+				policy.getPolicyItems().add(createPolicyItem(random));
+			}
+
+			ret.add(policy);
+		}
+
+		return ret;
+	}
+
+	public List<RangerAccessRequest> createAccessRequests(int count) {
+		Random                    random = new Random(seed + 1);
+		List<RangerAccessRequest> ret    = new ArrayList<RangerAccessRequest>(count);
+
+		for(int i = 0; i < count; i++) {
+			int                     userIndex = random.nextInt(userCount);
+			RangerAccessRequestImpl request   = new RangerAccessRequestImpl();
+
+			request.setResource(createAccessResource(random.nextInt(Math.max(1, policyCount * 2)), random));
+			request.setAccessType(accessTypes.get(random.nextInt(accessTypes.size())));
+			request.setUser(getUser(userIndex));
+			request.setUserGroups(getUserGroups(userIndex));
+			request.setClientIPAddress("10.0.0." + (i % 256));
+			request.setAction(request.getAccessType());
+
+			ret.add(request);
+		}
+
+		return ret;
+	}
+
+	/**
+	 * @return resource values accessed by the given requests, for benchmarks of individual resource matchers
+	 */
+	public static List<String> getResourceValues(List<RangerAccessRequest> requests, String resourceName) {
+		List<String> ret = new ArrayList<String>(requests.size());
+
+		for(RangerAccessRequest request : requests) {
+			ret.add((String) request.getResource().getValue(resourceName));
+		}
+
+		return ret;
+	}
+
+	/**
+	 * @return tags on the given number of resources, laid out in the same slots as policies; each resource has one tag
+	 *         of one of tagTypeCount types
+	 */
+	public ServiceTags createServiceTags(int taggedResourceCount, int tagTypeCount) {
+		Random                      random         = new Random(seed + 2);
+		Map<Long, RangerTagDef>     tagDefs        = new HashMap<Long, RangerTagDef>();
+		Map<Long, RangerTag>        tags           = new HashMap<Long, RangerTag>();
+		List<RangerServiceResource> resources      = new ArrayList<RangerServiceResource>(taggedResourceCount);
+		Map<Long, List<Long>>       resourceTagIds = new HashMap<Long, List<Long>>();
+
+		for(int i = 0; i < tagTypeCount; i++) {
+			RangerTagDef tagDef = new RangerTagDef("TAG_" + i);
+
+			tagDef.setId((long) i);
+
+			tagDefs.put(tagDef.getId(), tagDef);
+		}
+
+		for(int i = 0; i < taggedResourceCount; i++) {
+			Long                  id       = (long) i;
+			RangerTag             tag      = new RangerTag("TAG_" + random.nextInt(Math.max(1, tagTypeCount)), Collections.<String, String>emptyMap());
+			RangerServiceResource resource = new RangerServiceResource(getServiceName(), createPolicyResources(i, random.nextDouble() < wildcardDensity));
+
+			tag.setId(id);
+			resource.setId(id);
+
+			tags.put(id, tag);
+			resources.add(resource);
+			resourceTagIds.put(id, Collections.singletonList(id));
+		}
+
+		ServiceTags ret = new ServiceTags();
+
+		ret.setOp(ServiceTags.OP_ADD_OR_UPDATE);
+		ret.setServiceName(getServiceName());
+		ret.setTagVersion(1L);
+		ret.setTagDefinitions(tagDefs);
+		ret.setTags(tags);
+		ret.setServiceResources(resources);
+		ret.setResourceToTagIds(resourceTagIds);
+
+		return ret;
+	}
+
+	public static String getUser(int index) {
+		return "user" + index;
+	}
+
+	public String getGroup(int index) {
+		return "group" + (index % groupCount);
+	}
+
+	private Set<String> getUserGroups(int userIndex) {
+		Set<String> ret = new HashSet<String>();
+
+		ret.add(getGroup(userIndex));
+		ret.add(getGroup(userIndex / 2));
+
+		return ret;
+	}
+
+	private Map<String, RangerPolicyResource> createPolicyResources(int slot, boolean useWildcard) {
+		Map<String, RangerPolicyResource> ret = new HashMap<String, RangerPolicyResource>();
+
+		if(SERVICE_TYPE_HDFS.equals(serviceType)) {
+			String path;
+
+			if(!useWildcard) {
+				path = getDirectory(slot) + "/t" + slot;
+			} else if(slot % 2 == 0) {
+				path = getDirectory(slot) + "/t" + slot + "*";
+			} else {
+				path = getDirectory(slot) + "/*/t" + slot;
+			}
+
+			ret.put("path", new RangerPolicyResource(path, false, true));
+		} else {
+			ret.put("database", new RangerPolicyResource(useWildcard && slot % 2 == 1 ? "db" + (slot % DIRECTORY_COUNT) + "*" : "db" + (slot % DIRECTORY_COUNT)));
+			ret.put("table", new RangerPolicyResource(useWildcard && slot % 2 == 0 ? "tbl" + slot + "*" : "tbl" + slot));
+			ret.put("column", new RangerPolicyResource(useWildcard ? "*" : "col" + (slot % COLUMN_COUNT)));
+		}
+
+		return ret;
+	}
+
+	private RangerAccessResourceImpl createAccessResource(int slot, Random random) {
+		RangerAccessResourceImpl ret = new RangerAccessResourceImpl();
+
+		if(SERVICE_TYPE_HDFS.equals(serviceType)) {
+			ret.setValue("path", getDirectory(slot) + "/t" + slot + "/part-" + random.nextInt(1000));
+		} else {
+			ret.setValue("database", "db" + (slot % DIRECTORY_COUNT));
+			ret.setValue("table", "tbl" + slot);
+			ret.setValue("column", "col" + random.nextInt(COLUMN_COUNT));
+		}
+
+		return ret;
+	}
+
+	private RangerPolicyItem createPolicyItem(Random random) {
+		RangerPolicyItem ret         = new RangerPolicyItem();
+		int              accessCount = 1 + random.nextInt(2);
+
+		for(int i = 0; i < 3; i++) {
+			ret.getUsers().add(getUser(random.nextInt(userCount)));
+		}
+
+		ret.getGroups().add(getGroup(random.nextInt(groupCount)));
+
+		for(int i = 0; i < accessCount; i++) {
+			ret.getAccesses().add(new RangerPolicyItemAccess(accessTypes.get(random.nextInt(accessTypes.size())), Boolean.TRUE));
+		}
+
+		return ret;
+	}
+
+	private static String getDirectory(int slot) {
+		return "/data/d" + (slot % DIRECTORY_COUNT);
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmarks;
+
+import org.apache.ranger.plugin.contextenricher.RangerTagEnricher;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * RangerTagEnricher.enrich(). The resources in policyCount slots are tagged, so that about half of the requests
+ * find tags; no policies are created.
+ */
+public class TagEnricherBenchmark extends AbstractServiceBenchmark {
+	@Param({"hdfs", "hive"})
+	public String serviceType;
+
+	@Param({"10"})
+	public int tagTypeCount;
+
+	private RangerTagEnricher tagEnricher;
+
+	@Override
+	String getServiceType() {
+		return serviceType;
+	}
+
+	@Override
+	void setUp() {
+		tagEnricher = new RangerTagEnricher();
+
+		tagEnricher.setServiceDef(generator.getServiceDef());
+		tagEnricher.setServiceName(generator.getServiceName());
+		tagEnricher.setAppId("ranger-benchmarks");
+		tagEnricher.setServiceTags(generator.createServiceTags(policyCount, tagTypeCount));
+	}
+
+	@Benchmark
+	public RangerAccessRequest enrich() {
+		RangerAccessRequest request = requests.get(nextIndex());
+
+		tagEnricher.enrich(request);
+
+		return request;
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmarks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.ranger.benchmarks.BenchmarkBaseline.Result;
+import org.junit.Test;
+
+public class BenchmarkBaselineTest {
+
+	@Test
+	public void testReadJmhResults() {
+		List<Result> results = readResults();
+
+		assertEquals(2, results.size());
+		assertEquals("org.apache.ranger.benchmarks.PolicyEngineBenchmark.isAccessAllowed{groupCount=100, policyCount=1000, serviceType=hive, userCount=1000, wildcardDensity=0.0}", results.get(0).getKey());
+		assertEquals(2000.0, results.get(0).getScore(), 0);
+		assertEquals(Double.valueOf(1400.0), results.get(0).getAllocBytesPerOp());
+		assertEquals("org.apache.ranger.benchmarks.ResourceTrieBenchmark.getEvaluatorsForResource", results.get(1).getKey());
+		assertNull(results.get(1).getAllocBytesPerOp());
+	}
+
+	@Test
+	public void testRegressions() throws Exception {
+		List<Result>      baselineResults = readResults();
+		BenchmarkBaseline baseline        = roundTrip(new BenchmarkBaseline(baselineResults, 0.1));
+		Result            avgt            = baselineResults.get(0);
+		Result            thrpt           = baselineResults.get(1);
+
+		assertTrue(baseline.getRegressions(baselineResults).isEmpty());
+
+		// 5% slower and 20% faster are both within the threshold, or better
+		assertTrue(baseline.getRegressions(Arrays.asList(copy(avgt, 2100, 1400.0), copy(thrpt, 600, null))).isEmpty());
+
+		// average time is worse when higher, throughput when lower
+		assertEquals(1, baseline.getRegressions(Arrays.asList(copy(avgt, 2300, 1400.0))).size());
+		assertEquals(1, baseline.getRegressions(Arrays.asList(copy(thrpt, 400, null))).size());
+
+		// allocation beyond threshold and slack
+		assertTrue(baseline.getRegressions(Arrays.asList(copy(avgt, 2000, 1550.0))).isEmpty());
+		assertEquals(1, baseline.getRegressions(Arrays.asList(copy(avgt, 2000, 1600.0))).size());
+	}
+
+	private static List<Result> readResults() {
+		return BenchmarkBaseline.readJmhResults(new InputStreamReader(BenchmarkBaselineTest.class.getResourceAsStream("/jmh-results.json")));
+	}
+
+	private static BenchmarkBaseline roundTrip(BenchmarkBaseline baseline) throws Exception {
+		StringWriter writer = new StringWriter();
+
+		baseline.write(writer);
+
+		return BenchmarkBaseline.read(new StringReader(writer.toString()));
+	}
+
+	private static Result copy(Result result, double score, Double allocBytesPerOp) {
+		return new Result(result.getBenchmark(), result.getParams(), result.getMode(), score, result.getScoreUnit(), allocBytesPerOp);
+	}
+}
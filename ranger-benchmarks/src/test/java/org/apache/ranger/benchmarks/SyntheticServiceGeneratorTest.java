@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmarks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerAccessResult;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineImpl;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.junit.Test;
+
+public class SyntheticServiceGeneratorTest {
+
+	@Test
+	public void testHdfsService() throws Exception {
+		verifyService(SyntheticServiceGenerator.SERVICE_TYPE_HDFS);
+	}
+
+	@Test
+	public void testHiveService() throws Exception {
+		verifyService(SyntheticServiceGenerator.SERVICE_TYPE_HIVE);
+	}
+
+	private void verifyService(String serviceType) throws Exception {
+		SyntheticServiceGenerator generator = new SyntheticServiceGenerator(serviceType, 200, 10, 5, 0.25, 1L);
+		ServicePolicies           policies  = generator.createServicePolicies();
+		List<RangerAccessRequest> requests  = generator.createAccessRequests(500);
+
+		assertEquals(200, policies.getPolicies().size());
+		assertEquals(policies.getPolicies().get(10).getResources(), new SyntheticServiceGenerator(serviceType, 200, 10, 5, 0.25, 1L).createPolicies().get(10).getResources());
+		assertEquals(200, generator.createServiceTags(200, 5).getServiceResources().size());
+
+		RangerPolicyEngineImpl policyEngine = new RangerPolicyEngineImpl("test", policies, new RangerPolicyEngineOptions());
+		int                    allowed      = 0;
+
+		for(RangerAccessRequest request : requests) {
+			policyEngine.preProcess(request);
+
+			RangerAccessResult result = policyEngine.isAccessAllowed(request, null);
+
+			if(result.getIsAllowed()) {
+				allowed++;
+			}
+		}
+
+		// about half of the requests fall in the slots of policies, and only some of these match users and access types
+		assertTrue("allowed=" + allowed, allowed > 0 && allowed < requests.size() / 2);
+	}
+}
@@ -65,6 +65,7 @@ import org.apache.ranger.common.JSONUtil;
 import org.apache.ranger.common.PropertiesUtil;
 import org.apache.ranger.common.RESTErrorUtil;
 import org.apache.ranger.common.RangerFactory;
+import org.apache.ranger.common.RangerPolicySearchIndex;
 import org.apache.ranger.common.RangerServicePoliciesCache;
 import org.apache.ranger.common.RangerVersionInfo;
 import org.apache.ranger.common.StringUtil;
@@ -119,6 +120,7 @@ import org.apache.ranger.entity.XXServiceDef;
 import org.apache.ranger.entity.XXServiceVersionInfo;
 import org.apache.ranger.entity.XXTrxLog;
 import org.apache.ranger.entity.XXUser;
+import org.apache.ranger.plugin.model.RangerBaseModelObject;
 import org.apache.ranger.plugin.model.RangerPolicy;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerDataMaskPolicyItem;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerRowFilterPolicyItem;
@@ -143,6 +145,7 @@ import org.apache.ranger.plugin.model.RangerServiceDef.RangerRowFilterDef;
 import org.apache.ranger.plugin.model.RangerServiceDef.RangerServiceConfigDef;
 import org.apache.ranger.plugin.model.validation.RangerServiceDefHelper;
 import org.apache.ranger.plugin.policyevaluator.RangerPolicyItemEvaluator;
+import org.apache.ranger.plugin.store.AbstractPredicateUtil;
 import org.apache.ranger.plugin.store.AbstractServiceStore;
 import org.apache.ranger.plugin.store.EmbeddedServiceDefsUtil;
 import org.apache.ranger.plugin.store.PList;
@@ -1994,10 +1997,9 @@ public class ServiceDBStore extends AbstractServiceStore {
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("==> ServiceDBStore.getPolicies()");
 		}
-		RangerPolicyList policyList = searchRangerPolicies(filter);
-		List<RangerPolicy> ret = policyList.getPolicies();
+		List<RangerPolicy> ret = searchPolicies(filter);
 		if(LOG.isDebugEnabled()) {
-			LOG.debug("<== ServiceDBStore.getPolicies()");
+			LOG.debug("<== ServiceDBStore.getPolicies(): count=" + ret.size());
 		}
 		return ret;
 	}
@@ -2137,6 +2139,16 @@ public class ServiceDBStore extends AbstractServiceStore {
 	}
 
 	private List<RangerPolicy> getServicePolicies(XXService service, SearchFilter filter) throws Exception {
+		return getServicePolicies(service, filter, null);
+	}
+
+	/*
+	 * When userGroups is not null, policies that refer to the user given in the filter, or to any of userGroups, are
+	 * returned. Candidate policies are found with the search index kept with the cached policies of the service; the
+	 * filter is then applied to the candidates only. When the index is disabled, the cached policies are filtered with
+	 * predicates.
+	 */
+	private List<RangerPolicy> getServicePolicies(XXService service, SearchFilter filter, Set<String> userGroups) throws Exception {
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("==> ServiceDBStore.getServicePolicies()");
 		}
@@ -2167,7 +2179,23 @@ public class ServiceDBStore extends AbstractServiceStore {
 				LOG.debug("Using" + (useLegacyResourceSearch ? " old " : " new ") + "way of filtering service-policies");
 			}
 
-			ret = new ArrayList<RangerPolicy>(policies);
+			RangerPolicySearchIndex searchIndex = RangerServicePoliciesCache.getInstance().getPolicySearchIndex(service.getName());
+
+			if (searchIndex != null) {
+				ret = searchIndex.search(filter, userGroups);
+			} else {
+				ret = new ArrayList<RangerPolicy>(policies);
+
+				if (userGroups != null) {
+					// the user predicate of the filter doesn't match policies that refer to groups of the user
+					predicateUtil.applyUserOrGroupsFilter(ret, filter.getParam(SearchFilter.USER), userGroups);
+				}
+			}
+
+			if (userGroups != null) {
+				filter.removeParam(SearchFilter.USER);
+			}
+
 			predicateUtil.applyFilter(ret, filter);
 
 			if (!useLegacyResourceSearch && CollectionUtils.isNotEmpty(ret)) {
@@ -2357,8 +2385,12 @@ public class ServiceDBStore extends AbstractServiceStore {
 
 	@Override
 	public ServicePolicies getServicePoliciesIfUpdated(String serviceName, Long lastKnownVersion) throws Exception {
+		return getServicePoliciesIfUpdated(serviceName, lastKnownVersion, false);
+	}
+
+	public ServicePolicies getServicePoliciesIfUpdated(String serviceName, Long lastKnownVersion, boolean needsPolicyDeltas) throws Exception {
 		if (LOG.isDebugEnabled()) {
-			LOG.debug("==> ServiceDBStore.getServicePoliciesIfUpdated(" + serviceName + ", " + lastKnownVersion + ")");
+			LOG.debug("==> ServiceDBStore.getServicePoliciesIfUpdated(" + serviceName + ", " + lastKnownVersion + ", " + needsPolicyDeltas + ")");
 		}
 
 		ServicePolicies ret = null;
@@ -2384,12 +2416,20 @@ public class ServiceDBStore extends AbstractServiceStore {
 			ret = null;
 		}
 
+		if (ret != null && needsPolicyDeltas) {
+			ServicePolicies policyDeltas = RangerServicePoliciesCache.getInstance().getServicePolicyDeltas(serviceName, lastKnownVersion, ret.getPolicyVersion());
+
+			if (policyDeltas != null) {
+				ret = policyDeltas;
+			}
+		}
+
 		if (LOG.isDebugEnabled()) {
 			RangerServicePoliciesCache.getInstance().dump();
 		}
 
 		if (LOG.isDebugEnabled()) {
-			LOG.debug("<== ServiceDBStore.getServicePoliciesIfUpdated(" + serviceName + ", " + lastKnownVersion + "): count=" + ((ret == null || ret.getPolicies() == null) ? 0 : ret.getPolicies().size()));
+			LOG.debug("<== ServiceDBStore.getServicePoliciesIfUpdated(" + serviceName + ", " + lastKnownVersion + ", " + needsPolicyDeltas + "): count=" + ((ret == null || ret.getPolicies() == null) ? 0 : ret.getPolicies().size()) + ", deltaCount=" + ((ret == null || ret.getPolicyDeltas() == null) ? 0 : ret.getPolicyDeltas().size()));
 		}
 
 		return ret;
@@ -3716,6 +3756,111 @@ public class ServiceDBStore extends AbstractServiceStore {
 	}
 
 
+	/*
+	 * Searches policies of services that match the service parameters of the filter. Policies are looked up in the
+	 * search index kept with the cached policies of each service, instead of being read from the database. Policies
+	 * that refer to groups of the user given in the filter are returned as well.
+	 */
+	private List<RangerPolicy> searchPolicies(SearchFilter filter) {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> ServiceDBStore.searchPolicies(" + filter + ")");
+		}
+
+		List<RangerPolicy>  ret    = new ArrayList<RangerPolicy>();
+		Map<String, String> params = new HashMap<String, String>();
+
+		if (filter != null && filter.getParams() != null) {
+			params.putAll(filter.getParams());
+		}
+
+		List<XXService> services   = getServicesForPolicySearch(new SearchFilter(params));
+		Set<String>     userGroups = null;
+		String          userName   = params.get(SearchFilter.USER);
+
+		if (StringUtils.isNotEmpty(userName)) {
+			userGroups = daoMgr.getXXGroupUser().findGroupNamesByUserName(userName);
+
+			if (userGroups == null) {
+				userGroups = Collections.emptySet();
+			}
+		}
+
+		// services to search have been selected already
+		params.remove(SearchFilter.SERVICE_NAME);
+		params.remove(SearchFilter.SERVICE_ID);
+		params.remove(SearchFilter.SERVICE_TYPE);
+		params.remove(SearchFilter.SERVICE_TYPE_ID);
+
+		for (XXService service : services) {
+			try {
+				List<RangerPolicy> policies = getServicePolicies(service, new SearchFilter(new HashMap<String, String>(params)), userGroups);
+
+				if (CollectionUtils.isNotEmpty(policies)) {
+					ret.addAll(policies);
+				}
+			} catch (Exception excp) {
+				LOG.error("searchPolicies(): failed to search policies of service " + service.getName(), excp);
+			}
+		}
+
+		Comparator<RangerBaseModelObject> sorter = predicateUtil.getSorter(new SearchFilter(params));
+
+		Collections.sort(ret, sorter != null ? sorter : AbstractPredicateUtil.idComparator);
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== ServiceDBStore.searchPolicies(" + filter + "): count=" + ret.size());
+		}
+
+		return ret;
+	}
+
+	private List<XXService> getServicesForPolicySearch(SearchFilter filter) {
+		List<XXService> ret           = new ArrayList<XXService>();
+		String          serviceName   = filter.getParam(SearchFilter.SERVICE_NAME);
+		String          serviceId     = filter.getParam(SearchFilter.SERVICE_ID);
+		String          serviceType   = filter.getParam(SearchFilter.SERVICE_TYPE);
+		String          serviceTypeId = filter.getParam(SearchFilter.SERVICE_TYPE_ID);
+		List<XXService> services;
+
+		if (StringUtils.isNotEmpty(serviceName)) {
+			XXService service = daoMgr.getXXService().findByName(serviceName);
+
+			services = service != null ? Collections.singletonList(service) : Collections.<XXService>emptyList();
+		} else {
+			services = daoMgr.getXXService().getAll();
+		}
+
+		XXServiceDef serviceDef = null;
+
+		if (StringUtils.isNotEmpty(serviceType)) {
+			serviceDef = daoMgr.getXXServiceDef().findByName(serviceType);
+
+			if (serviceDef == null) {
+				services = Collections.emptyList();
+			}
+		}
+
+		if (services != null) {
+			for (XXService service : services) {
+				if (StringUtils.isNotEmpty(serviceId) && !StringUtils.equals(serviceId, String.valueOf(service.getId()))) {
+					continue;
+				}
+
+				if (StringUtils.isNotEmpty(serviceTypeId) && !StringUtils.equals(serviceTypeId, String.valueOf(service.getType()))) {
+					continue;
+				}
+
+				if (serviceDef != null && !serviceDef.getId().equals(service.getType())) {
+					continue;
+				}
+
+				ret.add(service);
+			}
+		}
+
+		return ret;
+	}
+
 	private RangerPolicyList searchRangerPolicies(SearchFilter searchFilter) {
 		List<RangerPolicy> policyList = new ArrayList<RangerPolicy>();
 		RangerPolicyList retList = new RangerPolicyList();
@@ -0,0 +1,714 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.biz;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.collections.MapUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.common.PropertiesUtil;
+import org.apache.ranger.db.RangerDaoManager;
+import org.apache.ranger.entity.XXService;
+import org.apache.ranger.entity.XXServiceResource;
+import org.apache.ranger.entity.XXTag;
+import org.apache.ranger.entity.XXTagAttribute;
+import org.apache.ranger.entity.XXTagDef;
+import org.apache.ranger.entity.XXTagResourceMap;
+import org.apache.ranger.plugin.model.RangerServiceResource;
+import org.apache.ranger.plugin.model.RangerTag;
+import org.apache.ranger.plugin.model.RangerTagDef;
+import org.apache.ranger.plugin.model.RangerTagResourceMap;
+import org.apache.ranger.plugin.store.RangerServiceResourceSignature;
+import org.apache.ranger.plugin.util.ServiceTags;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Imports ServiceTags uploaded for a single service (ops add_or_update and replace), with far fewer database
+ * round-trips than looking up each incoming object individually:
+ *  - existing resources, tags, tag-attributes and tag-resource-maps of the service are read in a few set-based queries
+ *  - incoming objects are matched against them in memory; only objects that are new or changed are written
+ *  - writes are applied in chunks of resources, each chunk in its own transaction, with progress logged per chunk
+ *
+ * As each chunk is committed independently, a failed import leaves the chunks before the failure committed; the next
+ * upload from tagsync brings the service up to date.
+ */
+@Component
+public class ServiceTagsBulkImporter {
+	private static final Log LOG = LogFactory.getLog(ServiceTagsBulkImporter.class);
+
+	public static final String PROP_BULK_IMPORT_ENABLED = "ranger.admin.tag.import.bulk.enabled";
+	public static final String PROP_CHUNK_SIZE          = "ranger.admin.tag.import.chunk.size";
+
+	private static final int DEFAULT_CHUNK_SIZE = 1000;
+
+	@Autowired
+	TagDBStore tagStore;
+
+	@Autowired
+	RangerDaoManager daoManager;
+
+	@Autowired
+	@Qualifier(value = "transactionManager")
+	PlatformTransactionManager txManager;
+
+	private boolean isEnabled = true;
+	private int     chunkSize = DEFAULT_CHUNK_SIZE;
+
+	@PostConstruct
+	public void init() {
+		isEnabled = PropertiesUtil.getBooleanProperty(PROP_BULK_IMPORT_ENABLED, true);
+		chunkSize = PropertiesUtil.getIntProperty(PROP_CHUNK_SIZE, DEFAULT_CHUNK_SIZE);
+
+		if (chunkSize <= 0) {
+			chunkSize = DEFAULT_CHUNK_SIZE;
+		}
+
+		LOG.info("ServiceTagsBulkImporter: isEnabled=" + isEnabled + ", chunkSize=" + chunkSize);
+	}
+
+	/**
+	 * @return true if the given serviceTags can be imported by this importer: op is add_or_update or replace, and all
+	 * resources belong to the service named in serviceTags
+	 */
+	public boolean canImport(ServiceTags serviceTags) {
+		boolean ret = isEnabled && serviceTags != null && StringUtils.isNotEmpty(serviceTags.getServiceName())
+				&& (StringUtils.equalsIgnoreCase(serviceTags.getOp(), ServiceTags.OP_ADD_OR_UPDATE) || StringUtils.equalsIgnoreCase(serviceTags.getOp(), ServiceTags.OP_REPLACE));
+
+		if (ret && serviceTags.getServiceResources() != null) {
+			for (RangerServiceResource resource : serviceTags.getServiceResources()) {
+				if (!StringUtils.equals(serviceTags.getServiceName(), resource.getServiceName())) {
+					ret = false;
+
+					break;
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	public ImportStats importServiceTags(final ServiceTags serviceTags) throws Exception {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> ServiceTagsBulkImporter.importServiceTags(serviceName=" + serviceTags.getServiceName() + ", op=" + serviceTags.getOp() + ")");
+		}
+
+		final String      serviceName = serviceTags.getServiceName();
+		final ImportStats stats       = new ImportStats();
+		final long        startTimeMs = System.currentTimeMillis();
+
+		runInTransaction(false, new TransactionWork() {
+			@Override
+			public void run() throws Exception {
+				importTagDefs(serviceTags, stats);
+			}
+		});
+
+		final ExistingTagObjects existing = new ExistingTagObjects();
+
+		runInTransaction(true, new TransactionWork() {
+			@Override
+			public void run() throws Exception {
+				loadExistingTagObjects(serviceName, existing);
+			}
+		});
+
+		LOG.info("ServiceTagsBulkImporter: service=" + serviceName + ": loaded " + existing.resourcesById.size() + " resources and " + existing.tagsById.size() + " tags in " + (System.currentTimeMillis() - startTimeMs) + "ms");
+
+		final List<RangerServiceResource> resources = serviceTags.getServiceResources() != null ? serviceTags.getServiceResources() : Collections.<RangerServiceResource>emptyList();
+
+		if (StringUtils.equalsIgnoreCase(serviceTags.getOp(), ServiceTags.OP_REPLACE)) {
+			Set<String> incomingGuids = new HashSet<String>();
+
+			for (RangerServiceResource resource : resources) {
+				incomingGuids.add(resource.getGuid());
+			}
+
+			final List<ResourceInfo> resourcesToDelete = new ArrayList<ResourceInfo>();
+
+			for (ResourceInfo resource : existing.resourcesById.values()) {
+				if (!incomingGuids.contains(resource.guid)) {
+					resourcesToDelete.add(resource);
+				}
+			}
+
+			for (int fromIdx = 0; fromIdx < resourcesToDelete.size(); fromIdx += chunkSize) {
+				final List<ResourceInfo> chunk = resourcesToDelete.subList(fromIdx, Math.min(fromIdx + chunkSize, resourcesToDelete.size()));
+
+				runInTransaction(false, new TransactionWork() {
+					@Override
+					public void run() throws Exception {
+						for (ResourceInfo resource : chunk) {
+							deleteResource(resource, existing, stats);
+						}
+					}
+				});
+
+				logProgress(serviceName, "deleted", fromIdx + chunk.size(), resourcesToDelete.size(), stats, startTimeMs);
+			}
+		}
+
+		final Map<Long, List<Long>> resourceToTagIds = serviceTags.getResourceToTagIds() != null ? serviceTags.getResourceToTagIds() : new HashMap<Long, List<Long>>();
+		final Map<Long, RangerTag>  incomingTags     = serviceTags.getTags() != null ? serviceTags.getTags() : new HashMap<Long, RangerTag>();
+
+		for (int fromIdx = 0; fromIdx < resources.size(); fromIdx += chunkSize) {
+			final List<RangerServiceResource> chunk = resources.subList(fromIdx, Math.min(fromIdx + chunkSize, resources.size()));
+
+			runInTransaction(false, new TransactionWork() {
+				@Override
+				public void run() throws Exception {
+					for (RangerServiceResource resource : chunk) {
+						ResourceInfo stored = addOrUpdateResource(resource, existing, stats);
+						List<Long>   tagIds = resource.getId() != null ? resourceToTagIds.get(resource.getId()) : null;
+
+						if (tagIds != null) {
+							updateResourceTags(resource.getId(), stored, tagIds, incomingTags, existing, stats);
+						}
+					}
+				}
+			});
+
+			logProgress(serviceName, "processed", fromIdx + chunk.size(), resources.size(), stats, startTimeMs);
+		}
+
+		Set<Long> incomingResourceIds = new HashSet<Long>();
+
+		for (RangerServiceResource resource : resources) {
+			incomingResourceIds.add(resource.getId());
+		}
+
+		for (Long resourceId : resourceToTagIds.keySet()) {
+			if (!incomingResourceIds.contains(resourceId)) {
+				LOG.error("Resource (id=" + resourceId + ") not found. Skipping tags update");
+			}
+		}
+
+		LOG.info("ServiceTagsBulkImporter: service=" + serviceName + ", op=" + serviceTags.getOp() + ": import completed in " + (System.currentTimeMillis() - startTimeMs) + "ms. " + stats);
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== ServiceTagsBulkImporter.importServiceTags(serviceName=" + serviceName + ", op=" + serviceTags.getOp() + "): " + stats);
+		}
+
+		return stats;
+	}
+
+	private void importTagDefs(ServiceTags serviceTags, ImportStats stats) throws Exception {
+		if (MapUtils.isNotEmpty(serviceTags.getTagDefinitions())) {
+			RangerTagDef tagDef = null;
+
+			try {
+				for (RangerTagDef incomingTagDef : serviceTags.getTagDefinitions().values()) {
+					tagDef = incomingTagDef;
+
+					RangerTagDef existing = null;
+
+					if (StringUtils.isNotEmpty(tagDef.getGuid())) {
+						existing = tagStore.getTagDefByGuid(tagDef.getGuid());
+					}
+
+					if (existing == null && StringUtils.isNotEmpty(tagDef.getName())) {
+						existing = tagStore.getTagDefByName(tagDef.getName());
+					}
+
+					if (existing == null) {
+						tagStore.createTagDef(tagDef);
+
+						stats.tagDefsCreated++;
+					} else if (LOG.isDebugEnabled()) {
+						LOG.debug("tagDef for name:" + tagDef.getName() + " exists, will not update it");
+					}
+				}
+			} catch (Exception exception) {
+				LOG.error("createTagDef failed, tagDef=" + tagDef, exception);
+				throw exception;
+			}
+		}
+	}
+
+	private void loadExistingTagObjects(String serviceName, ExistingTagObjects existing) throws Exception {
+		XXService service = daoManager.getXXService().findByName(serviceName);
+
+		if (service == null) {
+			throw new Exception("service does not exist: name=" + serviceName);
+		}
+
+		List<XXServiceResource> xResources = daoManager.getXXServiceResource().findByServiceId(service.getId());
+
+		if (xResources != null) {
+			for (XXServiceResource xResource : xResources) {
+				existing.addResource(new ResourceInfo(xResource.getId(), xResource.getGuid(), xResource.getResourceSignature(), xResource.getIsEnabled()));
+			}
+		}
+
+		List<XXTagResourceMap> xTagResourceMaps = daoManager.getXXTagResourceMap().findByServiceId(service.getId());
+
+		if (xTagResourceMaps != null) {
+			for (XXTagResourceMap xTagResourceMap : xTagResourceMaps) {
+				existing.getTagResourceMaps(xTagResourceMap.getResourceId()).put(xTagResourceMap.getTagId(), xTagResourceMap.getId());
+			}
+		}
+
+		List<XXTag> xTags = daoManager.getXXTag().findByServiceId(service.getId());
+
+		if (CollectionUtils.isNotEmpty(xTags)) {
+			Map<Long, String> tagTypes = new HashMap<Long, String>();
+			List<XXTagDef>    xTagDefs = daoManager.getXXTagDef().getAll();
+
+			if (xTagDefs != null) {
+				for (XXTagDef xTagDef : xTagDefs) {
+					tagTypes.put(xTagDef.getId(), xTagDef.getName());
+				}
+			}
+
+			for (XXTag xTag : xTags) {
+				existing.addTag(new TagInfo(xTag.getId(), xTag.getGuid(), xTag.getOwner(), tagTypes.get(xTag.getType()), new HashMap<String, String>()));
+			}
+
+			List<XXTagAttribute> xTagAttributes = daoManager.getXXTagAttribute().findByServiceId(service.getId());
+
+			if (xTagAttributes != null) {
+				for (XXTagAttribute xTagAttribute : xTagAttributes) {
+					TagInfo tag = existing.tagsById.get(xTagAttribute.getTagId());
+
+					if (tag != null) {
+						tag.attributes.put(xTagAttribute.getName(), xTagAttribute.getValue());
+					}
+				}
+			}
+		}
+	}
+
+	private ResourceInfo addOrUpdateResource(RangerServiceResource resource, ExistingTagObjects existing, ImportStats stats) throws Exception {
+		ResourceInfo ret       = null;
+		ResourceInfo match     = null;
+		String       signature = null;
+
+		try {
+			if (StringUtils.isNotEmpty(resource.getGuid())) {
+				match = existing.resourcesByGuid.get(resource.getGuid());
+			}
+
+			if (MapUtils.isNotEmpty(resource.getResourceElements())) {
+				signature = new RangerServiceResourceSignature(resource).getSignature();
+
+				resource.setResourceSignature(signature);
+
+				if (match == null) {
+					match = existing.resourcesBySignature.get(signature);
+				}
+			}
+
+			if (match == null) {
+				RangerServiceResource created = tagStore.createServiceResource(resource);
+
+				ret = new ResourceInfo(created.getId(), created.getGuid(), created.getResourceSignature(), created.getIsEnabled());
+
+				existing.addResource(ret);
+
+				stats.resourcesCreated++;
+			} else if (signature == null || (StringUtils.equals(signature, match.signature) && match.isEnabled == isEnabled(resource.getIsEnabled()))) {
+				ret = match;
+
+				stats.resourcesUnchanged++;
+			} else {
+				resource.setId(match.id);
+				resource.setGuid(match.guid);
+
+				RangerServiceResource updated = tagStore.updateServiceResource(resource);
+
+				ret = new ResourceInfo(updated.getId(), updated.getGuid(), updated.getResourceSignature(), updated.getIsEnabled());
+
+				existing.removeResource(match);
+				existing.addResource(ret);
+
+				stats.resourcesUpdated++;
+			}
+		} catch (Exception exception) {
+			LOG.error("createServiceResource failed, resource=" + resource, exception);
+			throw exception;
+		}
+
+		return ret;
+	}
+
+	// matches incoming tags with existing ones the same way as ServiceTagsProcessor, but writes only tags that changed
+	private void updateResourceTags(Long resourceId, ResourceInfo resource, List<Long> tagIds, Map<Long, RangerTag> incomingTags, ExistingTagObjects existing, ImportStats stats) throws Exception {
+		Map<Long, Long> tagResourceMaps = existing.getTagResourceMaps(resource.id);
+		List<TagInfo>   associatedTags  = new ArrayList<TagInfo>();
+		Set<Long>       tagIdsToRetain  = new HashSet<Long>();
+
+		for (Long tagId : tagResourceMaps.keySet()) {
+			TagInfo tag = existing.tagsById.get(tagId);
+
+			if (tag != null) {
+				associatedTags.add(tag);
+			}
+		}
+
+		try {
+			for (Long tagId : tagIds) {
+				RangerTag incomingTag = incomingTags.get(tagId);
+
+				if (incomingTag == null) {
+					LOG.error("Tag (id=" + tagId + ") not found. Skipping addition of this tag for resource (id=" + resourceId + ")");
+					continue;
+				}
+
+				TagInfo matchingTag = findMatchingTag(incomingTag, associatedTags, existing);
+
+				if (matchingTag == null || isResourcePrivateTag(incomingTag.getOwner()) != isResourcePrivateTag(matchingTag.owner)) {
+					RangerTag created = tagStore.createTag(incomingTag);
+					TagInfo   newTag  = new TagInfo(created.getId(), created.getGuid(), created.getOwner(), created.getType(), getAttributes(created));
+
+					existing.addTag(newTag);
+					stats.tagsCreated++;
+
+					createTagResourceMap(newTag.id, resource.id, existing, stats);
+
+					associatedTags.add(newTag);
+					tagIdsToRetain.add(newTag.id);
+				} else {
+					tagIdsToRetain.add(matchingTag.id);
+
+					// a private tag is updated only when matched by guid, as a match by attribute-values has nothing to update
+					boolean isUpdateNeeded = !isResourcePrivateTag(incomingTag.getOwner()) || StringUtils.equals(incomingTag.getGuid(), matchingTag.guid);
+
+					if (isUpdateNeeded && !matchingTag.isSameAs(incomingTag)) {
+						incomingTag.setId(matchingTag.id);
+
+						RangerTag updated = tagStore.updateTag(incomingTag);
+
+						matchingTag.type       = updated.getType();
+						matchingTag.attributes = getAttributes(updated);
+
+						stats.tagsUpdated++;
+					} else {
+						stats.tagsUnchanged++;
+					}
+
+					if (!isResourcePrivateTag(matchingTag.owner) && !tagResourceMaps.containsKey(matchingTag.id)) {
+						createTagResourceMap(matchingTag.id, resource.id, existing, stats);
+					}
+				}
+			}
+		} catch (Exception exception) {
+			LOG.error("createRangerTagResourceMap failed", exception);
+			throw exception;
+		}
+
+		for (TagInfo associatedTag : associatedTags) {
+			if (!tagIdsToRetain.contains(associatedTag.id)) {
+				deleteTagResourceMap(associatedTag, resource.id, existing, stats);
+			}
+		}
+	}
+
+	private TagInfo findMatchingTag(RangerTag incomingTag, List<TagInfo> associatedTags, ExistingTagObjects existing) throws Exception {
+		TagInfo ret = null;
+
+		if (StringUtils.isNotEmpty(incomingTag.getGuid())) {
+			ret = existing.tagsByGuid.get(incomingTag.getGuid());
+
+			// shared tags can be associated with resources of other services only, hence not loaded; private tags are always loaded
+			if (ret == null && !isResourcePrivateTag(incomingTag.getOwner())) {
+				RangerTag tag = tagStore.getTagByGuid(incomingTag.getGuid());
+
+				if (tag != null) {
+					ret = new TagInfo(tag.getId(), tag.getGuid(), tag.getOwner(), tag.getType(), getAttributes(tag));
+
+					existing.addTag(ret);
+				}
+			}
+		}
+
+		if (ret == null && isResourcePrivateTag(incomingTag.getOwner())) {
+			for (TagInfo associatedTag : associatedTags) {
+				if (StringUtils.equals(incomingTag.getType(), associatedTag.type) && getAttributes(incomingTag).equals(associatedTag.attributes)) {
+					ret = associatedTag;
+
+					break;
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	private void createTagResourceMap(Long tagId, Long resourceId, ExistingTagObjects existing, ImportStats stats) throws Exception {
+		RangerTagResourceMap tagResourceMap = new RangerTagResourceMap();
+
+		tagResourceMap.setTagId(tagId);
+		tagResourceMap.setResourceId(resourceId);
+
+		tagResourceMap = tagStore.createTagResourceMap(tagResourceMap);
+
+		existing.getTagResourceMaps(resourceId).put(tagId, tagResourceMap.getId());
+
+		stats.tagResourceMapsCreated++;
+	}
+
+	private void deleteTagResourceMap(TagInfo tag, Long resourceId, ExistingTagObjects existing, ImportStats stats) throws Exception {
+		Long tagResourceMapId = existing.getTagResourceMaps(resourceId).remove(tag.id);
+
+		if (tagResourceMapId != null) {
+			try {
+				// deletes the tag as well, if it is private
+				tagStore.deleteTagResourceMap(tagResourceMapId);
+			} catch (Exception exception) {
+				LOG.error("deleteTagResourceMap failed, tagId=" + tag.id + ", resourceId=" + resourceId);
+				throw exception;
+			}
+
+			if (isResourcePrivateTag(tag.owner)) {
+				existing.removeTag(tag);
+			}
+
+			stats.tagResourceMapsDeleted++;
+		}
+	}
+
+	private void deleteResource(ResourceInfo resource, ExistingTagObjects existing, ImportStats stats) throws Exception {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Deleting serviceResource(guid=" + resource.guid + ") and its tag-associations...");
+		}
+
+		for (Long tagId : new ArrayList<Long>(existing.getTagResourceMaps(resource.id).keySet())) {
+			TagInfo tag = existing.tagsById.get(tagId);
+
+			if (tag == null) {
+				tag = new TagInfo(tagId, null, RangerTag.OWNER_GLOBAL, null, null);
+			}
+
+			deleteTagResourceMap(tag, resource.id, existing, stats);
+		}
+
+		tagStore.deleteServiceResource(resource.id);
+
+		existing.removeResource(resource);
+
+		stats.resourcesDeleted++;
+	}
+
+	private void runInTransaction(boolean isReadOnly, final TransactionWork work) throws Exception {
+		TransactionTemplate txTemplate = new TransactionTemplate(txManager);
+
+		txTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		txTemplate.setReadOnly(isReadOnly);
+
+		try {
+			txTemplate.execute(new TransactionCallback<Object>() {
+				@Override
+				public Object doInTransaction(TransactionStatus status) {
+					try {
+						work.run();
+					} catch (RuntimeException excp) {
+						throw excp;
+					} catch (Exception excp) {
+						throw new TransactionWorkException(excp);
+					}
+
+					return null;
+				}
+			});
+		} catch (TransactionWorkException excp) {
+			throw (Exception) excp.getCause();
+		}
+	}
+
+	private void logProgress(String serviceName, String action, int count, int total, ImportStats stats, long startTimeMs) {
+		long elapsedMs = Math.max(System.currentTimeMillis() - startTimeMs, 1);
+
+		LOG.info("ServiceTagsBulkImporter: service=" + serviceName + ": " + action + " " + count + "/" + total + " resources in " + elapsedMs + "ms (" + (count * 1000L / elapsedMs) + " resources/sec). " + stats);
+	}
+
+	private static boolean isResourcePrivateTag(Short owner) {
+		return owner != null && owner == RangerTag.OWNER_SERVICERESOURCE;
+	}
+
+	private static boolean isEnabled(Boolean isEnabled) {
+		return isEnabled == null || isEnabled;
+	}
+
+	private static Map<String, String> getAttributes(RangerTag tag) {
+		return tag.getAttributes() != null ? new HashMap<String, String>(tag.getAttributes()) : new HashMap<String, String>();
+	}
+
+	public static class ImportStats {
+		long tagDefsCreated;
+		long resourcesCreated;
+		long resourcesUpdated;
+		long resourcesUnchanged;
+		long resourcesDeleted;
+		long tagsCreated;
+		long tagsUpdated;
+		long tagsUnchanged;
+		long tagResourceMapsCreated;
+		long tagResourceMapsDeleted;
+
+		public long getTagDefsCreated() { return tagDefsCreated; }
+
+		public long getResourcesCreated() { return resourcesCreated; }
+
+		public long getResourcesUpdated() { return resourcesUpdated; }
+
+		public long getResourcesUnchanged() { return resourcesUnchanged; }
+
+		public long getResourcesDeleted() { return resourcesDeleted; }
+
+		public long getTagsCreated() { return tagsCreated; }
+
+		public long getTagsUpdated() { return tagsUpdated; }
+
+		public long getTagsUnchanged() { return tagsUnchanged; }
+
+		public long getTagResourceMapsCreated() { return tagResourceMapsCreated; }
+
+		public long getTagResourceMapsDeleted() { return tagResourceMapsDeleted; }
+
+		@Override
+		public String toString() {
+			return "ImportStats={tagDefsCreated=" + tagDefsCreated
+					+ ", resources: created=" + resourcesCreated + ", updated=" + resourcesUpdated + ", unchanged=" + resourcesUnchanged + ", deleted=" + resourcesDeleted
+					+ ", tags: created=" + tagsCreated + ", updated=" + tagsUpdated + ", unchanged=" + tagsUnchanged
+					+ ", tagResourceMaps: created=" + tagResourceMapsCreated + ", deleted=" + tagResourceMapsDeleted + "}";
+		}
+	}
+
+	private interface TransactionWork {
+		void run() throws Exception;
+	}
+
+	private static class TransactionWorkException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		TransactionWorkException(Exception cause) {
+			super(cause);
+		}
+	}
+
+	private static class ResourceInfo {
+		final Long    id;
+		final String  guid;
+		final String  signature;
+		final boolean isEnabled;
+
+		ResourceInfo(Long id, String guid, String signature, Boolean isEnabled) {
+			this.id        = id;
+			this.guid      = guid;
+			this.signature = signature;
+			this.isEnabled = isEnabled(isEnabled);
+		}
+	}
+
+	private static class TagInfo {
+		final Long          id;
+		final String        guid;
+		final Short         owner;
+		String              type;
+		Map<String, String> attributes;
+
+		TagInfo(Long id, String guid, Short owner, String type, Map<String, String> attributes) {
+			this.id         = id;
+			this.guid       = guid;
+			this.owner      = owner;
+			this.type       = type;
+			this.attributes = attributes;
+		}
+
+		boolean isSameAs(RangerTag tag) {
+			return StringUtils.equals(type, tag.getType()) && getAttributes(tag).equals(attributes);
+		}
+	}
+
+	// existing objects of the service being imported, kept up to date as the import makes changes
+	private static class ExistingTagObjects {
+		final Map<Long, ResourceInfo>     resourcesById        = new LinkedHashMap<Long, ResourceInfo>();
+		final Map<String, ResourceInfo>   resourcesByGuid      = new HashMap<String, ResourceInfo>();
+		final Map<String, ResourceInfo>   resourcesBySignature = new HashMap<String, ResourceInfo>();
+		final Map<Long, Map<Long, Long>>  tagResourceMaps      = new HashMap<Long, Map<Long, Long>>(); // resourceId => (tagId => tagResourceMapId)
+		final Map<Long, TagInfo>          tagsById             = new HashMap<Long, TagInfo>();
+		final Map<String, TagInfo>        tagsByGuid           = new HashMap<String, TagInfo>();
+
+		void addResource(ResourceInfo resource) {
+			resourcesById.put(resource.id, resource);
+
+			if (resource.guid != null) {
+				resourcesByGuid.put(resource.guid, resource);
+			}
+
+			if (resource.signature != null) {
+				resourcesBySignature.put(resource.signature, resource);
+			}
+		}
+
+		void removeResource(ResourceInfo resource) {
+			resourcesById.remove(resource.id);
+			resourcesByGuid.remove(resource.guid);
+			resourcesBySignature.remove(resource.signature);
+			tagResourceMaps.remove(resource.id);
+		}
+
+		void addTag(TagInfo tag) {
+			tagsById.put(tag.id, tag);
+
+			if (tag.guid != null) {
+				tagsByGuid.put(tag.guid, tag);
+			}
+		}
+
+		void removeTag(TagInfo tag) {
+			tagsById.remove(tag.id);
+
+			if (tag.guid != null) {
+				tagsByGuid.remove(tag.guid);
+			}
+		}
+
+		Map<Long, Long> getTagResourceMaps(Long resourceId) {
+			Map<Long, Long> ret = tagResourceMaps.get(resourceId);
+
+			if (ret == null) {
+				ret = new LinkedHashMap<Long, Long>();
+
+				tagResourceMaps.put(resourceId, ret);
+			}
+
+			return ret;
+		}
+	}
+}
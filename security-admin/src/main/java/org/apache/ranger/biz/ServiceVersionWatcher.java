@@ -0,0 +1,417 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.biz;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.common.PropertiesUtil;
+import org.apache.ranger.db.RangerDaoManager;
+import org.apache.ranger.entity.XXServiceVersionInfo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Notifies listeners when the policy or tag version of a service moves away from the version known to a plugin.
+ *
+ * Versions of services being watched are read from the database by a single thread, once every check interval, with
+ * one query irrespective of the number of services and listeners; changes made through other Ranger Admin instances
+ * are seen as well. The number of listeners is limited overall and per caller, so that one client can't keep others
+ * from waiting for changes.
+ */
+@Component
+public class ServiceVersionWatcher {
+	private static final Log LOG = LogFactory.getLog(ServiceVersionWatcher.class);
+
+	public static final String PROP_CHECK_INTERVAL_MS = "ranger.admin.version.watcher.check.interval.ms";
+	public static final String PROP_MAX_LISTENERS     = "ranger.admin.version.watcher.max.listeners";
+	public static final String PROP_MAX_TIMEOUT_MS    = "ranger.admin.version.watcher.max.timeout.ms";
+	public static final String PROP_MAX_LISTENERS_PER_CALLER = "ranger.admin.version.watcher.max.listeners.per.caller";
+
+	private static final int DEFAULT_CHECK_INTERVAL_MS = 500;
+	private static final int DEFAULT_MAX_LISTENERS     = 10000;
+	private static final int DEFAULT_MAX_TIMEOUT_MS    = 5 * 60 * 1000;
+	private static final int DEFAULT_MAX_LISTENERS_PER_CALLER = 100;
+
+	public enum VersionType { POLICY, TAG }
+
+	public interface Listener {
+		void onVersionChange(Long version);
+
+		void onTimeout();
+	}
+
+	@Autowired
+	RangerDaoManager daoMgr;
+
+	@Autowired
+	@Qualifier(value = "transactionManager")
+	PlatformTransactionManager txManager;
+
+	private final Map<WatchKey, List<Watch>> watches       = new HashMap<WatchKey, List<Watch>>();
+	private final Map<String, Integer>       callerListenerCounts = new HashMap<String, Integer>();
+	private int                              listenerCount = 0;
+	private ScheduledExecutorService         scheduler     = null;
+	private long                             checkIntervalMs = DEFAULT_CHECK_INTERVAL_MS;
+	private int                              maxListeners    = DEFAULT_MAX_LISTENERS;
+	private int                              maxListenersPerCaller = DEFAULT_MAX_LISTENERS_PER_CALLER;
+	private long                             maxTimeoutMs    = DEFAULT_MAX_TIMEOUT_MS;
+
+	@PostConstruct
+	public void init() {
+		checkIntervalMs = PropertiesUtil.getIntProperty(PROP_CHECK_INTERVAL_MS, DEFAULT_CHECK_INTERVAL_MS);
+		maxListeners    = PropertiesUtil.getIntProperty(PROP_MAX_LISTENERS, DEFAULT_MAX_LISTENERS);
+		maxTimeoutMs    = PropertiesUtil.getIntProperty(PROP_MAX_TIMEOUT_MS, DEFAULT_MAX_TIMEOUT_MS);
+		maxListenersPerCaller = PropertiesUtil.getIntProperty(PROP_MAX_LISTENERS_PER_CALLER, DEFAULT_MAX_LISTENERS_PER_CALLER);
+
+		LOG.info("ServiceVersionWatcher: checkIntervalMs=" + checkIntervalMs + ", maxListeners=" + maxListeners + ", maxListenersPerCaller=" + maxListenersPerCaller + ", maxTimeoutMs=" + maxTimeoutMs);
+
+		scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread ret = new Thread(r, "ServiceVersionWatcher");
+
+				ret.setDaemon(true);
+
+				return ret;
+			}
+		});
+
+		scheduler.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				checkVersions();
+			}
+		}, checkIntervalMs, checkIntervalMs, TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	public void destroy() {
+		LOG.info("ServiceVersionWatcher: shutting down");
+
+		scheduler.shutdownNow();
+
+		List<Watch> timedOut = new ArrayList<Watch>();
+
+		synchronized (this) {
+			for (List<Watch> list : watches.values()) {
+				timedOut.addAll(list);
+			}
+
+			watches.clear();
+			callerListenerCounts.clear();
+			listenerCount = 0;
+		}
+
+		for (Watch watch : timedOut) {
+			notifyTimeout(watch);
+		}
+	}
+
+	public long getMaxTimeoutMs() {
+		return maxTimeoutMs;
+	}
+
+	/**
+	 * @return current version of the given type for the service; null if the service does not exist
+	 */
+	public Long getVersion(final String serviceName, final VersionType versionType) {
+		TransactionTemplate txTemplate = new TransactionTemplate(txManager);
+
+		txTemplate.setReadOnly(true);
+
+		return txTemplate.execute(new TransactionCallback<Long>() {
+			@Override
+			public Long doInTransaction(TransactionStatus status) {
+				return readVersion(serviceName, versionType);
+			}
+		});
+	}
+
+	/**
+	 * Registers a listener to be called once, when the version of the given type for the service differs from
+	 * lastKnownVersion or when timeoutMs elapses, whichever happens first. Listeners are called from the watcher thread,
+	 * hence must not block.
+	 *
+	 * @param caller identifies the client, to limit the number of listeners registered by it
+	 * @return false if the listener could not be registered, as too many listeners are registered already, overall or
+	 *         by the caller
+	 */
+	public boolean watch(String serviceName, VersionType versionType, long lastKnownVersion, long timeoutMs, String caller, Listener listener) {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> ServiceVersionWatcher.watch(" + serviceName + ", " + versionType + ", " + lastKnownVersion + ", " + timeoutMs + ", " + caller + ")");
+		}
+
+		boolean ret;
+
+		synchronized (this) {
+			Integer callerListenerCount = callerListenerCounts.get(caller);
+
+			ret = listenerCount < maxListeners && (callerListenerCount == null || callerListenerCount < maxListenersPerCaller);
+
+			if (ret) {
+				WatchKey    key  = new WatchKey(serviceName, versionType);
+				List<Watch> list = watches.get(key);
+
+				if (list == null) {
+					list = new ArrayList<Watch>();
+
+					watches.put(key, list);
+				}
+
+				list.add(new Watch(lastKnownVersion, System.currentTimeMillis() + Math.min(timeoutMs, maxTimeoutMs), caller, listener));
+
+				callerListenerCounts.put(caller, callerListenerCount == null ? 1 : (callerListenerCount + 1));
+				listenerCount++;
+			}
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== ServiceVersionWatcher.watch(" + serviceName + ", " + versionType + ", " + lastKnownVersion + ", " + timeoutMs + ", " + caller + "): " + ret);
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Removes the listener, if it was not called yet; used when the client goes away before a change or timeout
+	 */
+	public void unwatch(String serviceName, VersionType versionType, Listener listener) {
+		synchronized (this) {
+			WatchKey    key  = new WatchKey(serviceName, versionType);
+			List<Watch> list = watches.get(key);
+
+			if (list != null) {
+				for (Iterator<Watch> iter = list.iterator(); iter.hasNext(); ) {
+					Watch watch = iter.next();
+
+					if (watch.listener == listener) {
+						iter.remove();
+
+						removed(watch);
+					}
+				}
+
+				if (list.isEmpty()) {
+					watches.remove(key);
+				}
+			}
+		}
+	}
+
+	public synchronized int getListenerCount() {
+		return listenerCount;
+	}
+
+	public synchronized int getListenerCount(String caller) {
+		Integer ret = callerListenerCounts.get(caller);
+
+		return ret != null ? ret : 0;
+	}
+
+	void checkVersions() {
+		final List<WatchKey> keys;
+
+		synchronized (this) {
+			keys = new ArrayList<WatchKey>(watches.keySet());
+		}
+
+		if (keys.isEmpty()) {
+			return;
+		}
+
+		Map<WatchKey, Long> versions = null;
+
+		try {
+			TransactionTemplate txTemplate = new TransactionTemplate(txManager);
+
+			txTemplate.setReadOnly(true);
+
+			versions = txTemplate.execute(new TransactionCallback<Map<WatchKey, Long>>() {
+				@Override
+				public Map<WatchKey, Long> doInTransaction(TransactionStatus status) {
+					Map<String, XXServiceVersionInfo> versionInfos = new HashMap<String, XXServiceVersionInfo>();
+					Map<WatchKey, Long>               ret          = new HashMap<WatchKey, Long>();
+
+					// one query for all services, rather than one per watched service
+					for (Object[] row : daoMgr.getXXServiceVersionInfo().getAllWithServiceNames()) {
+						versionInfos.put((String) row[1], (XXServiceVersionInfo) row[0]);
+					}
+
+					for (WatchKey key : keys) {
+						ret.put(key, getVersion(versionInfos.get(key.serviceName), key.versionType));
+					}
+
+					return ret;
+				}
+			});
+		} catch (Throwable excp) {
+			LOG.error("ServiceVersionWatcher.checkVersions(): failed to read versions of " + keys.size() + " services", excp);
+		}
+
+		long             now      = System.currentTimeMillis();
+		Map<Watch, Long> changed  = new HashMap<Watch, Long>();
+		List<Watch>      timedOut = new ArrayList<Watch>();
+
+		synchronized (this) {
+			for (Iterator<Map.Entry<WatchKey, List<Watch>>> iter = watches.entrySet().iterator(); iter.hasNext(); ) {
+				Map.Entry<WatchKey, List<Watch>> entry   = iter.next();
+				Long                             version = versions != null ? versions.get(entry.getKey()) : null;
+				boolean                          isRead  = versions != null && versions.containsKey(entry.getKey());
+
+				for (Iterator<Watch> watchIter = entry.getValue().iterator(); watchIter.hasNext(); ) {
+					Watch watch = watchIter.next();
+
+					if (isRead && (version == null || version != watch.lastKnownVersion)) {
+						changed.put(watch, version);
+					} else if (watch.expiryTime <= now) {
+						timedOut.add(watch);
+					} else {
+						continue;
+					}
+
+					watchIter.remove();
+
+					removed(watch);
+				}
+
+				if (entry.getValue().isEmpty()) {
+					iter.remove();
+				}
+			}
+		}
+
+		if (LOG.isDebugEnabled() && (!changed.isEmpty() || !timedOut.isEmpty())) {
+			LOG.debug("ServiceVersionWatcher.checkVersions(): services=" + keys.size() + ", changed=" + changed.size() + ", timedOut=" + timedOut.size());
+		}
+
+		for (Map.Entry<Watch, Long> entry : changed.entrySet()) {
+			try {
+				entry.getKey().listener.onVersionChange(entry.getValue());
+			} catch (Throwable excp) {
+				LOG.warn("ServiceVersionWatcher.checkVersions(): listener failed", excp);
+			}
+		}
+
+		for (Watch watch : timedOut) {
+			notifyTimeout(watch);
+		}
+	}
+
+	private Long readVersion(String serviceName, VersionType versionType) {
+		return getVersion(daoMgr.getXXServiceVersionInfo().findByServiceName(serviceName), versionType);
+	}
+
+	private static Long getVersion(XXServiceVersionInfo versionInfo, VersionType versionType) {
+		Long ret = null;
+
+		if (versionInfo != null) {
+			ret = versionType == VersionType.TAG ? versionInfo.getTagVersion() : versionInfo.getPolicyVersion();
+
+			if (ret == null) {
+				ret = -1L;
+			}
+		}
+
+		return ret;
+	}
+
+	// called with lock held, after the watch is removed from watches
+	private void removed(Watch watch) {
+		Integer callerListenerCount = callerListenerCounts.get(watch.caller);
+
+		if (callerListenerCount == null || callerListenerCount <= 1) {
+			callerListenerCounts.remove(watch.caller);
+		} else {
+			callerListenerCounts.put(watch.caller, callerListenerCount - 1);
+		}
+
+		listenerCount--;
+	}
+
+	private void notifyTimeout(Watch watch) {
+		try {
+			watch.listener.onTimeout();
+		} catch (Throwable excp) {
+			LOG.warn("ServiceVersionWatcher.notifyTimeout(): listener failed", excp);
+		}
+	}
+
+	private static class WatchKey {
+		final String      serviceName;
+		final VersionType versionType;
+
+		WatchKey(String serviceName, VersionType versionType) {
+			this.serviceName = serviceName;
+			this.versionType = versionType;
+		}
+
+		@Override
+		public int hashCode() {
+			return serviceName.hashCode() * 31 + versionType.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+
+			if (!(obj instanceof WatchKey)) {
+				return false;
+			}
+
+			WatchKey other = (WatchKey) obj;
+
+			return versionType == other.versionType && serviceName.equals(other.serviceName);
+		}
+	}
+
+	private static class Watch {
+		final long     lastKnownVersion;
+		final long     expiryTime;
+		final String   caller;
+		final Listener listener;
+
+		Watch(long lastKnownVersion, long expiryTime, String caller, Listener listener) {
+			this.lastKnownVersion = lastKnownVersion;
+			this.expiryTime       = expiryTime;
+			this.caller           = caller;
+			this.listener         = listener;
+		}
+	}
+}
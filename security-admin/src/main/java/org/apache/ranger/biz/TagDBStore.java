@@ -903,8 +903,12 @@ public class TagDBStore extends AbstractTagStore {
 
 	@Override
 	public ServiceTags getServiceTagsIfUpdated(String serviceName, Long lastKnownVersion) throws Exception {
+		return getServiceTagsIfUpdated(serviceName, lastKnownVersion, false);
+	}
+
+	public ServiceTags getServiceTagsIfUpdated(String serviceName, Long lastKnownVersion, boolean needsTagDeltas) throws Exception {
 		if (LOG.isDebugEnabled()) {
-			LOG.debug("==> TagDBStore.getServiceTagsIfUpdated(" + serviceName + ", " + lastKnownVersion + ")");
+			LOG.debug("==> TagDBStore.getServiceTagsIfUpdated(" + serviceName + ", " + lastKnownVersion + ", " + needsTagDeltas + ")");
 		}
 
 		ServiceTags ret = null;
@@ -932,12 +936,20 @@ public class TagDBStore extends AbstractTagStore {
 			ret = null;
 		}
 
+		if (ret != null && needsTagDeltas) {
+			ServiceTags tagsDelta = RangerServiceTagsCache.getInstance().getServiceTagsDelta(serviceName, lastKnownVersion, ret.getTagVersion());
+
+			if (tagsDelta != null) {
+				ret = tagsDelta;
+			}
+		}
+
 		if (LOG.isDebugEnabled()) {
 			RangerServiceTagsCache.getInstance().dump();
 		}
 
 		if (LOG.isDebugEnabled()) {
-			LOG.debug("<== TagDBStore.getServiceTagsIfUpdated(" + serviceName + ", " + lastKnownVersion + "): count=" + ((ret == null || ret.getTags() == null) ? 0 : ret.getTags().size()));
+			LOG.debug("<== TagDBStore.getServiceTagsIfUpdated(" + serviceName + ", " + lastKnownVersion + ", " + needsTagDeltas + "): count=" + ((ret == null || ret.getTags() == null) ? 0 : ret.getTags().size()) + ", isDelta=" + (ret != null ? ret.getIsDelta() : null));
 		}
 
 		return ret;
@@ -0,0 +1,383 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.common;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.collections.MapUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerPolicyDelta;
+import org.apache.ranger.plugin.util.SearchFilter;
+
+/**
+ * Inverted index over policies of a service, from user, group, access-type and resource value to policy ids.
+ *
+ * search() returns the policies that can match the user, group, accessType, policyId and resource:* parameters of
+ * the filter; the result can include policies that don't match, for example a policy with resource value "/a*b"
+ * for filter value "/ac". Callers must still apply the filter to the returned policies, which now is done on a
+ * small subset of policies of the service.
+ *
+ * Resource values are indexed on the part before the first wildcard, so that policy values that can match a
+ * filter value are found by looking up each prefix of the filter value.
+ */
+public class RangerPolicySearchIndex {
+	private static final Log LOG = LogFactory.getLog(RangerPolicySearchIndex.class);
+
+	private final ReentrantReadWriteLock              lock          = new ReentrantReadWriteLock();
+	private final Map<String, Set<Long>>              userIndex     = new HashMap<String, Set<Long>>();
+	private final Map<String, Set<Long>>              groupIndex    = new HashMap<String, Set<Long>>();
+	private final Map<String, Set<Long>>              accessIndex   = new HashMap<String, Set<Long>>();
+	private final Map<String, Map<String, Set<Long>>> resourceIndex = new HashMap<String, Map<String, Set<Long>>>();
+	private       List<RangerPolicy>                  policies      = Collections.emptyList();
+	private       Map<Long, RangerPolicy>             policyMap     = Collections.emptyMap();
+
+	public RangerPolicySearchIndex(List<RangerPolicy> policies) {
+		update(policies, null);
+	}
+
+	/*
+	 * Replaces the indexed policies with the given policies. When deltas from the indexed policies are given, only
+	 * policies in the deltas are re-indexed; otherwise the index is rebuilt.
+	 */
+	public void update(List<RangerPolicy> newPolicies, List<RangerPolicyDelta> deltas) {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerPolicySearchIndex.update(policyCount=" + (newPolicies == null ? 0 : newPolicies.size()) + ", deltaCount=" + (deltas == null ? null : deltas.size()) + ")");
+		}
+
+		Map<Long, RangerPolicy> newPolicyMap = new HashMap<Long, RangerPolicy>();
+
+		if (newPolicies != null) {
+			for (RangerPolicy policy : newPolicies) {
+				newPolicyMap.put(policy.getId(), policy);
+			}
+		}
+
+		lock.writeLock().lock();
+
+		try {
+			if (deltas == null) {
+				userIndex.clear();
+				groupIndex.clear();
+				accessIndex.clear();
+				resourceIndex.clear();
+
+				for (RangerPolicy policy : newPolicyMap.values()) {
+					updateIndex(policy, true);
+				}
+			} else {
+				for (RangerPolicyDelta delta : deltas) {
+					RangerPolicy oldPolicy = policyMap.get(delta.getPolicyId());
+
+					if (oldPolicy != null) {
+						updateIndex(oldPolicy, false);
+					}
+
+					if (delta.getPolicy() != null) {
+						updateIndex(delta.getPolicy(), true);
+					}
+				}
+			}
+
+			policies  = newPolicies != null ? newPolicies : Collections.<RangerPolicy>emptyList();
+			policyMap = newPolicyMap;
+		} finally {
+			lock.writeLock().unlock();
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerPolicySearchIndex.update(policyCount=" + (newPolicies == null ? 0 : newPolicies.size()) + ", deltaCount=" + (deltas == null ? null : deltas.size()) + ")");
+		}
+	}
+
+	public List<RangerPolicy> search(SearchFilter filter) {
+		return search(filter, null);
+	}
+
+	/*
+	 * When userGroups is not null, policies that refer to the user given in the filter or to any of userGroups are
+	 * returned; otherwise only policies that refer to the user are returned.
+	 */
+	public List<RangerPolicy> search(SearchFilter filter, Collection<String> userGroups) {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerPolicySearchIndex.search(" + filter + ", " + userGroups + ")");
+		}
+
+		List<RangerPolicy> ret;
+
+		lock.readLock().lock();
+
+		try {
+			List<Set<Long>> matches = getMatches(filter, userGroups);
+
+			if (matches == null) {
+				ret = new ArrayList<RangerPolicy>(policies);
+			} else {
+				ret = new ArrayList<RangerPolicy>();
+
+				if (!matches.isEmpty()) {
+					Collections.sort(matches, SET_SIZE_COMPARATOR);
+
+					Set<Long> policyIds = new HashSet<Long>(matches.get(0));
+
+					for (int i = 1; i < matches.size() && !policyIds.isEmpty(); i++) {
+						policyIds.retainAll(matches.get(i));
+					}
+
+					List<Long> sortedIds = new ArrayList<Long>(policyIds);
+
+					Collections.sort(sortedIds);
+
+					for (Long policyId : sortedIds) {
+						RangerPolicy policy = policyMap.get(policyId);
+
+						if (policy != null) {
+							ret.add(policy);
+						}
+					}
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerPolicySearchIndex.search(" + filter + ", " + userGroups + "): count=" + ret.size());
+		}
+
+		return ret;
+	}
+
+	public int getPolicyCount() {
+		lock.readLock().lock();
+
+		try {
+			return policyMap.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/*
+	 * Returns the policy-id sets all of which must contain a matching policy; null if the filter has no indexed
+	 * parameter. An empty set in the returned list means no policy matches.
+	 */
+	private List<Set<Long>> getMatches(SearchFilter filter, Collection<String> userGroups) {
+		if (filter == null) {
+			return null;
+		}
+
+		List<Set<Long>> ret = new ArrayList<Set<Long>>();
+
+		String policyIdStr = filter.getParam(SearchFilter.POLICY_ID);
+
+		if (StringUtils.isNotEmpty(policyIdStr)) {
+			Long policyId = null;
+
+			try {
+				policyId = Long.valueOf(policyIdStr);
+			} catch (NumberFormatException excp) {
+				// no policy matches
+			}
+
+			ret.add(policyId != null && policyMap.containsKey(policyId) ? Collections.singleton(policyId) : Collections.<Long>emptySet());
+		}
+
+		String userName = filter.getParam(SearchFilter.USER);
+
+		if (StringUtils.isNotEmpty(userName)) {
+			Set<Long> userMatches = getPolicyIds(userIndex, userName);
+
+			if (CollectionUtils.isNotEmpty(userGroups)) {
+				userMatches = new HashSet<Long>(userMatches);
+
+				for (String groupName : userGroups) {
+					userMatches.addAll(getPolicyIds(groupIndex, groupName));
+				}
+			}
+
+			ret.add(userMatches);
+		}
+
+		String groupName = filter.getParam(SearchFilter.GROUP);
+
+		if (StringUtils.isNotEmpty(groupName)) {
+			ret.add(getPolicyIds(groupIndex, groupName));
+		}
+
+		String accessType = filter.getParam(SearchFilter.ACCESS_TYPE);
+
+		if (StringUtils.isNotEmpty(accessType)) {
+			ret.add(getPolicyIds(accessIndex, accessType.toLowerCase()));
+		}
+
+		Map<String, String> filterResources = filter.getParamsWithPrefix(SearchFilter.RESOURCE_PREFIX, true);
+
+		if (MapUtils.isNotEmpty(filterResources)) {
+			for (Map.Entry<String, String> entry : filterResources.entrySet()) {
+				ret.add(getResourceMatches(entry.getKey(), entry.getValue()));
+			}
+		}
+
+		return ret.isEmpty() ? null : ret;
+	}
+
+	// policy values that can match the filter value are those whose literal prefix is a prefix of the filter value
+	private Set<Long> getResourceMatches(String resourceName, String value) {
+		Set<Long>              ret        = new HashSet<Long>();
+		Map<String, Set<Long>> valueIndex = resourceIndex.get(resourceName);
+
+		if (valueIndex != null && value != null) {
+			for (int i = 0; i <= value.length(); i++) {
+				Set<Long> policyIds = valueIndex.get(value.substring(0, i));
+
+				if (policyIds != null) {
+					ret.addAll(policyIds);
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	private void updateIndex(RangerPolicy policy, boolean isAdd) {
+		Long policyId = policy.getId();
+
+		List<?>[] policyItemsList = new List<?>[] { policy.getPolicyItems(),
+													policy.getDenyPolicyItems(),
+													policy.getAllowExceptions(),
+													policy.getDenyExceptions(),
+													policy.getDataMaskPolicyItems(),
+													policy.getRowFilterPolicyItems()
+												  };
+
+		for (List<?> policyItemsObj : policyItemsList) {
+			@SuppressWarnings("unchecked")
+			List<RangerPolicyItem> policyItems = (List<RangerPolicyItem>) policyItemsObj;
+
+			if (policyItems == null) {
+				continue;
+			}
+
+			for (RangerPolicyItem policyItem : policyItems) {
+				for (String user : policyItem.getUsers()) {
+					updateIndex(userIndex, user, policyId, isAdd);
+				}
+
+				for (String group : policyItem.getGroups()) {
+					updateIndex(groupIndex, group, policyId, isAdd);
+				}
+
+				for (RangerPolicyItemAccess access : policyItem.getAccesses()) {
+					if (access.getType() != null) {
+						updateIndex(accessIndex, access.getType().toLowerCase(), policyId, isAdd);
+					}
+				}
+			}
+		}
+
+		if (policy.getResources() != null) {
+			for (Map.Entry<String, RangerPolicyResource> entry : policy.getResources().entrySet()) {
+				RangerPolicyResource policyResource = entry.getValue();
+
+				if (policyResource == null || policyResource.getValues() == null) {
+					continue;
+				}
+
+				Map<String, Set<Long>> valueIndex = resourceIndex.get(entry.getKey());
+
+				if (valueIndex == null) {
+					if (!isAdd) {
+						continue;
+					}
+
+					valueIndex = new HashMap<String, Set<Long>>();
+
+					resourceIndex.put(entry.getKey(), valueIndex);
+				}
+
+				for (String value : policyResource.getValues()) {
+					if (value != null) {
+						updateIndex(valueIndex, getLiteralPrefix(value), policyId, isAdd);
+					}
+				}
+			}
+		}
+	}
+
+	private static void updateIndex(Map<String, Set<Long>> index, String key, Long policyId, boolean isAdd) {
+		if (key == null) {
+			return;
+		}
+
+		Set<Long> policyIds = index.get(key);
+
+		if (isAdd) {
+			if (policyIds == null) {
+				policyIds = new HashSet<Long>();
+
+				index.put(key, policyIds);
+			}
+
+			policyIds.add(policyId);
+		} else if (policyIds != null) {
+			policyIds.remove(policyId);
+
+			if (policyIds.isEmpty()) {
+				index.remove(key);
+			}
+		}
+	}
+
+	private static Set<Long> getPolicyIds(Map<String, Set<Long>> index, String key) {
+		Set<Long> ret = index.get(key);
+
+		return ret != null ? ret : Collections.<Long>emptySet();
+	}
+
+	// same wildcards as FilenameUtils.wildcardMatch(), which is used to match resource values in search filters
+	static String getLiteralPrefix(String value) {
+		int idx = StringUtils.indexOfAny(value, "*?");
+
+		return idx == -1 ? value : value.substring(0, idx);
+	}
+
+	private static final Comparator<Set<Long>> SET_SIZE_COMPARATOR = new Comparator<Set<Long>>() {
+		@Override
+		public int compare(Set<Long> s1, Set<Long> s2) {
+			return s1.size() - s2.size();
+		}
+	};
+}
@@ -20,15 +20,21 @@
 package org.apache.ranger.common;
 
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.ranger.authorization.hadoop.config.RangerConfiguration;
 import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicyDelta;
+import org.apache.ranger.plugin.model.RangerServiceDef;
 import org.apache.ranger.plugin.store.ServiceStore;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.plugin.util.RangerPolicyDeltaUtil;
 import org.apache.ranger.plugin.util.ServicePolicies;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -41,10 +47,14 @@ public class RangerServicePoliciesCache {
 	private static final Log LOG = LogFactory.getLog(RangerServicePoliciesCache.class);
 
 	private static final int MAX_WAIT_TIME_FOR_UPDATE = 10;
+	private static final int DEFAULT_MAX_POLICY_DELTA_VERSIONS = 32;
 
 	private static volatile RangerServicePoliciesCache sInstance = null;
 	private final boolean useServicePoliciesCache;
 	private final int waitTimeInSeconds;
+	private final int maxPolicyDeltaVersions;
+	private final boolean usePayloadCache;
+	private final boolean usePolicySearchIndex;
 
 	private final Map<String, ServicePoliciesWrapper> servicePoliciesMap = new HashMap<String, ServicePoliciesWrapper>();
 
@@ -62,6 +72,9 @@ public class RangerServicePoliciesCache {
 	private RangerServicePoliciesCache() {
 		useServicePoliciesCache = RangerConfiguration.getInstance().getBoolean("ranger.admin.policy.download.usecache", true);
 		waitTimeInSeconds = RangerConfiguration.getInstance().getInt("ranger.admin.policy.download.cache.max.waittime.for.update", MAX_WAIT_TIME_FOR_UPDATE);
+		maxPolicyDeltaVersions = RangerConfiguration.getInstance().getInt("ranger.admin.policy.download.cache.max.delta.versions", DEFAULT_MAX_POLICY_DELTA_VERSIONS);
+		usePayloadCache = RangerConfiguration.getInstance().getBoolean("ranger.admin.policy.download.cache.payload.enabled", true);
+		usePolicySearchIndex = RangerConfiguration.getInstance().getBoolean("ranger.admin.policy.search.index.enabled", true);
 	}
 
 	public void dump() {
@@ -164,11 +177,139 @@ public class RangerServicePoliciesCache {
 		return ret;
 	}
 
+	/*
+	 * Returns the changes to policies between lastKnownVersion and currentVersion, if these are available in the
+	 * change-log kept for the service; returns null otherwise, in which case all policies must be sent to the caller.
+	 * Must be called after getServicePolicies(), which updates the change-log with policies loaded from the store.
+	 */
+	public ServicePolicies getServicePolicyDeltas(String serviceName, Long lastKnownVersion, Long currentVersion) {
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerServicePoliciesCache.getServicePolicyDeltas(" + serviceName + ", " + lastKnownVersion + ", " + currentVersion + ")");
+		}
+
+		ServicePolicies ret = null;
+
+		if (useServicePoliciesCache && maxPolicyDeltaVersions > 0 && lastKnownVersion != null && currentVersion != null && lastKnownVersion >= 0) {
+			ServicePoliciesWrapper servicePoliciesWrapper = null;
+
+			synchronized (this) {
+				servicePoliciesWrapper = servicePoliciesMap.get(serviceName);
+			}
+
+			if (servicePoliciesWrapper != null) {
+				ret = servicePoliciesWrapper.getPolicyDeltas(lastKnownVersion, currentVersion);
+			}
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerServicePoliciesCache.getServicePolicyDeltas(" + serviceName + ", " + lastKnownVersion + ", " + currentVersion + "): deltaCount=" + ((ret == null || ret.getPolicyDeltas() == null) ? null : ret.getPolicyDeltas().size()));
+		}
+
+		return ret;
+	}
+
+	/*
+	 * Returns the payload cached for the given version of policies of the service, if any. The payload contains
+	 * policies filtered for download by plugins, and their serialized form.
+	 */
+	public ServicePoliciesPayload getServicePoliciesPayload(String serviceName, Long policyVersion) {
+		ServicePoliciesPayload ret = null;
+
+		if (useServicePoliciesCache && usePayloadCache && policyVersion != null) {
+			ServicePoliciesWrapper servicePoliciesWrapper = null;
+
+			synchronized (this) {
+				servicePoliciesWrapper = servicePoliciesMap.get(serviceName);
+			}
+
+			if (servicePoliciesWrapper != null) {
+				ServicePoliciesPayload payload = servicePoliciesWrapper.payload;
+
+				if (payload != null && policyVersion.equals(payload.getPolicyVersion())) {
+					ret = payload;
+				}
+			}
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("RangerServicePoliciesCache.getServicePoliciesPayload(" + serviceName + ", " + policyVersion + "): " + ret);
+		}
+
+		return ret;
+	}
+
+	/*
+	 * Returns the cached payload, if the given instance was cached by cacheServicePoliciesPayload(); used to stream the
+	 * serialized form of policies returned by REST APIs.
+	 */
+	public ServicePoliciesPayload getServicePoliciesPayload(ServicePolicies servicePolicies) {
+		ServicePoliciesPayload ret = servicePolicies != null ? getServicePoliciesPayload(servicePolicies.getServiceName(), servicePolicies.getPolicyVersion()) : null;
+
+		return ret != null && ret.getServicePolicies() == servicePolicies ? ret : null;
+	}
+
+	/*
+	 * Caches the given payload, if it is for the latest version of policies of the service. If a payload for the same
+	 * version was cached by another thread, that payload is returned, so that policies are serialized only once.
+	 */
+	public ServicePoliciesPayload cacheServicePoliciesPayload(String serviceName, ServicePoliciesPayload payload) {
+		ServicePoliciesPayload ret = payload;
+
+		if (useServicePoliciesCache && usePayloadCache && payload != null && payload.getPolicyVersion() != null) {
+			ServicePoliciesWrapper servicePoliciesWrapper = null;
+
+			synchronized (this) {
+				servicePoliciesWrapper = servicePoliciesMap.get(serviceName);
+			}
+
+			if (servicePoliciesWrapper != null) {
+				ret = servicePoliciesWrapper.cachePayload(payload);
+			}
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("RangerServicePoliciesCache.cacheServicePoliciesPayload(" + serviceName + ", " + payload + "): " + ret);
+		}
+
+		return ret;
+	}
+
+	/*
+	 * Returns the search index for policies of the service; null if the index is disabled or policies of the service
+	 * are not cached. Must be called after getServicePolicies(), which updates the index with policies loaded from
+	 * the store. The index is built on first use, and then updated with the changes in policies on each load.
+	 */
+	public RangerPolicySearchIndex getPolicySearchIndex(String serviceName) {
+		RangerPolicySearchIndex ret = null;
+
+		if (useServicePoliciesCache && usePolicySearchIndex) {
+			ServicePoliciesWrapper servicePoliciesWrapper = null;
+
+			synchronized (this) {
+				servicePoliciesWrapper = servicePoliciesMap.get(serviceName);
+			}
+
+			if (servicePoliciesWrapper != null) {
+				ret = servicePoliciesWrapper.getSearchIndex();
+			}
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("RangerServicePoliciesCache.getPolicySearchIndex(" + serviceName + "): policyCount=" + (ret == null ? null : ret.getPolicyCount()));
+		}
+
+		return ret;
+	}
+
 	private class ServicePoliciesWrapper {
 		final Long serviceId;
 		ServicePolicies servicePolicies;
 		Date updateTime = null;
 		long longestDbLoadTimeInMs = -1;
+		volatile List<PolicyChangeLogEntry> policyChangeLog = Collections.emptyList();
+		volatile ServicePoliciesPayload payload = null;
+		volatile RangerPolicySearchIndex searchIndex = null;
 
 		ReentrantLock lock = new ReentrantLock();
 
@@ -242,8 +383,14 @@ public class RangerServicePoliciesCache {
 					if (servicePoliciesFromDb.getPolicyVersion() == null) {
 						servicePoliciesFromDb.setPolicyVersion(0L);
 					}
+					pruneUnusedAttributes(servicePoliciesFromDb);
+
+					List<RangerPolicyDelta> deltas = getPolicyDeltas(servicePolicies, servicePoliciesFromDb);
+
+					updatePolicyChangeLog(servicePolicies, servicePoliciesFromDb, deltas);
+					updateSearchIndex(servicePoliciesFromDb, deltas);
 					servicePolicies = servicePoliciesFromDb;
-					pruneUnusedAttributes();
+					payload = null;
 				}
 			}
 
@@ -252,7 +399,149 @@ public class RangerServicePoliciesCache {
 			}
 		}
 
-		private void pruneUnusedAttributes() {
+		RangerPolicySearchIndex getSearchIndex() {
+			RangerPolicySearchIndex ret = searchIndex;
+
+			if (ret == null) {
+				lock.lock();
+
+				try {
+					ret = searchIndex;
+
+					if (ret == null && servicePolicies != null) {
+						ret         = new RangerPolicySearchIndex(servicePolicies.getPolicies());
+						searchIndex = ret;
+					}
+				} finally {
+					lock.unlock();
+				}
+			}
+
+			return ret;
+		}
+
+		synchronized ServicePoliciesPayload cachePayload(ServicePoliciesPayload newPayload) {
+			ServicePoliciesPayload ret           = newPayload;
+			ServicePolicies        policies      = servicePolicies;
+			Long                   latestVersion = policies != null ? policies.getPolicyVersion() : null;
+
+			if (newPayload.getPolicyVersion().equals(latestVersion)) {
+				ServicePoliciesPayload cachedPayload = payload;
+
+				if (cachedPayload != null && latestVersion.equals(cachedPayload.getPolicyVersion())) {
+					ret = cachedPayload;
+				} else {
+					payload = newPayload;
+				}
+			}
+
+			return ret;
+		}
+
+		ServicePolicies getPolicyDeltas(Long lastKnownVersion, Long currentVersion) {
+			List<PolicyChangeLogEntry>    changeLog  = policyChangeLog;
+			List<List<RangerPolicyDelta>> deltasList = null;
+			PolicyChangeLogEntry          lastEntry  = null;
+
+			for (PolicyChangeLogEntry entry : changeLog) {
+				if (deltasList == null) {
+					if (entry.fromVersion == lastKnownVersion.longValue()) {
+						deltasList = new ArrayList<List<RangerPolicyDelta>>();
+					} else {
+						continue;
+					}
+				}
+
+				deltasList.add(entry.policyDeltas);
+				lastEntry = entry;
+			}
+
+			ServicePolicies ret = null;
+
+			if (lastEntry != null && lastEntry.toVersion == currentVersion.longValue()) {
+				ret = new ServicePolicies();
+
+				ret.setServiceName(lastEntry.serviceName);
+				ret.setServiceId(serviceId);
+				ret.setPolicyVersion(lastEntry.toVersion);
+				ret.setPolicyUpdateTime(lastEntry.policyUpdateTime);
+				ret.setPolicyDeltas(RangerPolicyDeltaUtil.mergeDeltas(deltasList));
+			}
+
+			return ret;
+		}
+
+		// deltas are computed only when needed for the change-log or the search index
+		private List<RangerPolicyDelta> getPolicyDeltas(ServicePolicies oldPolicies, ServicePolicies newPolicies) {
+			List<RangerPolicyDelta> ret = null;
+
+			if (oldPolicies != null && (maxPolicyDeltaVersions > 0 || searchIndex != null)) {
+				ret = RangerPolicyDeltaUtil.getPolicyDeltas(oldPolicies.getPolicies(), newPolicies.getPolicies());
+			}
+
+			return ret;
+		}
+
+		private void updateSearchIndex(ServicePolicies newPolicies, List<RangerPolicyDelta> deltas) {
+			RangerPolicySearchIndex index = searchIndex;
+
+			if (index != null) {
+				index.update(newPolicies.getPolicies(), deltas);
+			}
+		}
+
+		private void updatePolicyChangeLog(ServicePolicies oldPolicies, ServicePolicies newPolicies, List<RangerPolicyDelta> deltas) {
+			List<PolicyChangeLogEntry> changeLog = null;
+
+			if (maxPolicyDeltaVersions > 0 && deltas != null && oldPolicies.getPolicyVersion() != null
+					&& oldPolicies.getPolicyVersion() < newPolicies.getPolicyVersion() && !isChangedOtherThanPolicies(oldPolicies, newPolicies)) {
+				changeLog = new ArrayList<PolicyChangeLogEntry>(policyChangeLog);
+
+				changeLog.add(new PolicyChangeLogEntry(newPolicies.getServiceName(), oldPolicies.getPolicyVersion(), newPolicies.getPolicyVersion(), newPolicies.getPolicyUpdateTime(), deltas));
+
+				while (changeLog.size() > maxPolicyDeltaVersions) {
+					changeLog.remove(0);
+				}
+			}
+
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("ServicePoliciesWrapper.updatePolicyChangeLog(" + newPolicies.getServiceName() + "): " + (changeLog == null ? "change-log reset" : ("change-log size=" + changeLog.size())));
+			}
+
+			policyChangeLog = changeLog == null ? Collections.<PolicyChangeLogEntry>emptyList() : Collections.unmodifiableList(changeLog);
+		}
+
+		// changes to service-def, tag-policies or audit-mode are not captured in deltas; all policies must be downloaded by plugins in such cases
+		private boolean isChangedOtherThanPolicies(ServicePolicies oldPolicies, ServicePolicies newPolicies) {
+			boolean ret = !StringUtils.equals(oldPolicies.getAuditMode(), newPolicies.getAuditMode())
+					|| !isSameVersion(oldPolicies.getServiceDef(), newPolicies.getServiceDef());
+
+			if (!ret) {
+				ServicePolicies.TagPolicies oldTagPolicies = oldPolicies.getTagPolicies();
+				ServicePolicies.TagPolicies newTagPolicies = newPolicies.getTagPolicies();
+
+				if (oldTagPolicies == null || newTagPolicies == null) {
+					ret = oldTagPolicies != newTagPolicies;
+				} else {
+					ret = !ObjectUtils.equals(oldTagPolicies.getServiceId(), newTagPolicies.getServiceId())
+							|| !ObjectUtils.equals(oldTagPolicies.getPolicyVersion(), newTagPolicies.getPolicyVersion())
+							|| !StringUtils.equals(oldTagPolicies.getAuditMode(), newTagPolicies.getAuditMode())
+							|| !isSameVersion(oldTagPolicies.getServiceDef(), newTagPolicies.getServiceDef());
+				}
+			}
+
+			return ret;
+		}
+
+		private boolean isSameVersion(RangerServiceDef oldServiceDef, RangerServiceDef newServiceDef) {
+			if (oldServiceDef == null || newServiceDef == null) {
+				return oldServiceDef == newServiceDef;
+			}
+
+			return ObjectUtils.equals(oldServiceDef.getId(), newServiceDef.getId()) && ObjectUtils.equals(oldServiceDef.getVersion(), newServiceDef.getVersion());
+		}
+
+		private void pruneUnusedAttributes(ServicePolicies servicePolicies) {
 			if (servicePolicies != null) {
 				pruneUnusedPolicyAttributes(servicePolicies.getPolicies());
 				if (servicePolicies.getTagPolicies() != null) {
@@ -284,7 +573,10 @@ public class RangerServicePoliciesCache {
 			sb.append("updateTime=").append(updateTime)
 					.append(", longestDbLoadTimeInMs=").append(longestDbLoadTimeInMs)
 					.append(", Service-Version:").append(servicePolicies != null ? servicePolicies.getPolicyVersion() : "null")
-					.append(", Number-Of-Policies:").append(servicePolicies != null ? servicePolicies.getPolicies().size() : 0);
+					.append(", Number-Of-Policies:").append(servicePolicies != null ? servicePolicies.getPolicies().size() : 0)
+					.append(", Policy-Change-Log-Size:").append(policyChangeLog.size())
+					.append(", Payload:").append(payload)
+					.append(", Search-Index:").append(searchIndex != null);
 
 			sb.append("} ");
 
@@ -300,5 +592,21 @@ public class RangerServicePoliciesCache {
 			return sb.toString();
 		}
 	}
+
+	private static class PolicyChangeLogEntry {
+		final String                  serviceName;
+		final long                    fromVersion;
+		final long                    toVersion;
+		final Date                    policyUpdateTime;
+		final List<RangerPolicyDelta> policyDeltas;
+
+		PolicyChangeLogEntry(String serviceName, long fromVersion, long toVersion, Date policyUpdateTime, List<RangerPolicyDelta> policyDeltas) {
+			this.serviceName      = serviceName;
+			this.fromVersion      = fromVersion;
+			this.toVersion        = toVersion;
+			this.policyUpdateTime = policyUpdateTime;
+			this.policyDeltas     = policyDeltas;
+		}
+	}
 }
 
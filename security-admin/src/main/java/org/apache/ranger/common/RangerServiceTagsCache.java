@@ -28,10 +28,14 @@ import org.apache.ranger.plugin.store.TagStore;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.plugin.util.RangerServiceTagsDeltaUtil;
 import org.apache.ranger.plugin.util.ServiceTags;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -41,10 +45,12 @@ public class RangerServiceTagsCache {
 	private static final Log LOG = LogFactory.getLog(RangerServiceTagsCache.class);
 
 	private static final int MAX_WAIT_TIME_FOR_UPDATE = 10;
+	private static final int DEFAULT_MAX_TAG_DELTA_VERSIONS = 32;
 
 	private static volatile RangerServiceTagsCache sInstance = null;
 	private final boolean useServiceTagsCache;
 	private final int waitTimeInSeconds;
+	private final int maxTagDeltaVersions;
 
 	private final Map<String, ServiceTagsWrapper> serviceTagsMap = new HashMap<String, ServiceTagsWrapper>();
 
@@ -62,6 +68,7 @@ public class RangerServiceTagsCache {
 	private RangerServiceTagsCache() {
 		useServiceTagsCache = RangerConfiguration.getInstance().getBoolean("ranger.admin.tag.download.usecache", true);
 		waitTimeInSeconds = RangerConfiguration.getInstance().getInt("ranger.admin.tag.download.cache.max.waittime.for.update", MAX_WAIT_TIME_FOR_UPDATE);
+		maxTagDeltaVersions = RangerConfiguration.getInstance().getInt("ranger.admin.tag.download.cache.max.delta.versions", DEFAULT_MAX_TAG_DELTA_VERSIONS);
 	}
 
 	public void dump() {
@@ -163,11 +170,44 @@ public class RangerServiceTagsCache {
 		return ret;
 	}
 
+	/*
+	 * Returns the changes to tags between lastKnownVersion and currentVersion, if these are available in the
+	 * change-log kept for the service; returns null otherwise, in which case all tags must be sent to the caller.
+	 * Must be called after getServiceTags(), which updates the change-log with tags loaded from the store.
+	 */
+	public ServiceTags getServiceTagsDelta(String serviceName, Long lastKnownVersion, Long currentVersion) {
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerServiceTagsCache.getServiceTagsDelta(" + serviceName + ", " + lastKnownVersion + ", " + currentVersion + ")");
+		}
+
+		ServiceTags ret = null;
+
+		if (useServiceTagsCache && maxTagDeltaVersions > 0 && lastKnownVersion != null && currentVersion != null && lastKnownVersion >= 0) {
+			ServiceTagsWrapper serviceTagsWrapper = null;
+
+			synchronized (this) {
+				serviceTagsWrapper = serviceTagsMap.get(serviceName);
+			}
+
+			if (serviceTagsWrapper != null) {
+				ret = serviceTagsWrapper.getTagsDelta(lastKnownVersion, currentVersion);
+			}
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerServiceTagsCache.getServiceTagsDelta(" + serviceName + ", " + lastKnownVersion + ", " + currentVersion + "): " + (ret == null ? null : ("changeCount=" + RangerServiceTagsDeltaUtil.getChangeCount(ret))));
+		}
+
+		return ret;
+	}
+
 	private class ServiceTagsWrapper {
 		final Long serviceId;
 		ServiceTags serviceTags;
 		Date updateTime = null;
 		long longestDbLoadTimeInMs = -1;
+		volatile List<TagChangeLogEntry> tagChangeLog = Collections.emptyList();
 
 		ReentrantLock lock = new ReentrantLock();
 
@@ -242,8 +282,9 @@ public class RangerServiceTagsCache {
 					if (serviceTagsFromDb.getTagVersion() == null) {
 						serviceTagsFromDb.setTagVersion(0L);
 					}
+					pruneUnusedAttributes(serviceTagsFromDb);
+					updateTagChangeLog(serviceTags, serviceTagsFromDb);
 					serviceTags = serviceTagsFromDb;
-					pruneUnusedAttributes();
 				}
 			}
 
@@ -252,7 +293,59 @@ public class RangerServiceTagsCache {
 			}
 		}
 
-		private void pruneUnusedAttributes() {
+		ServiceTags getTagsDelta(Long lastKnownVersion, Long currentVersion) {
+			List<TagChangeLogEntry> changeLog = tagChangeLog;
+			List<ServiceTags>       deltas    = null;
+			TagChangeLogEntry       lastEntry = null;
+
+			for (TagChangeLogEntry entry : changeLog) {
+				if (deltas == null) {
+					if (entry.fromVersion == lastKnownVersion.longValue()) {
+						deltas = new ArrayList<ServiceTags>();
+					} else {
+						continue;
+					}
+				}
+
+				deltas.add(entry.delta);
+				lastEntry = entry;
+			}
+
+			ServiceTags ret = null;
+
+			if (lastEntry != null && lastEntry.toVersion == currentVersion.longValue()) {
+				ret = deltas.size() == 1 ? lastEntry.delta : RangerServiceTagsDeltaUtil.mergeDeltas(deltas);
+			}
+
+			return ret;
+		}
+
+		private void updateTagChangeLog(ServiceTags oldTags, ServiceTags newTags) {
+			List<TagChangeLogEntry> changeLog = null;
+
+			if (maxTagDeltaVersions > 0 && oldTags != null && oldTags.getTagVersion() != null && oldTags.getTagVersion() < newTags.getTagVersion()) {
+				ServiceTags delta = RangerServiceTagsDeltaUtil.getServiceTagsDelta(oldTags, newTags);
+
+				// a delta larger than the tags themselves is of no use; plugins will download all tags instead
+				if (RangerServiceTagsDeltaUtil.getChangeCount(delta) < newTags.getServiceResources().size() + newTags.getTags().size()) {
+					changeLog = new ArrayList<TagChangeLogEntry>(tagChangeLog);
+
+					changeLog.add(new TagChangeLogEntry(oldTags.getTagVersion(), newTags.getTagVersion(), delta));
+
+					while (changeLog.size() > maxTagDeltaVersions) {
+						changeLog.remove(0);
+					}
+				}
+			}
+
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("ServiceTagsWrapper.updateTagChangeLog(" + newTags.getServiceName() + "): " + (changeLog == null ? "change-log reset" : ("change-log size=" + changeLog.size())));
+			}
+
+			tagChangeLog = changeLog == null ? Collections.<TagChangeLogEntry>emptyList() : Collections.unmodifiableList(changeLog);
+		}
+
+		private void pruneUnusedAttributes(ServiceTags serviceTags) {
 			if (serviceTags != null) {
 				serviceTags.setOp(null);
 				serviceTags.setTagUpdateTime(null);
@@ -287,7 +380,8 @@ public class RangerServiceTagsCache {
 			sb.append("updateTime=").append(updateTime)
 					.append(", longestDbLoadTimeInMs=").append(longestDbLoadTimeInMs)
 					.append(", Service-Version:").append(serviceTags != null ? serviceTags.getTagVersion() : "null")
-					.append(", Number-Of-Tags:").append(serviceTags != null ? serviceTags.getTags().size() : 0);
+					.append(", Number-Of-Tags:").append(serviceTags != null ? serviceTags.getTags().size() : 0)
+					.append(", Tag-Change-Log-Size:").append(tagChangeLog.size());
 
 			sb.append("} ");
 
@@ -303,5 +397,16 @@ public class RangerServiceTagsCache {
 			return sb.toString();
 		}
 	}
-}
 
+	private static class TagChangeLogEntry {
+		final long        fromVersion;
+		final long        toVersion;
+		final ServiceTags delta;
+
+		TagChangeLogEntry(long fromVersion, long toVersion, ServiceTags delta) {
+			this.fromVersion = fromVersion;
+			this.toVersion   = toVersion;
+			this.delta       = delta;
+		}
+	}
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.codehaus.jackson.map.ObjectMapper;
+
+/**
+ * Policies of a service as sent to plugins, along with their JSON serialization. The JSON is built on first use, and
+ * the gzip-compressed form is built when first requested by a client that accepts gzip encoding; both are then kept
+ * for as long as this payload is cached in RangerServicePoliciesCache, i.e. until the policy version changes.
+ *
+ * The ETag is derived from the service-id and the policy version, so that conditional requests can be answered
+ * without serializing the policies.
+ */
+public class ServicePoliciesPayload {
+	private static final Log LOG = LogFactory.getLog(ServicePoliciesPayload.class);
+
+	public static final String ENCODING_IDENTITY = "identity";
+	public static final String ENCODING_GZIP     = "gzip";
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private final ServicePolicies servicePolicies;
+	private final String          eTag;
+	private byte[]                json     = null;
+	private byte[]                gzipJson = null;
+
+	public ServicePoliciesPayload(ServicePolicies servicePolicies) {
+		this.servicePolicies = servicePolicies;
+		this.eTag            = servicePolicies.getServiceId() + "-" + servicePolicies.getPolicyVersion();
+	}
+
+	public ServicePolicies getServicePolicies() {
+		return servicePolicies;
+	}
+
+	public Long getPolicyVersion() {
+		return servicePolicies.getPolicyVersion();
+	}
+
+	public String getETag() {
+		return getETag(ENCODING_IDENTITY);
+	}
+
+	public String getETag(String encoding) {
+		return ENCODING_GZIP.equals(encoding) ? ("\"" + eTag + "-" + ENCODING_GZIP + "\"") : ("\"" + eTag + "\"");
+	}
+
+	/**
+	 * @param ifNoneMatch value of If-None-Match request header
+	 * @return true if the header lists the ETag of this payload, in any encoding
+	 */
+	public boolean isNotModified(String ifNoneMatch) {
+		boolean ret = false;
+
+		if (StringUtils.isNotBlank(ifNoneMatch)) {
+			for (String value : ifNoneMatch.split(",")) {
+				value = StringUtils.removeStart(value.trim(), "W/");
+
+				if (value.equals(getETag(ENCODING_IDENTITY)) || value.equals(getETag(ENCODING_GZIP))) {
+					ret = true;
+
+					break;
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	public synchronized byte[] getBytes(String encoding) throws IOException {
+		if (json == null) {
+			long startTimeMs = System.currentTimeMillis();
+
+			json = toJson(servicePolicies);
+
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("ServicePoliciesPayload(" + eTag + "): serialized " + json.length + " bytes in " + (System.currentTimeMillis() - startTimeMs) + "ms");
+			}
+		}
+
+		if (!ENCODING_GZIP.equals(encoding)) {
+			return json;
+		}
+
+		if (gzipJson == null) {
+			ByteArrayOutputStream out  = new ByteArrayOutputStream(json.length / 4 + 64);
+			GZIPOutputStream      gzip = new GZIPOutputStream(out);
+
+			try {
+				gzip.write(json);
+			} finally {
+				gzip.close();
+			}
+
+			gzipJson = out.toByteArray();
+
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("ServicePoliciesPayload(" + eTag + "): compressed " + json.length + " bytes to " + gzipJson.length + " bytes");
+			}
+		}
+
+		return gzipJson;
+	}
+
+	public static byte[] toJson(ServicePolicies servicePolicies) throws IOException {
+		return MAPPER.writeValueAsBytes(servicePolicies);
+	}
+
+	/**
+	 * @param acceptEncoding value of Accept-Encoding request header
+	 * @return ENCODING_GZIP if gzip is acceptable to the client, ENCODING_IDENTITY otherwise
+	 */
+	public static String getEncoding(String acceptEncoding) {
+		String ret = ENCODING_IDENTITY;
+
+		if (StringUtils.isNotBlank(acceptEncoding)) {
+			for (String value : acceptEncoding.split(",")) {
+				String[] parts  = value.trim().split(";");
+				String   coding = parts[0].trim();
+
+				if (ENCODING_GZIP.equalsIgnoreCase(coding) || "x-gzip".equalsIgnoreCase(coding)) {
+					boolean isAccepted = true;
+
+					for (int i = 1; i < parts.length; i++) {
+						String param = parts[i].replace(" ", "");
+
+						if (param.startsWith("q=")) {
+							isAccepted = !param.matches("q=0(\\.0*)?");
+						}
+					}
+
+					if (isAccepted) {
+						ret = ENCODING_GZIP;
+					}
+
+					break;
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	@Override
+	public String toString() {
+		return "ServicePoliciesPayload={eTag=" + eTag + ", jsonSize=" + (json != null ? json.length : -1) + ", gzipSize=" + (gzipJson != null ? gzipJson.length : -1) + "}";
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.common;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.zip.GZIPOutputStream;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.plugin.util.ServicePolicies;
+
+/**
+ * Writes ServicePolicies returned by REST APIs as JSON. When the instance is cached in RangerServicePoliciesCache,
+ * the serialized (and compressed, if the client accepts gzip encoding) bytes kept in the cache are written, along
+ * with an ETag; other instances, like policy deltas, are serialized for each request.
+ */
+@Provider
+@Produces(MediaType.APPLICATION_JSON)
+public class ServicePoliciesPayloadWriter implements MessageBodyWriter<ServicePolicies> {
+	private static final Log LOG = LogFactory.getLog(ServicePoliciesPayloadWriter.class);
+
+	@Context
+	private HttpHeaders requestHeaders;
+
+	@Override
+	public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+		return ServicePolicies.class.isAssignableFrom(type) && MediaType.APPLICATION_JSON_TYPE.isCompatible(mediaType);
+	}
+
+	@Override
+	public long getSize(ServicePolicies servicePolicies, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+		return -1;
+	}
+
+	@Override
+	public void writeTo(ServicePolicies servicePolicies, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+						MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException, WebApplicationException {
+		ServicePoliciesPayload payload  = RangerServicePoliciesCache.getInstance().getServicePoliciesPayload(servicePolicies);
+		String                 encoding = ServicePoliciesPayload.getEncoding(getRequestHeader(HttpHeaders.ACCEPT_ENCODING));
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("ServicePoliciesPayloadWriter.writeTo(serviceName=" + servicePolicies.getServiceName() + ", policyVersion=" + servicePolicies.getPolicyVersion() + "): encoding=" + encoding + ", payload=" + payload);
+		}
+
+		httpHeaders.putSingle(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+		if (ServicePoliciesPayload.ENCODING_GZIP.equals(encoding)) {
+			httpHeaders.putSingle(HttpHeaders.CONTENT_ENCODING, ServicePoliciesPayload.ENCODING_GZIP);
+		}
+
+		if (payload != null) {
+			httpHeaders.putSingle(HttpHeaders.ETAG, payload.getETag(encoding));
+
+			entityStream.write(payload.getBytes(encoding));
+		} else {
+			byte[] json = ServicePoliciesPayload.toJson(servicePolicies);
+
+			if (ServicePoliciesPayload.ENCODING_GZIP.equals(encoding)) {
+				GZIPOutputStream gzip = new GZIPOutputStream(entityStream);
+
+				gzip.write(json);
+				gzip.finish();
+			} else {
+				entityStream.write(json);
+			}
+		}
+	}
+
+	private String getRequestHeader(String name) {
+		String ret = null;
+
+		try {
+			ret = requestHeaders != null ? requestHeaders.getRequestHeaders().getFirst(name) : null;
+		} catch (IllegalStateException excp) { // not in the scope of a request
+			LOG.debug("ServicePoliciesPayloadWriter.getRequestHeader(" + name + ")", excp);
+		}
+
+		return ret;
+	}
+}
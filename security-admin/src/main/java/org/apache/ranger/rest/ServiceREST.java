@@ -46,6 +46,7 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 
 import org.apache.commons.collections.CollectionUtils;
@@ -70,7 +71,9 @@ import org.apache.ranger.common.MessageEnums;
 import org.apache.ranger.common.PropertiesUtil;
 import org.apache.ranger.common.RESTErrorUtil;
 import org.apache.ranger.common.RangerSearchUtil;
+import org.apache.ranger.common.RangerServicePoliciesCache;
 import org.apache.ranger.common.RangerValidatorFactory;
+import org.apache.ranger.common.ServicePoliciesPayload;
 import org.apache.ranger.common.ServiceUtil;
 import org.apache.ranger.common.UserSessionBase;
 import org.apache.ranger.db.RangerDaoManager;
@@ -80,6 +83,7 @@ import org.apache.ranger.entity.XXServiceDef;
 import org.apache.ranger.entity.XXTrxLog;
 import org.apache.ranger.plugin.model.RangerPluginInfo;
 import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicyDelta;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
@@ -2307,11 +2311,12 @@ public class ServiceREST {
 			@DefaultValue("0") @QueryParam("lastActivationTime") Long lastActivationTime,
 			@QueryParam("pluginId") String pluginId,
 			@DefaultValue("") @QueryParam("clusterName") String clusterName,
+			@DefaultValue("false") @QueryParam("supportsPolicyDeltas") Boolean supportsPolicyDeltas,
 			@Context HttpServletRequest request) throws Exception {
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("==> ServiceREST.getServicePoliciesIfUpdated("
 					+ serviceName + ", " + lastKnownVersion + ", "
-					+ lastActivationTime + ")");
+					+ lastActivationTime + ", " + supportsPolicyDeltas + ")");
 		}
 
 		ServicePolicies ret      = null;
@@ -2339,17 +2344,25 @@ public class ServiceREST {
 				if(RangerPerfTracer.isPerfTraceEnabled(PERF_LOG)) {
 					perf = RangerPerfTracer.getPerfTracer(PERF_LOG, "ServiceREST.getServicePoliciesIfUpdated(serviceName=" + serviceName + ",lastKnownVersion=" + lastKnownVersion + ",lastActivationTime=" + lastActivationTime + ")");
 				}
-				ServicePolicies servicePolicies = svcStore.getServicePoliciesIfUpdated(serviceName, lastKnownVersion);
+				ServicePolicies servicePolicies = svcStore.getServicePoliciesIfUpdated(serviceName, lastKnownVersion, Boolean.TRUE.equals(supportsPolicyDeltas));
 
 				if (servicePolicies == null) {
 					downloadedVersion = lastKnownVersion;
 					httpCode = HttpServletResponse.SC_NOT_MODIFIED;
 					logMsg = "No change since last update";
 				} else {
+					ServicePoliciesPayload payload = getServicePoliciesPayload(serviceName, servicePolicies);
+
 					downloadedVersion = servicePolicies.getPolicyVersion();
-					ret = filterServicePolicies(servicePolicies);
-					httpCode = HttpServletResponse.SC_OK;
-					logMsg = "Returning " + (ret.getPolicies() != null ? ret.getPolicies().size() : 0) + " policies. Policy version=" + ret.getPolicyVersion();
+
+					if (payload != null && payload.isNotModified(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+						httpCode = HttpServletResponse.SC_NOT_MODIFIED;
+						logMsg = "No change since last update. ETag=" + payload.getETag();
+					} else {
+						ret = payload != null ? payload.getServicePolicies() : filterServicePolicies(servicePolicies);
+						httpCode = HttpServletResponse.SC_OK;
+						logMsg = ret.getPolicyDeltas() != null ? ("Returning " + ret.getPolicyDeltas().size() + " policy deltas. Policy version=" + ret.getPolicyVersion()) : ("Returning " + (ret.getPolicies() != null ? ret.getPolicies().size() : 0) + " policies. Policy version=" + ret.getPolicyVersion());
+					}
 				}
 			} catch (Throwable excp) {
 				LOG.error("getServicePoliciesIfUpdated(" + serviceName + ", " + lastKnownVersion + ", " + lastActivationTime + ") failed");
@@ -2384,10 +2397,11 @@ public class ServiceREST {
 			@DefaultValue("0") @QueryParam("lastActivationTime") Long lastActivationTime,
 			@QueryParam("pluginId") String pluginId,
 			@DefaultValue("") @QueryParam("clusterName") String clusterName,
+			@DefaultValue("false") @QueryParam("supportsPolicyDeltas") Boolean supportsPolicyDeltas,
 			@Context HttpServletRequest request) throws Exception {
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("==> ServiceREST.getSecureServicePoliciesIfUpdated("
-					+ serviceName + ", " + lastKnownVersion + ")");
+					+ serviceName + ", " + lastKnownVersion + ", " + supportsPolicyDeltas + ")");
 		}
 		ServicePolicies ret = null;
 		int httpCode = HttpServletResponse.SC_OK;
@@ -2446,16 +2460,24 @@ public class ServiceREST {
 					}
 				}
 				if (isAllowed) {
-					ServicePolicies servicePolicies = svcStore.getServicePoliciesIfUpdated(serviceName, lastKnownVersion);
+					ServicePolicies servicePolicies = svcStore.getServicePoliciesIfUpdated(serviceName, lastKnownVersion, Boolean.TRUE.equals(supportsPolicyDeltas));
 					if (servicePolicies == null) {
 						downloadedVersion = lastKnownVersion;
 						httpCode = HttpServletResponse.SC_NOT_MODIFIED;
 						logMsg = "No change since last update";
 					} else {
+						ServicePoliciesPayload payload = getServicePoliciesPayload(serviceName, servicePolicies);
+
 						downloadedVersion = servicePolicies.getPolicyVersion();
-						ret = filterServicePolicies(servicePolicies);
-						httpCode = HttpServletResponse.SC_OK;
-						logMsg = "Returning " + (ret.getPolicies() != null ? ret.getPolicies().size() : 0) + " policies. Policy version=" + ret.getPolicyVersion();
+
+						if (payload != null && payload.isNotModified(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+							httpCode = HttpServletResponse.SC_NOT_MODIFIED;
+							logMsg = "No change since last update. ETag=" + payload.getETag();
+						} else {
+							ret = payload != null ? payload.getServicePolicies() : filterServicePolicies(servicePolicies);
+							httpCode = HttpServletResponse.SC_OK;
+							logMsg = ret.getPolicyDeltas() != null ? ("Returning " + ret.getPolicyDeltas().size() + " policy deltas. Policy version=" + ret.getPolicyVersion()) : ("Returning " + (ret.getPolicies() != null ? ret.getPolicies().size() : 0) + " policies. Policy version=" + ret.getPolicyVersion());
+						}
 					}
 
 				} else {
@@ -2878,6 +2900,7 @@ public class ServiceREST {
 		options.disableCustomConditions   = RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".policyengine.option.disable.custom.conditions", true);
 		options.evaluateDelegateAdminOnly = false;
 		options.disableTrieLookupPrefilter = RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".policyengine.option.disable.trie.lookup.prefilter", false);
+		options.compactResourceTrie        = RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".policyengine.option.compact.resource.trie", false);
 
 		ServicePolicies policies = svcStore.getServicePoliciesIfUpdated(serviceName, -1L);
 
@@ -2974,12 +2997,66 @@ public class ServiceREST {
 		return ret;
 	}
 
+	// plugins don't receive disabled policies; a create/update that disables a policy is sent as a delete
+	private ServicePolicies filterServicePolicyDeltas(ServicePolicies servicePolicies) {
+		boolean containsDisabledPolicies = false;
+
+		for (RangerPolicyDelta delta : servicePolicies.getPolicyDeltas()) {
+			if (delta.getPolicy() != null && !delta.getPolicy().getIsEnabled()) {
+				containsDisabledPolicies = true;
+				break;
+			}
+		}
+
+		if (!containsDisabledPolicies) {
+			return servicePolicies;
+		}
+
+		ServicePolicies         ret            = new ServicePolicies();
+		List<RangerPolicyDelta> filteredDeltas = new ArrayList<RangerPolicyDelta>();
+
+		for (RangerPolicyDelta delta : servicePolicies.getPolicyDeltas()) {
+			if (delta.getPolicy() != null && !delta.getPolicy().getIsEnabled()) {
+				filteredDeltas.add(new RangerPolicyDelta(RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE, delta.getPolicyId(), null));
+			} else {
+				filteredDeltas.add(delta);
+			}
+		}
+
+		ret.setServiceId(servicePolicies.getServiceId());
+		ret.setServiceName(servicePolicies.getServiceName());
+		ret.setPolicyVersion(servicePolicies.getPolicyVersion());
+		ret.setPolicyUpdateTime(servicePolicies.getPolicyUpdateTime());
+		ret.setPolicyDeltas(filteredDeltas);
+
+		return ret;
+	}
+
+	// policies (other than deltas) are filtered and serialized once per version, and kept in RangerServicePoliciesCache
+	private ServicePoliciesPayload getServicePoliciesPayload(String serviceName, ServicePolicies servicePolicies) {
+		ServicePoliciesPayload ret = null;
+
+		if (servicePolicies.getPolicyDeltas() == null) {
+			RangerServicePoliciesCache policiesCache = RangerServicePoliciesCache.getInstance();
+
+			ret = policiesCache.getServicePoliciesPayload(serviceName, servicePolicies.getPolicyVersion());
+
+			if (ret == null) {
+				ret = policiesCache.cacheServicePoliciesPayload(serviceName, new ServicePoliciesPayload(filterServicePolicies(servicePolicies)));
+			}
+		}
+
+		return ret;
+	}
+
 	private ServicePolicies filterServicePolicies(ServicePolicies servicePolicies) {
 		ServicePolicies ret = null;
 		boolean containsDisabledResourcePolicies = false;
 		boolean containsDisabledTagPolicies = false;
 
-		if (servicePolicies != null) {
+		if (servicePolicies != null && servicePolicies.getPolicyDeltas() != null) {
+			ret = filterServicePolicyDeltas(servicePolicies);
+		} else if (servicePolicies != null) {
 			List<RangerPolicy> policies = null;
 
 			policies = servicePolicies.getPolicies();
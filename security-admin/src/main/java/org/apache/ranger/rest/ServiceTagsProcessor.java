@@ -24,6 +24,7 @@ import org.apache.commons.collections.MapUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.commons.lang.StringUtils;
+import org.apache.ranger.biz.ServiceTagsBulkImporter;
 import org.apache.ranger.plugin.model.RangerServiceResource;
 import org.apache.ranger.plugin.model.RangerTag;
 import org.apache.ranger.plugin.model.RangerTagDef;
@@ -40,10 +41,16 @@ import java.util.Map;
 public class ServiceTagsProcessor {
 	private static final Log LOG = LogFactory.getLog(ServiceTagsProcessor.class);
 
-	private final TagStore tagStore;
+	private final TagStore                tagStore;
+	private final ServiceTagsBulkImporter bulkImporter;
 
 	public ServiceTagsProcessor(TagStore tagStore) {
-		this.tagStore = tagStore;
+		this(tagStore, null);
+	}
+
+	public ServiceTagsProcessor(TagStore tagStore, ServiceTagsBulkImporter bulkImporter) {
+		this.tagStore     = tagStore;
+		this.bulkImporter = bulkImporter;
 	}
 
 	public void process(ServiceTags serviceTags) throws Exception {
@@ -57,7 +64,9 @@ public class ServiceTagsProcessor {
 			}
 			String op = serviceTags.getOp();
 
-			if (StringUtils.equalsIgnoreCase(op, ServiceTags.OP_ADD_OR_UPDATE)) {
+			if (bulkImporter != null && bulkImporter.canImport(serviceTags)) {
+				bulkImporter.importServiceTags(serviceTags);
+			} else if (StringUtils.equalsIgnoreCase(op, ServiceTags.OP_ADD_OR_UPDATE)) {
 				addOrUpdate(serviceTags);
 			} else if (StringUtils.equalsIgnoreCase(op, ServiceTags.OP_DELETE)) {
 				delete(serviceTags);
@@ -0,0 +1,323 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.rest;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.WebApplicationException;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.biz.RangerBizUtil;
+import org.apache.ranger.biz.ServiceDBStore;
+import org.apache.ranger.biz.ServiceVersionWatcher;
+import org.apache.ranger.biz.ServiceVersionWatcher.VersionType;
+import org.apache.ranger.common.ContextUtil;
+import org.apache.ranger.common.ServiceUtil;
+import org.apache.ranger.db.RangerDaoManager;
+import org.apache.ranger.entity.XXService;
+import org.apache.ranger.entity.XXServiceDef;
+import org.apache.ranger.plugin.model.RangerService;
+import org.apache.ranger.plugin.store.EmbeddedServiceDefsUtil;
+import org.apache.ranger.plugin.util.RangerRESTUtils;
+import org.apache.ranger.plugin.util.RangerServiceNotFoundException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.support.WebApplicationContextUtils;
+
+/**
+ * Long-poll endpoint for plugins to wait for changes to policies or tags of a service:
+ *   GET /service/plugins/watch/policies/{serviceName}?lastKnownVersion=N&amp;timeoutMs=T
+ *   GET /service/plugins/watch/tags/{serviceName}?lastKnownVersion=N&amp;timeoutMs=T
+ *
+ * Responds with the current version, as text, as soon as it differs from lastKnownVersion; responds with 304 if the
+ * version does not change within timeoutMs. Requests waiting for a change are handled asynchronously, so that they
+ * don't hold container threads. This is a plain servlet, as async requests are not supported by Jersey 1.
+ *
+ * Callers are authorized as for downloads of policies or tags of the service: a logged-in user must be an admin or be
+ * allowed to download; other requests are validated like non-secure downloads.
+ */
+public class ServiceVersionWatchServlet extends HttpServlet {
+	private static final long serialVersionUID = 1L;
+
+	private static final Log LOG = LogFactory.getLog(ServiceVersionWatchServlet.class);
+
+	private static final long DEFAULT_TIMEOUT_MS = 60 * 1000;
+
+	private transient ServiceVersionWatcher      versionWatcher;
+	private transient RangerBizUtil              bizUtil;
+	private transient ServiceDBStore             svcStore;
+	private transient ServiceUtil                serviceUtil;
+	private transient RangerDaoManager           daoManager;
+	private transient PlatformTransactionManager txManager;
+
+	@Override
+	public void init() throws ServletException {
+		super.init();
+
+		WebApplicationContext context = WebApplicationContextUtils.getRequiredWebApplicationContext(getServletContext());
+
+		versionWatcher = context.getBean(ServiceVersionWatcher.class);
+		bizUtil        = context.getBean(RangerBizUtil.class);
+		svcStore       = context.getBean(ServiceDBStore.class);
+		serviceUtil    = context.getBean(ServiceUtil.class);
+		daoManager     = context.getBean(RangerDaoManager.class);
+		txManager      = context.getBean("transactionManager", PlatformTransactionManager.class);
+	}
+
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		String      pathInfo    = StringUtils.removeStart(request.getPathInfo(), "/");
+		String[]    pathParts   = StringUtils.split(pathInfo, "/", 2);
+		VersionType versionType = null;
+
+		if (pathParts != null && pathParts.length == 2) {
+			if (RangerRESTUtils.REST_WATCH_TYPE_POLICIES.equals(pathParts[0])) {
+				versionType = VersionType.POLICY;
+			} else if (RangerRESTUtils.REST_WATCH_TYPE_TAGS.equals(pathParts[0])) {
+				versionType = VersionType.TAG;
+			}
+		}
+
+		if (versionType == null) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND);
+
+			return;
+		}
+
+		final String serviceName = pathParts[1];
+		final long   lastKnownVersion;
+		final long   timeoutMs;
+
+		try {
+			lastKnownVersion = Long.parseLong(StringUtils.defaultIfBlank(request.getParameter(RangerRESTUtils.REST_PARAM_LAST_KNOWN_POLICY_VERSION), "-1"));
+			timeoutMs        = Math.min(Long.parseLong(StringUtils.defaultIfBlank(request.getParameter(RangerRESTUtils.REST_PARAM_TIMEOUT_MS), Long.toString(DEFAULT_TIMEOUT_MS))), versionWatcher.getMaxTimeoutMs());
+		} catch (NumberFormatException excp) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, excp.getMessage());
+
+			return;
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> ServiceVersionWatchServlet.doGet(serviceName=" + serviceName + ", versionType=" + versionType + ", lastKnownVersion=" + lastKnownVersion + ", timeoutMs=" + timeoutMs + ")");
+		}
+
+		int authStatus = authorize(serviceName, versionType, request);
+
+		if (authStatus != HttpServletResponse.SC_OK) {
+			LOG.error("ServiceVersionWatchServlet.doGet(serviceName=" + serviceName + ", versionType=" + versionType + "): not authorized. user=" + ContextUtil.getCurrentUserLoginId() + ", status=" + authStatus);
+
+			response.sendError(authStatus);
+
+			return;
+		}
+
+		// listeners are limited per user and host, so that plugins sharing a user on many hosts are not limited together
+		final String caller  = StringUtils.defaultString(ContextUtil.getCurrentUserLoginId()) + "@" + request.getRemoteAddr();
+		Long         version = versionWatcher.getVersion(serviceName, versionType);
+
+		if (version == null || version != lastKnownVersion || timeoutMs <= 0) {
+			sendVersion(response, serviceName, version, lastKnownVersion);
+		} else {
+			final AsyncContext  asyncContext = request.startAsync();
+			final WatchListener listener     = new WatchListener(asyncContext, serviceName, lastKnownVersion);
+			final VersionType   type         = versionType;
+
+			// backstop, in case the watcher does not call the listener in time
+			asyncContext.setTimeout(timeoutMs + 30 * 1000);
+			asyncContext.addListener(new AsyncListener() {
+				@Override
+				public void onComplete(AsyncEvent event) {
+				}
+
+				@Override
+				public void onTimeout(AsyncEvent event) {
+					versionWatcher.unwatch(serviceName, type, listener);
+					listener.onTimeout();
+				}
+
+				@Override
+				public void onError(AsyncEvent event) {
+					versionWatcher.unwatch(serviceName, type, listener);
+					listener.complete();
+				}
+
+				@Override
+				public void onStartAsync(AsyncEvent event) {
+				}
+			});
+
+			if (!versionWatcher.watch(serviceName, versionType, lastKnownVersion, timeoutMs, caller, listener)) {
+				LOG.warn("ServiceVersionWatchServlet.doGet(serviceName=" + serviceName + ", caller=" + caller + "): too many requests waiting for changes, not waiting");
+
+				listener.send(HttpServletResponse.SC_SERVICE_UNAVAILABLE, null);
+			}
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== ServiceVersionWatchServlet.doGet(serviceName=" + serviceName + ", versionType=" + versionType + ", lastKnownVersion=" + lastKnownVersion + ", timeoutMs=" + timeoutMs + "): version=" + version);
+		}
+	}
+
+	/**
+	 * Authorizes the caller as policy or tag download requests for the service are authorized.
+	 *
+	 * @return SC_OK if the caller is allowed to wait for changes; otherwise the status to respond with
+	 */
+	private int authorize(final String serviceName, final VersionType versionType, final HttpServletRequest request) {
+		TransactionTemplate txTemplate = new TransactionTemplate(txManager);
+
+		txTemplate.setReadOnly(true);
+
+		return txTemplate.execute(new TransactionCallback<Integer>() {
+			@Override
+			public Integer doInTransaction(TransactionStatus status) {
+				int ret = HttpServletResponse.SC_UNAUTHORIZED;
+
+				try {
+					XXService xService = daoManager.getXXService().findByName(serviceName);
+
+					if (xService == null) {
+						ret = HttpServletResponse.SC_OK; // responded with 404, along with the version
+					} else if (ContextUtil.getCurrentUserSession() == null) {
+						if (serviceUtil.isValidateHttpsAuthentication(serviceName, request)) {
+							ret = HttpServletResponse.SC_OK;
+						}
+					} else {
+						XXServiceDef xServiceDef = daoManager.getXXServiceDef().getById(xService.getType());
+						boolean      isKMS       = StringUtils.equals(xServiceDef.getImplclassname(), EmbeddedServiceDefsUtil.KMS_IMPL_CLASS_NAME);
+
+						if (isKMS ? bizUtil.isKeyAdmin() : bizUtil.isAdmin()) {
+							ret = HttpServletResponse.SC_OK;
+						} else if (versionType == VersionType.TAG) {
+							RangerService rangerService = svcStore.getServiceByName(serviceName);
+
+							if (rangerService != null && bizUtil.isUserAllowed(rangerService, TagREST.Allowed_User_List_For_Tag_Download)) {
+								ret = HttpServletResponse.SC_OK;
+							}
+						} else {
+							RangerService rangerService = isKMS ? svcStore.getServiceByNameForDP(serviceName) : svcStore.getServiceByName(serviceName);
+
+							if (rangerService != null && (bizUtil.isUserAllowed(rangerService, ServiceREST.Allowed_User_List_For_Download)
+													   || bizUtil.isUserAllowed(rangerService, ServiceREST.Allowed_User_List_For_Grant_Revoke))) {
+								ret = HttpServletResponse.SC_OK;
+							}
+						}
+					}
+				} catch (WebApplicationException excp) {
+					ret = excp.getResponse().getStatus();
+				} catch (Exception excp) {
+					LOG.error("ServiceVersionWatchServlet.authorize(serviceName=" + serviceName + "): failed", excp);
+
+					ret = HttpServletResponse.SC_BAD_REQUEST;
+				}
+
+				return ret;
+			}
+		});
+	}
+
+	private static void sendVersion(HttpServletResponse response, String serviceName, Long version, long lastKnownVersion) throws IOException {
+		if (version == null) {
+			send(response, HttpServletResponse.SC_NOT_FOUND, RangerServiceNotFoundException.buildExceptionMsg(serviceName));
+		} else if (version == lastKnownVersion) {
+			send(response, HttpServletResponse.SC_NOT_MODIFIED, null);
+		} else {
+			send(response, HttpServletResponse.SC_OK, version.toString());
+		}
+	}
+
+	private static void send(HttpServletResponse response, int status, String body) throws IOException {
+		response.setStatus(status);
+		response.setHeader("Cache-Control", "no-cache");
+
+		if (body != null) {
+			response.setContentType("text/plain");
+			response.getWriter().write(body);
+		}
+	}
+
+	private static class WatchListener implements ServiceVersionWatcher.Listener {
+		private final AsyncContext  asyncContext;
+		private final String        serviceName;
+		private final long          lastKnownVersion;
+		private final AtomicBoolean isDone = new AtomicBoolean(false);
+
+		WatchListener(AsyncContext asyncContext, String serviceName, long lastKnownVersion) {
+			this.asyncContext     = asyncContext;
+			this.serviceName      = serviceName;
+			this.lastKnownVersion = lastKnownVersion;
+		}
+
+		@Override
+		public void onVersionChange(final Long version) {
+			if (isDone.compareAndSet(false, true)) {
+				// write the response from a container thread, to keep the watcher thread from blocking on slow clients
+				asyncContext.start(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							sendVersion((HttpServletResponse) asyncContext.getResponse(), serviceName, version, lastKnownVersion);
+						} catch (Exception excp) {
+							LOG.debug("ServiceVersionWatchServlet: failed to send response for service " + serviceName, excp);
+						} finally {
+							asyncContext.complete();
+						}
+					}
+				});
+			}
+		}
+
+		@Override
+		public void onTimeout() {
+			send(HttpServletResponse.SC_NOT_MODIFIED, null);
+		}
+
+		void send(int status, String body) {
+			if (isDone.compareAndSet(false, true)) {
+				try {
+					ServiceVersionWatchServlet.send((HttpServletResponse) asyncContext.getResponse(), status, body);
+				} catch (Exception excp) {
+					LOG.debug("ServiceVersionWatchServlet: failed to send response for service " + serviceName, excp);
+				} finally {
+					asyncContext.complete();
+				}
+			}
+		}
+
+		void complete() {
+			if (isDone.compareAndSet(false, true)) {
+				asyncContext.complete();
+			}
+		}
+	}
+}
@@ -26,6 +26,7 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.ranger.biz.AssetMgr;
 import org.apache.ranger.biz.RangerBizUtil;
 import org.apache.ranger.biz.ServiceDBStore;
+import org.apache.ranger.biz.ServiceTagsBulkImporter;
 import org.apache.ranger.biz.TagDBStore;
 import org.apache.ranger.common.RESTErrorUtil;
 import org.apache.ranger.db.RangerDaoManager;
@@ -93,6 +94,9 @@ public class TagREST {
     @Autowired
     AssetMgr assetMgr;
 
+    @Autowired
+    ServiceTagsBulkImporter serviceTagsBulkImporter;
+
     TagValidator validator;
 
     public TagREST() {
@@ -1084,7 +1088,7 @@ public class TagREST {
 
         try {
 
-            ServiceTagsProcessor serviceTagsProcessor = new ServiceTagsProcessor(tagStore);
+            ServiceTagsProcessor serviceTagsProcessor = new ServiceTagsProcessor(tagStore, serviceTagsBulkImporter);
             serviceTagsProcessor.process(serviceTags);
 
         } catch (Exception excp) {
@@ -1106,9 +1110,10 @@ public class TagREST {
     public ServiceTags getServiceTagsIfUpdated(@PathParam("serviceName") String serviceName,
                                                    @QueryParam(TagRESTConstants.LAST_KNOWN_TAG_VERSION_PARAM) Long lastKnownVersion,
                                                @DefaultValue("0") @QueryParam(TagRESTConstants.LAST_ACTIVATION_TIME) Long lastActivationTime, @QueryParam("pluginId") String pluginId,
+                                               @DefaultValue("false") @QueryParam("supportsTagDeltas") Boolean supportsTagDeltas,
                                                @Context HttpServletRequest request) {
         if(LOG.isDebugEnabled()) {
-            LOG.debug("==> TagREST.getServiceTagsIfUpdated(" + serviceName + ", " + lastKnownVersion + ", " + lastActivationTime + ", " + pluginId + ")");
+            LOG.debug("==> TagREST.getServiceTagsIfUpdated(" + serviceName + ", " + lastKnownVersion + ", " + lastActivationTime + ", " + pluginId + ", " + supportsTagDeltas + ")");
         }
 
 		ServiceTags ret      = null;
@@ -1117,7 +1122,7 @@ public class TagREST {
         Long downloadedVersion = null;
 
         try {
-            ret = tagStore.getServiceTagsIfUpdated(serviceName, lastKnownVersion);
+            ret = tagStore.getServiceTagsIfUpdated(serviceName, lastKnownVersion, Boolean.TRUE.equals(supportsTagDeltas));
 
             if (ret == null) {
                 downloadedVersion = lastKnownVersion;
@@ -1126,7 +1131,7 @@ public class TagREST {
             } else {
                 downloadedVersion = ret.getTagVersion();
                 httpCode = HttpServletResponse.SC_OK;
-                logMsg = "Returning " + (ret.getTags() != null ? ret.getTags().size() : 0) + " tags. Tag version=" + ret.getTagVersion();
+                logMsg = Boolean.TRUE.equals(ret.getIsDelta()) ? ("Returning changes to " + ret.getServiceResources().size() + " resources and " + ret.getTags().size() + " tags. Tag version=" + ret.getTagVersion()) : ("Returning " + (ret.getTags() != null ? ret.getTags().size() : 0) + " tags. Tag version=" + ret.getTagVersion());
             }
         } catch (WebApplicationException webException) {
             httpCode = webException.getResponse().getStatus();
@@ -1144,7 +1149,7 @@ public class TagREST {
         }
 
         if(LOG.isDebugEnabled()) {
-            LOG.debug("<== TagREST.getServiceTagsIfUpdated(" + serviceName + ", " + lastKnownVersion + ", " + lastActivationTime + ", " + pluginId + ")");
+            LOG.debug("<== TagREST.getServiceTagsIfUpdated(" + serviceName + ", " + lastKnownVersion + ", " + lastActivationTime + ", " + pluginId + ", " + supportsTagDeltas + ")");
         }
 
         return ret;
@@ -1156,10 +1161,11 @@ public class TagREST {
     public ServiceTags getSecureServiceTagsIfUpdated(@PathParam("serviceName") String serviceName,
                                                    @QueryParam(TagRESTConstants.LAST_KNOWN_TAG_VERSION_PARAM) Long lastKnownVersion,
                                                      @DefaultValue("0") @QueryParam(TagRESTConstants.LAST_ACTIVATION_TIME) Long lastActivationTime, @QueryParam("pluginId") String pluginId,
+                                                     @DefaultValue("false") @QueryParam("supportsTagDeltas") Boolean supportsTagDeltas,
                                                      @Context HttpServletRequest request) {
 
         if(LOG.isDebugEnabled()) {
-            LOG.debug("==> TagREST.getSecureServiceTagsIfUpdated(" + serviceName + ", " + lastKnownVersion + ", " + lastActivationTime + ", " + pluginId + ")");
+            LOG.debug("==> TagREST.getSecureServiceTagsIfUpdated(" + serviceName + ", " + lastKnownVersion + ", " + lastActivationTime + ", " + pluginId + ", " + supportsTagDeltas + ")");
         }
 
 		ServiceTags ret      = null;
@@ -1194,7 +1200,7 @@ public class TagREST {
         		}
         	}
         	if (isAllowed) {
-	            ret = tagStore.getServiceTagsIfUpdated(serviceName, lastKnownVersion);
+	            ret = tagStore.getServiceTagsIfUpdated(serviceName, lastKnownVersion, Boolean.TRUE.equals(supportsTagDeltas));
 
 				if(ret == null) {
                     downloadedVersion = lastKnownVersion;
@@ -1203,7 +1209,7 @@ public class TagREST {
 				} else {
                     downloadedVersion = ret.getTagVersion();
 					httpCode = HttpServletResponse.SC_OK;
-					logMsg   = "Returning " + (ret.getTags() != null ? ret.getTags().size() : 0) + " tags. Tag version=" + ret.getTagVersion();
+					logMsg   = Boolean.TRUE.equals(ret.getIsDelta()) ? ("Returning changes to " + ret.getServiceResources().size() + " resources and " + ret.getTags().size() + " tags. Tag version=" + ret.getTagVersion()) : ("Returning " + (ret.getTags() != null ? ret.getTags().size() : 0) + " tags. Tag version=" + ret.getTagVersion());
 				}
 			}else{
 				LOG.error("getSecureServiceTagsIfUpdated(" + serviceName + ", " + lastKnownVersion + ", " + lastActivationTime + ") failed as User doesn't have permission to download tags");
@@ -1226,7 +1232,7 @@ public class TagREST {
         }
 
         if(LOG.isDebugEnabled()) {
-            LOG.debug("<== TagREST.getSecureServiceTagsIfUpdated(" + serviceName + ", " + lastKnownVersion + ", " + lastActivationTime + ", " + pluginId + ")");
+            LOG.debug("<== TagREST.getSecureServiceTagsIfUpdated(" + serviceName + ", " + lastKnownVersion + ", " + lastActivationTime + ", " + pluginId + ", " + supportsTagDeltas + ")");
         }
 
         return ret;
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.Date;
+import java.util.Properties;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.ranger.audit.metrics.AuditHandlerMetrics;
+import org.apache.ranger.audit.metrics.AuditLatencyHistogram;
+import org.apache.ranger.audit.metrics.AuditMetricsRegistry;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.apache.ranger.audit.queue.AuditBatchQueue;
+import org.apache.ranger.audit.queue.AuditQueue;
+import org.junit.Test;
+
+public class TestAuditMetrics {
+
+	@Test
+	public void testLatencyHistogram() {
+		AuditLatencyHistogram histogram = new AuditLatencyHistogram();
+
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i);
+		}
+
+		AuditLatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+
+		assertEquals(1000, snapshot.getCount());
+		assertWithinError(500, snapshot.getValueAtPercentile(50));
+		assertWithinError(990, snapshot.getValueAtPercentile(99));
+		assertWithinError(1000, snapshot.getMax());
+
+		for (int i = 0; i < 10; i++) {
+			histogram.record(5);
+		}
+
+		AuditLatencyHistogram.Snapshot interval = histogram.getSnapshot().minus(snapshot);
+
+		assertEquals(10, interval.getCount());
+		assertEquals(5, interval.getMax());
+	}
+
+	@Test
+	public void testBatchQueueMetrics() throws Exception {
+		String     basePropName = "testBatchQueueMetrics_" + MiscUtil.generateUniqueId();
+		Properties props        = new Properties();
+
+		props.put(basePropName + "." + AuditQueue.PROP_BATCH_SIZE, "10");
+		props.put(basePropName + "." + AuditQueue.PROP_BATCH_INTERVAL, "100");
+		props.put(AuditMetricsRegistry.PROP_INTERVAL_MS, "0"); // updated by the test
+
+		TestConsumer    testConsumer = new TestConsumer();
+		AuditBatchQueue queue        = new AuditBatchQueue(testConsumer);
+
+		queue.init(props, basePropName);
+		queue.start();
+
+		AuditMetricsRegistry registry = new AuditMetricsRegistry();
+
+		registry.init(props);
+		registry.registerPipeline(queue);
+
+		assertEquals("queue and its consumer should be registered", 2, registry.getMetrics().size());
+
+		long startTime = System.currentTimeMillis();
+
+		for (int i = 0; i < 100; i++) {
+			AuthzAuditEvent event = new AuthzAuditEvent();
+
+			event.setEventTime(new Date(startTime - 50));
+
+			queue.log(event);
+		}
+
+		queue.waitToComplete();
+
+		registry.update(startTime + 10 * 1000);
+
+		AuditHandlerMetrics queueMetrics = registry.getMetrics().get(0);
+
+		assertEquals(100, testConsumer.getCountTotal());
+		assertEquals(100, queueMetrics.getEnqueuedCount());
+		assertEquals(100, queueMetrics.getTotalCount());
+		assertEquals(0, queueMetrics.getQueueDepth());
+		assertEquals(0, queueMetrics.getDroppedCount());
+		assertTrue(queueMetrics.getAverageBatchSize() > 1);
+		assertEquals(100, queueMetrics.getLatencyCount());
+		assertTrue("latency=" + queueMetrics.getLatencyP50Ms(), queueMetrics.getLatencyP50Ms() >= 50);
+
+		MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+		ObjectName  mbeanName   = new ObjectName(AuditMetricsRegistry.JMX_DOMAIN + ":type=AuditHandler,name=" + ObjectName.quote(queue.getName()));
+
+		assertEquals(100L, mbeanServer.getAttribute(mbeanName, "EnqueuedCount"));
+		assertEquals(0.0, mbeanServer.getAttribute(mbeanName, "FailureRate"));
+
+		registry.stop();
+		queue.stop();
+
+		assertFalse(mbeanServer.isRegistered(mbeanName));
+	}
+
+	@Test
+	public void testFailureRate() {
+		TestConsumer        consumer = new TestConsumer();
+		AuditHandlerMetrics metrics  = new AuditHandlerMetrics(consumer, 0);
+
+		consumer.addTotalCount(100);
+		consumer.addFailedCount(20);
+
+		metrics.update(10 * 1000);
+
+		assertEquals(10.0, metrics.getDequeueRate(), 0.001);
+		assertEquals(2.0, metrics.getFailureRate(), 0.001);
+
+		// only failures since the previous update count
+		consumer.addTotalCount(10);
+		consumer.addFailedCount(5);
+
+		metrics.update(20 * 1000);
+
+		assertEquals(0.5, metrics.getFailureRate(), 0.001);
+		assertEquals(25L, metrics.getFailedCount());
+
+		metrics.update(30 * 1000);
+
+		assertEquals(0.0, metrics.getFailureRate(), 0.001);
+		assertEquals(0.0, metrics.toMap().get("failureRate").doubleValue(), 0.001);
+	}
+
+	private void assertWithinError(long expected, long actual) {
+		assertTrue("expected " + expected + ", actual " + actual, actual >= expected && actual <= expected * 1.125);
+	}
+}
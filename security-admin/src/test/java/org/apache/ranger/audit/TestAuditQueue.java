@@ -23,9 +23,12 @@ import static org.junit.Assert.*;
 
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import org.apache.commons.logging.Log;
@@ -41,6 +44,7 @@ import org.apache.ranger.audit.queue.AuditAsyncQueue;
 import org.apache.ranger.audit.queue.AuditBatchQueue;
 import org.apache.ranger.audit.queue.AuditFileSpool;
 import org.apache.ranger.audit.queue.AuditQueue;
+import org.apache.ranger.audit.queue.AuditRingBufferQueue;
 import org.apache.ranger.audit.queue.AuditSummaryQueue;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -174,6 +178,116 @@ public class TestAuditQueue {
 		assertEquals(countToCheck, testConsumer.getCountTotal());
 	}
 
+	@Test
+	public void testAuditSummaryQueueMaxEntries() {
+		logger.debug("testAuditSummaryQueueMaxEntries()...");
+		TestConsumer testConsumer = new TestConsumer();
+		AuditSummaryQueue queue = new AuditSummaryQueue(testConsumer);
+
+		Properties props = new Properties();
+		props.put(BaseAuditHandler.PROP_DEFAULT_PREFIX + "."
+				+ AuditSummaryQueue.PROP_SUMMARY_INTERVAL, "" + 60000);
+		props.put(BaseAuditHandler.PROP_DEFAULT_PREFIX + "."
+				+ AuditSummaryQueue.PROP_SUMMARY_MAX_ENTRIES, "" + 3);
+		queue.init(props, BaseAuditHandler.PROP_DEFAULT_PREFIX);
+
+		queue.start();
+
+		int userCount = 10;
+		int messageToSend = 0;
+		for (int i = 0; i < 5; i++) {
+			for (int j = 0; j < userCount; j++) {
+				queue.log(createEvent("user" + j, "select",
+						"xademo/customer_details/imei", true));
+				messageToSend++;
+			}
+		}
+
+		queue.stop();
+		queue.waitToComplete();
+		// Let's wait for second
+		try {
+			Thread.sleep(1000);
+		} catch (InterruptedException e) {
+			// ignore
+		}
+
+		// the interval is not reached, so summaries are sent only when the
+		// table gets full and at stop
+		assertEquals(messageToSend, testConsumer.getSumTotal());
+		assertTrue(testConsumer.getCountTotal() > userCount);
+		assertTrue(queue.getSummaryTableFullCount() > 0);
+	}
+
+	@Test
+	public void testAuditSummaryQueueSlidingWindow() {
+		logger.debug("testAuditSummaryQueueSlidingWindow()...");
+		TestConsumer testConsumer = new TestConsumer();
+		AuditSummaryQueue queue = new AuditSummaryQueue(testConsumer);
+
+		Properties props = new Properties();
+		props.put(BaseAuditHandler.PROP_DEFAULT_PREFIX + "."
+				+ AuditSummaryQueue.PROP_SUMMARY_INTERVAL, "" + 500);
+		props.put(BaseAuditHandler.PROP_DEFAULT_PREFIX + "."
+				+ AuditSummaryQueue.PROP_SUMMARY_WINDOW_TYPE,
+				AuditSummaryQueue.WINDOW_TYPE_SLIDING);
+		props.put(BaseAuditHandler.PROP_DEFAULT_PREFIX + "."
+				+ AuditSummaryQueue.PROP_SUMMARY_SLIDE_INTERVAL, "" + 50);
+		queue.init(props, BaseAuditHandler.PROP_DEFAULT_PREFIX);
+
+		queue.start();
+
+		try {
+			queue.log(createEvent("john", "select",
+					"xademo/customer_details/imei", true));
+			Thread.sleep(300);
+
+			// same window as the first event of john; new window for jane
+			queue.log(createEvent("john", "select",
+					"xademo/customer_details/imei", true));
+			queue.log(createEvent("jane", "select",
+					"xademo/customer_details/imei", true));
+			Thread.sleep(350);
+
+			// window of john has elapsed, window of jane has not
+			assertEquals(1, testConsumer.getCountTotal());
+			assertEquals(2, testConsumer.getSumTotal());
+		} catch (InterruptedException e) {
+			logger.error("Sleep interupted", e);
+		}
+
+		queue.stop();
+		queue.waitToComplete();
+		// Let's wait for second
+		try {
+			Thread.sleep(1000);
+		} catch (InterruptedException e) {
+			// ignore
+		}
+
+		assertEquals(2, testConsumer.getCountTotal());
+		assertEquals(3, testConsumer.getSumTotal());
+	}
+
+	@Test
+	public void testEventFingerprint() {
+		AuthzAuditEvent event1 = createEvent("john", "select",
+				"xademo/customer_details/imei", true);
+		AuthzAuditEvent event2 = createEvent("john", "select",
+				"xademo/customer_details/imei", true);
+		AuthzAuditEvent event3 = createEvent("john", "select",
+				"xademo/customer_details/imei", false);
+		AuthzAuditEvent event4 = createEvent("johns", "elect",
+				"xademo/customer_details/imei", true);
+
+		assertEquals(event1.getEventFingerprint(), event2.getEventFingerprint());
+		assertTrue(event1.hasSameEventKey(event2));
+		assertTrue(event1.getEventFingerprint() != event3.getEventFingerprint());
+		assertFalse(event1.hasSameEventKey(event3));
+		assertTrue(event1.getEventFingerprint() != event4.getEventFingerprint());
+		assertFalse(event1.hasSameEventKey(event4));
+	}
+
 	@Test
 	public void testAuditSummaryByInfra() {
 		logger.debug("testAuditSummaryByInfra()...");
@@ -346,6 +460,131 @@ public class TestAuditQueue {
 		assertNull("Event not in sequnce", testConsumer.isInSequence());
 	}
 
+	@Test
+	public void testAuditBatchQueueMultipleWorkers() {
+		logger.debug("testAuditBatchQueueMultipleWorkers()...");
+		int messageToSend = 100;
+		int userCount = 7;
+
+		String basePropName = "testAuditBatchQueueMultipleWorkers_"
+				+ MiscUtil.generateUniqueId();
+		Properties props = new Properties();
+		props.put(basePropName + "." + AuditQueue.PROP_BATCH_SIZE, "" + 5);
+		props.put(basePropName + "." + AuditQueue.PROP_QUEUE_SIZE, ""
+				+ messageToSend * 2);
+		props.put(basePropName + "." + AuditQueue.PROP_BATCH_INTERVAL, ""
+				+ 100);
+		props.put(basePropName + "." + AuditBatchQueue.PROP_WORKER_COUNT, ""
+				+ 3);
+		props.put(basePropName + "." + AuditBatchQueue.PROP_PARTITION_KEY,
+				AuditBatchQueue.PARTITION_KEY_USER);
+
+		TestConsumer testConsumer = new TestConsumer();
+		AuditBatchQueue queue = new AuditBatchQueue(testConsumer);
+		queue.init(props, basePropName);
+		queue.start();
+
+		assertEquals("Worker count", 3, queue.getWorkers().length);
+
+		for (int i = 0; i < messageToSend; i++) {
+			queue.log(createEvent("user" + (i % userCount), "select",
+					"xademo/customer_details/imei", true));
+		}
+		// Let's wait for second
+		try {
+			Thread.sleep(1000);
+		} catch (InterruptedException e) {
+			// ignore
+		}
+		queue.waitToComplete();
+		queue.stop();
+		queue.waitToComplete();
+
+		assertEquals("Total count", messageToSend, testConsumer.getCountTotal());
+		assertEquals("Total sum", messageToSend, testConsumer.getSumTotal());
+
+		long dispatchedCount = 0;
+		for (AuditBatchQueue.Worker worker : queue.getWorkers()) {
+			dispatchedCount += worker.getDispatchedCount();
+		}
+		assertEquals("Dispatched count", messageToSend, dispatchedCount);
+
+		// events of each user are dispatched in sequence
+		Map<String, Long> lastSeqByUser = new HashMap<String, Long>();
+		for (AuthzAuditEvent event : testConsumer.eventList) {
+			Long lastSeq = lastSeqByUser.put(event.getUser(), event.getSeqNum());
+			assertTrue("Event not in sequence: " + event,
+					lastSeq == null || lastSeq < event.getSeqNum());
+		}
+		assertEquals("User count", userCount, lastSeqByUser.size());
+	}
+
+	@Test
+	public void testAuditRingBufferQueue() throws Exception {
+		logger.debug("testAuditRingBufferQueue()...");
+		int producerCount = 4;
+		int messagePerProducer = 500;
+
+		String basePropName = "testAuditRingBufferQueue_"
+				+ MiscUtil.generateUniqueId();
+		Properties props = new Properties();
+		props.put(basePropName + "." + AuditQueue.PROP_QUEUE_SIZE, "" + 100);
+		props.put(basePropName + "."
+				+ AuditRingBufferQueue.PROP_OVERFLOW_POLICY,
+				AuditRingBufferQueue.OVERFLOW_POLICY_BLOCK);
+
+		TestConsumer testConsumer = new TestConsumer();
+		final AuditRingBufferQueue queue = new AuditRingBufferQueue(testConsumer);
+		queue.init(props, basePropName);
+		queue.start();
+
+		assertEquals("Ring buffer size", 128, queue.getMaxQueueSize());
+
+		List<Thread> producers = new ArrayList<Thread>();
+		for (int i = 0; i < producerCount; i++) {
+			final List<AuthzAuditEvent> events = new ArrayList<AuthzAuditEvent>();
+			for (int j = 0; j < messagePerProducer; j++) {
+				events.add(createEvent("user" + i, "select",
+						"xademo/customer_details/imei", true));
+			}
+			Thread producer = new Thread() {
+				@Override
+				public void run() {
+					for (AuthzAuditEvent event : events) {
+						queue.log(event);
+					}
+				}
+			};
+			producer.start();
+			producers.add(producer);
+		}
+		for (Thread producer : producers) {
+			producer.join();
+		}
+
+		queue.stop();
+		queue.waitToComplete();
+		// Let's wait for second
+		try {
+			Thread.sleep(1000);
+		} catch (InterruptedException e) {
+			// ignore
+		}
+
+		int messageSent = producerCount * messagePerProducer;
+		assertEquals("Total count", messageSent, testConsumer.getCountTotal());
+		assertEquals("Total sum", messageSent, testConsumer.getSumTotal());
+		assertEquals("Dropped count", 0, queue.getDroppedCount());
+
+		// events of each producer are dispatched in sequence
+		Map<String, Long> lastSeqByUser = new HashMap<String, Long>();
+		for (AuthzAuditEvent event : testConsumer.eventList) {
+			Long lastSeq = lastSeqByUser.put(event.getUser(), event.getSeqNum());
+			assertTrue("Event not in sequence: " + event,
+					lastSeq == null || lastSeq < event.getSeqNum());
+		}
+	}
+
 	@Test
 	public void testAuditBatchQueueDestDown() {
 		logger.debug("testAuditBatchQueueDestDown()...");
@@ -579,6 +818,83 @@ public class TestAuditQueue {
 
 	}
 
+	@Test
+	public void testAuditBatchQueueSegmentSpoolRestart() throws Exception {
+		logger.debug("testAuditBatchQueueSegmentSpoolRestart()...");
+		int messageToSend = 10;
+
+		String basePropName = "testAuditBatchQueueSegmentSpoolRestart_"
+				+ MiscUtil.generateUniqueId();
+		File spoolDir = new File("target", basePropName);
+		Properties props = new Properties();
+		props.put(basePropName + "." + BaseAuditHandler.PROP_NAME,
+				basePropName);
+		props.put(basePropName + "." + AuditQueue.PROP_BATCH_SIZE, "" + 3);
+		props.put(basePropName + "." + AuditQueue.PROP_QUEUE_SIZE, ""
+				+ messageToSend * 2);
+		props.put(basePropName + "." + AuditQueue.PROP_BATCH_INTERVAL, ""
+				+ 3000);
+
+		// Enable segment file spooling
+		props.put(basePropName + "." + AuditQueue.PROP_FILE_SPOOL_ENABLE,
+				"" + true);
+		props.put(basePropName + "." + AuditQueue.PROP_FILE_SPOOL_TYPE,
+				AuditQueue.FILE_SPOOL_TYPE_SEGMENT);
+		props.put(basePropName + "." + AuditFileSpool.PROP_FILE_SPOOL_LOCAL_DIR,
+				spoolDir.getPath());
+		props.put(basePropName + "."
+				+ AuditFileSpool.PROP_FILE_SPOOL_DEST_RETRY_MS, "" + 10);
+
+		TestConsumer testConsumer = new TestConsumer();
+		testConsumer.isDown = true;
+
+		AuditBatchQueue queue = new AuditBatchQueue(testConsumer);
+		queue.init(props, basePropName);
+		queue.start();
+
+		for (int i = 0; i < messageToSend; i++) {
+			queue.log(createEvent());
+		}
+		// Let's wait for second or two
+		Thread.sleep(2000);
+
+		queue.waitToComplete(5000);
+		queue.stop();
+		queue.waitToComplete();
+		Thread.sleep(1000);
+
+		assertEquals("Total count", 0, testConsumer.getCountTotal());
+
+		// a record partially written before a crash must be skipped
+		File[] segments = spoolDir.listFiles();
+		assertNotNull(segments);
+		for (File segment : segments) {
+			if (segment.getName().endsWith(".seg") && segment.length() > 0) {
+				FileOutputStream out = new FileOutputStream(segment, true);
+				out.write(new byte[] { 0, 0, 1, 0, 1, 2, 3 });
+				out.close();
+			}
+		}
+
+		// Let's now recreate the objects
+		testConsumer = new TestConsumer();
+
+		queue = new AuditBatchQueue(testConsumer);
+		queue.init(props, basePropName);
+		queue.start();
+
+		// Let's wait for second
+		Thread.sleep(2000);
+
+		queue.waitToComplete(5000);
+		queue.stop();
+		queue.waitToComplete();
+
+		assertEquals("Total count", messageToSend, testConsumer.getCountTotal());
+		assertEquals("Total sum", messageToSend, testConsumer.getSumTotal());
+		assertNull("Event not in sequnce", testConsumer.isInSequence());
+	}
+
 	@Test
 	public void testFileDestination() {
 		logger.debug("testFileDestination()...");
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit;
+
+import static org.junit.Assert.*;
+
+import java.io.StringWriter;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.apache.ranger.audit.utils.AuthzAuditEventJson;
+import org.junit.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParser;
+
+public class TestAuthzAuditEventJson {
+	private static final Gson gson = new GsonBuilder().setDateFormat(AuthzAuditEventJson.DATE_FORMAT).create();
+
+	@Test
+	public void testSameAsGson() throws Exception {
+		AuthzAuditEvent event = createEvent();
+
+		String expected = gson.toJson(event);
+		String actual   = AuthzAuditEventJson.toJson(event);
+
+		assertEquals(new JsonParser().parse(expected), new JsonParser().parse(actual));
+
+		StringWriter writer = new StringWriter();
+
+		AuthzAuditEventJson.write(event, writer);
+
+		assertEquals(actual, writer.toString());
+		assertEquals(actual, MiscUtil.stringify(event));
+	}
+
+	@Test
+	public void testNullFields() {
+		AuthzAuditEvent event = new AuthzAuditEvent();
+
+		assertEquals(new JsonParser().parse(gson.toJson(event)), new JsonParser().parse(AuthzAuditEventJson.toJson(event)));
+	}
+
+	@Test
+	public void testRoundTrip() {
+		AuthzAuditEvent event  = createEvent();
+		AuthzAuditEvent parsed = AuthzAuditEventJson.fromJson(AuthzAuditEventJson.toJson(event));
+
+		assertEquals(gson.toJson(event), gson.toJson(parsed));
+
+		// events written by Gson, as in existing spool files, must be readable as well
+		parsed = AuthzAuditEventJson.fromJson(gson.toJson(event));
+
+		assertEquals(gson.toJson(event), gson.toJson(parsed));
+	}
+
+	@Test
+	public void testFallbackToGson() {
+		AuthzAuditEvent event = createEvent();
+		String          json  = gson.toJson(event);
+
+		// a number in exponent notation is not handled by the streaming parser; MiscUtil.fromJson() should use Gson
+		json = json.substring(0, json.length() - 1) + ",\"event_count\":1.5e3}";
+
+		try {
+			AuthzAuditEventJson.fromJson(json);
+
+			fail("expected IllegalArgumentException");
+		} catch (IllegalArgumentException excp) {
+			// expected
+		}
+
+		AuthzAuditEvent parsed = MiscUtil.fromJson(json, AuthzAuditEvent.class);
+
+		assertNotNull(parsed);
+		assertEquals(1500, parsed.getEventCount());
+		assertEquals(event.getUser(), parsed.getUser());
+	}
+
+	private AuthzAuditEvent createEvent() {
+		AuthzAuditEvent event = new AuthzAuditEvent();
+		Set<String>     tags  = new HashSet<String>();
+
+		tags.add("PII");
+		tags.add("EXPIRES_ON");
+
+		event.setRepositoryType(1);
+		event.setRepositoryName("hdfsdev");
+		event.setUser("user<1>&'=");
+		event.setEventTime(new Date());
+		event.setAccessType("read");
+		event.setResourcePath("/tmp/\"quoted\"\\path\t\u00e9\u2028\u0001");
+		event.setResourceType("path");
+		event.setAction("read");
+		event.setAccessResult((short) 1);
+		event.setAgentId("hdfs");
+		event.setPolicyId(11);
+		event.setAclEnforcer("ranger-acl");
+		event.setClientIP("10.0.0.1");
+		event.setRequestData("select * from t where c = 'x'\n");
+		event.setAgentHostname("host1");
+		event.setEventId("ev-1");
+		event.setSeqNum(3);
+		event.setEventCount(1);
+		event.setEventDurationMS(5);
+		event.setTags(tags);
+		event.setClusterName("cl1");
+
+		return event;
+	}
+}
@@ -49,7 +49,7 @@ public class TestConsumer extends AuditDestination {
 	 * .audit.model.AuditEventBase)
 	 */
 	@Override
-	public boolean log(AuditEventBase event) {
+	synchronized public boolean log(AuditEventBase event) {
 		if (isDown) {
 			return false;
 		}
@@ -64,7 +64,7 @@ public class TestConsumer extends AuditDestination {
 	}
 
 	@Override
-	public boolean log(Collection<AuditEventBase> events) {
+	synchronized public boolean log(Collection<AuditEventBase> events) {
 		if (isDown) {
 			return false;
 		}
@@ -76,7 +76,7 @@ public class TestConsumer extends AuditDestination {
 	}
 
 	@Override
-	public boolean logJSON(String jsonStr) {
+	synchronized public boolean logJSON(String jsonStr) {
 		if (isDown) {
 			return false;
 		}
@@ -90,7 +90,7 @@ public class TestConsumer extends AuditDestination {
 	}
 
 	@Override
-	public boolean logJSON(Collection<String> events) {
+	synchronized public boolean logJSON(Collection<String> events) {
 		if (isDown) {
 			return false;
 		}
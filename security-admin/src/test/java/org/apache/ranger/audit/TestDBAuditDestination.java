@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit;
+
+import static org.junit.Assert.*;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.ranger.audit.destination.DBAuditDestination;
+import org.apache.ranger.audit.entity.AuthzAuditEventDbObj;
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.junit.Test;
+
+public class TestDBAuditDestination {
+	private static final String PROP_PREFIX = "xasecure.audit.destination.db";
+
+	@Test
+	public void testBisectionIsolatesBadEvents() {
+		TestDBDestination destination = new TestDBDestination(false);
+		List<AuditEventBase> events = createEvents(100, 17, 60, 61);
+
+		assertTrue(destination.log(events));
+		assertEquals(97, destination.inserted.size());
+		assertFalse(destination.inserted.contains("bad"));
+		assertEquals(97, destination.getTotalSuccessCount());
+		assertEquals(3, destination.getTotalFailedCount());
+		assertEquals(0, destination.getTotalDeferredCount());
+	}
+
+	@Test
+	public void testConnectionErrorDefersBatch() {
+		TestDBDestination destination = new TestDBDestination(true);
+		List<AuditEventBase> events = createEvents(10);
+
+		assertFalse(destination.log(events));
+		assertEquals(0, destination.inserted.size());
+		assertEquals(1, destination.batchCount);
+		assertEquals(10, destination.getTotalDeferredCount());
+	}
+
+	private List<AuditEventBase> createEvents(int count, int... badIndexes) {
+		List<AuditEventBase> ret = new ArrayList<AuditEventBase>();
+
+		for (int i = 0; i < count; i++) {
+			AuthzAuditEvent event = new AuthzAuditEvent();
+
+			event.setUser("user" + i);
+
+			ret.add(event);
+		}
+
+		for (int badIndex : badIndexes) {
+			((AuthzAuditEvent) ret.get(badIndex)).setUser("bad");
+		}
+
+		return ret;
+	}
+
+	// inserts into a list instead of the database; batches containing user "bad" fail
+	private static class TestDBDestination extends DBAuditDestination {
+		final List<String> inserted = new ArrayList<String>();
+		final boolean      isDbDown;
+		int                batchCount = 0;
+
+		TestDBDestination(boolean isDbDown) {
+			this.isDbDown = isDbDown;
+
+			Properties props = new Properties();
+
+			props.put(PROP_PREFIX + "." + PROP_DB_JDBC_BATCH_SIZE, "10");
+
+			init(props, PROP_PREFIX);
+		}
+
+		@Override
+		protected void connect() {
+		}
+
+		@Override
+		protected void insertBatch(List<AuthzAuditEventDbObj> dbObjs) throws SQLException {
+			batchCount++;
+
+			if (isDbDown) {
+				throw new SQLNonTransientConnectionException("database is down");
+			}
+
+			for (AuthzAuditEventDbObj dbObj : dbObjs) {
+				if ("bad".equals(dbObj.getUser())) {
+					throw new SQLException("value too large", "22001");
+				}
+			}
+
+			for (AuthzAuditEventDbObj dbObj : dbObjs) {
+				inserted.add(dbObj.getUser());
+			}
+		}
+	}
+}
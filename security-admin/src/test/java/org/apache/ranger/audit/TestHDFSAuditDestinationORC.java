@@ -0,0 +1,274 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ListColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.TimestampColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.orc.OrcFile;
+import org.apache.orc.Reader;
+import org.apache.orc.RecordReader;
+import org.apache.ranger.audit.destination.HDFSAuditDestination;
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.utils.AuditORCWriter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestHDFSAuditDestinationORC {
+	private static final String PROP_PREFIX = "xasecure.audit.destination.hdfs";
+
+	private File auditDir;
+
+	@Before
+	public void setUp() throws IOException {
+		auditDir = Files.createTempDirectory("ranger-audit-orc").toFile();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(auditDir);
+	}
+
+	@Test
+	public void testWriteAndReadBack() throws IOException {
+		HDFSAuditDestination destination = createDestination(null);
+		long                 eventTime   = System.currentTimeMillis();
+
+		assertTrue(destination.log(createEvents(0, 10, eventTime)));
+		destination.stop();
+
+		List<File> files = getAuditFiles();
+
+		assertEquals(1, files.size());
+
+		Reader reader = createReader(files.get(0));
+
+		assertEquals(AuditORCWriter.SCHEMA.toString(), reader.getSchema().toString());
+		assertEquals(10, reader.getNumberOfRows());
+
+		RecordReader       rows  = reader.rows();
+		VectorizedRowBatch batch = reader.getSchema().createRowBatch();
+		int                count = 0;
+
+		while (rows.nextBatch(batch)) {
+			for (int row = 0; row < batch.size; row++, count++) {
+				assertEquals(1L, ((LongColumnVector) batch.cols[0]).vector[row]);
+				assertEquals("cl1_hive", ((BytesColumnVector) batch.cols[1]).toString(row));
+				assertEquals("user" + count, ((BytesColumnVector) batch.cols[2]).toString(row));
+				assertEquals(eventTime, ((TimestampColumnVector) batch.cols[3]).getTime(row));
+				assertEquals("select", ((BytesColumnVector) batch.cols[4]).toString(row));
+				assertEquals(count % 2, ((LongColumnVector) batch.cols[8]).vector[row]);
+				assertEquals(100L + count, ((LongColumnVector) batch.cols[10]).vector[row]);
+				assertTrue(batch.cols[11].isNull[row]); // reason is not set
+				assertEquals("id-" + count, ((BytesColumnVector) batch.cols[19]).toString(row));
+				assertEquals((long) count, ((LongColumnVector) batch.cols[20]).vector[row]);
+
+				ListColumnVector  tags     = (ListColumnVector) batch.cols[23];
+				BytesColumnVector tagNames = (BytesColumnVector) tags.child;
+
+				assertEquals(1L, tags.lengths[row]);
+				assertEquals("PII", tagNames.toString((int) tags.offsets[row]));
+			}
+		}
+		rows.close();
+
+		assertEquals(10, count);
+		assertEquals(10, destination.getTotalSuccessCount());
+	}
+
+	@Test
+	public void testRollOver() throws Exception {
+		HDFSAuditDestination destination = createDestination("1");
+
+		assertTrue(destination.log(createEvents(0, 3, System.currentTimeMillis())));
+		Thread.sleep(1500);
+		assertTrue(destination.log(createEvents(3, 4, System.currentTimeMillis())));
+		destination.stop();
+
+		List<File> files = getAuditFiles();
+
+		assertEquals(2, files.size());
+		assertEquals(Arrays.asList("id-0", "id-1", "id-2"), readEventIds(files.get(0)));
+		assertEquals(Arrays.asList("id-3", "id-4", "id-5", "id-6"), readEventIds(files.get(1)));
+	}
+
+	@Test
+	public void testRetryDoesNotDuplicateEvents() throws IOException {
+		HDFSAuditDestination destination = createDestination(null);
+		List<AuditEventBase> events      = createEvents(0, 10, System.currentTimeMillis());
+		FailingAuditEvent    failing     = new FailingAuditEvent();
+
+		failing.setEventId("id-failing");
+		events.add(6, failing);
+
+		assertFalse(destination.log(events));
+		assertEquals(11, destination.getTotalDeferredCount());
+
+		// the file is closed on failure; the batch is retried to a new file, as queues do
+		failing.fail = false;
+
+		assertTrue(destination.log(events));
+		destination.stop();
+
+		List<File>   files    = getAuditFiles();
+		List<String> eventIds = new ArrayList<String>();
+
+		assertEquals(2, files.size());
+
+		for (File file : files) {
+			eventIds.addAll(readEventIds(file));
+		}
+
+		assertEquals(11, eventIds.size());
+		assertEquals(11, new HashSet<String>(eventIds).size());
+		assertEquals(Arrays.asList("id-0", "id-1", "id-2", "id-3", "id-4", "id-5"), readEventIds(files.get(0)));
+	}
+
+	private HDFSAuditDestination createDestination(String rolloverSec) {
+		Properties props = new Properties();
+
+		props.setProperty(PROP_PREFIX + "." + HDFSAuditDestination.PROP_HDFS_DIR, "file://" + auditDir.getAbsolutePath());
+		props.setProperty(PROP_PREFIX + "." + HDFSAuditDestination.PROP_HDFS_SUBDIR, "orc");
+		props.setProperty(PROP_PREFIX + "." + HDFSAuditDestination.PROP_HDFS_FILE_NAME_FORMAT, "audit.orc");
+		props.setProperty(PROP_PREFIX + "." + HDFSAuditDestination.PROP_HDFS_FILE_TYPE, HDFSAuditDestination.FILE_TYPE_ORC);
+		props.setProperty(PROP_PREFIX + "." + HDFSAuditDestination.PROP_HDFS_ORC_BATCH_SIZE, "4");
+
+		if (rolloverSec != null) {
+			props.setProperty(PROP_PREFIX + "." + HDFSAuditDestination.PROP_HDFS_ROLLOVER, rolloverSec);
+		}
+
+		HDFSAuditDestination ret = new HDFSAuditDestination();
+
+		ret.init(props, PROP_PREFIX);
+		ret.start();
+
+		return ret;
+	}
+
+	private List<AuditEventBase> createEvents(int from, int count, long eventTime) {
+		List<AuditEventBase> ret = new ArrayList<AuditEventBase>();
+
+		for (int i = from; i < from + count; i++) {
+			AuthzAuditEvent event = new AuthzAuditEvent();
+			Set<String>     tags  = new HashSet<String>();
+
+			tags.add("PII");
+
+			event.setRepositoryType(1);
+			event.setRepositoryName("cl1_hive");
+			event.setUser("user" + i);
+			event.setEventTime(new Date(eventTime));
+			event.setAccessType("select");
+			event.setAccessResult((short) (i % 2));
+			event.setPolicyId(100L + i);
+			event.setEventId("id-" + i);
+			event.setSeqNum(i);
+			event.setTags(tags);
+
+			ret.add(event);
+		}
+
+		return ret;
+	}
+
+	// ORC files written to the audit folder, in the order they were created
+	private List<File> getAuditFiles() {
+		File[] files = new File(auditDir, "orc").listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.endsWith(".orc") && !name.startsWith("."); // skip checksum files
+			}
+		});
+
+		List<File> ret = new ArrayList<File>();
+
+		if (files != null) {
+			ret.addAll(Arrays.asList(files));
+		}
+
+		// audit.orc, then audit.1.orc, audit.2.orc ...
+		Collections.sort(ret, new Comparator<File>() {
+			@Override
+			public int compare(File f1, File f2) {
+				int ret = Integer.compare(f1.getName().length(), f2.getName().length());
+
+				return ret != 0 ? ret : f1.getName().compareTo(f2.getName());
+			}
+		});
+
+		return ret;
+	}
+
+	private Reader createReader(File file) throws IOException {
+		return OrcFile.createReader(new Path(file.toURI()), OrcFile.readerOptions(new Configuration()));
+	}
+
+	private List<String> readEventIds(File file) throws IOException {
+		List<String>       ret    = new ArrayList<String>();
+		Reader             reader = createReader(file);
+		RecordReader       rows   = reader.rows();
+		VectorizedRowBatch batch  = reader.getSchema().createRowBatch();
+
+		while (rows.nextBatch(batch)) {
+			for (int row = 0; row < batch.size; row++) {
+				ret.add(((BytesColumnVector) batch.cols[19]).toString(row));
+			}
+		}
+		rows.close();
+
+		return ret;
+	}
+
+	static class FailingAuditEvent extends AuthzAuditEvent {
+		boolean fail = true;
+
+		@Override
+		public String getAction() {
+			if (fail) {
+				throw new IllegalStateException("simulated failure");
+			}
+
+			return super.getAction();
+		}
+	}
+}
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ranger.audit.destination.SolrAuditDestination;
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.response.UpdateResponse;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.util.NamedList;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class TestSolrAuditDestination {
+	private static final String PROP_PREFIX = "xasecure.audit.destination.solr";
+
+	@Test
+	public void testPipelinedLogLimitsOutstandingRequests() throws Exception {
+		TestSolrClient      solr        = new TestSolrClient(20);
+		TestSolrDestination destination = new TestSolrDestination(solr.client, 2);
+
+		for (int i = 0; i < 10; i++) {
+			assertTrue(destination.log(createEvents(5)));
+		}
+
+		destination.flush();
+
+		assertEquals(50, solr.addedCount.get());
+		assertEquals(50, destination.getTotalSuccessCount());
+		assertTrue("maxOutstanding=" + solr.maxOutstanding, solr.maxOutstanding <= 2);
+		assertEquals(SolrAuditDestination.DEFAULT_PIPELINE_COMMIT_WITHIN_MS, solr.commitWithinMs);
+
+		destination.stop();
+	}
+
+	@Test
+	public void testPipelinedLogResendsFailedBatch() throws Exception {
+		TestSolrClient      solr        = new TestSolrClient(0);
+		TestSolrDestination destination = new TestSolrDestination(solr.client, 2);
+
+		solr.isDown = true;
+
+		// sent asynchronously; the failure is seen by the next call
+		assertTrue(destination.log(createEvents(5)));
+		destination.flush();
+
+		assertFalse(destination.log(createEvents(5)));
+		assertEquals(5, destination.getTotalDeferredCount());
+
+		solr.isDown = false;
+
+		assertTrue(destination.log(createEvents(5)));
+		destination.flush();
+
+		assertEquals(10, solr.addedCount.get());
+		assertEquals(10, destination.getTotalSuccessCount());
+		assertEquals(0, destination.getTotalFailedCount());
+
+		destination.stop();
+	}
+
+	private List<AuditEventBase> createEvents(int count) {
+		List<AuditEventBase> ret = new ArrayList<AuditEventBase>();
+
+		for (int i = 0; i < count; i++) {
+			AuthzAuditEvent event = new AuthzAuditEvent();
+
+			event.setEventId("event-" + i);
+			event.setUser("user" + i);
+
+			ret.add(event);
+		}
+
+		return ret;
+	}
+
+	private static class TestSolrDestination extends SolrAuditDestination {
+		final SolrClient client;
+
+		TestSolrDestination(SolrClient client, int maxOutstandingRequests) {
+			this.client = client;
+
+			Properties props = new Properties();
+
+			props.put(PROP_PREFIX + "." + PROP_SOLR_PIPELINE_ENABLED, "true");
+			props.put(PROP_PREFIX + "." + PROP_SOLR_PIPELINE_MAX_OUTSTANDING_REQUESTS, String.valueOf(maxOutstandingRequests));
+
+			init(props, PROP_PREFIX);
+		}
+
+		@Override
+		protected SolrClient getSolrClient() {
+			return client;
+		}
+	}
+
+	// counts added documents and concurrent requests; fails requests while isDown is set
+	private static class TestSolrClient implements Answer<UpdateResponse> {
+		final SolrClient    client         = mock(SolrClient.class);
+		final AtomicInteger addedCount     = new AtomicInteger();
+		final AtomicInteger outstanding    = new AtomicInteger();
+		final long          delayMs;
+		volatile boolean    isDown         = false;
+		volatile int        commitWithinMs = -1;
+		int                 maxOutstanding = 0;
+
+		TestSolrClient(long delayMs) throws Exception {
+			this.delayMs = delayMs;
+
+			when(client.add(anyCollectionOf(SolrInputDocument.class), anyInt())).thenAnswer(this);
+		}
+
+		@Override
+		public UpdateResponse answer(InvocationOnMock invocation) throws Throwable {
+			int count = outstanding.incrementAndGet();
+
+			try {
+				synchronized (this) {
+					maxOutstanding = Math.max(maxOutstanding, count);
+				}
+
+				Thread.sleep(delayMs);
+
+				if (isDown) {
+					throw new RuntimeException("connection refused");
+				}
+
+				Collection<?> docs = (Collection<?>) invocation.getArguments()[0];
+
+				commitWithinMs = (Integer) invocation.getArguments()[1];
+				addedCount.addAndGet(docs.size());
+
+				NamedList<Object> header   = new NamedList<Object>();
+				NamedList<Object> body     = new NamedList<Object>();
+				UpdateResponse    response = new UpdateResponse();
+
+				header.add("status", 0);
+				body.add("responseHeader", header);
+				response.setResponse(body);
+
+				return response;
+			} finally {
+				outstanding.decrementAndGet();
+			}
+		}
+	}
+}
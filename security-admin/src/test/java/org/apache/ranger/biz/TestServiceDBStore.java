@@ -2424,6 +2424,9 @@ public class TestServiceDBStore {
 		policyListObj.setStartIndex(0);
 		policyListObj.setTotalCount(10);
 
+		XXServiceDao xServiceDao = Mockito.mock(XXServiceDao.class);
+		Mockito.when(daoManager.getXXService()).thenReturn(xServiceDao);
+
 		List<RangerPolicy> dbRangerPolicy = serviceDBStore.getPolicies(filter);
 		Assert.assertNotNull(dbRangerPolicy);
 	}
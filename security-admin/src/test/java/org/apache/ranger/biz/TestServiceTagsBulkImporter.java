@@ -0,0 +1,273 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.biz;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ranger.biz.ServiceTagsBulkImporter.ImportStats;
+import org.apache.ranger.db.RangerDaoManager;
+import org.apache.ranger.db.XXServiceDao;
+import org.apache.ranger.db.XXServiceResourceDao;
+import org.apache.ranger.db.XXTagAttributeDao;
+import org.apache.ranger.db.XXTagDao;
+import org.apache.ranger.db.XXTagDefDao;
+import org.apache.ranger.db.XXTagResourceMapDao;
+import org.apache.ranger.entity.XXService;
+import org.apache.ranger.entity.XXServiceResource;
+import org.apache.ranger.entity.XXTag;
+import org.apache.ranger.entity.XXTagAttribute;
+import org.apache.ranger.entity.XXTagDef;
+import org.apache.ranger.entity.XXTagResourceMap;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerServiceResource;
+import org.apache.ranger.plugin.model.RangerTag;
+import org.apache.ranger.plugin.model.RangerTagResourceMap;
+import org.apache.ranger.plugin.store.RangerServiceResourceSignature;
+import org.apache.ranger.plugin.util.ServiceTags;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TestServiceTagsBulkImporter {
+	private static final String SERVICE_NAME = "hive_1";
+	private static final Long   SERVICE_ID   = 1L;
+
+	@InjectMocks
+	ServiceTagsBulkImporter bulkImporter = new ServiceTagsBulkImporter();
+
+	@Mock
+	TagDBStore tagStore;
+
+	@Mock
+	RangerDaoManager daoManager;
+
+	@Mock
+	PlatformTransactionManager txManager;
+
+	@Mock
+	XXServiceDao serviceDao;
+
+	@Mock
+	XXServiceResourceDao serviceResourceDao;
+
+	@Mock
+	XXTagResourceMapDao tagResourceMapDao;
+
+	@Mock
+	XXTagDao tagDao;
+
+	@Mock
+	XXTagAttributeDao tagAttributeDao;
+
+	@Mock
+	XXTagDefDao tagDefDao;
+
+	@Before
+	public void setup() throws Exception {
+		XXService service = new XXService();
+
+		service.setId(SERVICE_ID);
+
+		XXTagDef tagDef = new XXTagDef();
+
+		tagDef.setId(1L);
+		tagDef.setName("PII");
+
+		Mockito.when(daoManager.getXXService()).thenReturn(serviceDao);
+		Mockito.when(daoManager.getXXServiceResource()).thenReturn(serviceResourceDao);
+		Mockito.when(daoManager.getXXTagResourceMap()).thenReturn(tagResourceMapDao);
+		Mockito.when(daoManager.getXXTag()).thenReturn(tagDao);
+		Mockito.when(daoManager.getXXTagAttribute()).thenReturn(tagAttributeDao);
+		Mockito.when(daoManager.getXXTagDef()).thenReturn(tagDefDao);
+		Mockito.when(serviceDao.findByName(SERVICE_NAME)).thenReturn(service);
+		Mockito.when(tagDefDao.getAll()).thenReturn(Arrays.asList(tagDef));
+
+		// db1 has private tag PII{level=1}; db3 has private tag PII{level=3}
+		Mockito.when(serviceResourceDao.findByServiceId(SERVICE_ID)).thenReturn(Arrays.asList(createXXResource(11L, "db1"), createXXResource(13L, "db3")));
+		Mockito.when(tagResourceMapDao.findByServiceId(SERVICE_ID)).thenReturn(Arrays.asList(createXXTagResourceMap(31L, 21L, 11L), createXXTagResourceMap(33L, 23L, 13L)));
+		Mockito.when(tagDao.findByServiceId(SERVICE_ID)).thenReturn(Arrays.asList(createXXTag(21L, 1L), createXXTag(23L, 1L)));
+		Mockito.when(tagAttributeDao.findByServiceId(SERVICE_ID)).thenReturn(Arrays.asList(createXXTagAttribute(21L, "level", "1"), createXXTagAttribute(23L, "level", "3")));
+
+		RangerServiceResource createdResource = createResource(12L, "db2");
+		RangerTag             createdTag      = new RangerTag(null, "PII", null, RangerTag.OWNER_SERVICERESOURCE);
+
+		createdResource.setGuid("db2");
+		createdTag.setId(22L);
+		createdTag.setGuid("tag22");
+
+		RangerTagResourceMap createdTagResourceMap = new RangerTagResourceMap();
+
+		createdTagResourceMap.setId(32L);
+
+		Mockito.when(tagStore.createServiceResource(Mockito.any(RangerServiceResource.class))).thenReturn(createdResource);
+		Mockito.when(tagStore.createTag(Mockito.any(RangerTag.class))).thenReturn(createdTag);
+		Mockito.when(tagStore.createTagResourceMap(Mockito.any(RangerTagResourceMap.class))).thenReturn(createdTagResourceMap);
+
+		bulkImporter.init();
+	}
+
+	@Test
+	public void testAddOrUpdateWritesOnlyChanges() throws Exception {
+		ServiceTags serviceTags = createServiceTags(ServiceTags.OP_ADD_OR_UPDATE, "db1", "db2");
+
+		Assert.assertTrue(bulkImporter.canImport(serviceTags));
+
+		ImportStats stats = bulkImporter.importServiceTags(serviceTags);
+
+		Assert.assertEquals(1, stats.getResourcesCreated());
+		Assert.assertEquals(1, stats.getResourcesUnchanged());
+		Assert.assertEquals(0, stats.getResourcesUpdated());
+		Assert.assertEquals(1, stats.getTagsCreated());
+		Assert.assertEquals(1, stats.getTagsUnchanged());
+		Assert.assertEquals(1, stats.getTagResourceMapsCreated());
+		Assert.assertEquals(0, stats.getTagResourceMapsDeleted());
+
+		Mockito.verify(tagStore, Mockito.times(1)).createServiceResource(Mockito.any(RangerServiceResource.class));
+		Mockito.verify(tagStore, Mockito.never()).updateServiceResource(Mockito.any(RangerServiceResource.class));
+		Mockito.verify(tagStore, Mockito.never()).updateTag(Mockito.any(RangerTag.class));
+		Mockito.verify(tagStore, Mockito.never()).deleteTagResourceMap(Mockito.anyLong());
+		Mockito.verify(tagStore, Mockito.never()).getServiceResourceByGuid(Mockito.anyString());
+	}
+
+	@Test
+	public void testReplaceDeletesMissingResources() throws Exception {
+		ServiceTags serviceTags = createServiceTags(ServiceTags.OP_REPLACE, "db1");
+
+		ImportStats stats = bulkImporter.importServiceTags(serviceTags);
+
+		Assert.assertEquals(1, stats.getResourcesDeleted());
+		Assert.assertEquals(1, stats.getResourcesUnchanged());
+		Assert.assertEquals(1, stats.getTagResourceMapsDeleted());
+
+		Mockito.verify(tagStore).deleteTagResourceMap(33L);
+		Mockito.verify(tagStore).deleteServiceResource(13L);
+		Mockito.verify(tagStore, Mockito.never()).deleteTagResourceMap(31L);
+		Mockito.verify(tagStore, Mockito.never()).deleteServiceResource(11L);
+	}
+
+	@Test
+	public void testCannotImportResourcesOfOtherServices() {
+		ServiceTags serviceTags = createServiceTags(ServiceTags.OP_ADD_OR_UPDATE, "db1");
+
+		serviceTags.getServiceResources().get(0).setServiceName("hive_2");
+
+		Assert.assertFalse(bulkImporter.canImport(serviceTags));
+
+		serviceTags = createServiceTags(ServiceTags.OP_DELETE, "db1");
+
+		Assert.assertFalse(bulkImporter.canImport(serviceTags));
+	}
+
+	// each resource is tagged with PII{level=1}
+	private ServiceTags createServiceTags(String op, String... databases) {
+		ServiceTags                 ret              = new ServiceTags();
+		List<RangerServiceResource> resources        = new ArrayList<RangerServiceResource>();
+		Map<Long, List<Long>>       resourceToTagIds = new HashMap<Long, List<Long>>();
+		Map<Long, RangerTag>        tags             = new HashMap<Long, RangerTag>();
+		Map<String, String>         attributes       = new HashMap<String, String>();
+
+		attributes.put("level", "1");
+
+		tags.put(1L, new RangerTag(null, "PII", attributes, RangerTag.OWNER_SERVICERESOURCE));
+
+		for (int i = 0; i < databases.length; i++) {
+			RangerServiceResource resource = createResource((long) i, databases[i]);
+
+			resource.setGuid(databases[i]);
+
+			resources.add(resource);
+			resourceToTagIds.put(resource.getId(), Arrays.asList(1L));
+		}
+
+		ret.setOp(op);
+		ret.setServiceName(SERVICE_NAME);
+		ret.setServiceResources(resources);
+		ret.setResourceToTagIds(resourceToTagIds);
+		ret.setTags(tags);
+
+		return ret;
+	}
+
+	private RangerServiceResource createResource(Long id, String database) {
+		Map<String, RangerPolicyResource> resourceElements = new HashMap<String, RangerPolicyResource>();
+
+		resourceElements.put("database", new RangerPolicyResource(database));
+
+		RangerServiceResource ret = new RangerServiceResource(null, SERVICE_NAME, resourceElements);
+
+		ret.setId(id);
+
+		return ret;
+	}
+
+	private XXServiceResource createXXResource(Long id, String database) {
+		XXServiceResource ret = new XXServiceResource();
+
+		ret.setId(id);
+		ret.setGuid(database);
+		ret.setServiceId(SERVICE_ID);
+		ret.setIsEnabled(Boolean.TRUE);
+		ret.setResourceSignature(new RangerServiceResourceSignature(createResource(id, database)).getSignature());
+
+		return ret;
+	}
+
+	private XXTagResourceMap createXXTagResourceMap(Long id, Long tagId, Long resourceId) {
+		XXTagResourceMap ret = new XXTagResourceMap();
+
+		ret.setId(id);
+		ret.setTagId(tagId);
+		ret.setResourceId(resourceId);
+
+		return ret;
+	}
+
+	private XXTag createXXTag(Long id, Long tagDefId) {
+		XXTag ret = new XXTag();
+
+		ret.setId(id);
+		ret.setGuid("tag" + id);
+		ret.setType(tagDefId);
+		ret.setOwner(RangerTag.OWNER_SERVICERESOURCE);
+
+		return ret;
+	}
+
+	private XXTagAttribute createXXTagAttribute(Long tagId, String name, String value) {
+		XXTagAttribute ret = new XXTagAttribute();
+
+		ret.setTagId(tagId);
+		ret.setName(name);
+		ret.setValue(value);
+
+		return ret;
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.biz;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ranger.biz.ServiceVersionWatcher.VersionType;
+import org.apache.ranger.db.RangerDaoManager;
+import org.apache.ranger.db.XXServiceVersionInfoDao;
+import org.apache.ranger.entity.XXServiceVersionInfo;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TestServiceVersionWatcher {
+	private static final String SERVICE_NAME = "hdfs_1";
+	private static final String CALLER       = "hdfs@10.0.0.1";
+
+	@InjectMocks
+	ServiceVersionWatcher versionWatcher = new ServiceVersionWatcher();
+
+	@Mock
+	RangerDaoManager daoMgr;
+
+	@Mock
+	PlatformTransactionManager txManager;
+
+	@Mock
+	XXServiceVersionInfoDao serviceVersionInfoDao;
+
+	XXServiceVersionInfo versionInfo = new XXServiceVersionInfo();
+
+	@Before
+	public void setup() {
+		versionInfo.setPolicyVersion(5L);
+		versionInfo.setTagVersion(3L);
+
+		Mockito.when(daoMgr.getXXServiceVersionInfo()).thenReturn(serviceVersionInfoDao);
+		Mockito.when(serviceVersionInfoDao.findByServiceName(SERVICE_NAME)).thenReturn(versionInfo);
+		Mockito.when(serviceVersionInfoDao.getAllWithServiceNames()).thenReturn(Collections.singletonList(new Object[] { versionInfo, SERVICE_NAME }));
+	}
+
+	@Test
+	public void testListenerIsCalledOnVersionChange() {
+		TestListener policyListener = new TestListener();
+		TestListener tagListener    = new TestListener();
+
+		Assert.assertEquals(Long.valueOf(5L), versionWatcher.getVersion(SERVICE_NAME, VersionType.POLICY));
+		Assert.assertTrue(versionWatcher.watch(SERVICE_NAME, VersionType.POLICY, 5L, 60 * 1000, CALLER, policyListener));
+		Assert.assertTrue(versionWatcher.watch(SERVICE_NAME, VersionType.TAG, 3L, 60 * 1000, CALLER, tagListener));
+
+		versionWatcher.checkVersions();
+
+		Assert.assertTrue(policyListener.versions.isEmpty());
+		Assert.assertEquals(2, versionWatcher.getListenerCount());
+
+		versionInfo.setPolicyVersion(6L);
+
+		versionWatcher.checkVersions();
+
+		Assert.assertEquals(1, policyListener.versions.size());
+		Assert.assertEquals(Long.valueOf(6L), policyListener.versions.get(0));
+		Assert.assertTrue(tagListener.versions.isEmpty());
+		Assert.assertEquals(1, versionWatcher.getListenerCount());
+
+		versionWatcher.unwatch(SERVICE_NAME, VersionType.TAG, tagListener);
+
+		Assert.assertEquals(0, versionWatcher.getListenerCount());
+	}
+
+	@Test
+	public void testListenerIsCalledOnTimeout() {
+		TestListener listener = new TestListener();
+
+		Assert.assertTrue(versionWatcher.watch(SERVICE_NAME, VersionType.POLICY, 5L, 0, CALLER, listener));
+
+		versionWatcher.checkVersions();
+
+		Assert.assertTrue(listener.versions.isEmpty());
+		Assert.assertEquals(1, listener.timeoutCount);
+		Assert.assertEquals(0, versionWatcher.getListenerCount());
+	}
+
+	@Test
+	public void testListenersPerCallerAreLimited() {
+		ReflectionTestUtils.setField(versionWatcher, "maxListenersPerCaller", 2);
+
+		TestListener listener = new TestListener();
+
+		Assert.assertTrue(versionWatcher.watch(SERVICE_NAME, VersionType.POLICY, 5L, 60 * 1000, CALLER, listener));
+		Assert.assertTrue(versionWatcher.watch(SERVICE_NAME, VersionType.TAG, 3L, 60 * 1000, CALLER, new TestListener()));
+		Assert.assertFalse(versionWatcher.watch(SERVICE_NAME, VersionType.POLICY, 5L, 60 * 1000, CALLER, new TestListener()));
+		Assert.assertTrue(versionWatcher.watch(SERVICE_NAME, VersionType.POLICY, 5L, 60 * 1000, "hdfs@10.0.0.2", new TestListener()));
+		Assert.assertEquals(2, versionWatcher.getListenerCount(CALLER));
+
+		versionWatcher.unwatch(SERVICE_NAME, VersionType.POLICY, listener);
+
+		Assert.assertEquals(1, versionWatcher.getListenerCount(CALLER));
+		Assert.assertTrue(versionWatcher.watch(SERVICE_NAME, VersionType.POLICY, 5L, 60 * 1000, CALLER, new TestListener()));
+
+		versionInfo.setPolicyVersion(6L);
+
+		versionWatcher.checkVersions();
+
+		Assert.assertEquals(1, versionWatcher.getListenerCount(CALLER));
+		Assert.assertEquals(0, versionWatcher.getListenerCount("hdfs@10.0.0.2"));
+		Assert.assertEquals(1, versionWatcher.getListenerCount());
+	}
+
+	@Test
+	public void testDeletedService() {
+		TestListener listener = new TestListener();
+
+		Assert.assertTrue(versionWatcher.watch(SERVICE_NAME, VersionType.POLICY, 5L, 60 * 1000, CALLER, listener));
+
+		Mockito.when(serviceVersionInfoDao.findByServiceName(SERVICE_NAME)).thenReturn(null);
+		Mockito.when(serviceVersionInfoDao.getAllWithServiceNames()).thenReturn(Collections.<Object[]>emptyList());
+
+		versionWatcher.checkVersions();
+
+		Assert.assertEquals(1, listener.versions.size());
+		Assert.assertNull(listener.versions.get(0));
+		Assert.assertNull(versionWatcher.getVersion(SERVICE_NAME, VersionType.POLICY));
+	}
+
+	private static class TestListener implements ServiceVersionWatcher.Listener {
+		final List<Long> versions     = new ArrayList<Long>();
+		int              timeoutCount = 0;
+
+		@Override
+		public void onVersionChange(Long version) {
+			versions.add(version);
+		}
+
+		@Override
+		public void onTimeout() {
+			timeoutCount++;
+		}
+	}
+}
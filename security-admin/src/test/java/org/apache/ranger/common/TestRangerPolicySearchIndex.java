@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerPolicyDelta;
+import org.apache.ranger.plugin.store.AbstractPredicateUtil;
+import org.apache.ranger.plugin.util.RangerPolicyDeltaUtil;
+import org.apache.ranger.plugin.util.SearchFilter;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestRangerPolicySearchIndex {
+
+	@Test
+	public void testSearch() {
+		RangerPolicySearchIndex index = new RangerPolicySearchIndex(createPolicies());
+
+		Assert.assertEquals(Arrays.asList(1L, 2L, 3L, 4L), getIds(index.search(new SearchFilter())));
+		Assert.assertEquals(Arrays.asList(1L, 3L), getIds(index.search(new SearchFilter(SearchFilter.USER, "user1"))));
+		Assert.assertEquals(Arrays.asList(2L), getIds(index.search(new SearchFilter(SearchFilter.GROUP, "group1"))));
+		Assert.assertEquals(Arrays.asList(3L, 4L), getIds(index.search(new SearchFilter(SearchFilter.ACCESS_TYPE, "WRITE"))));
+		Assert.assertEquals(Arrays.asList(4L), getIds(index.search(new SearchFilter(SearchFilter.POLICY_ID, "4"))));
+		Assert.assertEquals(Collections.<Long>emptyList(), getIds(index.search(new SearchFilter(SearchFilter.USER, "unknown"))));
+
+		SearchFilter filter = new SearchFilter(SearchFilter.USER, "user1");
+
+		filter.setParam(SearchFilter.ACCESS_TYPE, "write");
+
+		Assert.assertEquals(Arrays.asList(3L), getIds(index.search(filter)));
+	}
+
+	@Test
+	public void testSearchForUserGroups() {
+		RangerPolicySearchIndex index = new RangerPolicySearchIndex(createPolicies());
+
+		SearchFilter filter = new SearchFilter(SearchFilter.USER, "user1");
+
+		Assert.assertEquals(Arrays.asList(1L, 2L, 3L), getIds(index.search(filter, Arrays.asList("group1"))));
+		Assert.assertEquals(Arrays.asList(1L, 3L), getIds(index.search(filter, Collections.<String>emptySet())));
+
+		// same policies are found with predicates, used when the index is disabled
+		List<RangerPolicy> policies = createPolicies();
+
+		new AbstractPredicateUtil().applyUserOrGroupsFilter(policies, "user1", Arrays.asList("group1"));
+
+		Assert.assertEquals(Arrays.asList(1L, 2L, 3L), getIds(policies));
+	}
+
+	@Test
+	public void testResourceSearch() {
+		RangerPolicySearchIndex index = new RangerPolicySearchIndex(createPolicies());
+
+		// policy 1: /data/sales, policy 2: /data/*, policy 3: /tmp, policy 4: *
+		Assert.assertEquals(Arrays.asList(1L, 2L, 4L), getIds(index.search(new SearchFilter(SearchFilter.RESOURCE_PREFIX + "path", "/data/sales"))));
+		Assert.assertEquals(Arrays.asList(2L, 4L), getIds(index.search(new SearchFilter(SearchFilter.RESOURCE_PREFIX + "path", "/data/hr"))));
+		Assert.assertEquals(Arrays.asList(4L), getIds(index.search(new SearchFilter(SearchFilter.RESOURCE_PREFIX + "path", "/home"))));
+		Assert.assertEquals(Collections.<Long>emptyList(), getIds(index.search(new SearchFilter(SearchFilter.RESOURCE_PREFIX + "table", "t1"))));
+	}
+
+	@Test
+	public void testUpdateWithDeltas() {
+		List<RangerPolicy>      oldPolicies = createPolicies();
+		RangerPolicySearchIndex index       = new RangerPolicySearchIndex(oldPolicies);
+		List<RangerPolicy>      newPolicies = createPolicies();
+
+		newPolicies.remove(0);  // delete policy 1
+
+		RangerPolicy policy2 = newPolicies.get(0);
+
+		policy2.setVersion(2L);
+		policy2.getPolicyItems().get(0).setUsers(Arrays.asList("user1"));
+
+		newPolicies.add(createPolicy(5L, "/data/sales", "user5", null, "read"));
+
+		List<RangerPolicyDelta> deltas = RangerPolicyDeltaUtil.getPolicyDeltas(oldPolicies, newPolicies);
+
+		index.update(newPolicies, deltas);
+
+		Assert.assertEquals(4, index.getPolicyCount());
+		Assert.assertEquals(Arrays.asList(2L, 3L), getIds(index.search(new SearchFilter(SearchFilter.USER, "user1"))));
+		Assert.assertEquals(Arrays.asList(5L), getIds(index.search(new SearchFilter(SearchFilter.USER, "user5"))));
+		Assert.assertEquals(Arrays.asList(2L, 4L, 5L), getIds(index.search(new SearchFilter(SearchFilter.RESOURCE_PREFIX + "path", "/data/sales"))));
+
+		// unchanged policies are returned from the new list
+		Assert.assertSame(newPolicies.get(1), index.search(new SearchFilter(SearchFilter.POLICY_ID, "3")).get(0));
+	}
+
+	private List<RangerPolicy> createPolicies() {
+		List<RangerPolicy> ret = new ArrayList<RangerPolicy>();
+
+		ret.add(createPolicy(1L, "/data/sales", "user1", null, "read"));
+		ret.add(createPolicy(2L, "/data/*", null, "group1", "read"));
+		ret.add(createPolicy(3L, "/tmp", "user1", null, "write"));
+		ret.add(createPolicy(4L, "*", "user4", "group4", "write"));
+
+		return ret;
+	}
+
+	private RangerPolicy createPolicy(Long id, String path, String user, String group, String accessType) {
+		RangerPolicy ret = new RangerPolicy();
+
+		ret.setId(id);
+		ret.setVersion(1L);
+		ret.setService("hdfs_1");
+		ret.setName("policy-" + id);
+		ret.getResources().put("path", new RangerPolicyResource(path, false, true));
+		ret.getPolicyItems().add(new RangerPolicyItem(Arrays.asList(new RangerPolicyItemAccess(accessType)),
+		                                              user == null ? null : Arrays.asList(user),
+		                                              group == null ? null : Arrays.asList(group),
+		                                              null, false));
+
+		return ret;
+	}
+
+	private List<Long> getIds(List<RangerPolicy> policies) {
+		List<Long> ret = new ArrayList<Long>();
+
+		for (RangerPolicy policy : policies) {
+			ret.add(policy.getId());
+		}
+
+		return ret;
+	}
+}
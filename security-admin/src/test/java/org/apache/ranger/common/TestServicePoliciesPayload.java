@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.common;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestServicePoliciesPayload {
+
+	@Test
+	public void testETag() {
+		ServicePoliciesPayload payload = new ServicePoliciesPayload(createServicePolicies(5L));
+
+		Assert.assertEquals("\"1-5\"", payload.getETag());
+		Assert.assertEquals("\"1-5-gzip\"", payload.getETag(ServicePoliciesPayload.ENCODING_GZIP));
+		Assert.assertTrue(payload.isNotModified("\"1-5\""));
+		Assert.assertTrue(payload.isNotModified("\"1-4\", W/\"1-5-gzip\""));
+		Assert.assertFalse(payload.isNotModified("\"1-4\""));
+		Assert.assertFalse(payload.isNotModified("\"11-5\""));
+		Assert.assertFalse(payload.isNotModified(null));
+	}
+
+	@Test
+	public void testEncoding() {
+		Assert.assertEquals(ServicePoliciesPayload.ENCODING_IDENTITY, ServicePoliciesPayload.getEncoding(null));
+		Assert.assertEquals(ServicePoliciesPayload.ENCODING_IDENTITY, ServicePoliciesPayload.getEncoding("deflate"));
+		Assert.assertEquals(ServicePoliciesPayload.ENCODING_IDENTITY, ServicePoliciesPayload.getEncoding("gzip;q=0, deflate"));
+		Assert.assertEquals(ServicePoliciesPayload.ENCODING_GZIP, ServicePoliciesPayload.getEncoding("gzip"));
+		Assert.assertEquals(ServicePoliciesPayload.ENCODING_GZIP, ServicePoliciesPayload.getEncoding("deflate, gzip; q=0.5"));
+	}
+
+	@Test
+	public void testBytesAreBuiltOnce() throws Exception {
+		ServicePoliciesPayload payload = new ServicePoliciesPayload(createServicePolicies(5L));
+
+		byte[] json     = payload.getBytes(ServicePoliciesPayload.ENCODING_IDENTITY);
+		byte[] gzipJson = payload.getBytes(ServicePoliciesPayload.ENCODING_GZIP);
+
+		Assert.assertArrayEquals(ServicePoliciesPayload.toJson(payload.getServicePolicies()), json);
+		Assert.assertSame(json, payload.getBytes(ServicePoliciesPayload.ENCODING_IDENTITY));
+		Assert.assertSame(gzipJson, payload.getBytes(ServicePoliciesPayload.ENCODING_GZIP));
+		Assert.assertArrayEquals(json, IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(gzipJson))));
+	}
+
+	private ServicePolicies createServicePolicies(Long policyVersion) {
+		ServicePolicies ret = new ServicePolicies();
+
+		ret.setServiceName("hdfs_1");
+		ret.setServiceId(1L);
+		ret.setPolicyVersion(policyVersion);
+		ret.setPolicies(new ArrayList<RangerPolicy>());
+
+		for (long i = 0; i < 10; i++) {
+			RangerPolicy policy = new RangerPolicy();
+
+			policy.setId(i);
+			policy.setName("policy-" + i);
+
+			ret.getPolicies().add(policy);
+		}
+
+		return ret;
+	}
+}